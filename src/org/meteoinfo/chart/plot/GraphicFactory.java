@@ -34,6 +34,7 @@ import org.meteoinfo.layer.VectorLayer;
 import org.meteoinfo.legend.BarBreak;
 import org.meteoinfo.legend.ColorBreak;
 import org.meteoinfo.legend.ColorBreakCollection;
+import org.meteoinfo.legend.ColorMapper;
 import org.meteoinfo.legend.LegendManage;
 import org.meteoinfo.legend.LegendScheme;
 import org.meteoinfo.legend.LegendType;
@@ -2485,52 +2486,10 @@ public class GraphicFactory {
      * @return Image graphic
      */
     public static Graphic createImage(Array gdata, LegendScheme ls, List<Number> extent) {
-        int width, height, breakNum;
+        int width, height;
         width = gdata.getShape()[1];
         height = gdata.getShape()[0];
-        breakNum = ls.getBreakNum();
-        double[] breakValue = new double[breakNum];
-        Color[] breakColor = new Color[breakNum];
-        Color undefColor = Color.white;
-        for (int i = 0; i < breakNum; i++) {
-            breakValue[i] = Double.parseDouble(ls.getLegendBreaks().get(i).getEndValue().toString());
-            breakColor[i] = ls.getLegendBreaks().get(i).getColor();
-            if (ls.getLegendBreaks().get(i).isNoData()) {
-                undefColor = ls.getLegendBreaks().get(i).getColor();
-            }
-        }
-        Color defaultColor = breakColor[breakNum - 1];    //默认颜色为最后一个颜色
-        BufferedImage aImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        double oneValue;
-        Color oneColor;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                //oneValue = gdata.data[i][j];
-                oneValue = gdata.getDouble(i * width + j);
-                if (Double.isNaN(oneValue)) {
-                    oneColor = undefColor;
-                } else {
-                    oneColor = defaultColor;
-                    if (ls.getLegendType() == LegendType.GraduatedColor) {
-                        //循环只到breakNum-1 是因为最后一个LegendBreaks的EndValue和StartValue是一样的
-                        for (int k = 0; k < breakNum - 1; k++) {
-                            if (oneValue < breakValue[k]) {
-                                oneColor = breakColor[k];
-                                break;
-                            }
-                        }
-                    } else {
-                        for (int k = 0; k < breakNum - 1; k++) {
-                            if (oneValue == breakValue[k]) {
-                                oneColor = breakColor[k];
-                                break;
-                            }
-                        }
-                    }
-                }
-                aImage.setRGB(j, height - i - 1, oneColor.getRGB());
-            }
-        }
+        BufferedImage aImage = new ColorMapper(ls).createImage(gdata, width, height, Double.NaN);
 
         ImageShape ishape = new ImageShape();
         double minx, maxx, miny, maxy;
@@ -2559,52 +2518,7 @@ public class GraphicFactory {
      * @return Image graphic
      */
     public static Graphic createImage(GridArray gdata, LegendScheme ls) {
-        int width, height, breakNum;
-        width = gdata.getXNum();
-        height = gdata.getYNum();
-        breakNum = ls.getBreakNum();
-        double[] breakValue = new double[breakNum];
-        Color[] breakColor = new Color[breakNum];
-        Color undefColor = Color.white;
-        for (int i = 0; i < breakNum; i++) {
-            breakValue[i] = Double.parseDouble(ls.getLegendBreaks().get(i).getEndValue().toString());
-            breakColor[i] = ls.getLegendBreaks().get(i).getColor();
-            if (ls.getLegendBreaks().get(i).isNoData()) {
-                undefColor = ls.getLegendBreaks().get(i).getColor();
-            }
-        }
-        Color defaultColor = breakColor[breakNum - 1];    //默认颜色为最后一个颜色
-        BufferedImage aImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        double oneValue;
-        Color oneColor;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                //oneValue = gdata.data[i][j];
-                oneValue = gdata.getDoubleValue(i, j);
-                if (Double.isNaN(oneValue) || MIMath.doubleEquals(oneValue, gdata.missingValue)) {
-                    oneColor = undefColor;
-                } else {
-                    oneColor = defaultColor;
-                    if (ls.getLegendType() == LegendType.GraduatedColor) {
-                        //循环只到breakNum-1 是因为最后一个LegendBreaks的EndValue和StartValue是一样的
-                        for (int k = 0; k < breakNum - 1; k++) {
-                            if (oneValue < breakValue[k]) {
-                                oneColor = breakColor[k];
-                                break;
-                            }
-                        }
-                    } else {
-                        for (int k = 0; k < breakNum - 1; k++) {
-                            if (oneValue == breakValue[k]) {
-                                oneColor = breakColor[k];
-                                break;
-                            }
-                        }
-                    }
-                }
-                aImage.setRGB(j, height - i - 1, oneColor.getRGB());
-            }
-        }
+        BufferedImage aImage = new ColorMapper(ls).createImage(gdata);
 
         ImageShape ishape = new ImageShape();
         double xdelta = BigDecimalUtil.mul(gdata.getXDelt(), 0.5);
@@ -2628,52 +2542,7 @@ public class GraphicFactory {
      * @return Image graphic
      */
     public static Graphic createImage(GridArray gdata, LegendScheme ls, List<Number> extent) {
-        int width, height, breakNum;
-        width = gdata.getXNum();
-        height = gdata.getYNum();
-        breakNum = ls.getBreakNum();
-        double[] breakValue = new double[breakNum];
-        Color[] breakColor = new Color[breakNum];
-        Color undefColor = Color.white;
-        for (int i = 0; i < breakNum; i++) {
-            breakValue[i] = Double.parseDouble(ls.getLegendBreaks().get(i).getEndValue().toString());
-            breakColor[i] = ls.getLegendBreaks().get(i).getColor();
-            if (ls.getLegendBreaks().get(i).isNoData()) {
-                undefColor = ls.getLegendBreaks().get(i).getColor();
-            }
-        }
-        Color defaultColor = breakColor[breakNum - 1];    //默认颜色为最后一个颜色
-        BufferedImage aImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        double oneValue;
-        Color oneColor;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                //oneValue = gdata.data[i][j];
-                oneValue = gdata.getDoubleValue(i, j);
-                if (Double.isNaN(oneValue) || MIMath.doubleEquals(oneValue, gdata.missingValue)) {
-                    oneColor = undefColor;
-                } else {
-                    oneColor = defaultColor;
-                    if (ls.getLegendType() == LegendType.GraduatedColor) {
-                        //循环只到breakNum-1 是因为最后一个LegendBreaks的EndValue和StartValue是一样的
-                        for (int k = 0; k < breakNum - 1; k++) {
-                            if (oneValue < breakValue[k]) {
-                                oneColor = breakColor[k];
-                                break;
-                            }
-                        }
-                    } else {
-                        for (int k = 0; k < breakNum - 1; k++) {
-                            if (oneValue == breakValue[k]) {
-                                oneColor = breakColor[k];
-                                break;
-                            }
-                        }
-                    }
-                }
-                aImage.setRGB(j, height - i - 1, oneColor.getRGB());
-            }
-        }
+        BufferedImage aImage = new ColorMapper(ls).createImage(gdata);
 
         ImageShape ishape = new ImageShape();
         double xmin, xmax, ymin, ymax;
@@ -0,0 +1,829 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.data;
+
+import java.util.Arrays;
+import org.meteoinfo.global.util.ParallelUtil;
+import org.meteoinfo.ma.ArrayBoolean;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.MAMath;
+
+/**
+ * Elementwise array kernels working on the primitive storage of int, float
+ * and double arrays.
+ *
+ * Operands are broadcast by strides: the result shape is walked as rows of
+ * its innermost coalesced dimension, in which each operand is either
+ * contiguous or constant, so the inner loops are plain array loops. Large
+ * arrays are split into blocks run on the shared fork/join pool. Results can
+ * be written into an existing output array to avoid temporaries.
+ *
+ * Int operations treat Integer.MIN_VALUE as missing value, float and double
+ * operations propagate NaN.
+ *
+ * @author Yaqiang Wang
+ */
+public class ArrayKernel {
+    // <editor-fold desc="Variables">
+
+    /**
+     * Binary operation
+     */
+    public enum BinaryOp {
+        ADD,
+        SUB,
+        MUL,
+        DIV,
+        POW,
+        ATAN2,
+        MAXIMUM,
+        MINIMUM,
+        FMAX,
+        FMIN
+    }
+
+    /**
+     * Comparison operation
+     */
+    public enum CompareOp {
+        EQ,
+        NE,
+        LT,
+        LE,
+        GT,
+        GE
+    }
+
+    /**
+     * Unary operation
+     */
+    public enum UnaryOp {
+        ABS,
+        EXP,
+        LOG,
+        LOG10,
+        SIN,
+        COS,
+        TAN,
+        ASIN,
+        ACOS,
+        ATAN,
+        TO_DEGREES,
+        TO_RADIANS
+    }
+
+    private static final int PARALLEL_THRESHOLD = 65536;
+    private static final int BLOCK_SIZE = 16384;
+    // </editor-fold>
+    // <editor-fold desc="Storage">
+
+    /**
+     * Get if a data type is supported by the kernels
+     *
+     * @param type Data type
+     * @return Boolean
+     */
+    public static boolean isSupported(DataType type) {
+        return type == DataType.DOUBLE || type == DataType.FLOAT || type == DataType.INT;
+    }
+
+    /**
+     * Get double values of an array in canonical order. The storage of a
+     * double array in canonical order is returned without copy.
+     *
+     * @param a Array a
+     * @return Double values
+     */
+    public static double[] getDoubleStorage(Array a) {
+        int n;
+        double[] r;
+        switch (a.getDataType()) {
+            case FLOAT:
+                float[] fs = (float[]) a.get1DJavaArray(float.class);
+                n = fs.length;
+                r = new double[n];
+                for (int i = 0; i < n; i++) {
+                    r[i] = fs[i];
+                }
+                return r;
+            case INT:
+                int[] is = (int[]) a.get1DJavaArray(int.class);
+                n = is.length;
+                r = new double[n];
+                for (int i = 0; i < n; i++) {
+                    r[i] = is[i];
+                }
+                return r;
+            default:
+                return (double[]) a.get1DJavaArray(double.class);
+        }
+    }
+
+    /**
+     * Get float values of an array in canonical order. The storage of a
+     * float array in canonical order is returned without copy.
+     *
+     * @param a Array a
+     * @return Float values
+     */
+    public static float[] getFloatStorage(Array a) {
+        int n;
+        float[] r;
+        switch (a.getDataType()) {
+            case DOUBLE:
+                double[] ds = (double[]) a.get1DJavaArray(double.class);
+                n = ds.length;
+                r = new float[n];
+                for (int i = 0; i < n; i++) {
+                    r[i] = (float) ds[i];
+                }
+                return r;
+            case INT:
+                int[] is = (int[]) a.get1DJavaArray(int.class);
+                n = is.length;
+                r = new float[n];
+                for (int i = 0; i < n; i++) {
+                    r[i] = is[i];
+                }
+                return r;
+            default:
+                return (float[]) a.get1DJavaArray(float.class);
+        }
+    }
+
+    /**
+     * Get int values of an array in canonical order. The storage of an int
+     * array in canonical order is returned without copy.
+     *
+     * @param a Array a
+     * @return Int values
+     */
+    public static int[] getIntStorage(Array a) {
+        return (int[]) a.get1DJavaArray(int.class);
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Binary operation of two arrays with broadcasting
+     *
+     * @param op Operation
+     * @param a Array a
+     * @param b Array b
+     * @param type Result data type - INT, FLOAT or DOUBLE
+     * @param out Output array, null to create a new array
+     * @return Result array, null if the arrays can not be broadcast
+     */
+    public static Array binary(final BinaryOp op, Array a, Array b, DataType type, Array out) {
+        int broadcast = ArrayMath.broadcastCheck(a, b);
+        if (broadcast == -1) {
+            return null;
+        }
+        int[] shape = broadcast == 0 ? a.getShape() : ArrayMath.broadcast(a, b);
+        int[] as = broadcastStrides(shape, a.getShape());
+        int[] bs = broadcastStrides(shape, b.getShape());
+        Array r = createResult(type, shape, out);
+        final Object rs = r.get1DJavaArray(r.getElementType());
+        switch (type) {
+            case INT: {
+                final int[] x = getIntStorage(a);
+                final int[] y = getIntStorage(b);
+                final int[] z = (int[]) rs;
+                execute(shape, as, bs, new Loop() {
+                    @Override
+                    public void run(int xo, int xs, int yo, int ys, int ro, int n) {
+                        loop(op, x, xo, xs, y, yo, ys, z, ro, n);
+                    }
+                });
+                break;
+            }
+            case FLOAT: {
+                final float[] x = getFloatStorage(a);
+                final float[] y = getFloatStorage(b);
+                final float[] z = (float[]) rs;
+                execute(shape, as, bs, new Loop() {
+                    @Override
+                    public void run(int xo, int xs, int yo, int ys, int ro, int n) {
+                        loop(op, x, xo, xs, y, yo, ys, z, ro, n);
+                    }
+                });
+                break;
+            }
+            default: {
+                final double[] x = getDoubleStorage(a);
+                final double[] y = getDoubleStorage(b);
+                final double[] z = (double[]) rs;
+                execute(shape, as, bs, new Loop() {
+                    @Override
+                    public void run(int xo, int xs, int yo, int ys, int ro, int n) {
+                        loop(op, x, xo, xs, y, yo, ys, z, ro, n);
+                    }
+                });
+                break;
+            }
+        }
+
+        return finishResult(r, rs);
+    }
+
+    /**
+     * Binary operation of an array and a number
+     *
+     * @param op Operation
+     * @param a Array a
+     * @param b Number b
+     * @param type Result data type - INT, FLOAT or DOUBLE
+     * @param out Output array, null to create a new array
+     * @return Result array
+     */
+    public static Array binary(BinaryOp op, Array a, double b, DataType type, Array out) {
+        return binary(op, a, scalar(b, type), type, out);
+    }
+
+    /**
+     * Binary operation of a number and an array
+     *
+     * @param op Operation
+     * @param a Number a
+     * @param b Array b
+     * @param type Result data type - INT, FLOAT or DOUBLE
+     * @param out Output array, null to create a new array
+     * @return Result array
+     */
+    public static Array binary(BinaryOp op, double a, Array b, DataType type, Array out) {
+        return binary(op, scalar(a, type), b, type, out);
+    }
+
+    /**
+     * Compare two arrays with broadcasting
+     *
+     * @param op Comparison operation
+     * @param a Array a
+     * @param b Array b
+     * @return Boolean result array, null if the arrays can not be broadcast
+     */
+    public static Array compare(final CompareOp op, Array a, Array b) {
+        int broadcast = ArrayMath.broadcastCheck(a, b);
+        if (broadcast == -1) {
+            return null;
+        }
+        int[] shape = broadcast == 0 ? a.getShape() : ArrayMath.broadcast(a, b);
+        final double[] x = getDoubleStorage(a);
+        final double[] y = getDoubleStorage(b);
+        Array r = new ArrayBoolean(shape);
+        final boolean[] z = (boolean[]) r.getStorage();
+        execute(shape, broadcastStrides(shape, a.getShape()), broadcastStrides(shape, b.getShape()), new Loop() {
+            @Override
+            public void run(int xo, int xs, int yo, int ys, int ro, int n) {
+                loop(op, x, xo, xs, y, yo, ys, z, ro, n);
+            }
+        });
+
+        return r;
+    }
+
+    /**
+     * Compare an array with a number. Equal and not equal comparisons with
+     * NaN test if the values are NaN.
+     *
+     * @param op Comparison operation
+     * @param a Array a
+     * @param b Number b
+     * @return Boolean result array
+     */
+    public static Array compare(CompareOp op, Array a, double b) {
+        if (Double.isNaN(b) && (op == CompareOp.EQ || op == CompareOp.NE)) {
+            final double[] x = getDoubleStorage(a);
+            Array r = new ArrayBoolean(a.getShape());
+            final boolean[] z = (boolean[]) r.getStorage();
+            final boolean isEq = op == CompareOp.EQ;
+            ParallelUtil.parallelFor(x.length, PARALLEL_THRESHOLD, new ParallelUtil.RangeTask() {
+                @Override
+                public void run(int start, int end) {
+                    for (int i = start; i < end; i++) {
+                        z[i] = Double.isNaN(x[i]) == isEq;
+                    }
+                }
+            });
+            return r;
+        }
+
+        return compare(op, a, scalar(b, DataType.DOUBLE));
+    }
+
+    /**
+     * Unary operation of an array
+     *
+     * @param op Operation
+     * @param a Array a
+     * @param type Result data type - INT, FLOAT or DOUBLE
+     * @param out Output array, null to create a new array
+     * @return Result array
+     */
+    public static Array unary(final UnaryOp op, Array a, DataType type, Array out) {
+        int[] shape = a.getShape();
+        final double[] x = getDoubleStorage(a);
+        Array r = createResult(type, shape, out);
+        final Object rs = r.get1DJavaArray(r.getElementType());
+        ParallelUtil.parallelFor(x.length, PARALLEL_THRESHOLD, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                if (rs instanceof double[]) {
+                    double[] z = (double[]) rs;
+                    for (int i = start; i < end; i++) {
+                        z[i] = apply(op, x[i]);
+                    }
+                } else if (rs instanceof float[]) {
+                    float[] z = (float[]) rs;
+                    for (int i = start; i < end; i++) {
+                        z[i] = (float) apply(op, x[i]);
+                    }
+                } else {
+                    int[] z = (int[]) rs;
+                    for (int i = start; i < end; i++) {
+                        z[i] = (int) apply(op, x[i]);
+                    }
+                }
+            }
+        });
+
+        return finishResult(r, rs);
+    }
+
+    private static Array scalar(double v, DataType type) {
+        Array r = Array.factory(type, new int[0]);
+        r.setDouble(0, v);
+        return r;
+    }
+
+    private static Array createResult(DataType type, int[] shape, Array out) {
+        if (!isSupported(type)) {
+            throw new IllegalArgumentException("Data type not supported: " + type.toString());
+        }
+        if (out == null) {
+            return Array.factory(type, shape);
+        }
+        if (out.getDataType() != type || !Arrays.equals(out.getShape(), shape)) {
+            throw new IllegalArgumentException("Output array must be " + type.toString()
+                    + " array of shape " + Arrays.toString(shape));
+        }
+        return out;
+    }
+
+    /**
+     * Copy the computed values back if the result array storage could not be
+     * written directly
+     */
+    private static Array finishResult(Array r, Object storage) {
+        if (storage != r.getStorage()) {
+            MAMath.copy(r, Array.factory(r.getDataType(), r.getShape(), storage));
+        }
+        return r;
+    }
+
+    /**
+     * Get element strides of an operand in the broadcast result shape, 0 for
+     * broadcast dimensions
+     */
+    private static int[] broadcastStrides(int[] shape, int[] xshape) {
+        int n = shape.length;
+        int nx = xshape.length;
+        int[] strides = new int[n];
+        int s = 1;
+        for (int d = nx - 1; d >= 0; d--) {
+            strides[d + n - nx] = xshape[d] == 1 ? 0 : s;
+            s *= xshape[d];
+        }
+        return strides;
+    }
+
+    /**
+     * Run a loop over the rows of the innermost coalesced dimension of the
+     * result shape. Adjacent dimensions are coalesced when both operands step
+     * through them uniformly, so contiguous arrays are one row.
+     */
+    private static void execute(int[] shape, int[] as, int[] bs, final Loop loop) {
+        int rank = shape.length;
+        final int[] cs = new int[Math.max(1, rank)];
+        final int[] ca = new int[cs.length];
+        final int[] cb = new int[cs.length];
+        int m = 0;
+        for (int d = rank - 1; d >= 0; d--) {
+            if (shape[d] == 1) {
+                continue;
+            }
+            if (m > 0 && as[d] == ca[m - 1] * cs[m - 1] && bs[d] == cb[m - 1] * cs[m - 1]) {
+                cs[m - 1] *= shape[d];
+            } else {
+                cs[m] = shape[d];
+                ca[m] = as[d];
+                cb[m] = bs[d];
+                m += 1;
+            }
+        }
+        if (m == 0) {
+            cs[0] = 1;
+            m = 1;
+        }
+
+        final int dimNum = m;
+        final int len = cs[0];
+        int rows = 1;
+        for (int k = 1; k < m; k++) {
+            rows *= cs[k];
+        }
+        if (rows == 0 || len == 0) {
+            return;
+        }
+        final int blockSize = Math.min(len, BLOCK_SIZE);
+        final int blockNum = (len + blockSize - 1) / blockSize;
+        ParallelUtil.parallelFor(rows * blockNum, Math.max(1, PARALLEL_THRESHOLD / blockSize),
+                new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int t = start; t < end; t++) {
+                    int row = t / blockNum;
+                    int j0 = (t % blockNum) * blockSize;
+                    int ao = 0, bo = 0, idx = row;
+                    for (int k = 1; k < dimNum; k++) {
+                        int ik = idx % cs[k];
+                        idx /= cs[k];
+                        ao += ik * ca[k];
+                        bo += ik * cb[k];
+                    }
+                    ao += j0 * ca[0];
+                    bo += j0 * cb[0];
+                    loop.run(ao, ca[0], bo, cb[0], row * len + j0, Math.min(blockSize, len - j0));
+                }
+            }
+        });
+    }
+
+    private interface Loop {
+
+        void run(int xo, int xs, int yo, int ys, int ro, int n);
+    }
+    // </editor-fold>
+    // <editor-fold desc="Loops">
+
+    private static void loop(BinaryOp op, double[] x, int xo, int xs, double[] y, int yo, int ys,
+            double[] r, int ro, int n) {
+        int i;
+        switch (op) {
+            case ADD:
+                if (xs == 1 && ys == 1) {
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i] + y[yo + i];
+                    }
+                    return;
+                } else if (ys == 0) {
+                    double v = y[yo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i * xs] + v;
+                    }
+                    return;
+                } else if (xs == 0) {
+                    double v = x[xo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = v + y[yo + i * ys];
+                    }
+                    return;
+                }
+                break;
+            case SUB:
+                if (xs == 1 && ys == 1) {
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i] - y[yo + i];
+                    }
+                    return;
+                } else if (ys == 0) {
+                    double v = y[yo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i * xs] - v;
+                    }
+                    return;
+                } else if (xs == 0) {
+                    double v = x[xo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = v - y[yo + i * ys];
+                    }
+                    return;
+                }
+                break;
+            case MUL:
+                if (xs == 1 && ys == 1) {
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i] * y[yo + i];
+                    }
+                    return;
+                } else if (ys == 0) {
+                    double v = y[yo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i * xs] * v;
+                    }
+                    return;
+                } else if (xs == 0) {
+                    double v = x[xo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = v * y[yo + i * ys];
+                    }
+                    return;
+                }
+                break;
+            case DIV:
+                if (xs == 1 && ys == 1) {
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i] / y[yo + i];
+                    }
+                    return;
+                } else if (ys == 0) {
+                    double v = y[yo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i * xs] / v;
+                    }
+                    return;
+                } else if (xs == 0) {
+                    double v = x[xo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = v / y[yo + i * ys];
+                    }
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        for (i = 0; i < n; i++) {
+            r[ro + i] = apply(op, x[xo + i * xs], y[yo + i * ys]);
+        }
+    }
+
+    private static void loop(BinaryOp op, float[] x, int xo, int xs, float[] y, int yo, int ys,
+            float[] r, int ro, int n) {
+        int i;
+        switch (op) {
+            case ADD:
+                if (xs == 1 && ys == 1) {
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i] + y[yo + i];
+                    }
+                    return;
+                } else if (ys == 0) {
+                    float v = y[yo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i * xs] + v;
+                    }
+                    return;
+                } else if (xs == 0) {
+                    float v = x[xo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = v + y[yo + i * ys];
+                    }
+                    return;
+                }
+                break;
+            case SUB:
+                if (xs == 1 && ys == 1) {
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i] - y[yo + i];
+                    }
+                    return;
+                } else if (ys == 0) {
+                    float v = y[yo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i * xs] - v;
+                    }
+                    return;
+                } else if (xs == 0) {
+                    float v = x[xo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = v - y[yo + i * ys];
+                    }
+                    return;
+                }
+                break;
+            case MUL:
+                if (xs == 1 && ys == 1) {
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i] * y[yo + i];
+                    }
+                    return;
+                } else if (ys == 0) {
+                    float v = y[yo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i * xs] * v;
+                    }
+                    return;
+                } else if (xs == 0) {
+                    float v = x[xo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = v * y[yo + i * ys];
+                    }
+                    return;
+                }
+                break;
+            case DIV:
+                if (xs == 1 && ys == 1) {
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i] / y[yo + i];
+                    }
+                    return;
+                } else if (ys == 0) {
+                    float v = y[yo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = x[xo + i * xs] / v;
+                    }
+                    return;
+                } else if (xs == 0) {
+                    float v = x[xo];
+                    for (i = 0; i < n; i++) {
+                        r[ro + i] = v / y[yo + i * ys];
+                    }
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        for (i = 0; i < n; i++) {
+            r[ro + i] = apply(op, x[xo + i * xs], y[yo + i * ys]);
+        }
+    }
+
+    private static void loop(BinaryOp op, int[] x, int xo, int xs, int[] y, int yo, int ys,
+            int[] r, int ro, int n) {
+        for (int i = 0; i < n; i++) {
+            r[ro + i] = apply(op, x[xo + i * xs], y[yo + i * ys]);
+        }
+    }
+
+    private static void loop(CompareOp op, double[] x, int xo, int xs, double[] y, int yo, int ys,
+            boolean[] r, int ro, int n) {
+        int i;
+        switch (op) {
+            case EQ:
+                for (i = 0; i < n; i++) {
+                    r[ro + i] = x[xo + i * xs] == y[yo + i * ys];
+                }
+                break;
+            case NE:
+                for (i = 0; i < n; i++) {
+                    r[ro + i] = x[xo + i * xs] != y[yo + i * ys];
+                }
+                break;
+            case LT:
+                for (i = 0; i < n; i++) {
+                    r[ro + i] = x[xo + i * xs] < y[yo + i * ys];
+                }
+                break;
+            case LE:
+                for (i = 0; i < n; i++) {
+                    r[ro + i] = x[xo + i * xs] <= y[yo + i * ys];
+                }
+                break;
+            case GT:
+                for (i = 0; i < n; i++) {
+                    r[ro + i] = x[xo + i * xs] > y[yo + i * ys];
+                }
+                break;
+            case GE:
+                for (i = 0; i < n; i++) {
+                    r[ro + i] = x[xo + i * xs] >= y[yo + i * ys];
+                }
+                break;
+        }
+    }
+
+    private static double apply(BinaryOp op, double x, double y) {
+        switch (op) {
+            case ADD:
+                return x + y;
+            case SUB:
+                return x - y;
+            case MUL:
+                return x * y;
+            case DIV:
+                return x / y;
+            case POW:
+                if (Double.isNaN(x) || Double.isNaN(y)) {
+                    return Double.NaN;
+                }
+                return Math.pow(x, y);
+            case ATAN2:
+                return Math.atan2(x, y);
+            case MAXIMUM:
+                return Math.max(x, y);
+            case MINIMUM:
+                return Math.min(x, y);
+            case FMAX:
+                if (Double.isNaN(x)) {
+                    return y;
+                }
+                if (Double.isNaN(y)) {
+                    return x;
+                }
+                return Math.max(x, y);
+            case FMIN:
+                if (Double.isNaN(x)) {
+                    return y;
+                }
+                if (Double.isNaN(y)) {
+                    return x;
+                }
+                return Math.min(x, y);
+            default:
+                return Double.NaN;
+        }
+    }
+
+    private static float apply(BinaryOp op, float x, float y) {
+        switch (op) {
+            case ADD:
+                return x + y;
+            case SUB:
+                return x - y;
+            case MUL:
+                return x * y;
+            case DIV:
+                return x / y;
+            default:
+                return (float) apply(op, (double) x, (double) y);
+        }
+    }
+
+    private static int apply(BinaryOp op, int x, int y) {
+        switch (op) {
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV:
+                if (x == Integer.MIN_VALUE || y == Integer.MIN_VALUE) {
+                    return Integer.MIN_VALUE;
+                }
+                switch (op) {
+                    case ADD:
+                        return x + y;
+                    case SUB:
+                        return x - y;
+                    case MUL:
+                        return x * y;
+                    default:
+                        return x / y;
+                }
+            case POW:
+                return (int) Math.pow(x, y);
+            case MAXIMUM:
+            case FMAX:
+                return Math.max(x, y);
+            case MINIMUM:
+            case FMIN:
+                return Math.min(x, y);
+            default:
+                return (int) apply(op, (double) x, (double) y);
+        }
+    }
+
+    private static double apply(UnaryOp op, double x) {
+        switch (op) {
+            case ABS:
+                return Math.abs(x);
+            case EXP:
+                return Math.exp(x);
+            case LOG:
+                return Math.log(x);
+            case LOG10:
+                return Math.log10(x);
+            case SIN:
+                return Math.sin(x);
+            case COS:
+                return Math.cos(x);
+            case TAN:
+                return Math.tan(x);
+            case ASIN:
+                return Math.asin(x);
+            case ACOS:
+                return Math.acos(x);
+            case ATAN:
+                return Math.atan(x);
+            case TO_DEGREES:
+                return Math.toDegrees(x);
+            case TO_RADIANS:
+                return Math.toRadians(x);
+            default:
+                return Double.NaN;
+        }
+    }
+    // </editor-fold>
+}
@@ -10,7 +10,7 @@ import java.util.Arrays;
 import java.util.List;
 import org.meteoinfo.math.meteo.MeteoMath;
 import org.meteoinfo.data.analysis.Statistics;
-import org.meteoinfo.geoprocess.GeoComputation;
+import org.meteoinfo.geoprocess.PolygonMask;
 import org.meteoinfo.global.MIMath;
 import org.meteoinfo.global.PointD;
 import org.meteoinfo.layer.VectorLayer;
@@ -345,6 +345,30 @@ public class ArrayMath {
         return addComplex(a, new Complex(b.real, b.imag));
     }
 
+    /**
+     * Array add into an output array
+     *
+     * @param a Array a
+     * @param b Array b
+     * @param out Output array of the broadcast shape with INT, FLOAT or DOUBLE data type
+     * @return Output array
+     */
+    public static Array add(Array a, Array b, Array out) {
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.ADD, a, b, out.getDataType(), out);
+    }
+
+    /**
+     * Array add into an output array
+     *
+     * @param a Array a
+     * @param b Number b
+     * @param out Output array of the same shape with INT, FLOAT or DOUBLE data type
+     * @return Output array
+     */
+    public static Array add(Array a, Number b, Array out) {
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.ADD, a, b.doubleValue(), out.getDataType(), out);
+    }
+
     private static Array addInt_bak(Array a, Array b) {
         int broadcast = broadcastCheck(a, b);
         if (broadcast != -1) {
@@ -379,159 +403,27 @@ public class ArrayMath {
     }
 
     private static Array addInt(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.INT, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (a.getInt(i) == Integer.MIN_VALUE || b.getInt(i) == Integer.MIN_VALUE) {
-                        r.setInt(i, Integer.MIN_VALUE);
-                    } else {
-                        r.setInt(i, a.getInt(i) + b.getInt(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.INT, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (a.getInt(aindex) == Integer.MIN_VALUE || b.getInt(bindex) == Integer.MIN_VALUE) {
-                        r.setInt(i, Integer.MIN_VALUE);
-                    } else {
-                        r.setInt(i, a.getInt(aindex) + b.getInt(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.ADD, a, b, DataType.INT, null);
     }
 
     private static Array addInt(Array a, int b) {
-        Array r = Array.factory(DataType.INT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getInt(i) == Integer.MIN_VALUE) {
-                r.setInt(i, Integer.MIN_VALUE);
-            } else {
-                r.setInt(i, a.getInt(i) + b);
-            }
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.ADD, a, b, DataType.INT, null);
     }
 
     private static Array addFloat(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.FLOAT, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (Float.isNaN(a.getFloat(i)) || Float.isNaN(b.getFloat(i))) {
-                        r.setFloat(i, Float.NaN);
-                    } else {
-                        r.setFloat(i, a.getFloat(i) + b.getFloat(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.FLOAT, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (Float.isNaN(a.getFloat(aindex)) || Float.isNaN(b.getFloat(bindex))) {
-                        r.setFloat(i, Float.NaN);
-                    } else {
-                        r.setFloat(i, a.getFloat(aindex) + b.getFloat(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.ADD, a, b, DataType.FLOAT, null);
     }
 
     private static Array addFloat(Array a, float b) {
-        Array r = Array.factory(DataType.FLOAT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (Float.isNaN(a.getFloat(i))) {
-                r.setFloat(i, Float.NaN);
-            } else {
-                r.setFloat(i, a.getFloat(i) + b);
-            }
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.ADD, a, b, DataType.FLOAT, null);
     }
 
     private static Array addDouble(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.DOUBLE, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (Double.isNaN(a.getDouble(i)) || Double.isNaN(b.getDouble(i))) {
-                        r.setDouble(i, Double.NaN);
-                    } else {
-                        r.setDouble(i, a.getDouble(i) + b.getDouble(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.DOUBLE, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (Double.isNaN(a.getDouble(aindex)) || Double.isNaN(b.getDouble(bindex))) {
-                        r.setDouble(i, Double.NaN);
-                    } else {
-                        r.setDouble(i, a.getDouble(aindex) + b.getDouble(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.ADD, a, b, DataType.DOUBLE, null);
     }
 
     private static Array addDouble(Array a, double b) {
-        Array r = Array.factory(DataType.DOUBLE, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (Double.isNaN(a.getDouble(i))) {
-                r.setDouble(i, Double.NaN);
-            } else {
-                r.setDouble(i, a.getDouble(i) + b);
-            }
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.ADD, a, b, DataType.DOUBLE, null);
     }
 
     private static Array addComplex(Array a, Array b) {
@@ -739,6 +631,30 @@ public class ArrayMath {
         return subComplex(a, new Complex(b.real, b.imag));
     }
 
+    /**
+     * Array subtract into an output array
+     *
+     * @param a Array a
+     * @param b Array b
+     * @param out Output array of the broadcast shape with INT, FLOAT or DOUBLE data type
+     * @return Output array
+     */
+    public static Array sub(Array a, Array b, Array out) {
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, a, b, out.getDataType(), out);
+    }
+
+    /**
+     * Array subtract into an output array
+     *
+     * @param a Array a
+     * @param b Number b
+     * @param out Output array of the same shape with INT, FLOAT or DOUBLE data type
+     * @return Output array
+     */
+    public static Array sub(Array a, Number b, Array out) {
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, a, b.doubleValue(), out.getDataType(), out);
+    }
+
     /**
      * Array subtract
      *
@@ -790,166 +706,39 @@ public class ArrayMath {
     }
 
     private static Array subInt(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.INT, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    r.setInt(i, a.getInt(i) - b.getInt(i));
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.INT, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    r.setInt(i, a.getInt(aindex) - b.getInt(bindex));
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, a, b, DataType.INT, null);
     }
 
     private static Array subInt(Array a, int b) {
-        Array r = Array.factory(DataType.INT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setInt(i, a.getInt(i) - b);
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, a, b, DataType.INT, null);
     }
 
     private static Array subInt(int b, Array a) {
-        Array r = Array.factory(DataType.INT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setInt(i, b - a.getInt(i));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, b, a, DataType.INT, null);
     }
 
     private static Array subFloat(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.FLOAT, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (Float.isNaN(a.getFloat(i)) || Float.isNaN(b.getFloat(i))) {
-                        r.setFloat(i, Float.NaN);
-                    } else {
-                        r.setFloat(i, a.getFloat(i) - b.getFloat(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.FLOAT, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (Float.isNaN(a.getFloat(aindex)) || Float.isNaN(b.getFloat(bindex))) {
-                        r.setFloat(i, Float.NaN);
-                    } else {
-                        r.setFloat(i, a.getFloat(aindex) - b.getFloat(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, a, b, DataType.FLOAT, null);
     }
 
     private static Array subFloat(Array a, float b) {
-        Array r = Array.factory(DataType.FLOAT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setFloat(i, a.getFloat(i) - b);
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, a, b, DataType.FLOAT, null);
     }
 
     private static Array subFloat(float b, Array a) {
-        Array r = Array.factory(DataType.FLOAT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setFloat(i, b - a.getFloat(i));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, b, a, DataType.FLOAT, null);
     }
 
     private static Array subDouble(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.DOUBLE, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (Double.isNaN(a.getDouble(i)) || Double.isNaN(b.getDouble(i))) {
-                        r.setDouble(i, Double.NaN);
-                    } else {
-                        r.setDouble(i, a.getDouble(i) - b.getDouble(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.DOUBLE, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (Double.isNaN(a.getDouble(aindex)) || Double.isNaN(b.getDouble(bindex))) {
-                        r.setDouble(i, Double.NaN);
-                    } else {
-                        r.setDouble(i, a.getDouble(aindex) - b.getDouble(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, a, b, DataType.DOUBLE, null);
     }
 
     private static Array subDouble(Array a, double b) {
-        Array r = Array.factory(DataType.DOUBLE, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setDouble(i, a.getDouble(i) - b);
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, a, b, DataType.DOUBLE, null);
     }
 
     private static Array subDouble(double b, Array a) {
-        Array r = Array.factory(DataType.DOUBLE, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setDouble(i, b - a.getDouble(i));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.SUB, b, a, DataType.DOUBLE, null);
     }
 
     private static Array subComplex(Array a, Array b) {
@@ -1187,160 +976,52 @@ public class ArrayMath {
         return ArrayMath.mulComplex(a, new Complex(b.real, b.imag));
     }
 
+    /**
+     * Array multiply into an output array
+     *
+     * @param a Array a
+     * @param b Array b
+     * @param out Output array of the broadcast shape with INT, FLOAT or DOUBLE data type
+     * @return Output array
+     */
+    public static Array mul(Array a, Array b, Array out) {
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.MUL, a, b, out.getDataType(), out);
+    }
+
+    /**
+     * Array multiply into an output array
+     *
+     * @param a Array a
+     * @param b Number b
+     * @param out Output array of the same shape with INT, FLOAT or DOUBLE data type
+     * @return Output array
+     */
+    public static Array mul(Array a, Number b, Array out) {
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.MUL, a, b.doubleValue(), out.getDataType(), out);
+    }
+
     private static Array mulInt(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.INT, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (a.getInt(i) == Integer.MIN_VALUE || b.getInt(i) == Integer.MIN_VALUE) {
-                        r.setInt(i, Integer.MIN_VALUE);
-                    } else {
-                        r.setInt(i, a.getInt(i) * b.getInt(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.INT, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (a.getInt(aindex) == Integer.MIN_VALUE || b.getInt(bindex) == Integer.MIN_VALUE) {
-                        r.setInt(i, Integer.MIN_VALUE);
-                    } else {
-                        r.setInt(i, a.getInt(aindex) * b.getInt(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.MUL, a, b, DataType.INT, null);
     }
 
     private static Array mulInt(Array a, int b) {
-        Array r = Array.factory(DataType.INT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getInt(i) == Integer.MIN_VALUE) {
-                r.setInt(i, Integer.MIN_VALUE);
-            } else {
-                r.setInt(i, a.getInt(i) * b);
-            }
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.MUL, a, b, DataType.INT, null);
     }
 
     private static Array mulFloat(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.FLOAT, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (Float.isNaN(a.getFloat(i)) || Float.isNaN(b.getFloat(i))) {
-                        r.setFloat(i, Float.NaN);
-                    } else {
-                        r.setFloat(i, a.getFloat(i) * b.getFloat(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.FLOAT, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (Float.isNaN(a.getFloat(aindex)) || Float.isNaN(b.getFloat(bindex))) {
-                        r.setFloat(i, Float.NaN);
-                    } else {
-                        r.setFloat(i, a.getFloat(aindex) * b.getFloat(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.MUL, a, b, DataType.FLOAT, null);
     }
 
     private static Array mulFloat(Array a, float b) {
-        Array r = Array.factory(DataType.FLOAT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (Float.isNaN(a.getFloat(i))) {
-                r.setFloat(i, Float.NaN);
-            } else {
-                r.setFloat(i, a.getFloat(i) * b);
-            }
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.MUL, a, b, DataType.FLOAT, null);
     }
 
     private static Array mulDouble(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.DOUBLE, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (Double.isNaN(a.getDouble(i)) || Double.isNaN(b.getDouble(i))) {
-                        r.setDouble(i, Double.NaN);
-                    } else {
-                        r.setDouble(i, a.getDouble(i) * b.getDouble(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.DOUBLE, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (Double.isNaN(a.getDouble(aindex)) || Double.isNaN(b.getDouble(bindex))) {
-                        r.setDouble(i, Double.NaN);
-                    } else {
-                        r.setDouble(i, a.getDouble(aindex) * b.getDouble(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.MUL, a, b, DataType.DOUBLE, null);
     }
 
     private static Array mulDouble(Array a, double b) {
-        Array r = Array.factory(DataType.DOUBLE, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (Double.isNaN(a.getDouble(i))) {
-                r.setDouble(i, Double.NaN);
-            } else {
-                r.setDouble(i, a.getDouble(i) * b);
-            }
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.MUL, a, b, DataType.DOUBLE, null);
     }
 
     private static Array mulComplex(Array a, Array b) {
@@ -1548,6 +1229,30 @@ public class ArrayMath {
         return divComplex(a, new Complex(b.real, b.imag));
     }
 
+    /**
+     * Array divide into an output array
+     *
+     * @param a Array a
+     * @param b Array b
+     * @param out Output array of the broadcast shape with INT, FLOAT or DOUBLE data type
+     * @return Output array
+     */
+    public static Array div(Array a, Array b, Array out) {
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, a, b, out.getDataType(), out);
+    }
+
+    /**
+     * Array divide into an output array
+     *
+     * @param a Array a
+     * @param b Number b
+     * @param out Output array of the same shape with INT, FLOAT or DOUBLE data type
+     * @return Output array
+     */
+    public static Array div(Array a, Number b, Array out) {
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, a, b.doubleValue(), out.getDataType(), out);
+    }
+
     /**
      * Array divide
      *
@@ -1599,174 +1304,39 @@ public class ArrayMath {
     }
 
     private static Array divInt(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.INT, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (a.getInt(i) == Integer.MIN_VALUE || b.getInt(i) == Integer.MIN_VALUE) {
-                        r.setInt(i, Integer.MIN_VALUE);
-                    } else {
-                        r.setInt(i, a.getInt(i) / b.getInt(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.INT, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (a.getInt(aindex) == Integer.MIN_VALUE || b.getInt(bindex) == Integer.MIN_VALUE) {
-                        r.setInt(i, Integer.MIN_VALUE);
-                    } else {
-                        r.setInt(i, a.getInt(aindex) / b.getInt(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, a, b, DataType.INT, null);
     }
 
     private static Array divInt(Array a, int b) {
-        Array r = Array.factory(DataType.INT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setInt(i, a.getInt(i) / b);
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, a, b, DataType.INT, null);
     }
 
     private static Array divInt(int b, Array a) {
-        Array r = Array.factory(DataType.INT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setInt(i, b / a.getInt(i));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, b, a, DataType.INT, null);
     }
 
     private static Array divFloat(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.FLOAT, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (Float.isNaN(a.getFloat(i)) || Float.isNaN(b.getFloat(i))) {
-                        r.setFloat(i, Float.NaN);
-                    } else {
-                        r.setFloat(i, a.getFloat(i) / b.getFloat(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.FLOAT, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (Float.isNaN(a.getFloat(aindex)) || Float.isNaN(b.getFloat(bindex))) {
-                        r.setFloat(i, Float.NaN);
-                    } else {
-                        r.setFloat(i, a.getFloat(aindex) / b.getFloat(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, a, b, DataType.FLOAT, null);
     }
 
-    private static Array divFloat(Array a, float b) {
-        Array r = Array.factory(DataType.FLOAT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setFloat(i, a.getFloat(i) / b);
-        }
-
-        return r;
+    private static Array divFloat(Array a, float b) {
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, a, b, DataType.FLOAT, null);
     }
 
     private static Array divFloat(float b, Array a) {
-        Array r = Array.factory(DataType.FLOAT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setFloat(i, b / a.getFloat(i));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, b, a, DataType.FLOAT, null);
     }
 
     private static Array divDouble(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.DOUBLE, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (Double.isNaN(a.getDouble(i)) || Double.isNaN(b.getDouble(i))) {
-                        r.setDouble(i, Double.NaN);
-                    } else {
-                        r.setDouble(i, a.getDouble(i) / b.getDouble(i));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.DOUBLE, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (Double.isNaN(a.getDouble(aindex)) || Double.isNaN(b.getDouble(bindex))) {
-                        r.setDouble(i, Double.NaN);
-                    } else {
-                        r.setDouble(i, a.getDouble(aindex) / b.getDouble(bindex));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, a, b, DataType.DOUBLE, null);
     }
 
     private static Array divDouble(Array a, double b) {
-        Array r = Array.factory(DataType.DOUBLE, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setDouble(i, a.getDouble(i) / b);
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, a, b, DataType.DOUBLE, null);
     }
 
     private static Array divDouble(double b, Array a) {
-        Array r = Array.factory(DataType.DOUBLE, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setDouble(i, b / a.getDouble(i));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.DIV, b, a, DataType.DOUBLE, null);
     }
 
     private static Array divComplex(Array a, Array b) {
@@ -2051,109 +1621,27 @@ public class ArrayMath {
     }
 
     private static Array powInt(Array a, int b) {
-        Array r = Array.factory(DataType.INT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setInt(i, (int) Math.pow(a.getInt(i), b));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.POW, a, b, DataType.INT, null);
     }
 
     private static Array powInt(int a, Array b) {
-        Array r = Array.factory(DataType.INT, b.getShape());
-        for (int i = 0; i < b.getSize(); i++) {
-            r.setInt(i, (int) Math.pow(a, b.getInt(i)));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.POW, a, b, DataType.INT, null);
     }
 
     private static Array powInt(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.INT, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    r.setInt(i, (int) Math.pow(a.getInt(i), b.getInt(i)));
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.INT, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    r.setInt(i, (int) Math.pow(a.getInt(aindex), b.getInt(bindex)));
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.POW, a, b, DataType.INT, null);
     }
 
     private static Array powDouble(Array a, double b) {
-        Array r = Array.factory(DataType.DOUBLE, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setDouble(i, Math.pow(a.getDouble(i), b));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.POW, a, b, DataType.DOUBLE, null);
     }
 
     private static Array powDouble(double a, Array b) {
-        Array r = Array.factory(DataType.DOUBLE, b.getShape());
-        for (int i = 0; i < b.getSize(); i++) {
-            r.setDouble(i, Math.pow(a, b.getDouble(i)));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.POW, a, b, DataType.DOUBLE, null);
     }
 
     private static Array powDouble(Array a, Array b) {
-        int broadcast = broadcastCheck(a, b);
-        switch (broadcast) {
-            case 0:
-                Array r = Array.factory(DataType.DOUBLE, a.getShape());
-                for (int i = 0; i < a.getSize(); i++) {
-                    if (Double.isNaN(a.getDouble(i)) || Double.isNaN(b.getDouble(i))) {
-                        r.setDouble(i, Double.NaN);
-                    } else {
-                        r.setDouble(i, Math.pow(a.getDouble(i), b.getDouble(i)));
-                    }
-                }
-                return r;
-            case 1:
-                int[] shape = broadcast(a, b);
-                r = Array.factory(DataType.DOUBLE, shape);
-                Index index = r.getIndex();
-                Index aindex = a.getIndex();
-                Index bindex = b.getIndex();
-                int n = r.getRank();
-                int na = a.getRank();
-                int nb = b.getRank();
-                int[] current;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = index.getCurrentCounter();
-                    setIndex(aindex, bindex, current, n, na, nb);
-                    if (Double.isNaN(a.getDouble(aindex)) || Double.isNaN(b.getDouble(bindex))) {
-                        r.setDouble(i, Double.NaN);
-                    } else {
-                        r.setDouble(i, Math.pow(a.getDouble(aindex), b.getDouble(bindex)));
-                    }
-                    index.incr();
-                }
-                return r;
-            default:
-                return null;
-        }
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.POW, a, b, DataType.DOUBLE, null);
     }
 
     private static Array powComplex(Array a, Array b) {
@@ -2338,10 +1826,7 @@ public class ArrayMath {
                 r.setObject(i, ((Complex) a.getObject(i)).exp());
             }
         } else {
-            r = Array.factory(DataType.DOUBLE, a.getShape());
-            for (int i = 0; i < a.getSize(); i++) {
-                r.setDouble(i, Math.exp(a.getDouble(i)));
-            }
+            r = ArrayKernel.unary(ArrayKernel.UnaryOp.EXP, a, DataType.DOUBLE, null);
         }
 
         return r;
@@ -2361,10 +1846,7 @@ public class ArrayMath {
                 r.setObject(i, ((Complex) a.getObject(i)).log());
             }
         } else {
-            r = Array.factory(DataType.DOUBLE, a.getShape());
-            for (int i = 0; i < a.getSize(); i++) {
-                r.setDouble(i, Math.log(a.getDouble(i)));
-            }
+            r = ArrayKernel.unary(ArrayKernel.UnaryOp.LOG, a, DataType.DOUBLE, null);
         }
 
         return r;
@@ -2377,12 +1859,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array log10(Array a) {
-        Array r = Array.factory(DataType.DOUBLE, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setDouble(i, Math.log10(a.getDouble(i)));
-        }
-
-        return r;
+        return ArrayKernel.unary(ArrayKernel.UnaryOp.LOG10, a, DataType.DOUBLE, null);
     }
 
     /**
@@ -2398,6 +1875,8 @@ public class ArrayMath {
             for (int i = 0; i < a.getSize(); i++) {
                 r.setDouble(i, ((Complex) a.getObject(i)).abs());
             }
+        } else if (ArrayKernel.isSupported(a.getDataType())) {
+            r = ArrayKernel.unary(ArrayKernel.UnaryOp.ABS, a, a.getDataType(), null);
         } else {
             r = Array.factory(a.getDataType(), a.getShape());
             for (int i = 0; i < a.getSize(); i++) {
@@ -2416,17 +1895,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array equal(Array a, Array b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getDouble(i) == b.getDouble(i)) {
-                r.setBoolean(i, true);
-            } else {
-                r.setBoolean(i, false);
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.EQ, a, b);
     }
 
     /**
@@ -2437,28 +1906,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array equal(Array a, Number b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        double v = b.doubleValue();
-        if (Double.isNaN(v)) {
-            for (int i = 0; i < a.getSize(); i++) {
-                if (Double.isNaN(a.getDouble(i))) {
-                    r.setBoolean(i, true);
-                } else {
-                    r.setBoolean(i, false);
-                }
-            }
-        } else {
-            for (int i = 0; i < a.getSize(); i++) {
-                if (a.getDouble(i) == v) {
-                    r.setBoolean(i, true);
-                } else {
-                    r.setBoolean(i, false);
-                }
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.EQ, a, b.doubleValue());
     }
 
     /**
@@ -2469,17 +1917,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array lessThan(Array a, Array b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getDouble(i) < b.getDouble(i)) {
-                r.setBoolean(i, true);
-            } else {
-                r.setBoolean(i, false);
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.LT, a, b);
     }
 
     /**
@@ -2490,17 +1928,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array lessThan(Array a, Number b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getDouble(i) < b.doubleValue()) {
-                r.setBoolean(i, true);
-            } else {
-                r.setBoolean(i, false);
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.LT, a, b.doubleValue());
     }
 
     /**
@@ -2511,17 +1939,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array lessThanOrEqual(Array a, Array b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getDouble(i) <= b.getDouble(i)) {
-                r.setBoolean(i, true);
-            } else {
-                r.setBoolean(i, false);
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.LE, a, b);
     }
 
     /**
@@ -2532,17 +1950,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array lessThanOrEqual(Array a, Number b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getDouble(i) <= b.doubleValue()) {
-                r.setBoolean(i, true);
-            } else {
-                r.setBoolean(i, false);
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.LE, a, b.doubleValue());
     }
 
     /**
@@ -2553,17 +1961,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array greaterThan(Array a, Array b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getDouble(i) > b.getDouble(i)) {
-                r.setBoolean(i, true);
-            } else {
-                r.setBoolean(i, false);
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.GT, a, b);
     }
 
     /**
@@ -2574,17 +1972,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array greaterThan(Array a, Number b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getDouble(i) > b.doubleValue()) {
-                r.setBoolean(i, true);
-            } else {
-                r.setBoolean(i, false);
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.GT, a, b.doubleValue());
     }
 
     /**
@@ -2595,17 +1983,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array greaterThanOrEqual(Array a, Array b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getDouble(i) >= b.getDouble(i)) {
-                r.setBoolean(i, true);
-            } else {
-                r.setBoolean(i, false);
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.GE, a, b);
     }
 
     /**
@@ -2616,17 +1994,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array greaterThanOrEqual(Array a, Number b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getDouble(i) >= b.doubleValue()) {
-                r.setBoolean(i, true);
-            } else {
-                r.setBoolean(i, false);
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.GE, a, b.doubleValue());
     }
 
     /**
@@ -2637,17 +2005,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array notEqual(Array a, Array b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            if (a.getDouble(i) != b.getDouble(i)) {
-                r.setBoolean(i, true);
-            } else {
-                r.setBoolean(i, false);
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.NE, a, b);
     }
 
     /**
@@ -2658,28 +2016,7 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array notEqual(Array a, Number b) {
-        //Array r = Array.factory(DataType.BOOLEAN, a.getShape());
-        Array r = new ArrayBoolean(a.getShape());
-        double v = b.doubleValue();
-        if (Double.isNaN(v)) {
-            for (int i = 0; i < a.getSize(); i++) {
-                if (Double.isNaN(a.getDouble(i))) {
-                    r.setBoolean(i, false);
-                } else {
-                    r.setBoolean(i, true);
-                }
-            }
-        } else {
-            for (int i = 0; i < a.getSize(); i++) {
-                if (a.getDouble(i) != v) {
-                    r.setBoolean(i, true);
-                } else {
-                    r.setBoolean(i, false);
-                }
-            }
-        }
-
-        return r;
+        return ArrayKernel.compare(ArrayKernel.CompareOp.NE, a, b.doubleValue());
     }
 
     /**
@@ -3271,12 +2608,8 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array toDegrees(Array a) {
-        Array r = Array.factory(a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setDouble(i, Math.toDegrees(a.getDouble(i)));
-        }
-
-        return r;
+        return ArrayKernel.unary(ArrayKernel.UnaryOp.TO_DEGREES, a,
+                a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, null);
     }
 
     /**
@@ -3286,12 +2619,8 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array toRadians(Array a) {
-        Array r = Array.factory(a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setDouble(i, Math.toRadians(a.getDouble(i)));
-        }
-
-        return r;
+        return ArrayKernel.unary(ArrayKernel.UnaryOp.TO_RADIANS, a,
+                a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, null);
     }
 
     /**
@@ -3308,10 +2637,8 @@ public class ArrayMath {
                 r.setObject(i, ((Complex) a.getObject(i)).sin());
             }
         } else {
-            r = Array.factory(a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, a.getShape());
-            for (int i = 0; i < a.getSize(); i++) {
-                r.setDouble(i, Math.sin(a.getDouble(i)));
-            }
+            r = ArrayKernel.unary(ArrayKernel.UnaryOp.SIN, a,
+                    a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, null);
         }
 
         return r;
@@ -3331,10 +2658,8 @@ public class ArrayMath {
                 r.setObject(i, ((Complex) a.getObject(i)).cos());
             }
         } else {
-            r = Array.factory(a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, a.getShape());
-            for (int i = 0; i < a.getSize(); i++) {
-                r.setDouble(i, Math.cos(a.getDouble(i)));
-            }
+            r = ArrayKernel.unary(ArrayKernel.UnaryOp.COS, a,
+                    a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, null);
         }
 
         return r;
@@ -3354,10 +2679,8 @@ public class ArrayMath {
                 r.setObject(i, ((Complex) a.getObject(i)).tan());
             }
         } else {
-            r = Array.factory(a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, a.getShape());
-            for (int i = 0; i < a.getSize(); i++) {
-                r.setDouble(i, Math.tan(a.getDouble(i)));
-            }
+            r = ArrayKernel.unary(ArrayKernel.UnaryOp.TAN, a,
+                    a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, null);
         }
 
         return r;
@@ -3377,10 +2700,8 @@ public class ArrayMath {
                 r.setObject(i, ((Complex) a.getObject(i)).asin());
             }
         } else {
-            r = Array.factory(a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, a.getShape());
-            for (int i = 0; i < a.getSize(); i++) {
-                r.setDouble(i, Math.asin(a.getDouble(i)));
-            }
+            r = ArrayKernel.unary(ArrayKernel.UnaryOp.ASIN, a,
+                    a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, null);
         }
 
         return r;
@@ -3399,11 +2720,9 @@ public class ArrayMath {
             for (int i = 0; i < a.getSize(); i++) {
                 r.setObject(i, ((Complex) a.getObject(i)).acos());
             }
-        } else {
-            r = Array.factory(a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, a.getShape());
-            for (int i = 0; i < a.getSize(); i++) {
-                r.setDouble(i, Math.acos(a.getDouble(i)));
-            }
+        } else {
+            r = ArrayKernel.unary(ArrayKernel.UnaryOp.ACOS, a,
+                    a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, null);
         }
 
         return r;
@@ -3423,10 +2742,8 @@ public class ArrayMath {
                 r.setObject(i, ((Complex) a.getObject(i)).atan());
             }
         } else {
-            r = Array.factory(a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, a.getShape());
-            for (int i = 0; i < a.getSize(); i++) {
-                r.setDouble(i, Math.atan(a.getDouble(i)));
-            }
+            r = ArrayKernel.unary(ArrayKernel.UnaryOp.ATAN, a,
+                    a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, null);
         }
 
         return r;
@@ -3440,12 +2757,8 @@ public class ArrayMath {
      * @return Result array
      */
     public static Array atan2(Array a, Array b) {
-        Array r = Array.factory(a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, a.getShape());
-        for (int i = 0; i < a.getSize(); i++) {
-            r.setDouble(i, Math.atan2(a.getDouble(i), b.getDouble(i)));
-        }
-
-        return r;
+        return ArrayKernel.binary(ArrayKernel.BinaryOp.ATAN2, a, b,
+                a.getDataType() == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT, null);
     }
 
     /**
@@ -4117,42 +3430,7 @@ public class ArrayMath {
      * @throws ucar.ma2.InvalidRangeException
      */
     public static Array min(Array a, int axis) throws InvalidRangeException {
-        int[] dataShape = a.getShape();
-        int[] shape = new int[dataShape.length - 1];
-        int idx;
-        for (int i = 0; i < dataShape.length; i++) {
-            idx = i;
-            if (idx == axis) {
-                continue;
-            } else if (idx > axis) {
-                idx -= 1;
-            }
-            shape[idx] = dataShape[i];
-        }
-        Array r = Array.factory(DataType.DOUBLE, shape);
-        double s;
-        Index indexr = r.getIndex();
-        int[] current;
-        for (int i = 0; i < r.getSize(); i++) {
-            current = indexr.getCurrentCounter();
-            List<Range> ranges = new ArrayList<>();
-            for (int j = 0; j < dataShape.length; j++) {
-                if (j == axis) {
-                    ranges.add(new Range(0, dataShape[j] - 1, 1));
-                } else {
-                    idx = j;
-                    if (idx > axis) {
-                        idx -= 1;
-                    }
-                    ranges.add(new Range(current[idx], current[idx], 1));
-                }
-            }
-            s = min(a, ranges);
-            r.setDouble(i, s);
-            indexr.incr();
-        }
-
-        return r;
+        return ArrayReduce.min(a, axis);
     }
 
     /**
@@ -4216,42 +3494,7 @@ public class ArrayMath {
      * @throws ucar.ma2.InvalidRangeException
      */
     public static Array max(Array a, int axis) throws InvalidRangeException {
-        int[] dataShape = a.getShape();
-        int[] shape = new int[dataShape.length - 1];
-        int idx;
-        for (int i = 0; i < dataShape.length; i++) {
-            idx = i;
-            if (idx == axis) {
-                continue;
-            } else if (idx > axis) {
-                idx -= 1;
-            }
-            shape[idx] = dataShape[i];
-        }
-        Array r = Array.factory(DataType.DOUBLE, shape);
-        double s;
-        Index indexr = r.getIndex();
-        int[] current;
-        for (int i = 0; i < r.getSize(); i++) {
-            current = indexr.getCurrentCounter();
-            List<Range> ranges = new ArrayList<>();
-            for (int j = 0; j < dataShape.length; j++) {
-                if (j == axis) {
-                    ranges.add(new Range(0, dataShape[j] - 1, 1));
-                } else {
-                    idx = j;
-                    if (idx > axis) {
-                        idx -= 1;
-                    }
-                    ranges.add(new Range(current[idx], current[idx], 1));
-                }
-            }
-            s = max(a, ranges);
-            r.setDouble(i, s);
-            indexr.incr();
-        }
-
-        return r;
+        return ArrayReduce.max(a, axis);
     }
 
     /**
@@ -4290,42 +3533,7 @@ public class ArrayMath {
      * @throws ucar.ma2.InvalidRangeException
      */
     public static Array sum(Array a, int axis) throws InvalidRangeException {
-        int[] dataShape = a.getShape();
-        int[] shape = new int[dataShape.length - 1];
-        int idx;
-        for (int i = 0; i < dataShape.length; i++) {
-            idx = i;
-            if (idx == axis) {
-                continue;
-            } else if (idx > axis) {
-                idx -= 1;
-            }
-            shape[idx] = dataShape[i];
-        }
-        Array r = Array.factory(DataType.DOUBLE, shape);
-        double s;
-        Index indexr = r.getIndex();
-        int[] current;
-        for (int i = 0; i < r.getSize(); i++) {
-            current = indexr.getCurrentCounter();
-            List<Range> ranges = new ArrayList<>();
-            for (int j = 0; j < dataShape.length; j++) {
-                if (j == axis) {
-                    ranges.add(new Range(0, dataShape[j] - 1, 1));
-                } else {
-                    idx = j;
-                    if (idx > axis) {
-                        idx -= 1;
-                    }
-                    ranges.add(new Range(current[idx], current[idx], 1));
-                }
-            }
-            s = sum(a, ranges);
-            r.setDouble(i, s);
-            indexr.incr();
-        }
-
-        return r;
+        return ArrayReduce.sum(a, axis);
     }
 
     /**
@@ -4642,42 +3850,7 @@ public class ArrayMath {
      * @throws ucar.ma2.InvalidRangeException
      */
     public static Array mean(Array a, int axis) throws InvalidRangeException {
-        int[] dataShape = a.getShape();
-        int[] shape = new int[dataShape.length - 1];
-        int idx;
-        for (int i = 0; i < dataShape.length; i++) {
-            idx = i;
-            if (idx == axis) {
-                continue;
-            } else if (idx > axis) {
-                idx -= 1;
-            }
-            shape[idx] = dataShape[i];
-        }
-        Array r = Array.factory(DataType.DOUBLE, shape);
-        double mean;
-        Index indexr = r.getIndex();
-        int[] current;
-        for (int i = 0; i < r.getSize(); i++) {
-            current = indexr.getCurrentCounter();
-            List<Range> ranges = new ArrayList<>();
-            for (int j = 0; j < dataShape.length; j++) {
-                if (j == axis) {
-                    ranges.add(new Range(0, dataShape[j] - 1, 1));
-                } else {
-                    idx = j;
-                    if (idx > axis) {
-                        idx -= 1;
-                    }
-                    ranges.add(new Range(current[idx], current[idx], 1));
-                }
-            }
-            mean = mean(a, ranges);
-            r.setDouble(i, mean);
-            indexr.incr();
-        }
-
-        return r;
+        return ArrayReduce.mean(a, axis);
     }
 
     /**
@@ -4771,42 +3944,7 @@ public class ArrayMath {
      * @throws ucar.ma2.InvalidRangeException
      */
     public static Array std(Array a, int axis) throws InvalidRangeException {
-        int[] dataShape = a.getShape();
-        int[] shape = new int[dataShape.length - 1];
-        int idx;
-        for (int i = 0; i < dataShape.length; i++) {
-            idx = i;
-            if (idx == axis) {
-                continue;
-            } else if (idx > axis) {
-                idx -= 1;
-            }
-            shape[idx] = dataShape[i];
-        }
-        Array r = Array.factory(DataType.DOUBLE, shape);
-        double mean;
-        Index indexr = r.getIndex();
-        int[] current;
-        for (int i = 0; i < r.getSize(); i++) {
-            current = indexr.getCurrentCounter();
-            List<Range> ranges = new ArrayList<>();
-            for (int j = 0; j < dataShape.length; j++) {
-                if (j == axis) {
-                    ranges.add(new Range(0, dataShape[j] - 1, 1));
-                } else {
-                    idx = j;
-                    if (idx > axis) {
-                        idx -= 1;
-                    }
-                    ranges.add(new Range(current[idx], current[idx], 1));
-                }
-            }
-            mean = std(a, ranges);
-            r.setDouble(i, mean);
-            indexr.incr();
-        }
-
-        return r;
+        return ArrayReduce.std(a, axis);
     }
 
     /**
@@ -4898,42 +4036,7 @@ public class ArrayMath {
      * @throws ucar.ma2.InvalidRangeException
      */
     public static Array var(Array a, int axis) throws InvalidRangeException {
-        int[] dataShape = a.getShape();
-        int[] shape = new int[dataShape.length - 1];
-        int idx;
-        for (int i = 0; i < dataShape.length; i++) {
-            idx = i;
-            if (idx == axis) {
-                continue;
-            } else if (idx > axis) {
-                idx -= 1;
-            }
-            shape[idx] = dataShape[i];
-        }
-        Array r = Array.factory(DataType.DOUBLE, shape);
-        double mean;
-        Index indexr = r.getIndex();
-        int[] current;
-        for (int i = 0; i < r.getSize(); i++) {
-            current = indexr.getCurrentCounter();
-            List<Range> ranges = new ArrayList<>();
-            for (int j = 0; j < dataShape.length; j++) {
-                if (j == axis) {
-                    ranges.add(new Range(0, dataShape[j] - 1, 1));
-                } else {
-                    idx = j;
-                    if (idx > axis) {
-                        idx -= 1;
-                    }
-                    ranges.add(new Range(current[idx], current[idx], 1));
-                }
-            }
-            mean = std(a, ranges);
-            r.setDouble(i, mean);
-            indexr.incr();
-        }
-
-        return r;
+        return ArrayReduce.var(a, axis);
     }
 
     /**
@@ -4987,42 +4090,7 @@ public class ArrayMath {
      * @throws ucar.ma2.InvalidRangeException
      */
     public static Array median(Array a, int axis) throws InvalidRangeException {
-        int[] dataShape = a.getShape();
-        int[] shape = new int[dataShape.length - 1];
-        int idx;
-        for (int i = 0; i < dataShape.length; i++) {
-            idx = i;
-            if (idx == axis) {
-                continue;
-            } else if (idx > axis) {
-                idx -= 1;
-            }
-            shape[idx] = dataShape[i];
-        }
-        Array r = Array.factory(DataType.DOUBLE, shape);
-        double mean;
-        Index indexr = r.getIndex();
-        int[] current;
-        for (int i = 0; i < r.getSize(); i++) {
-            current = indexr.getCurrentCounter();
-            List<Range> ranges = new ArrayList<>();
-            for (int j = 0; j < dataShape.length; j++) {
-                if (j == axis) {
-                    ranges.add(new Range(0, dataShape[j] - 1, 1));
-                } else {
-                    idx = j;
-                    if (idx > axis) {
-                        idx -= 1;
-                    }
-                    ranges.add(new Range(current[idx], current[idx], 1));
-                }
-            }
-            mean = median(a, ranges);
-            r.setDouble(i, mean);
-            indexr.incr();
-        }
-
-        return r;
+        return ArrayReduce.median(a, axis);
     }
 
     /**
@@ -5058,6 +4126,9 @@ public class ArrayMath {
      */
     public static Array maximum(Array x1, Array x2) {
         DataType dt = commonType(x1.getDataType(), x2.getDataType());
+        if (ArrayKernel.isSupported(dt)) {
+            return ArrayKernel.binary(ArrayKernel.BinaryOp.MAXIMUM, x1, x2, dt, null);
+        }
         Array r = Array.factory(dt, x1.getShape());
         for (int i = 0; i < r.getSize(); i++) {
             r.setObject(i, Math.max(x1.getDouble(i), x2.getDouble(i)));
@@ -5075,6 +4146,9 @@ public class ArrayMath {
      */
     public static Array fmax(Array x1, Array x2) {
         DataType dt = commonType(x1.getDataType(), x2.getDataType());
+        if (ArrayKernel.isSupported(dt)) {
+            return ArrayKernel.binary(ArrayKernel.BinaryOp.FMAX, x1, x2, dt, null);
+        }
         Array r = Array.factory(dt, x1.getShape());
         for (int i = 0; i < r.getSize(); i++) {
             if (Double.isNaN(x1.getDouble(i))) {
@@ -5098,6 +4172,9 @@ public class ArrayMath {
      */
     public static Array minimum(Array x1, Array x2) {
         DataType dt = commonType(x1.getDataType(), x2.getDataType());
+        if (ArrayKernel.isSupported(dt)) {
+            return ArrayKernel.binary(ArrayKernel.BinaryOp.MINIMUM, x1, x2, dt, null);
+        }
         Array r = Array.factory(dt, x1.getShape());
         for (int i = 0; i < r.getSize(); i++) {
             r.setObject(i, Math.min(x1.getDouble(i), x2.getDouble(i)));
@@ -5115,6 +4192,9 @@ public class ArrayMath {
      */
     public static Array fmin(Array x1, Array x2) {
         DataType dt = commonType(x1.getDataType(), x2.getDataType());
+        if (ArrayKernel.isSupported(dt)) {
+            return ArrayKernel.binary(ArrayKernel.BinaryOp.FMIN, x1, x2, dt, null);
+        }
         Array r = Array.factory(dt, x1.getShape());
         for (int i = 0; i < r.getSize(); i++) {
             if (Double.isNaN(x1.getDouble(i))) {
@@ -5485,9 +4565,10 @@ public class ArrayMath {
             int yNum = y.size();
 
             Array r = Array.factory(DataType.INT, a.getShape());
+            boolean[] mask = PolygonMask.getMask(polygons, toDoubles(x), toDoubles(y));
             for (int i = 0; i < yNum; i++) {
                 for (int j = 0; j < xNum; j++) {
-                    if (GeoComputation.pointInPolygons(polygons, new PointD(x.get(j).doubleValue(), y.get(i).doubleValue()))) {
+                    if (mask[i * xNum + j]) {
                         r.setInt(i * xNum + j, 1);
                     } else {
                         r.setInt(i * xNum + j, -1);
@@ -5499,8 +4580,9 @@ public class ArrayMath {
         } else if (a.getRank() == 1) {
             int n = x.size();
             Array r = Array.factory(DataType.INT, a.getShape());
+            boolean[] in = inPolygons(polygons, toDoubles(x), toDoubles(y));
             for (int i = 0; i < n; i++) {
-                if (GeoComputation.pointInPolygons(polygons, new PointD(x.get(i).doubleValue(), y.get(i).doubleValue()))) {
+                if (in[i]) {
                     r.setInt(i, 1);
                 } else {
                     r.setInt(i, -1);
@@ -5522,9 +4604,10 @@ public class ArrayMath {
      * @return Result boolean array
      */
     public static Array inPolygon(Array x, Array y, List<PolygonShape> polygons) {
+        boolean[] in = inPolygons(polygons, ArrayKernel.getDoubleStorage(x), ArrayKernel.getDoubleStorage(y));
         Array r = Array.factory(DataType.BOOLEAN, x.getShape());
         for (int i = 0; i < r.getSize(); i++) {
-            if (GeoComputation.pointInPolygons(polygons, new PointD(x.getDouble(i), y.getDouble(i)))) {
+            if (in[i]) {
                 r.setBoolean(i, true);
             } else {
                 r.setBoolean(i, false);
@@ -5621,9 +4704,10 @@ public class ArrayMath {
      * @return Result array with cell values of missing outside polygons
      */
     public static Array maskout(Array a, Array x, Array y, List<PolygonShape> polygons) {
+        boolean[] in = inPolygons(polygons, ArrayKernel.getDoubleStorage(x), ArrayKernel.getDoubleStorage(y));
         Array r = Array.factory(a.getDataType(), a.getShape());
         for (int i = 0; i < a.getSize(); i++) {
-            if (GeoComputation.pointInPolygons(polygons, new PointD(x.getDouble(i), y.getDouble(i)))) {
+            if (in[i]) {
                 r.setObject(i, a.getObject(i));
             } else {
                 r.setObject(i, Double.NaN);
@@ -5642,9 +4726,10 @@ public class ArrayMath {
      * @return Result array with cell values of missing inside polygons
      */
     public static Array maskin(Array a, Array x, Array y, List<PolygonShape> polygons) {
+        boolean[] in = inPolygons(polygons, ArrayKernel.getDoubleStorage(x), ArrayKernel.getDoubleStorage(y));
         Array r = Array.factory(a.getDataType(), a.getShape());
         for (int i = 0; i < a.getSize(); i++) {
-            if (GeoComputation.pointInPolygons(polygons, new PointD(x.getDouble(i), y.getDouble(i)))) {
+            if (in[i]) {
                 r.setObject(i, Double.NaN);
             } else {
                 r.setObject(i, a.getObject(i));
@@ -5663,11 +4748,12 @@ public class ArrayMath {
      * @return Result arrays removing cells outside polygons
      */
     public static Array[] maskout_Remove(Array a, Array x, Array y, List<PolygonShape> polygons) {
+        boolean[] in = inPolygons(polygons, ArrayKernel.getDoubleStorage(x), ArrayKernel.getDoubleStorage(y));
         List<Object> rdata = new ArrayList<>();
         List<Double> rxdata = new ArrayList<>();
         List<Double> rydata = new ArrayList<>();
         for (int i = 0; i < a.getSize(); i++) {
-            if (GeoComputation.pointInPolygons(polygons, new PointD(x.getDouble(i), y.getDouble(i)))) {
+            if (in[i]) {
                 rdata.add(a.getObject(i));
                 rxdata.add(x.getDouble(i));
                 rydata.add(y.getDouble(i));
@@ -5699,11 +4785,12 @@ public class ArrayMath {
      * @return Result arrays removing cells inside polygons
      */
     public static Array[] maskin_Remove(Array a, Array x, Array y, List<PolygonShape> polygons) {
+        boolean[] in = inPolygons(polygons, ArrayKernel.getDoubleStorage(x), ArrayKernel.getDoubleStorage(y));
         List<Object> rdata = new ArrayList<>();
         List<Double> rxdata = new ArrayList<>();
         List<Double> rydata = new ArrayList<>();
         for (int i = 0; i < a.getSize(); i++) {
-            if (!GeoComputation.pointInPolygons(polygons, new PointD(x.getDouble(i), y.getDouble(i)))) {
+            if (!in[i]) {
                 rdata.add(a.getObject(i));
                 rxdata.add(x.getDouble(i));
                 rydata.add(y.getDouble(i));
@@ -5754,8 +4841,9 @@ public class ArrayMath {
 
         Array r = Array.factory(a.getDataType(), a.getShape());
         if (a.getRank() == 1) {
+            boolean[] in = inPolygons(polygons, toDoubles(x), toDoubles(y));
             for (int i = 0; i < xNum; i++) {
-                if (GeoComputation.pointInPolygons(polygons, new PointD(x.get(i).doubleValue(), y.get(i).doubleValue()))) {
+                if (in[i]) {
                     r.setObject(i, a.getObject(i));
                 } else {
                     r.setObject(i, missingValue);
@@ -5763,10 +4851,11 @@ public class ArrayMath {
             }
         } else if (a.getRank() == 2) {
             int idx;
+            boolean[] mask = PolygonMask.getMask(polygons, toDoubles(x), toDoubles(y));
             for (int i = 0; i < yNum; i++) {
                 for (int j = 0; j < xNum; j++) {
                     idx = i * xNum + j;
-                    if (GeoComputation.pointInPolygons(polygons, new PointD(x.get(j).doubleValue(), y.get(i).doubleValue()))) {
+                    if (mask[idx]) {
                         r.setObject(idx, a.getObject(idx));
                     } else {
                         r.setObject(idx, missingValue);
@@ -5842,6 +4931,18 @@ public class ArrayMath {
         return r;
     }
 
+    private static boolean[] inPolygons(List<PolygonShape> polygons, double[] x, double[] y) {
+        return new PolygonMask(polygons).contains(x, y);
+    }
+
+    private static double[] toDoubles(List<Number> values) {
+        double[] r = new double[values.size()];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = values.get(i).doubleValue();
+        }
+        return r;
+    }
+
     // </editor-fold>
     // <editor-fold desc="Regress">
     /**
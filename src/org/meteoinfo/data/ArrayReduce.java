@@ -0,0 +1,348 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.data;
+
+import org.apache.commons.math3.stat.StatUtils;
+import org.meteoinfo.data.analysis.Statistics;
+import org.meteoinfo.global.util.ParallelUtil;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+/**
+ * Reductions of an array along an axis. The array is viewed as an
+ * (outer, axis, inner) block over its canonical 1D storage, and all output
+ * values are computed in one sweep in which the inner dimension is
+ * contiguous. Blocks of output values are reduced in parallel. Missing
+ * (NaN) values are skipped.
+ *
+ * @author Yaqiang Wang
+ */
+public class ArrayReduce {
+    // <editor-fold desc="Variables">
+
+    /**
+     * Reduction type
+     */
+    public enum ReduceType {
+        SUM,
+        MEAN,
+        VAR,
+        STD,
+        MIN,
+        MAX,
+        MEDIAN,
+        PERCENTILE
+    }
+
+    private static final int BLOCK_SIZE = 1024;
+    private static final int MIN_CHUNK_ELEMENTS = 32768;
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Compute sum value of an array along an axis
+     *
+     * @param a Array a
+     * @param axis Axis
+     * @return Sum value array
+     */
+    public static Array sum(Array a, int axis) {
+        return reduce(a, axis, ReduceType.SUM, 0);
+    }
+
+    /**
+     * Compute mean value of an array along an axis
+     *
+     * @param a Array a
+     * @param axis Axis
+     * @return Mean value array
+     */
+    public static Array mean(Array a, int axis) {
+        return reduce(a, axis, ReduceType.MEAN, 0);
+    }
+
+    /**
+     * Compute variance value of an array along an axis
+     *
+     * @param a Array a
+     * @param axis Axis
+     * @return Variance value array
+     */
+    public static Array var(Array a, int axis) {
+        return reduce(a, axis, ReduceType.VAR, 0);
+    }
+
+    /**
+     * Compute standard deviation value of an array along an axis
+     *
+     * @param a Array a
+     * @param axis Axis
+     * @return Standard deviation value array
+     */
+    public static Array std(Array a, int axis) {
+        return reduce(a, axis, ReduceType.STD, 0);
+    }
+
+    /**
+     * Compute minimum value of an array along an axis
+     *
+     * @param a Array a
+     * @param axis Axis
+     * @return Minimum value array
+     */
+    public static Array min(Array a, int axis) {
+        return reduce(a, axis, ReduceType.MIN, 0);
+    }
+
+    /**
+     * Compute maximum value of an array along an axis
+     *
+     * @param a Array a
+     * @param axis Axis
+     * @return Maximum value array
+     */
+    public static Array max(Array a, int axis) {
+        return reduce(a, axis, ReduceType.MAX, 0);
+    }
+
+    /**
+     * Compute median value of an array along an axis
+     *
+     * @param a Array a
+     * @param axis Axis
+     * @return Median value array
+     */
+    public static Array median(Array a, int axis) {
+        return reduce(a, axis, ReduceType.MEDIAN, 0);
+    }
+
+    /**
+     * Compute the pth percentile of an array along an axis
+     *
+     * @param a Array a
+     * @param p The percentile value
+     * @param axis Axis
+     * @return Percentile value array
+     */
+    public static Array percentile(Array a, double p, int axis) {
+        return reduce(a, axis, ReduceType.PERCENTILE, p);
+    }
+
+    /**
+     * Reduce an array along an axis
+     *
+     * @param a Array a
+     * @param axis Axis
+     * @param type Reduction type
+     * @param p The percentile value, only used by percentile reduction
+     * @return Result array with the axis removed
+     */
+    public static Array reduce(Array a, int axis, final ReduceType type, final double p) {
+        int[] dataShape = a.getShape();
+        int[] shape = new int[dataShape.length - 1];
+        int outer = 1, inner = 1;
+        for (int i = 0; i < dataShape.length; i++) {
+            if (i < axis) {
+                outer *= dataShape[i];
+                shape[i] = dataShape[i];
+            } else if (i > axis) {
+                inner *= dataShape[i];
+                shape[i - 1] = dataShape[i];
+            }
+        }
+        final int n = dataShape[axis];
+        final int innerNum = inner;
+        final Values values = getValues(a);
+        final double[] r = new double[outer * inner];
+        final int blockSize = Math.min(inner, BLOCK_SIZE);
+        final int blockNum = (inner + blockSize - 1) / blockSize;
+        int minChunk = MIN_CHUNK_ELEMENTS / Math.max(1, n * blockSize);
+
+        ParallelUtil.parallelFor(outer * blockNum, minChunk, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                double[][] work = new double[3][blockSize];
+                double[] buffer = null;
+                if (type == ReduceType.MEDIAN || type == ReduceType.PERCENTILE) {
+                    buffer = new double[n];
+                }
+                for (int t = start; t < end; t++) {
+                    int o = t / blockNum;
+                    int j0 = (t % blockNum) * blockSize;
+                    int len = Math.min(blockSize, innerNum - j0);
+                    int base = o * n * innerNum + j0;
+                    int rBase = o * innerNum + j0;
+                    switch (type) {
+                        case SUM:
+                        case MEAN:
+                            reduceSum(values, base, n, innerNum, len, work, r, rBase, type == ReduceType.MEAN);
+                            break;
+                        case VAR:
+                        case STD:
+                            reduceVar(values, base, n, innerNum, len, work, r, rBase, type == ReduceType.STD);
+                            break;
+                        case MIN:
+                        case MAX:
+                            reduceMinMax(values, base, n, innerNum, len, work, r, rBase, type == ReduceType.MAX);
+                            break;
+                        default:
+                            reduceQuantile(values, base, n, innerNum, len, buffer, r, rBase, type, p);
+                            break;
+                    }
+                }
+            }
+        });
+
+        return Array.factory(DataType.DOUBLE, shape, r);
+    }
+
+    /**
+     * Kahan compensated sum
+     */
+    private static void reduceSum(Values values, int base, int n, int inner, int len,
+            double[][] work, double[] r, int rBase, boolean isMean) {
+        double[] sum = work[0], comp = work[1], count = work[2];
+        for (int j = 0; j < len; j++) {
+            sum[j] = 0;
+            comp[j] = 0;
+            count[j] = 0;
+        }
+        for (int k = 0; k < n; k++) {
+            int offset = base + k * inner;
+            for (int j = 0; j < len; j++) {
+                double v = values.get(offset + j);
+                if (!Double.isNaN(v)) {
+                    double y = v - comp[j];
+                    double s = sum[j] + y;
+                    comp[j] = (s - sum[j]) - y;
+                    sum[j] = s;
+                    count[j] += 1;
+                }
+            }
+        }
+        for (int j = 0; j < len; j++) {
+            if (count[j] == 0) {
+                r[rBase + j] = Double.NaN;
+            } else {
+                r[rBase + j] = isMean ? sum[j] / count[j] : sum[j];
+            }
+        }
+    }
+
+    /**
+     * Welford online population variance
+     */
+    private static void reduceVar(Values values, int base, int n, int inner, int len,
+            double[][] work, double[] r, int rBase, boolean isStd) {
+        double[] mean = work[0], m2 = work[1], count = work[2];
+        for (int j = 0; j < len; j++) {
+            mean[j] = 0;
+            m2[j] = 0;
+            count[j] = 0;
+        }
+        for (int k = 0; k < n; k++) {
+            int offset = base + k * inner;
+            for (int j = 0; j < len; j++) {
+                double v = values.get(offset + j);
+                if (!Double.isNaN(v)) {
+                    count[j] += 1;
+                    double delta = v - mean[j];
+                    mean[j] += delta / count[j];
+                    m2[j] += delta * (v - mean[j]);
+                }
+            }
+        }
+        for (int j = 0; j < len; j++) {
+            if (count[j] == 0) {
+                r[rBase + j] = Double.NaN;
+            } else {
+                double var = m2[j] / count[j];
+                r[rBase + j] = isStd ? Math.sqrt(var) : var;
+            }
+        }
+    }
+
+    private static void reduceMinMax(Values values, int base, int n, int inner, int len,
+            double[][] work, double[] r, int rBase, boolean isMax) {
+        double[] ext = work[0], count = work[1];
+        double init = isMax ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int j = 0; j < len; j++) {
+            ext[j] = init;
+            count[j] = 0;
+        }
+        for (int k = 0; k < n; k++) {
+            int offset = base + k * inner;
+            for (int j = 0; j < len; j++) {
+                double v = values.get(offset + j);
+                if (!Double.isNaN(v)) {
+                    if (isMax ? v > ext[j] : v < ext[j]) {
+                        ext[j] = v;
+                    }
+                    count[j] += 1;
+                }
+            }
+        }
+        for (int j = 0; j < len; j++) {
+            r[rBase + j] = count[j] == 0 ? Double.NaN : ext[j];
+        }
+    }
+
+    private static void reduceQuantile(Values values, int base, int n, int inner, int len,
+            double[] buffer, double[] r, int rBase, ReduceType type, double p) {
+        for (int j = 0; j < len; j++) {
+            for (int k = 0; k < n; k++) {
+                buffer[k] = values.get(base + k * inner + j);
+            }
+            if (type == ReduceType.MEDIAN) {
+                Array b = Array.factory(DataType.DOUBLE, new int[]{n}, buffer);
+                r[rBase + j] = Statistics.quantile(b, 2);
+            } else {
+                r[rBase + j] = StatUtils.percentile(buffer, p);
+            }
+        }
+    }
+
+    /**
+     * Get values of the canonical 1D storage of an array. Float and double
+     * arrays in canonical order are read without copy.
+     *
+     * @param a Array a
+     * @return Values
+     */
+    private static Values getValues(Array a) {
+        if (a.getDataType() == DataType.FLOAT) {
+            final float[] data = ArrayKernel.getFloatStorage(a);
+            return new Values() {
+                @Override
+                public double get(int i) {
+                    return data[i];
+                }
+            };
+        } else {
+            final double[] data = ArrayKernel.getDoubleStorage(a);
+            return new Values() {
+                @Override
+                public double get(int i) {
+                    return data[i];
+                }
+            };
+        }
+    }
+
+    private interface Values {
+
+        double get(int i);
+    }
+    // </editor-fold>
+}
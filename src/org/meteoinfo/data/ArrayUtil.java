@@ -7,8 +7,8 @@ package org.meteoinfo.data;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -16,9 +16,11 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -30,13 +32,14 @@ import java.util.logging.Logger;
 import org.meteoinfo.data.mapdata.Field;
 import org.meteoinfo.geoprocess.GeoComputation;
 import org.meteoinfo.geoprocess.analysis.ResampleMethods;
-import org.meteoinfo.global.DataConvert;
 import org.meteoinfo.global.Extent;
 import org.meteoinfo.global.MIMath;
 import org.meteoinfo.global.PointD;
 import org.meteoinfo.global.util.BigDecimalUtil;
 import org.meteoinfo.global.util.GlobalUtil;
+import org.meteoinfo.global.util.ParallelUtil;
 import org.meteoinfo.io.EndianDataOutputStream;
+import org.meteoinfo.io.TextTableReader;
 import org.meteoinfo.jts.geom.Coordinate;
 import org.meteoinfo.jts.geom.Geometry;
 import org.meteoinfo.jts.geom.GeometryFactory;
@@ -45,6 +48,7 @@ import org.meteoinfo.legend.LegendScheme;
 import org.meteoinfo.ma.ArrayBoolean;
 import org.meteoinfo.math.Complex;
 import org.meteoinfo.math.ListIndexComparator;
+import org.meteoinfo.math.spatial.KDTree;
 import org.meteoinfo.projection.KnownCoordinateSystems;
 import org.meteoinfo.projection.ProjectionInfo;
 import org.meteoinfo.projection.ProjectionUtil;
@@ -65,6 +69,8 @@ import ucar.ma2.Range;
  */
 public class ArrayUtil {
 
+    private static final int BIN_CHUNK_BYTES = 64 * 1024 * 1024;
+
     // <editor-fold desc="File">
     /**
      * Read ASCII data file to an array
@@ -82,11 +88,9 @@ public class ArrayUtil {
      */
     public static Array readASCIIFile(String fileName, String delimiter, int headerLines, String dataType,
             List<Integer> shape, boolean readFirstCol) throws UnsupportedEncodingException, FileNotFoundException, IOException {
-        BufferedReader sr = new BufferedReader(new InputStreamReader(new FileInputStream(fileName)));
-        if (headerLines > 0) {
-            for (int i = 0; i < headerLines; i++) {
-                sr.readLine();
-            }
+        TextTableReader reader = new TextTableReader(fileName, delimiter, null);
+        for (int i = 0; i < headerLines; i++) {
+            reader.readLine();
         }
 
         DataType dt = DataType.DOUBLE;
@@ -97,41 +101,21 @@ public class ArrayUtil {
             dt = ArrayUtil.toDataType(dataType);
         }
 
-        int i;
         int[] ss = new int[shape.size()];
-        for (i = 0; i < shape.size(); i++) {
+        for (int i = 0; i < shape.size(); i++) {
             ss[i] = shape.get(i);
         }
         Array a = Array.factory(dt, ss);
 
-        String[] dataArray;
-        i = 0;
-        String line = sr.readLine();
         int sCol = 0;
         if (!readFirstCol) {
             sCol = 1;
         }
-        while (line != null) {
-            line = line.trim();
-            if (line.isEmpty()) {
-                line = sr.readLine();
-                continue;
-            }
-            dataArray = GlobalUtil.split(line, delimiter);
-            for (int j = sCol; j < dataArray.length; j++) {
-                a.setDouble(i, Double.parseDouble(dataArray[j]));
-                i += 1;
-                if (i >= a.getSize()) {
-                    break;
-                }
-            }
-            if (i >= a.getSize()) {
-                break;
-            }
-
-            line = sr.readLine();
+        double[] values = reader.readDoubles(sCol, (int) a.getSize());
+        reader.close();
+        for (int i = 0; i < values.length; i++) {
+            a.setDouble(i, values[i]);
         }
-        sr.close();
 
         return a;
     }
@@ -295,103 +279,135 @@ public class ArrayUtil {
     }
 
     /**
-     * Read array from a binary file
+     * Read array from a binary file. The data are read by chunks through a
+     * file channel and bulk decoded, so the file is not left memory mapped.
+     * If the file is shorter than the data, the elements in the file are
+     * read and the others are zero.
      *
      * @param fn Binary file name
      * @param dims Dimensions
-     * @param dataType Data type string
+     * @param dataType Data type string - byte, short, int, float or double
      * @param skip Skip bytes
      * @param byteOrder Byte order
      * @return Result array
      */
     public static Array readBinFile(String fn, List<Integer> dims, String dataType, int skip,
             String byteOrder) {
-        DataType dt = DataType.DOUBLE;
-        if (dataType != null) {
-            if (dataType.contains("%")) {
-                dataType = dataType.split("%")[1];
-            }
-            dt = ArrayUtil.toDataType(dataType);
+        DataType dt = toBinDataType(dataType);
+        int[] shape = new int[dims.size()];
+        for (int i = 0; i < dims.size(); i++) {
+            shape[i] = dims.get(i);
         }
-        DataType ndt = dt;
-        if (dt == DataType.BYTE) {
-            ndt = DataType.INT;
+        Array r = Array.factory(dt == DataType.BYTE ? DataType.INT : dt, shape);
+        switch (dt) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case FLOAT:
+            case DOUBLE:
+                break;
+            default:
+                Logger.getLogger(ArrayUtil.class.getName()).log(Level.SEVERE, "Unsupported data type: {0}", dt);
+                return r;
         }
 
-        ByteOrder bOrder = ByteOrder.LITTLE_ENDIAN;
-        if (byteOrder.equalsIgnoreCase("big_endian")) {
-            bOrder = ByteOrder.BIG_ENDIAN;
+        File file = new File(fn);
+        if (!file.isFile()) {
+            Logger.getLogger(ArrayUtil.class.getName()).log(Level.SEVERE, "File not exists: {0}", fn);
+            return r;
+        }
+        int size = dt.getSize();
+        long n = Math.max(0, Math.min(r.getSize(), (file.length() - skip) / size));
+        if (n < r.getSize()) {
+            Logger.getLogger(ArrayUtil.class.getName()).log(Level.WARNING,
+                    "Data size is larger than file size, {0} of {1} elements are read: {2}",
+                    new Object[]{n, r.getSize(), fn});
+        }
+
+        Object storage = r.getStorage();
+        int chunk = BIN_CHUNK_BYTES / size;
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            ByteBuffer bb = ByteBuffer.allocate((int) Math.min(n, chunk) * size).order(toByteOrder(byteOrder));
+            long pos = skip;
+            int i = 0;
+            while (i < n) {
+                int m = (int) Math.min(chunk, n - i);
+                bb.clear();
+                bb.limit(m * size);
+                while (bb.hasRemaining()) {
+                    if (channel.read(bb, pos + bb.position()) < 0) {
+                        throw new EOFException(fn);
+                    }
+                }
+                bb.flip();
+                switch (dt) {
+                    case BYTE:
+                        int[] ib = (int[]) storage;
+                        for (int j = 0; j < m; j++) {
+                            ib[i + j] = bb.get(j) & 0xff;
+                        }
+                        break;
+                    case SHORT:
+                        bb.asShortBuffer().get((short[]) storage, i, m);
+                        break;
+                    case INT:
+                        bb.asIntBuffer().get((int[]) storage, i, m);
+                        break;
+                    case FLOAT:
+                        bb.asFloatBuffer().get((float[]) storage, i, m);
+                        break;
+                    case DOUBLE:
+                        bb.asDoubleBuffer().get((double[]) storage, i, m);
+                        break;
+                }
+                i += m;
+                pos += (long) m * size;
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(ArrayUtil.class.getName()).log(Level.SEVERE, null, ex);
         }
+        return r;
+    }
 
+    /**
+     * Open a binary file as a lazy memory mapped array. No data is read until
+     * the array or its sections are read, so large files are opened
+     * instantly.
+     *
+     * @param fn Binary file name
+     * @param dims Dimensions
+     * @param dataType Data type string
+     * @param skip Skip bytes
+     * @param byteOrder Byte order
+     * @return Memory mapped array
+     * @throws IOException
+     */
+    public static MappedArray mapBinFile(String fn, List<Integer> dims, String dataType, long skip,
+            String byteOrder) throws IOException {
         int[] shape = new int[dims.size()];
         for (int i = 0; i < dims.size(); i++) {
             shape[i] = dims.get(i);
         }
-        Array r = Array.factory(ndt, shape);
-        IndexIterator iter = r.getIndexIterator();
-        try {
-            DataInputStream ins = new DataInputStream(new FileInputStream(fn));
-            ins.skip(skip);
-            byte[] bytes;
-            byte[] db;
-            int start = 0;
-            switch (dt) {
-                case BYTE:
-                    bytes = new byte[(int) r.getSize()];
-                    ins.read(bytes);
-                    for (int i = 0; i < r.getSize(); i++) {
-                        r.setInt(i, DataConvert.byte2Int(bytes[i]));
-                    }
-                    break;
-                case SHORT:
-                    bytes = new byte[(int) r.getSize() * 2];
-                    db = new byte[2];
-                    ins.read(bytes);
-                    while (iter.hasNext()) {
-                        System.arraycopy(bytes, start, db, 0, 2);
-                        iter.setShortNext(DataConvert.bytes2Short(db, bOrder));
-                        start += 2;
-                    }
-                    break;
-                case INT:
-                    bytes = new byte[(int) r.getSize() * 4];
-                    db = new byte[4];
-                    ins.read(bytes);
-                    while (iter.hasNext()) {
-                        System.arraycopy(bytes, start, db, 0, 4);
-                        iter.setIntNext(DataConvert.bytes2Int(db, bOrder));
-                        start += 4;
-                    }
-                    break;
-                case FLOAT:
-                    bytes = new byte[(int) r.getSize() * 4];
-                    db = new byte[4];
-                    ins.read(bytes);
-                    while (iter.hasNext()) {
-                        System.arraycopy(bytes, start, db, 0, 4);
-                        iter.setFloatNext(DataConvert.bytes2Float(db, bOrder));
-                        start += 4;
-                    }
-                    break;
-                case DOUBLE:
-                    bytes = new byte[(int) r.getSize() * 8];
-                    db = new byte[8];
-                    ins.read(bytes);
-                    while (iter.hasNext()) {
-                        System.arraycopy(bytes, start, db, 0, 8);
-                        iter.setDoubleNext(DataConvert.bytes2Double(db, bOrder));
-                        start += 8;
-                    }
-                    break;
-            }
-            ins.close();
-        } catch (FileNotFoundException ex) {
-            Logger.getLogger(ArrayUtil.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (IOException ex) {
-            Logger.getLogger(ArrayUtil.class.getName()).log(Level.SEVERE, null, ex);
+        return new MappedArray(fn, skip, toBinDataType(dataType), shape, toByteOrder(byteOrder));
+    }
+
+    private static ByteOrder toByteOrder(String byteOrder) {
+        ByteOrder bOrder = ByteOrder.LITTLE_ENDIAN;
+        if (byteOrder.equalsIgnoreCase("big_endian")) {
+            bOrder = ByteOrder.BIG_ENDIAN;
         }
+        return bOrder;
+    }
 
-        return r;
+    private static DataType toBinDataType(String dataType) {
+        DataType dt = DataType.DOUBLE;
+        if (dataType != null) {
+            if (dataType.contains("%")) {
+                dataType = dataType.split("%")[1];
+            }
+            dt = ArrayUtil.toDataType(dataType);
+        }
+        return dt;
     }
 
     // </editor-fold>
@@ -2120,60 +2136,72 @@ public class ArrayUtil {
      */
     public static Array interpolation_IDW_Radius(List<Number> x_s, List<Number> y_s, Array a,
             List<Number> X, List<Number> Y, int NeededPointNum, double radius) {
-        int rowNum, colNum, pNum;
-        colNum = X.size();
-        rowNum = Y.size();
-        pNum = x_s.size();
-        //double[][] GCoords = new double[rowNum][colNum];
-        Array r = Array.factory(DataType.DOUBLE, new int[]{rowNum, colNum});
-        int i, j, p, vNum;
-        double w, SV, SW;
-        boolean ifPointGrid;
-        double x, y, v;
+        int rowNum = Y.size();
+        int colNum = X.size();
+        double[][] gdata = interpolation_IDW_Radius(toDoubleArray(x_s), toDoubleArray(y_s),
+                toDoubleArray(a),
+                toDoubleArray(X), toDoubleArray(Y), NeededPointNum, radius, Double.NaN);
+        Array r = toArray(gdata);
 
-        //---- Do interpolation
-        for (i = 0; i < rowNum; i++) {
-            for (j = 0; j < colNum; j++) {
-                r.setDouble(i * colNum + j, Double.NaN);
-                ifPointGrid = false;
-                SV = 0;
-                SW = 0;
-                vNum = 0;
-                for (p = 0; p < pNum; p++) {
-                    v = a.getDouble(p);
-                    if (Double.isNaN(v)) {
-                        continue;
-                    }
-                    x = x_s.get(p).doubleValue();
-                    y = y_s.get(p).doubleValue();
-                    if (x < X.get(j).doubleValue() - radius || x > X.get(j).doubleValue() + radius || y < Y.get(i).doubleValue() - radius
-                            || y > Y.get(i).doubleValue() + radius) {
-                        continue;
-                    }
+        //---- Smooth with 5 points
+        r = smooth5(r, rowNum, colNum, Double.NaN);
 
-                    if (Math.pow(X.get(j).doubleValue() - x, 2) + Math.pow(Y.get(i).doubleValue() - y, 2) == 0) {
-                        r.setDouble(i * colNum + j, v);
-                        ifPointGrid = true;
-                        break;
-                    } else if (Math.sqrt(Math.pow(X.get(j).doubleValue() - x, 2)
-                            + Math.pow(Y.get(i).doubleValue() - y, 2)) <= radius) {
-                        w = 1 / (Math.pow(X.get(j).doubleValue() - x, 2) + Math.pow(Y.get(i).doubleValue() - y, 2));
-                        SW = SW + w;
-                        SV = SV + v * w;
-                        vNum += 1;
-                    }
-                }
+        return r;
+    }
 
-                if (!ifPointGrid) {
-                    if (vNum >= NeededPointNum) {
-                        r.setDouble(i * colNum + j, SV / SW);
+    /**
+     * Interpolation with IDW radius method. The scatter points are indexed by
+     * a K-D tree and the grid rows are interpolated in parallel.
+     *
+     * @param x_s scatter X array
+     * @param y_s scatter Y array
+     * @param v_s scatter value array
+     * @param X grid X array
+     * @param Y grid Y array
+     * @param neededPointNum needed at least point number
+     * @param radius search radius
+     * @param fill_value fill value of missing data
+     * @return interpolated grid data
+     */
+    public static double[][] interpolation_IDW_Radius(final double[] x_s, final double[] y_s, final double[] v_s,
+            final double[] X, final double[] Y, final int neededPointNum, double radius, final double fill_value) {
+        final int colNum = X.length;
+        final double[][] r = new double[Y.length][colNum];
+        final KDTree.Euclidean<Integer> kdTree = createKDTree(x_s, y_s, v_s, fill_value);
+        final double radius2 = radius * radius;
+
+        ParallelUtil.parallelFor(Y.length, 1, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                double[] loc = new double[2];
+                for (int i = start; i < end; i++) {
+                    for (int j = 0; j < colNum; j++) {
+                        loc[0] = X[j];
+                        loc[1] = Y[i];
+                        double SV = 0, SW = 0;
+                        int vNum = 0;
+                        boolean ifPointGrid = false;
+                        for (Integer p : kdTree.ballSearch(loc, radius2)) {
+                            double dx = X[j] - x_s[p];
+                            double dy = Y[i] - y_s[p];
+                            double d2 = dx * dx + dy * dy;
+                            if (d2 == 0) {
+                                r[i][j] = v_s[p];
+                                ifPointGrid = true;
+                                break;
+                            }
+                            double w = 1 / d2;
+                            SW += w;
+                            SV += v_s[p] * w;
+                            vNum += 1;
+                        }
+                        if (!ifPointGrid) {
+                            r[i][j] = vNum >= neededPointNum && vNum > 0 ? SV / SW : fill_value;
+                        }
                     }
                 }
             }
-        }
-
-        //---- Smooth with 5 points
-        r = smooth5(r, rowNum, colNum, Double.NaN);
+        });
 
         return r;
     }
@@ -2191,89 +2219,127 @@ public class ArrayUtil {
      */
     public static Array interpolation_IDW_Neighbor(List<Number> x_s, List<Number> y_s, Array a,
             List<Number> X, List<Number> Y, int NumberOfNearestNeighbors) {
-        int rowNum, colNum, pNum;
-        colNum = X.size();
-        rowNum = Y.size();
-        pNum = x_s.size();
-        Array r = Array.factory(DataType.DOUBLE, new int[]{rowNum, colNum});
-        int i, j, p, l, aP;
-        double w, SV, SW, aMin;
-        int points;
-        points = NumberOfNearestNeighbors;
-        double[] AllWeights = new double[pNum];
-        double[][] NW = new double[2][points];
-        int NWIdx;
-        double x, y, v;
+        int rowNum = Y.size();
+        int colNum = X.size();
+        double[][] gdata = interpolation_IDW_Neighbor(toDoubleArray(x_s), toDoubleArray(y_s),
+                toDoubleArray(a),
+                toDoubleArray(X), toDoubleArray(Y), NumberOfNearestNeighbors, Double.NaN);
+        Array r = toArray(gdata);
 
-        //---- Do interpolation with IDW method
-        for (i = 0; i < rowNum; i++) {
-            for (j = 0; j < colNum; j++) {
-                r.setDouble(i * colNum + j, Double.NaN);
-                SV = 0;
-                SW = 0;
-                NWIdx = 0;
-                for (p = 0; p < pNum; p++) {
-                    v = a.getDouble(p);
-                    if (Double.isNaN(v)) {
-                        AllWeights[p] = -1;
-                        continue;
-                    }
-                    x = x_s.get(p).doubleValue();
-                    y = y_s.get(p).doubleValue();
-                    if (X.get(j).doubleValue() == x && Y.get(i).doubleValue() == y) {
-                        r.setDouble(i * colNum + j, v);
-                        break;
-                    } else {
-                        w = 1 / (Math.pow(X.get(j).doubleValue() - x, 2) + Math.pow(Y.get(i).doubleValue() - y, 2));
-                        AllWeights[p] = w;
-                        if (NWIdx < points) {
-                            NW[0][NWIdx] = w;
-                            NW[1][NWIdx] = p;
-                        }
-                        NWIdx += 1;
-                    }
-                }
+        //---- Smooth with 5 points
+        r = smooth5(r, rowNum, colNum, Double.NaN);
 
-                aMin = NW[0][0];
-                aP = 0;
-                for (l = 1; l < points; l++) {
-                    if (NW[0][l] < aMin) {
-                        aMin = NW[0][l];
-                        aP = l;
-                    }
-                }
+        return r;
+    }
 
-                if (Double.isNaN(r.getDouble(i * colNum + j))) {
-                    for (p = 0; p < pNum; p++) {
-                        w = AllWeights[p];
-                        if (w == -1) {
+    /**
+     * Interpolation with IDW neighbor method. The scatter points are indexed
+     * by a K-D tree and the grid rows are interpolated in parallel.
+     *
+     * @param x_s scatter X array
+     * @param y_s scatter Y array
+     * @param v_s scatter value array
+     * @param X grid X array
+     * @param Y grid Y array
+     * @param neighborNum number of nearest neighbors
+     * @param fill_value fill value of missing data
+     * @return interpolated grid data
+     */
+    public static double[][] interpolation_IDW_Neighbor(final double[] x_s, final double[] y_s, final double[] v_s,
+            final double[] X, final double[] Y, int neighborNum, final double fill_value) {
+        final int colNum = X.length;
+        final double[][] r = new double[Y.length][colNum];
+        final KDTree.Euclidean<Integer> kdTree = createKDTree(x_s, y_s, v_s, fill_value);
+        final int K = Math.min(neighborNum, kdTree.size());
+
+        ParallelUtil.parallelFor(Y.length, 1, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                double[] loc = new double[2];
+                for (int i = start; i < end; i++) {
+                    for (int j = 0; j < colNum; j++) {
+                        if (K <= 0) {
+                            r[i][j] = fill_value;
                             continue;
                         }
-
-                        if (w > aMin) {
-                            NW[0][aP] = w;
-                            NW[1][aP] = p;
-                            aMin = NW[0][0];
-                            aP = 0;
-                            for (l = 1; l < points; l++) {
-                                if (NW[0][l] < aMin) {
-                                    aMin = NW[0][l];
-                                    aP = l;
-                                }
+                        loc[0] = X[j];
+                        loc[1] = Y[i];
+                        double SV = 0, SW = 0;
+                        boolean ifPointGrid = false;
+                        for (KDTree.SearchResult<Integer> sr : kdTree.nearestNeighbours(loc, K)) {
+                            int p = sr.payload;
+                            if (sr.distance == 0) {
+                                r[i][j] = v_s[p];
+                                ifPointGrid = true;
+                                break;
                             }
+                            double w = 1 / sr.distance;
+                            SW += w;
+                            SV += v_s[p] * w;
+                        }
+                        if (!ifPointGrid) {
+                            r[i][j] = SV / SW;
                         }
                     }
-                    for (p = 0; p < points; p++) {
-                        SV += NW[0][p] * a.getDouble((int) NW[1][p]);
-                        SW += NW[0][p];
-                    }
-                    r.setDouble(i * colNum + j, SV / SW);
                 }
             }
+        });
+
+        return r;
+    }
+
+    /**
+     * Create a K-D tree of valid scatter points, the payload is the point index
+     *
+     * @param x_s scatter X array
+     * @param y_s scatter Y array
+     * @param v_s scatter value array
+     * @param fill_value fill value of missing data
+     * @return K-D tree
+     */
+    public static KDTree.Euclidean<Integer> createKDTree(double[] x_s, double[] y_s, double[] v_s,
+            double fill_value) {
+        KDTree.Euclidean<Integer> kdTree = new KDTree.Euclidean<>(2);
+        for (int p = 0; p < x_s.length; p++) {
+            double v = v_s[p];
+            if (Double.isNaN(v) || MIMath.doubleEquals(v, fill_value)) {
+                continue;
+            }
+            kdTree.addPoint(new double[]{x_s[p], y_s[p]}, p);
         }
 
-        //---- Smooth with 5 points
-        r = smooth5(r, rowNum, colNum, Double.NaN);
+        return kdTree;
+    }
+
+    private static double[] toDoubleArray(List<Number> values) {
+        double[] r = new double[values.size()];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = values.get(i).doubleValue();
+        }
+
+        return r;
+    }
+
+    private static double[] toDoubleArray(Array a) {
+        double[] r = new double[(int) a.getSize()];
+        IndexIterator ii = a.getIndexIterator();
+        int i = 0;
+        while (ii.hasNext()) {
+            r[i] = ii.getDoubleNext();
+            i += 1;
+        }
+
+        return r;
+    }
+
+    private static Array toArray(double[][] data) {
+        int rowNum = data.length;
+        int colNum = rowNum == 0 ? 0 : data[0].length;
+        Array r = Array.factory(DataType.DOUBLE, new int[]{rowNum, colNum});
+        double[] storage = (double[]) r.getStorage();
+        for (int i = 0; i < rowNum; i++) {
+            System.arraycopy(data[i], 0, storage, i * colNum, colNum);
+        }
 
         return r;
     }
@@ -3737,14 +3803,16 @@ public class ArrayUtil {
         Array rx = Array.factory(DataType.DOUBLE, x.getShape());
         Array ry = Array.factory(DataType.DOUBLE, x.getShape());
         int n = (int) x.getSize();
-        double[][] points = new double[n][];
+        double[] xs = new double[n];
+        double[] ys = new double[n];
         for (int i = 0; i < n; i++) {
-            points[i] = new double[]{x.getDouble(i), y.getDouble(i)};
+            xs[i] = x.getDouble(i);
+            ys[i] = y.getDouble(i);
         }
-        Reproject.reprojectPoints(points, fromProj, toProj, 0, points.length);
+        Reproject.reproject(xs, ys, fromProj, toProj);
         for (int i = 0; i < n; i++) {
-            rx.setDouble(i, points[i][0]);
-            ry.setDouble(i, points[i][1]);
+            rx.setDouble(i, xs[i]);
+            ry.setDouble(i, ys[i]);
         }
 
         return new Array[]{rx, ry};
@@ -4482,133 +4550,8 @@ public class ArrayUtil {
      */
     public static Array reproject(Array data, List<Number> x, List<Number> y, Array rx, Array ry,
             ProjectionInfo fromProj, ProjectionInfo toProj, double fill_value, ResampleMethods resampleMethod) throws InvalidRangeException {
-        int n = (int) rx.getSize();
-        int[] dshape = data.getShape();
-        int[] shape;
-        if (rx.getRank() == 1) {
-            shape = new int[1];
-            shape[0] = rx.getShape()[0];
-        } else {
-            shape = new int[data.getRank()];
-            for (int i = 0; i < shape.length; i++) {
-                if (i == shape.length - 2) {
-                    shape[i] = rx.getShape()[0];
-                } else if (i == shape.length - 1) {
-                    shape[i] = rx.getShape()[1];
-                } else {
-                    shape[i] = data.getShape()[i];
-                }
-            }
-        }
-        Array r = Array.factory(data.getDataType(), shape);
-
-        double[][] points = new double[n][];
-        for (int i = 0; i < n; i++) {
-            points[i] = new double[]{rx.getDouble(i), ry.getDouble(i)};
-        }
-        if (!fromProj.equals(toProj)) {
-            Reproject.reprojectPoints(points, toProj, fromProj, 0, points.length);
-        }
-        double xx, yy;
-        if (resampleMethod == ResampleMethods.Bilinear) {
-            if (shape.length <= 2) {
-                for (int i = 0; i < n; i++) {
-                    xx = points[i][0];
-                    yy = points[i][1];
-                    if (Double.isNaN(xx) || Double.isNaN(yy)) {
-                        r.setObject(i, Double.NaN);
-                    } else {
-                        r.setObject(i, toStation(data, x, y, xx, yy, fill_value));
-                    }
-                }
-            } else {
-                Index indexr = r.getIndex();
-                int[] current, cc = null;
-                boolean isNew;
-                Array ndata = null;
-                int k;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = indexr.getCurrentCounter();
-                    isNew = true;
-                    if (i > 0) {
-                        for (int j = 0; j < shape.length - 2; j++) {
-                            if (cc[j] != current[j]) {
-                                isNew = false;
-                                break;
-                            }
-                        }
-                    }
-                    cc = Arrays.copyOf(current, current.length);
-                    if (isNew) {
-                        List<Range> ranges = new ArrayList<>();
-                        for (int j = 0; j < shape.length - 2; j++) {
-                            ranges.add(new Range(current[j], current[j], 1));
-                        }
-                        ranges.add(new Range(0, dshape[dshape.length - 2] - 1, 1));
-                        ranges.add(new Range(0, dshape[dshape.length - 1] - 1, 1));
-                        ndata = data.section(ranges).reduce();
-                    }
-                    k = current[shape.length - 2] * shape[shape.length - 1] + current[shape.length - 1];
-                    xx = points[k][0];
-                    yy = points[k][1];
-                    if (Double.isNaN(xx) || Double.isNaN(yy)) {
-                        r.setObject(i, Double.NaN);
-                    } else {
-                        r.setObject(i, toStation(ndata, x, y, xx, yy, fill_value));
-                    }
-                    indexr.incr();
-                }
-            }
-        } else if (shape.length <= 2) {
-            for (int i = 0; i < n; i++) {
-                xx = points[i][0];
-                yy = points[i][1];
-                if (Double.isNaN(xx) || Double.isNaN(yy)) {
-                    r.setObject(i, Double.NaN);
-                } else {
-                    r.setObject(i, toStation_Neighbor(data, x, y, xx, yy, fill_value));
-                }
-            }
-        } else {
-            Index indexr = r.getIndex();
-            int[] current, cc = null;
-            boolean isNew;
-            Array ndata = null;
-            int k;
-            for (int i = 0; i < r.getSize(); i++) {
-                current = indexr.getCurrentCounter();
-                isNew = true;
-                if (i > 0) {
-                    for (int j = 0; j < shape.length - 2; j++) {
-                        if (cc[j] != current[j]) {
-                            isNew = false;
-                            break;
-                        }
-                    }
-                }
-                cc = Arrays.copyOf(current, current.length);
-                if (isNew) {
-                    List<Range> ranges = new ArrayList<>();
-                    for (int j = 0; j < shape.length - 2; j++) {
-                        ranges.add(new Range(current[j], current[j], 1));
-                    }
-                    ranges.add(new Range(0, dshape[dshape.length - 2] - 1, 1));
-                    ranges.add(new Range(0, dshape[dshape.length - 1] - 1, 1));
-                    ndata = data.section(ranges).reduce();
-                }
-                k = current[shape.length - 2] * shape[shape.length - 1] + current[shape.length - 1];
-                xx = points[k][0];
-                yy = points[k][1];
-                if (Double.isNaN(xx) || Double.isNaN(yy)) {
-                    r.setObject(i, Double.NaN);
-                } else {
-                    r.setObject(i, toStation_Neighbor(ndata, x, y, xx, yy, fill_value));
-                }
-                indexr.incr();
-            }
-        }
-
-        return r;
+        RegridPlan plan = RegridPlan.getPlan(fromProj, x, y, toProj, rx, ry, resampleMethod);
+        return plan.apply(data, fill_value);
     }
 
     /**
@@ -4627,117 +4570,8 @@ public class ArrayUtil {
      */
     public static Array reproject(Array data, List<Number> x, List<Number> y, Array rx, Array ry,
             ProjectionInfo fromProj, ProjectionInfo toProj, ResampleMethods resampleMethod) throws InvalidRangeException {
-        int n = (int) rx.getSize();
-        int[] dshape = data.getShape();
-        int[] shape;
-        if (rx.getRank() == 1) {
-            shape = new int[1];
-            shape[0] = rx.getShape()[0];
-        } else {
-            shape = new int[data.getRank()];
-            for (int i = 0; i < shape.length; i++) {
-                if (i == shape.length - 2) {
-                    shape[i] = rx.getShape()[0];
-                } else if (i == shape.length - 1) {
-                    shape[i] = rx.getShape()[1];
-                } else {
-                    shape[i] = data.getShape()[i];
-                }
-            }
-        }
-        Array r = Array.factory(data.getDataType(), shape);
-
-        double[][] points = new double[n][];
-        for (int i = 0; i < n; i++) {
-            points[i] = new double[]{rx.getDouble(i), ry.getDouble(i)};
-        }
-        if (!fromProj.equals(toProj)) {
-            Reproject.reprojectPoints(points, toProj, fromProj, 0, points.length);
-        }
-        double xx, yy;
-        if (resampleMethod == ResampleMethods.Bilinear) {
-            if (shape.length <= 2) {
-                for (int i = 0; i < n; i++) {
-                    xx = points[i][0];
-                    yy = points[i][1];
-                    r.setObject(i, toStation(data, x, y, xx, yy));
-                }
-            } else {
-                Index indexr = r.getIndex();
-                int[] current, cc = null;
-                boolean isNew;
-                Array ndata = null;
-                int k;
-                for (int i = 0; i < r.getSize(); i++) {
-                    current = indexr.getCurrentCounter();
-                    isNew = true;
-                    if (i > 0) {
-                        for (int j = 0; j < shape.length - 2; j++) {
-                            if (cc[j] != current[j]) {
-                                isNew = false;
-                                break;
-                            }
-                        }
-                    }
-                    cc = Arrays.copyOf(current, current.length);
-                    if (isNew) {
-                        List<Range> ranges = new ArrayList<>();
-                        for (int j = 0; j < shape.length - 2; j++) {
-                            ranges.add(new Range(current[j], current[j], 1));
-                        }
-                        ranges.add(new Range(0, dshape[dshape.length - 2] - 1, 1));
-                        ranges.add(new Range(0, dshape[dshape.length - 1] - 1, 1));
-                        ndata = data.section(ranges).reduce();
-                    }
-                    k = current[shape.length - 2] * shape[shape.length - 1] + current[shape.length - 1];
-                    xx = points[k][0];
-                    yy = points[k][1];
-                    r.setObject(i, toStation(ndata, x, y, xx, yy));
-                    indexr.incr();
-                }
-            }
-        } else if (shape.length == 2) {
-            for (int i = 0; i < n; i++) {
-                xx = points[i][0];
-                yy = points[i][1];
-                r.setObject(i, toStation_Neighbor(data, x, y, xx, yy));
-            }
-        } else {
-            Index indexr = r.getIndex();
-            int[] current, cc = null;
-            boolean isNew;
-            Array ndata = null;
-            int k;
-            for (int i = 0; i < r.getSize(); i++) {
-                current = indexr.getCurrentCounter();
-                isNew = true;
-                if (i > 0) {
-                    for (int j = 0; j < shape.length - 2; j++) {
-                        if (cc[j] != current[j]) {
-                            isNew = false;
-                            break;
-                        }
-                    }
-                }
-                cc = Arrays.copyOf(current, current.length);
-                if (isNew) {
-                    List<Range> ranges = new ArrayList<>();
-                    for (int j = 0; j < shape.length - 2; j++) {
-                        ranges.add(new Range(current[j], current[j], 1));
-                    }
-                    ranges.add(new Range(0, dshape[dshape.length - 2] - 1, 1));
-                    ranges.add(new Range(0, dshape[dshape.length - 1] - 1, 1));
-                    ndata = data.section(ranges).reduce();
-                }
-                k = current[shape.length - 2] * shape[shape.length - 1] + current[shape.length - 1];
-                xx = points[k][0];
-                yy = points[k][1];
-                r.setObject(i, toStation_Neighbor(ndata, x, y, xx, yy));
-                indexr.incr();
-            }
-        }
-
-        return r;
+        RegridPlan plan = RegridPlan.getPlan(fromProj, x, y, toProj, rx, ry, resampleMethod);
+        return plan.apply(data);
     }
 
     /**
@@ -4756,35 +4590,49 @@ public class ArrayUtil {
      */
     public static Array reproject(Array data, List<Number> x, List<Number> y, List<Number> rx, List<Number> ry,
             ProjectionInfo fromProj, ProjectionInfo toProj, double fill_value, ResampleMethods resampleMethod) {
-        int n = rx.size() * ry.size();
-        int[] shape = new int[]{ry.size(), rx.size()};
-        Array r = Array.factory(data.getDataType(), shape);
-
-        double[][] points = new double[n][];
-        for (int i = 0; i < ry.size(); i++) {
-            for (int j = 0; j < rx.size(); j++) {
-                points[i * rx.size() + j] = new double[]{rx.get(j).doubleValue(), ry.get(i).doubleValue()};
-            }
+        double[] xx = new double[x.size()];
+        double[] yy = new double[y.size()];
+        double[] rxx = new double[rx.size()];
+        double[] ryy = new double[ry.size()];
+        for (int i = 0; i < xx.length; i++) {
+            xx[i] = x.get(i).doubleValue();
         }
-        if (!fromProj.equals(toProj)) {
-            Reproject.reprojectPoints(points, toProj, fromProj, 0, points.length);
+        for (int i = 0; i < yy.length; i++) {
+            yy[i] = y.get(i).doubleValue();
         }
-        double xx, yy;
-        if (resampleMethod == ResampleMethods.Bilinear) {
-            for (int i = 0; i < n; i++) {
-                xx = points[i][0];
-                yy = points[i][1];
-                r.setObject(i, toStation(data, x, y, xx, yy, fill_value));
-            }
-        } else {
-            for (int i = 0; i < n; i++) {
-                xx = points[i][0];
-                yy = points[i][1];
-                r.setObject(i, toStation_Neighbor(data, x, y, xx, yy, fill_value));
-            }
+        for (int i = 0; i < rxx.length; i++) {
+            rxx[i] = rx.get(i).doubleValue();
         }
+        for (int i = 0; i < ryy.length; i++) {
+            ryy[i] = ry.get(i).doubleValue();
+        }
+        RegridPlan plan = RegridPlan.getPlan(fromProj, xx, yy, toProj, rxx, ryy, resampleMethod);
+        return plan.apply(data, fill_value);
+    }
 
-        return r;
+    /**
+     * Reproject by a regridding plan. The last two dimensions of the data
+     * array are y and x of the plan source grid.
+     *
+     * @param data Data array
+     * @param plan Regridding plan
+     * @return Result array
+     */
+    public static Array reproject(Array data, RegridPlan plan) {
+        return plan.apply(data);
+    }
+
+    /**
+     * Reproject by a regridding plan. The last two dimensions of the data
+     * array are y and x of the plan source grid.
+     *
+     * @param data Data array
+     * @param plan Regridding plan
+     * @param fill_value Fill value
+     * @return Result array
+     */
+    public static Array reproject(Array data, RegridPlan plan, double fill_value) {
+        return plan.apply(data, fill_value);
     }
 
     /**
@@ -14,10 +14,9 @@
 package org.meteoinfo.data;
 
 import java.io.BufferedReader;
-import org.meteoinfo.geoprocess.GeoComputation;
+import org.meteoinfo.geoprocess.PolygonMask;
 import org.meteoinfo.global.Extent;
 import org.meteoinfo.global.MIMath;
-import org.meteoinfo.global.PointD;
 import java.io.BufferedWriter;
 import java.io.DataOutputStream;
 import java.io.File;
@@ -1355,7 +1354,7 @@ public class GridData {
                 if (MIMath.doubleEquals(data[i][j], missingValue)) {
                     gridData.data[i][j] = missingValue;
                 } else {
-                    gridData.data[i][j] = Math.abs(data[i][j]);
+                    gridData.data[i][j] = Math.log10(data[i][j]);
                 }
             }
         }
@@ -2334,31 +2333,9 @@ public class GridData {
      * @return Maskouted grid data
      */
     public GridData maskout(PolygonShape aPGS) {
-        int xNum = this.getXNum();
-        int yNum = this.getYNum();
-
-        GridData cGrid = new GridData(this);
-        for (int i = 0; i < yNum; i++) {
-            if (yArray[i] >= aPGS.getExtent().minY && yArray[i] <= aPGS.getExtent().maxY) {
-                for (int j = 0; j < xNum; j++) {
-                    if (xArray[j] >= aPGS.getExtent().minX && xArray[j] <= aPGS.getExtent().maxX) {
-                        if (GeoComputation.pointInPolygon(aPGS, new PointD(xArray[j], yArray[i]))) {
-                            cGrid.data[i][j] = data[i][j];
-                        } else {
-                            cGrid.data[i][j] = missingValue;
-                        }
-                    } else {
-                        cGrid.data[i][j] = missingValue;
-                    }
-                }
-            } else {
-                for (int j = 0; j < xNum; j++) {
-                    cGrid.data[i][j] = missingValue;
-                }
-            }
-        }
-
-        return cGrid;
+        List<PolygonShape> polygons = new ArrayList<>();
+        polygons.add(aPGS);
+        return maskout(polygons);
     }
 
     /**
@@ -2368,21 +2345,7 @@ public class GridData {
      * @return Maskouted grid data
      */
     public GridData maskout(List<PolygonShape> polygons) {
-        int xNum = this.getXNum();
-        int yNum = this.getYNum();
-
-        GridData cGrid = new GridData(this);
-        for (int i = 0; i < yNum; i++) {
-            for (int j = 0; j < xNum; j++) {
-                if (GeoComputation.pointInPolygons(polygons, new PointD(xArray[j], yArray[i]))) {
-                    cGrid.data[i][j] = data[i][j];
-                } else {
-                    cGrid.data[i][j] = missingValue;
-                }
-            }
-        }
-
-        return cGrid;
+        return maskout(PolygonMask.getMask(polygons, xArray, yArray));
     }
 
     /**
@@ -2396,26 +2359,25 @@ public class GridData {
             return this;
         }
 
+        return maskout(PolygonMask.getMask(maskLayer, xArray, yArray));
+    }
+
+    /**
+     * Mask out grid data by a mask
+     *
+     * @param mask Mask in y by x order, true to keep the value
+     * @return Result grid data
+     */
+    public GridData maskout(boolean[] mask) {
         int xNum = this.getXNum();
         int yNum = this.getYNum();
         GridData cGrid = new GridData(this);
         for (int i = 0; i < yNum; i++) {
-            if (yArray[i] >= maskLayer.getExtent().minY && yArray[i] <= maskLayer.getExtent().maxY) {
-                for (int j = 0; j < xNum; j++) {
-                    if (xArray[j] >= maskLayer.getExtent().minX && xArray[j] <= maskLayer.getExtent().maxX) {
-                        if (GeoComputation.pointInPolygonLayer(maskLayer, new PointD(xArray[j], yArray[i]), false)) {
-                            cGrid.data[i][j] = data[i][j];
-                        } else {
-                            cGrid.data[i][j] = missingValue;
-                        }
-                    } else {
-                        cGrid.data[i][j] = missingValue;
-                    }
-                }
-            } else {
-                for (int j = 0; j < xNum; j++) {
-                    cGrid.data[i][j] = missingValue;
-                }
+            double[] r = cGrid.data[i];
+            double[] d = data[i];
+            int k = i * xNum;
+            for (int j = 0; j < xNum; j++) {
+                r[j] = mask[k + j] ? d[j] : missingValue;
             }
         }
 
@@ -2453,56 +2415,31 @@ public class GridData {
      * @return Result grid data
      */
     public GridData resample(GridData toGridData, ResampleMethods method) {
-        GridData gridData;
-        if (this.projInfo.equals(toGridData.projInfo)) {
-            switch (method) {
-                case NearestNeighbor:
-                    gridData = resample_Neighbor(toGridData.xArray, toGridData.yArray);
-                    break;
-                default:
-                    gridData = resample_Bilinear(toGridData.xArray, toGridData.yArray);
-                    break;
-            }
-        } else {
-            gridData = this.project(toGridData.projInfo, toGridData.xArray, toGridData.yArray, method);
-        }
+        return resample(toGridData, RemapWeights.getRemapMethod(method));
+    }
 
+    /**
+     * Resample grid data by cached sparse remapping weights. Nearest neighbor
+     * takes the closest source point, and bilinear uses the average of the
+     * valid corners if some of them are missing, same as toStation.
+     *
+     * @param toGridData The grid data
+     * @param method The remapping method
+     * @return Result grid data
+     */
+    public GridData resample(GridData toGridData, RemapWeights.RemapMethod method) {
+        RemapWeights weights = RemapWeights.getWeights(this, toGridData, method);
+        GridData gridData = new GridData();
+        gridData.xArray = toGridData.xArray.clone();
+        gridData.yArray = toGridData.yArray.clone();
+        gridData.missingValue = missingValue;
         gridData.projInfo = toGridData.projInfo;
+        gridData.data = new double[gridData.yArray.length][gridData.xArray.length];
+        weights.apply(this, gridData);
 
         return gridData;
     }
 
-    private GridData resample_Neighbor(double[] newX, double[] newY) {
-        double[][] newdata = new double[newY.length][newX.length];
-        int i, j, xIdx, yIdx;
-        double x, y;
-
-        double[][] points = new double[1][];
-        for (i = 0; i < newY.length; i++) {
-            y = newY[i];
-            for (j = 0; j < newX.length; j++) {
-                points[0] = new double[]{newX[j], newY[i]};
-                x = newX[j];
-                if (x < xArray[0] || x > xArray[xArray.length - 1]) {
-                    newdata[i][j] = missingValue;
-                } else if (y < yArray[0] || y > yArray[yArray.length - 1]) {
-                    newdata[i][j] = missingValue;
-                } else {
-                    xIdx = (int) ((x - xArray[0]) / getXDelt());
-                    yIdx = (int) ((y - yArray[0]) / getYDelt());
-                    newdata[i][j] = data[yIdx][xIdx];
-                }
-            }
-        }
-
-        GridData gData = new GridData(this);
-        gData.data = newdata;
-        gData.xArray = newX;
-        gData.yArray = newY;
-
-        return gData;
-    }
-
     private GridData resample_Bilinear(double[] newX, double[] newY) {
         //PointD[][] pos = new PointD[newY.length][newX.length];
         double[][] newdata = new double[newY.length][newX.length];
@@ -2784,7 +2721,7 @@ public class GridData {
             return null;
         }
 
-        return project_Neighbor(this.projInfo, toProj, newX, newY);
+        return project(this.projInfo, toProj, newX, newY, ResampleMethods.NearestNeighbor);
     }
 
     /**
@@ -2817,14 +2754,18 @@ public class GridData {
      */
     public GridData project(ProjectionInfo fromProj, ProjectionInfo toProj, double[] newX, double[] newY,
             ResampleMethods resampleMethod) {
-        switch (resampleMethod) {
-            case Bilinear:
-                return project_Bilinear(fromProj, toProj, newX, newY);
-            case NearestNeighbor:
-                return project_Neighbor(fromProj, toProj, newX, newY);
-            default:
-                return project_Bilinear(fromProj, toProj, newX, newY);
-        }
+        RegridPlan plan = RegridPlan.getPlan(fromProj, xArray, yArray, toProj, newX, newY, resampleMethod);
+        return plan.apply(this);
+    }
+
+    /**
+     * Project grid data by a regridding plan
+     *
+     * @param plan Regridding plan from the grid
+     * @return Projected grid data
+     */
+    public GridData project(RegridPlan plan) {
+        return plan.apply(this);
     }
 
     /**
@@ -2846,105 +2787,31 @@ public class GridData {
         }
     }
 
-    private GridData project_Neighbor(ProjectionInfo fromProj, ProjectionInfo toProj, double[] newX, double[] newY) {
-        double[][] newdata = new double[newY.length][newX.length];
-        int i, j, xIdx, yIdx;
-        double x, y;
-
-        double[][] points = new double[1][];
-        for (i = 0; i < newY.length; i++) {
-            for (j = 0; j < newX.length; j++) {
-                points[0] = new double[]{newX[j], newY[i]};
-                try {
-                    Reproject.reprojectPoints(points, toProj, fromProj, 0, 1);
-                    x = points[0][0];
-                    y = points[0][1];
-
-                    if (x < xArray[0] || x > xArray[xArray.length - 1]) {
-                        newdata[i][j] = missingValue;
-                    } else if (y < yArray[0] || y > yArray[yArray.length - 1]) {
-                        newdata[i][j] = missingValue;
-                    } else {
-                        xIdx = (int) ((x - xArray[0]) / getXDelt());
-                        yIdx = (int) ((y - yArray[0]) / getYDelt());
-                        newdata[i][j] = data[yIdx][xIdx];
-                    }
-                } catch (Exception e) {
-                    newdata[i][j] = missingValue;
-                    j++;
-                }
-            }
-        }
-
-        GridData gData = new GridData(this);
-        gData.data = newdata;
-        gData.xArray = newX;
-        gData.yArray = newY;
-
-        return gData;
-    }
-
-    private GridData project_Bilinear(ProjectionInfo fromProj, ProjectionInfo toProj, double[] newX, double[] newY) {
-        //PointD[][] pos = new PointD[newY.length][newX.length];
-        double[][] newdata = new double[newY.length][newX.length];
-        int i, j;
-        double x, y;
-
-        double[][] points = new double[1][];
-        for (i = 0; i < newY.length; i++) {
-            for (j = 0; j < newX.length; j++) {
-                points[0] = new double[]{newX[j], newY[i]};
-                try {
-                    Reproject.reprojectPoints(points, toProj, fromProj, 0, 1);
-                    x = points[0][0];
-                    y = points[0][1];
-
-                    if (x < xArray[0] || x > xArray[xArray.length - 1]) {
-                        newdata[i][j] = missingValue;
-                    } else if (y < yArray[0] || y > yArray[yArray.length - 1]) {
-                        newdata[i][j] = missingValue;
-                    } else {
-                        newdata[i][j] = this.toStation(x, y);
-                    }
-                } catch (Exception e) {
-                    newdata[i][j] = missingValue;
-                    j++;
-                }
-            }
-        }
-
-        GridData gData = new GridData(this);
-        gData.data = newdata;
-        gData.xArray = newX;
-        gData.yArray = newY;
-
-        return gData;
-    }
-
     private StationData project_Bilinear(ProjectionInfo fromProj, ProjectionInfo toProj, StationData stData) {
         int i;
         double x, y;
         StationData nsData = new StationData(stData);
         nsData.missingValue = missingValue;
 
-        double[][] points = new double[1][];
-        for (i = 0; i < stData.getStNum(); i++) {
-            points[0] = new double[]{stData.getX(i), stData.getY(i)};
-            try {
-                Reproject.reprojectPoints(points, toProj, fromProj, 0, 1);
-                x = points[0][0];
-                y = points[0][1];
-
-                if (x < xArray[0] || x > xArray[xArray.length - 1]) {
-                    nsData.setValue(i, missingValue);
-                } else if (y < yArray[0] || y > yArray[yArray.length - 1]) {
-                    nsData.setValue(i, missingValue);
-                } else {
-                    nsData.setValue(i, this.toStation(x, y));
-                }
-            } catch (Exception e) {
+        int n = stData.getStNum();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (i = 0; i < n; i++) {
+            xs[i] = stData.getX(i);
+            ys[i] = stData.getY(i);
+        }
+        Reproject.reproject(xs, ys, toProj, fromProj);
+        for (i = 0; i < n; i++) {
+            x = xs[i];
+            y = ys[i];
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                nsData.setValue(i, missingValue);
+            } else if (x < xArray[0] || x > xArray[xArray.length - 1]) {
                 nsData.setValue(i, missingValue);
-                i++;
+            } else if (y < yArray[0] || y > yArray[yArray.length - 1]) {
+                nsData.setValue(i, missingValue);
+            } else {
+                nsData.setValue(i, this.toStation(x, y));
             }
         }
 
@@ -2958,71 +2825,9 @@ public class GridData {
      * @param isAverage If is average
      */
     public void aggregate(GridData toGridData, boolean isAverage) {
-        int xnum = this.getXNum();
-        int ynum = this.getYNum();
-        int toXnum = toGridData.getXNum();
-        int toYnum = toGridData.getYNum();
-        int i, j, xIdx, yIdx;
-        int[][] nums = new int[toYnum][toXnum];
-        double x, y, y0;
-        toGridData.setValue(0.0);
-        if (this.projInfo.equals(toGridData.projInfo)) {
-            for (i = 0; i < ynum; i++) {
-                y = yArray[i];
-                for (j = 0; j < xnum; j++) {
-                    x = xArray[j];
-                    int[] ij = toGridData.getIJIndex(x, y);
-                    xIdx = ij[0];
-                    yIdx = ij[1];
-                    if (xIdx >= 0 && yIdx >= 0) {
-                        toGridData.data[yIdx][xIdx] += this.data[i][j];
-                        nums[yIdx][xIdx] += 1;
-                    }
-                }
-            }
-        } else {
-            double[][] points = new double[1][];
-            for (i = 0; i < ynum; i++) {
-                y0 = yArray[i];
-                for (j = 0; j < xnum; j++) {
-                    x = xArray[j];
-                    y = y0;
-                    points[0] = new double[]{x, y};
-                    try {
-                        Reproject.reprojectPoints(points, this.projInfo, toGridData.projInfo, 0, 1);
-                        x = points[0][0];
-                        y = points[0][1];
-                        if (java.lang.Double.isNaN(x) || java.lang.Double.isNaN(y)) {
-                            continue;
-                        }
-
-                        int[] ij = toGridData.getIJIndex(x, y);
-                        xIdx = ij[0];
-                        yIdx = ij[1];
-                        if (xIdx >= 0 && yIdx >= 0) {
-                            toGridData.data[yIdx][xIdx] += this.data[i][j];
-                            nums[yIdx][xIdx] += 1;
-                        }
-                    } catch (Exception e) {
-                        j++;
-                        continue;
-                    }
-                }
-            }
-        }
-
-        //Average
-        if (isAverage) {
-            for (i = 0; i < toYnum; i++) {
-                for (j = 0; j < toXnum; j++) {
-                    if (nums[i][j] == 0) {
-                        toGridData.data[i][j] = toGridData.missingValue;
-                    } else {
-                        toGridData.data[i][j] = toGridData.data[i][j] / nums[i][j];
-                    }
-                }
-            }
-        }
+        RemapWeights weights = RemapWeights.getWeights(this, toGridData, isAverage
+                ? RemapWeights.RemapMethod.AGGREGATE_MEAN : RemapWeights.RemapMethod.AGGREGATE_SUM);
+        weights.apply(this, toGridData);
     }
 
     /**
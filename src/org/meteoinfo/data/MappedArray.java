@@ -0,0 +1,465 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import org.meteoinfo.io.MappedFileCache;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+
+/**
+ * Lazy array of a raw binary file in row major order.
+ *
+ * The file is read through memory mapped regions of MappedFileCache, so
+ * opening the array does not read any data and a section only touches the
+ * file pages of the requested elements. Contiguous runs of elements are
+ * decoded in bulk by typed buffer views. Byte values are read as unsigned
+ * and returned as int.
+ *
+ * @author Yaqiang Wang
+ */
+public class MappedArray {
+    // <editor-fold desc="Variables">
+
+    private static final int CHUNK_BYTES = 64 * 1024 * 1024;
+    private final String fileName;
+    private final long offset;
+    private final DataType dataType;
+    private final int[] shape;
+    private final long[] strides;
+    private final ByteOrder byteOrder;
+    private final int elementSize;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor
+     *
+     * @param fileName File name
+     * @param offset Start position of the data in the file
+     * @param dataType Data type in the file - BYTE, SHORT, INT, FLOAT or
+     * DOUBLE
+     * @param shape Shape
+     * @param byteOrder Byte order
+     * @throws IOException
+     */
+    public MappedArray(String fileName, long offset, DataType dataType, int[] shape,
+            ByteOrder byteOrder) throws IOException {
+        switch (dataType) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case FLOAT:
+            case DOUBLE:
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported data type: " + dataType);
+        }
+        this.fileName = fileName;
+        this.offset = offset;
+        this.dataType = dataType;
+        this.shape = shape.clone();
+        this.byteOrder = byteOrder;
+        this.elementSize = dataType.getSize();
+        this.strides = new long[shape.length];
+        long s = 1;
+        for (int i = shape.length - 1; i >= 0; i--) {
+            this.strides[i] = s;
+            s *= shape[i];
+        }
+
+        File file = new File(fileName);
+        if (!file.exists()) {
+            throw new IOException("File not exists: " + fileName);
+        }
+        if (offset + s * elementSize > file.length()) {
+            throw new IOException("Data size is larger than file size: " + fileName);
+        }
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get file name
+     *
+     * @return File name
+     */
+    public String getFileName() {
+        return this.fileName;
+    }
+
+    /**
+     * Get shape
+     *
+     * @return Shape
+     */
+    public int[] getShape() {
+        return this.shape.clone();
+    }
+
+    /**
+     * Get rank
+     *
+     * @return Rank
+     */
+    public int getRank() {
+        return this.shape.length;
+    }
+
+    /**
+     * Get element number
+     *
+     * @return Element number
+     */
+    public long getSize() {
+        long n = 1;
+        for (int s : shape) {
+            n *= s;
+        }
+        return n;
+    }
+
+    /**
+     * Get data type of the read arrays
+     *
+     * @return Data type
+     */
+    public DataType getDataType() {
+        return this.dataType == DataType.BYTE ? DataType.INT : this.dataType;
+    }
+
+    /**
+     * Get byte order
+     *
+     * @return Byte order
+     */
+    public ByteOrder getByteOrder() {
+        return this.byteOrder;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Read all data
+     *
+     * @return Data array
+     * @throws IOException
+     */
+    public Array read() throws IOException {
+        int[][] indices = new int[shape.length][];
+        for (int i = 0; i < shape.length; i++) {
+            indices[i] = range(0, shape[i], 1);
+        }
+        return read(indices);
+    }
+
+    /**
+     * Read a section
+     *
+     * @param origin Origin
+     * @param size Size
+     * @param stride Stride
+     * @return Section array
+     * @throws InvalidRangeException
+     * @throws IOException
+     */
+    public Array read(int[] origin, int[] size, int[] stride) throws InvalidRangeException, IOException {
+        if (origin.length != shape.length || size.length != shape.length) {
+            throw new InvalidRangeException("Bad section rank");
+        }
+        int[][] indices = new int[shape.length][];
+        for (int i = 0; i < shape.length; i++) {
+            int s = stride == null ? 1 : stride[i];
+            if (origin[i] < 0 || s < 1 || size[i] < 0 || (size[i] > 0
+                    && origin[i] + (long) (size[i] - 1) * s >= shape[i])) {
+                throw new InvalidRangeException("Bad section range in dimension " + i);
+            }
+            indices[i] = range(origin[i], size[i], s);
+        }
+        return read(indices);
+    }
+
+    /**
+     * Read a section
+     *
+     * @param origin Origin
+     * @param size Size
+     * @return Section array
+     * @throws InvalidRangeException
+     * @throws IOException
+     */
+    public Array section(int[] origin, int[] size) throws InvalidRangeException, IOException {
+        return read(origin, size, null);
+    }
+
+    /**
+     * Read a section
+     *
+     * @param ranges Range list, null range means all elements of the
+     * dimension
+     * @return Section array
+     * @throws InvalidRangeException
+     * @throws IOException
+     */
+    public Array section(List<Range> ranges) throws InvalidRangeException, IOException {
+        if (ranges.size() != shape.length) {
+            throw new InvalidRangeException("Bad section rank");
+        }
+        int[] origin = new int[shape.length];
+        int[] size = new int[shape.length];
+        int[] stride = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            Range range = ranges.get(i);
+            if (range == null) {
+                origin[i] = 0;
+                size[i] = shape[i];
+                stride[i] = 1;
+            } else {
+                origin[i] = range.first();
+                size[i] = range.length();
+                stride[i] = range.stride();
+            }
+        }
+        return read(origin, size, stride);
+    }
+
+    /**
+     * Take elements along an axis
+     *
+     * @param axis The axis
+     * @param index Index list of the axis
+     * @return Result array
+     * @throws InvalidRangeException
+     * @throws IOException
+     */
+    public Array take(int axis, List<Integer> index) throws InvalidRangeException, IOException {
+        if (axis < 0 || axis >= shape.length) {
+            throw new InvalidRangeException("Bad axis: " + axis);
+        }
+        int[][] indices = new int[shape.length][];
+        for (int i = 0; i < shape.length; i++) {
+            if (i == axis) {
+                indices[i] = new int[index.size()];
+                for (int j = 0; j < index.size(); j++) {
+                    int k = index.get(j);
+                    if (k < 0) {
+                        k += shape[i];
+                    }
+                    if (k < 0 || k >= shape[i]) {
+                        throw new InvalidRangeException("Index out of range: " + index.get(j));
+                    }
+                    indices[i][j] = k;
+                }
+            } else {
+                indices[i] = range(0, shape[i], 1);
+            }
+        }
+        return read(indices);
+    }
+
+    /**
+     * Read the elements at the index combinations of all dimensions
+     *
+     * @param indices Index array of each dimension
+     * @return Result array
+     * @throws IOException
+     */
+    private Array read(int[][] indices) throws IOException {
+        int rank = shape.length;
+        int[] rshape = new int[rank];
+        long n = 1;
+        for (int i = 0; i < rank; i++) {
+            rshape[i] = indices[i].length;
+            n *= rshape[i];
+        }
+        if (n > Integer.MAX_VALUE) {
+            throw new IOException("Data size is too large to read into memory: " + n);
+        }
+        Object storage = createStorage((int) n);
+        if (n == 0) {
+            return Array.factory(getDataType(), rshape, storage);
+        }
+        if (rank == 0) {
+            readRun(0, 1, storage, 0);
+            return Array.factory(getDataType(), rshape, storage);
+        }
+
+        //Trailing dimensions read fully and the last partly read dimension
+        //with consecutive indices are merged into contiguous runs
+        int k = rank - 1;
+        while (k > 0 && isFull(indices[k], k)) {
+            k -= 1;
+        }
+        int run = 1;
+        for (int i = k + 1; i < rank; i++) {
+            run *= rshape[i];
+        }
+        boolean contiguous = isConsecutive(indices[k]);
+        if (contiguous) {
+            run *= rshape[k];
+        }
+
+        //Iterate over the outer dimensions
+        int outerRank = k;
+        int[] counter = new int[outerRank];
+        int pos = 0;
+        while (pos < n) {
+            long base = 0;
+            for (int i = 0; i < outerRank; i++) {
+                base += indices[i][counter[i]] * strides[i];
+            }
+            if (contiguous) {
+                base += indices[k][0] * strides[k];
+                readRun(base, run, storage, pos);
+            } else {
+                readPoints(base, indices[k], strides[k], run, storage, pos);
+            }
+            pos += contiguous ? run : run * rshape[k];
+            for (int i = outerRank - 1; i >= 0; i--) {
+                counter[i] += 1;
+                if (counter[i] < rshape[i]) {
+                    break;
+                }
+                counter[i] = 0;
+            }
+        }
+
+        return Array.factory(getDataType(), rshape, storage);
+    }
+
+    /**
+     * Bulk decode a contiguous run of elements
+     */
+    private void readRun(long element, int count, Object storage, int pos) throws IOException {
+        int chunk = CHUNK_BYTES / elementSize;
+        while (count > 0) {
+            int m = Math.min(chunk, count);
+            ByteBuffer bb = MappedFileCache.getBuffer(fileName, offset + element * elementSize,
+                    m * elementSize, byteOrder);
+            switch (dataType) {
+                case BYTE:
+                    int[] ib = (int[]) storage;
+                    for (int i = 0; i < m; i++) {
+                        ib[pos + i] = bb.get(i) & 0xff;
+                    }
+                    break;
+                case SHORT:
+                    bb.asShortBuffer().get((short[]) storage, pos, m);
+                    break;
+                case INT:
+                    bb.asIntBuffer().get((int[]) storage, pos, m);
+                    break;
+                case FLOAT:
+                    bb.asFloatBuffer().get((float[]) storage, pos, m);
+                    break;
+                case DOUBLE:
+                    bb.asDoubleBuffer().get((double[]) storage, pos, m);
+                    break;
+            }
+            element += m;
+            pos += m;
+            count -= m;
+        }
+    }
+
+    /**
+     * Decode the elements of one line with strided or selected indices,
+     * each element followed by a contiguous run of trailing elements
+     */
+    private void readPoints(long base, int[] index, long stride, int run, Object storage, int pos)
+            throws IOException {
+        int min = index[0], max = index[0];
+        for (int i : index) {
+            min = Math.min(min, i);
+            max = Math.max(max, i);
+        }
+        long first = base + min * stride;
+        long span = ((max - min) * stride + run) * elementSize;
+        if (span > CHUNK_BYTES) {
+            for (int i : index) {
+                readRun(base + i * stride, run, storage, pos);
+                pos += run;
+            }
+            return;
+        }
+
+        ByteBuffer bb = MappedFileCache.getBuffer(fileName, offset + first * elementSize,
+                (int) span, byteOrder);
+        for (int i : index) {
+            int p = (int) ((i - min) * stride * elementSize);
+            for (int j = 0; j < run; j++) {
+                switch (dataType) {
+                    case BYTE:
+                        ((int[]) storage)[pos] = bb.get(p) & 0xff;
+                        break;
+                    case SHORT:
+                        ((short[]) storage)[pos] = bb.getShort(p);
+                        break;
+                    case INT:
+                        ((int[]) storage)[pos] = bb.getInt(p);
+                        break;
+                    case FLOAT:
+                        ((float[]) storage)[pos] = bb.getFloat(p);
+                        break;
+                    case DOUBLE:
+                        ((double[]) storage)[pos] = bb.getDouble(p);
+                        break;
+                }
+                p += elementSize;
+                pos += 1;
+            }
+        }
+    }
+
+    private Object createStorage(int n) {
+        switch (dataType) {
+            case SHORT:
+                return new short[n];
+            case FLOAT:
+                return new float[n];
+            case DOUBLE:
+                return new double[n];
+            default:
+                return new int[n];
+        }
+    }
+
+    private boolean isFull(int[] index, int dim) {
+        return index.length == shape[dim] && isConsecutive(index);
+    }
+
+    private static boolean isConsecutive(int[] index) {
+        for (int i = 1; i < index.length; i++) {
+            if (index[i] != index[i - 1] + 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] range(int start, int size, int stride) {
+        int[] r = new int[size];
+        for (int i = 0; i < size; i++) {
+            r[i] = start + i * stride;
+        }
+        return r;
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,736 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.data;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.meteoinfo.geoprocess.analysis.ResampleMethods;
+import org.meteoinfo.global.MIMath;
+import org.meteoinfo.global.util.ParallelUtil;
+import org.meteoinfo.projection.ProjectionInfo;
+import org.meteoinfo.projection.ProjectionNames;
+import org.meteoinfo.projection.Reproject;
+import org.meteoinfo.projection.proj4j.CoordinateTransform;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+/**
+ * Regridding plan from a source rectilinear grid to target points in another
+ * projection.
+ *
+ * The target points are back projected to the source projection once, and the
+ * source indices and bilinear weights of each target point are stored in
+ * packed arrays. The plan can then be applied to any number of fields on the
+ * same source grid without any projection transform. Plans are cached by
+ * projection, grid coordinates and resample method, and the cache is bounded
+ * by both plan number and estimated memory size.
+ *
+ * For bilinear method a target value is the weighted sum of the four
+ * surrounding source values. If some of them are missing the average of the
+ * others is used, same as GridData.toStation. For nearest neighbor method
+ * the closest of the four source values is used. A source axis with a single
+ * coordinate only contains target points on that coordinate.
+ *
+ * @author Yaqiang Wang
+ */
+public class RegridPlan {
+    // <editor-fold desc="Variables">
+
+    private static final int MIN_CHUNK_POINTS = 16384;
+    private static int maxCacheSize = 16;
+    private static long maxCacheBytes = 256L * 1024 * 1024;
+    private static long cacheBytes = 0;
+    private static final LinkedHashMap<Key, RegridPlan> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+    private final ProjectionInfo fromProj;
+    private final ProjectionInfo toProj;
+    private final ResampleMethods method;
+    private final int srcXNum;
+    private final int srcYNum;
+    private final double[] newX;
+    private final double[] newY;
+    private final int[] shape;
+    private final int pointNum;
+    private final int stride;
+    private final int[] indices;
+    private final double[] weights;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor of a plan to a target rectilinear grid
+     *
+     * @param fromProj From projection
+     * @param xArray Source x coordinates, ascending
+     * @param yArray Source y coordinates, ascending
+     * @param toProj To projection
+     * @param newX Target x coordinates
+     * @param newY Target y coordinates
+     * @param method Resample method
+     */
+    public RegridPlan(ProjectionInfo fromProj, double[] xArray, double[] yArray, ProjectionInfo toProj,
+            double[] newX, double[] newY, ResampleMethods method) {
+        this.fromProj = fromProj;
+        this.toProj = toProj;
+        this.method = method;
+        this.srcXNum = xArray.length;
+        this.srcYNum = yArray.length;
+        this.newX = newX.clone();
+        this.newY = newY.clone();
+        this.shape = new int[]{newY.length, newX.length};
+        this.pointNum = newY.length * newX.length;
+        this.stride = method == ResampleMethods.NearestNeighbor ? 1 : 4;
+        this.indices = new int[pointNum * stride];
+        this.weights = new double[pointNum * stride];
+        double[] xs = new double[pointNum];
+        double[] ys = new double[pointNum];
+        int k = 0;
+        for (int i = 0; i < newY.length; i++) {
+            for (int j = 0; j < newX.length; j++) {
+                xs[k] = newX[j];
+                ys[k] = newY[i];
+                k += 1;
+            }
+        }
+        build(xArray, yArray, xs, ys);
+    }
+
+    /**
+     * Constructor of a plan to target points
+     *
+     * @param fromProj From projection
+     * @param xArray Source x coordinates, ascending
+     * @param yArray Source y coordinates, ascending
+     * @param toProj To projection
+     * @param xs Target point x coordinates
+     * @param ys Target point y coordinates
+     * @param shape Target shape, its size must be the point number
+     * @param method Resample method
+     */
+    public RegridPlan(ProjectionInfo fromProj, double[] xArray, double[] yArray, ProjectionInfo toProj,
+            double[] xs, double[] ys, int[] shape, ResampleMethods method) {
+        this.fromProj = fromProj;
+        this.toProj = toProj;
+        this.method = method;
+        this.srcXNum = xArray.length;
+        this.srcYNum = yArray.length;
+        this.newX = null;
+        this.newY = null;
+        this.shape = shape.clone();
+        this.pointNum = xs.length;
+        this.stride = method == ResampleMethods.NearestNeighbor ? 1 : 4;
+        this.indices = new int[pointNum * stride];
+        this.weights = new double[pointNum * stride];
+        build(xArray, yArray, xs.clone(), ys.clone());
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get from projection
+     *
+     * @return From projection
+     */
+    public ProjectionInfo getFromProjection() {
+        return fromProj;
+    }
+
+    /**
+     * Get to projection
+     *
+     * @return To projection
+     */
+    public ProjectionInfo getToProjection() {
+        return toProj;
+    }
+
+    /**
+     * Get resample method
+     *
+     * @return Resample method
+     */
+    public ResampleMethods getResampleMethod() {
+        return method;
+    }
+
+    /**
+     * Get source grid x number
+     *
+     * @return Source x number
+     */
+    public int getSourceXNum() {
+        return srcXNum;
+    }
+
+    /**
+     * Get source grid y number
+     *
+     * @return Source y number
+     */
+    public int getSourceYNum() {
+        return srcYNum;
+    }
+
+    /**
+     * Get target shape
+     *
+     * @return Target shape
+     */
+    public int[] getShape() {
+        return shape.clone();
+    }
+
+    /**
+     * Get target point number
+     *
+     * @return Target point number
+     */
+    public int getPointNum() {
+        return pointNum;
+    }
+
+    /**
+     * Get if the target is a rectilinear grid
+     *
+     * @return Boolean
+     */
+    public boolean isGrid() {
+        return newX != null;
+    }
+
+    /**
+     * Get number of source points of each target point, 4 for bilinear and 1
+     * for nearest neighbor method
+     *
+     * @return Source point number
+     */
+    int getStride() {
+        return stride;
+    }
+
+    /**
+     * Get packed source indices, y * x number + x. The first index of a
+     * target point out of the source grid is negative.
+     *
+     * @return Source indices
+     */
+    int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * Get packed source weights
+     *
+     * @return Source weights
+     */
+    double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Get maximum number of cached plans
+     *
+     * @return Maximum cache size
+     */
+    public static synchronized int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * Set maximum number of cached plans
+     *
+     * @param value Maximum cache size
+     */
+    public static synchronized void setMaxCacheSize(int value) {
+        maxCacheSize = Math.max(0, value);
+        trimCache();
+    }
+
+    /**
+     * Get maximum estimated memory size in bytes of cached plans
+     *
+     * @return Maximum cache bytes
+     */
+    public static synchronized long getMaxCacheBytes() {
+        return maxCacheBytes;
+    }
+
+    /**
+     * Set maximum estimated memory size in bytes of cached plans. A plan
+     * larger than it is not cached.
+     *
+     * @param value Maximum cache bytes
+     */
+    public static synchronized void setMaxCacheBytes(long value) {
+        maxCacheBytes = Math.max(0, value);
+        trimCache();
+    }
+
+    /**
+     * Get estimated memory size in bytes of cached plans
+     *
+     * @return Cache bytes
+     */
+    public static synchronized long getCacheBytes() {
+        return cacheBytes;
+    }
+
+    /**
+     * Get estimated memory size in bytes of the plan
+     *
+     * @return Memory size
+     */
+    public long getMemorySize() {
+        long n = (long) indices.length * 4 + (long) weights.length * 8;
+        if (newX != null) {
+            n += ((long) newX.length + newY.length) * 8;
+        }
+        return n;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Get a cached plan to a target rectilinear grid, the plan is created if
+     * not cached
+     *
+     * @param fromProj From projection
+     * @param xArray Source x coordinates, ascending
+     * @param yArray Source y coordinates, ascending
+     * @param toProj To projection
+     * @param newX Target x coordinates
+     * @param newY Target y coordinates
+     * @param method Resample method
+     * @return Regridding plan
+     */
+    public static RegridPlan getPlan(ProjectionInfo fromProj, double[] xArray, double[] yArray,
+            ProjectionInfo toProj, double[] newX, double[] newY, ResampleMethods method) {
+        Key key = new Key(fromProj, xArray, yArray, toProj, newX, newY, null, method);
+        RegridPlan plan = getCached(key);
+        if (plan == null) {
+            plan = new RegridPlan(fromProj, xArray, yArray, toProj, newX, newY, method);
+            putCached(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Get a cached plan to target points, the plan is created if not cached
+     *
+     * @param fromProj From projection
+     * @param xArray Source x coordinates, ascending
+     * @param yArray Source y coordinates, ascending
+     * @param toProj To projection
+     * @param xs Target point x coordinates
+     * @param ys Target point y coordinates
+     * @param shape Target shape
+     * @param method Resample method
+     * @return Regridding plan
+     */
+    public static RegridPlan getPlan(ProjectionInfo fromProj, double[] xArray, double[] yArray,
+            ProjectionInfo toProj, double[] xs, double[] ys, int[] shape, ResampleMethods method) {
+        Key key = new Key(fromProj, xArray, yArray, toProj, xs, ys, shape, method);
+        RegridPlan plan = getCached(key);
+        if (plan == null) {
+            plan = new RegridPlan(fromProj, xArray, yArray, toProj, xs, ys, shape, method);
+            putCached(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Get a cached plan to target points given by coordinate arrays of same
+     * shape
+     *
+     * @param fromProj From projection
+     * @param x Source x coordinates, ascending
+     * @param y Source y coordinates, ascending
+     * @param toProj To projection
+     * @param rx Target x coordinate array
+     * @param ry Target y coordinate array
+     * @param method Resample method
+     * @return Regridding plan
+     */
+    public static RegridPlan getPlan(ProjectionInfo fromProj, List<Number> x, List<Number> y,
+            ProjectionInfo toProj, Array rx, Array ry, ResampleMethods method) {
+        return getPlan(fromProj, toDoubles(x), toDoubles(y), toProj,
+                ArrayKernel.getDoubleStorage(rx), ArrayKernel.getDoubleStorage(ry), rx.getShape(), method);
+    }
+
+    /**
+     * Clear the plan cache
+     */
+    public static synchronized void clearCache() {
+        CACHE.clear();
+        cacheBytes = 0;
+    }
+
+    private static synchronized RegridPlan getCached(Key key) {
+        return CACHE.get(key);
+    }
+
+    private static synchronized void putCached(Key key, RegridPlan plan) {
+        long size = key.getMemorySize() + plan.getMemorySize();
+        if (size > maxCacheBytes) {
+            return;
+        }
+        RegridPlan old = CACHE.put(key, plan);
+        if (old != null) {
+            cacheBytes -= key.getMemorySize() + old.getMemorySize();
+        }
+        cacheBytes += size;
+        trimCache();
+    }
+
+    private static void trimCache() {
+        Iterator<Map.Entry<Key, RegridPlan>> it = CACHE.entrySet().iterator();
+        while ((CACHE.size() > maxCacheSize || cacheBytes > maxCacheBytes) && it.hasNext()) {
+            Map.Entry<Key, RegridPlan> entry = it.next();
+            cacheBytes -= entry.getKey().getMemorySize() + entry.getValue().getMemorySize();
+            it.remove();
+        }
+    }
+
+    private static double[] toDoubles(List<Number> values) {
+        double[] r = new double[values.size()];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = values.get(i).doubleValue();
+        }
+        return r;
+    }
+
+    /**
+     * Back project the target points in parallel chunks and compute source
+     * indices and weights
+     */
+    private void build(final double[] xArray, final double[] yArray, final double[] xs, final double[] ys) {
+        final boolean isProject = !fromProj.equals(toProj);
+        final boolean isLonLat = toProj.getProjectionName() == ProjectionNames.LongLat;
+        ParallelUtil.parallelFor(pointNum, MIN_CHUNK_POINTS / 4, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                if (isProject) {
+                    CoordinateTransform trans = Reproject.createTransform(toProj, fromProj);
+                    Reproject.reproject(xs, ys, start, end - start, trans, isLonLat);
+                }
+                for (int k = start; k < end; k++) {
+                    setPoint(k, xArray, yArray, xs[k], ys[k]);
+                }
+            }
+        });
+    }
+
+    private void setPoint(int k, double[] xArray, double[] yArray, double x, double y) {
+        int p = k * stride;
+        int nx = xArray.length;
+        int ny = yArray.length;
+        if (Double.isNaN(x) || Double.isNaN(y) || x < xArray[0] || x > xArray[nx - 1]
+                || y < yArray[0] || y > yArray[ny - 1]) {
+            indices[p] = -1;
+            return;
+        }
+
+        //A single coordinate axis has one cell of no width, its both
+        //neighbours are the same coordinate
+        int j1 = nx == 1 ? 0 : lowerIndex(xArray, x);
+        int i1 = ny == 1 ? 0 : lowerIndex(yArray, y);
+        int j2 = nx == 1 ? j1 : j1 + 1;
+        int i2 = ny == 1 ? i1 : i1 + 1;
+        if (stride == 1) {
+            int i = Math.abs(y - yArray[i1]) < Math.abs(yArray[i2] - y) ? i1 : i2;
+            int j = Math.abs(x - xArray[j1]) < Math.abs(xArray[j2] - x) ? j1 : j2;
+            indices[p] = i * nx + j;
+            weights[p] = 1;
+        } else {
+            double fx = j2 == j1 ? 0 : (x - xArray[j1]) / (xArray[j2] - xArray[j1]);
+            double fy = i2 == i1 ? 0 : (y - yArray[i1]) / (yArray[i2] - yArray[i1]);
+            indices[p] = i1 * nx + j1;
+            indices[p + 1] = i1 * nx + j2;
+            indices[p + 2] = i2 * nx + j1;
+            indices[p + 3] = i2 * nx + j2;
+            weights[p] = (1 - fx) * (1 - fy);
+            weights[p + 1] = fx * (1 - fy);
+            weights[p + 2] = (1 - fx) * fy;
+            weights[p + 3] = fx * fy;
+        }
+    }
+
+    /**
+     * Get index i of an ascending array with a[i] <= v < a[i + 1], the last
+     * cell is used for the last value. The array length must be at least 2.
+     */
+    private static int lowerIndex(double[] a, double v) {
+        int lo = 0, hi = a.length - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (a[mid] <= v) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private void checkSource(int xNum, int yNum) {
+        if (xNum != srcXNum || yNum != srcYNum) {
+            throw new IllegalArgumentException("Source grid dimensions are not same as the regridding plan: "
+                    + yNum + "x" + xNum + " != " + srcYNum + "x" + srcXNum);
+        }
+    }
+
+    /**
+     * Apply the plan to fields stored one after another in a packed array
+     *
+     * @param src Source values of the fields, y by x for each field
+     * @param dst Target values of the fields
+     * @param fieldNum Field number
+     * @param srcMissing Source missing value, NaN values are also missing
+     * @param dstMissing Target missing value
+     */
+    public void apply(final double[] src, final double[] dst, int fieldNum, final double srcMissing,
+            final double dstMissing) {
+        final int srcSize = srcXNum * srcYNum;
+        ParallelUtil.parallelFor(fieldNum * pointNum, MIN_CHUNK_POINTS, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                int f = start / pointNum;
+                int k = start % pointNum;
+                int srcOffset = f * srcSize;
+                for (int t = start; t < end; t++) {
+                    dst[t] = getValue(src, srcOffset, k, srcMissing, dstMissing);
+                    k += 1;
+                    if (k == pointNum) {
+                        k = 0;
+                        srcOffset += srcSize;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Apply the plan to a field
+     *
+     * @param src Source values, y by x
+     * @param dst Target values, y by x of the target grid
+     * @param srcMissing Source missing value
+     * @param dstMissing Target missing value
+     */
+    public void apply(final double[][] src, final double[][] dst, final double srcMissing, final double dstMissing) {
+        if (!isGrid()) {
+            throw new IllegalStateException("The regridding plan target is not a grid");
+        }
+        checkSource(src[0].length, src.length);
+        final int nx = newX.length;
+        ParallelUtil.parallelFor(newY.length, Math.max(1, MIN_CHUNK_POINTS / nx), new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    double[] r = dst[i];
+                    int k = i * nx;
+                    for (int j = 0; j < nx; j++) {
+                        r[j] = getValue(src, k, srcMissing, dstMissing);
+                        k += 1;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Apply the plan to grid data
+     *
+     * @param grid Source grid data
+     * @return Result grid data
+     */
+    public GridData apply(GridData grid) {
+        GridData r = new GridData();
+        r.xArray = newX.clone();
+        r.yArray = newY.clone();
+        r.missingValue = grid.missingValue;
+        r.projInfo = toProj;
+        r.data = new double[newY.length][newX.length];
+        apply(grid.data, r.data, grid.missingValue, grid.missingValue);
+        return r;
+    }
+
+    /**
+     * Apply the plan to an array. The last two dimensions of the array are y
+     * and x of the source grid, the other dimensions are kept.
+     *
+     * @param data Data array
+     * @return Result array, missing values are NaN
+     */
+    public Array apply(Array data) {
+        return apply(data, Double.NaN);
+    }
+
+    /**
+     * Apply the plan to an array. The last two dimensions of the array are y
+     * and x of the source grid, the other dimensions are kept.
+     *
+     * @param data Data array
+     * @param fillValue Fill value of the data array, NaN values are also
+     * missing
+     * @return Result array, missing values are NaN
+     */
+    public Array apply(Array data, double fillValue) {
+        int[] dshape = data.getShape();
+        int rank = dshape.length;
+        checkSource(dshape[rank - 1], dshape[rank - 2]);
+        int[] rshape = new int[rank - 2 + shape.length];
+        int fieldNum = 1;
+        for (int i = 0; i < rank - 2; i++) {
+            rshape[i] = dshape[i];
+            fieldNum *= dshape[i];
+        }
+        System.arraycopy(shape, 0, rshape, rank - 2, shape.length);
+
+        double[] src = ArrayKernel.getDoubleStorage(data);
+        double[] dst = new double[fieldNum * pointNum];
+        apply(src, dst, fieldNum, fillValue, Double.NaN);
+        if (data.getDataType() == DataType.DOUBLE) {
+            return Array.factory(DataType.DOUBLE, rshape, dst);
+        }
+
+        Array r = Array.factory(data.getDataType(), rshape);
+        for (int i = 0; i < dst.length; i++) {
+            r.setDouble(i, dst[i]);
+        }
+        return r;
+    }
+
+    private double getValue(double[] src, int srcOffset, int k, double srcMissing, double dstMissing) {
+        int p = k * stride;
+        if (indices[p] < 0) {
+            return dstMissing;
+        }
+        if (stride == 1) {
+            double v = src[srcOffset + indices[p]];
+            return isMissing(v, srcMissing) ? dstMissing : v;
+        }
+
+        double asum = 0, sum = 0;
+        int n = 0;
+        for (int m = p; m < p + 4; m++) {
+            double v = src[srcOffset + indices[m]];
+            if (!isMissing(v, srcMissing)) {
+                sum += weights[m] * v;
+                asum += v;
+                n += 1;
+            }
+        }
+        if (n == 0) {
+            return dstMissing;
+        }
+        return n == 4 ? sum : asum / n;
+    }
+
+    private double getValue(double[][] src, int k, double srcMissing, double dstMissing) {
+        int p = k * stride;
+        if (indices[p] < 0) {
+            return dstMissing;
+        }
+        if (stride == 1) {
+            int idx = indices[p];
+            double v = src[idx / srcXNum][idx % srcXNum];
+            return isMissing(v, srcMissing) ? dstMissing : v;
+        }
+
+        double asum = 0, sum = 0;
+        int n = 0;
+        for (int m = p; m < p + 4; m++) {
+            int idx = indices[m];
+            double v = src[idx / srcXNum][idx % srcXNum];
+            if (!isMissing(v, srcMissing)) {
+                sum += weights[m] * v;
+                asum += v;
+                n += 1;
+            }
+        }
+        if (n == 0) {
+            return dstMissing;
+        }
+        return n == 4 ? sum : asum / n;
+    }
+
+    private static boolean isMissing(double v, double missingValue) {
+        return Double.isNaN(v) || MIMath.doubleEquals(v, missingValue);
+    }
+
+    /**
+     * Plan cache key
+     */
+    private static class Key {
+
+        private final String fromProj;
+        private final String toProj;
+        private final double[] xArray;
+        private final double[] yArray;
+        private final double[] xs;
+        private final double[] ys;
+        private final int[] shape;
+        private final ResampleMethods method;
+        private final int hash;
+
+        Key(ProjectionInfo fromProj, double[] xArray, double[] yArray, ProjectionInfo toProj,
+                double[] xs, double[] ys, int[] shape, ResampleMethods method) {
+            this.fromProj = fromProj.toProj4String();
+            this.toProj = toProj.toProj4String();
+            this.xArray = xArray.clone();
+            this.yArray = yArray.clone();
+            this.xs = xs.clone();
+            this.ys = ys.clone();
+            this.shape = shape == null ? null : shape.clone();
+            this.method = method;
+            int h = this.fromProj.hashCode();
+            h = 31 * h + this.toProj.hashCode();
+            h = 31 * h + Arrays.hashCode(xArray);
+            h = 31 * h + Arrays.hashCode(yArray);
+            h = 31 * h + Arrays.hashCode(xs);
+            h = 31 * h + Arrays.hashCode(ys);
+            h = 31 * h + Arrays.hashCode(shape);
+            h = 31 * h + method.hashCode();
+            this.hash = h;
+        }
+
+        /**
+         * Get estimated memory size in bytes of the cloned coordinates
+         */
+        long getMemorySize() {
+            return ((long) xArray.length + yArray.length + xs.length + ys.length) * 8;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && method == other.method && fromProj.equals(other.fromProj)
+                    && toProj.equals(other.toProj) && Arrays.equals(xArray, other.xArray)
+                    && Arrays.equals(yArray, other.yArray) && Arrays.equals(xs, other.xs)
+                    && Arrays.equals(ys, other.ys) && Arrays.equals(shape, other.shape);
+        }
+    }
+    // </editor-fold>
+}
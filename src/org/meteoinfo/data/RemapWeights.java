@@ -0,0 +1,1051 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.meteoinfo.geoprocess.analysis.ResampleMethods;
+import org.meteoinfo.global.MIMath;
+import org.meteoinfo.global.util.ParallelUtil;
+import org.meteoinfo.projection.KnownCoordinateSystems;
+import org.meteoinfo.projection.ProjectionInfo;
+import org.meteoinfo.projection.ProjectionNames;
+import org.meteoinfo.projection.Reproject;
+import org.meteoinfo.projection.proj4j.CoordinateTransform;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+/**
+ * Sparse remapping weights between two rectilinear grids.
+ *
+ * The weights are stored as a compressed sparse row (CSR) matrix with one
+ * row per target cell and one column per source cell, so remapping a field
+ * is a sparse matrix-vector product. Missing source values are skipped and
+ * the weights of the valid values are normalized, except for aggregation by
+ * sum. Bilinear rows keep their four corners, and if some of them are missing
+ * the average of the others is used, same as RegridPlan and
+ * GridData.toStation. Nearest neighbor takes the closest source point, not
+ * the lower index one. Weights are computed once per grid pair and method,
+ * cached in memory by number and estimated memory size, and optionally
+ * persisted in a cache directory for reuse between runs.
+ *
+ * @author Yaqiang Wang
+ */
+public class RemapWeights {
+    // <editor-fold desc="Variables">
+
+    /**
+     * Remapping method
+     */
+    public enum RemapMethod {
+        NEAREST,
+        BILINEAR,
+        CONSERVATIVE,
+        AGGREGATE_MEAN,
+        AGGREGATE_SUM
+    }
+
+    private static final int FILE_MAGIC = 0x4d495257;    //MIRW
+    private static final int FILE_VERSION = 2;
+    private static final int MIN_CHUNK_ROWS = 4096;
+    private static final int SUBSAMPLE = 4;
+    private static boolean parallel = true;
+    private static int maxCacheSize = 16;
+    private static long maxCacheBytes = 256L * 1024 * 1024;
+    private static long cacheBytes = 0;
+    private static String cacheDirectory = null;
+    private static final LinkedHashMap<String, RemapWeights> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+    private final RemapMethod method;
+    private final String fingerprint;
+    private final int srcXNum;
+    private final int srcYNum;
+    private final int dstXNum;
+    private final int dstYNum;
+    private final int[] rowPtr;
+    private final int[] columns;
+    private final double[] values;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor
+     *
+     * @param method Remapping method
+     * @param fingerprint Grid pair fingerprint
+     * @param srcXNum Source x number
+     * @param srcYNum Source y number
+     * @param dstXNum Target x number
+     * @param dstYNum Target y number
+     * @param rowPtr Row pointers, target cell number + 1
+     * @param columns Source cell indices of the entries
+     * @param values Weights of the entries
+     */
+    public RemapWeights(RemapMethod method, String fingerprint, int srcXNum, int srcYNum, int dstXNum,
+            int dstYNum, int[] rowPtr, int[] columns, double[] values) {
+        this.method = method;
+        this.fingerprint = fingerprint;
+        this.srcXNum = srcXNum;
+        this.srcYNum = srcYNum;
+        this.dstXNum = dstXNum;
+        this.dstYNum = dstYNum;
+        this.rowPtr = rowPtr;
+        this.columns = columns;
+        this.values = values;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get remapping method
+     *
+     * @return Remapping method
+     */
+    public RemapMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * Get grid pair fingerprint
+     *
+     * @return Fingerprint
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Get source x number
+     *
+     * @return Source x number
+     */
+    public int getSourceXNum() {
+        return srcXNum;
+    }
+
+    /**
+     * Get source y number
+     *
+     * @return Source y number
+     */
+    public int getSourceYNum() {
+        return srcYNum;
+    }
+
+    /**
+     * Get target x number
+     *
+     * @return Target x number
+     */
+    public int getTargetXNum() {
+        return dstXNum;
+    }
+
+    /**
+     * Get target y number
+     *
+     * @return Target y number
+     */
+    public int getTargetYNum() {
+        return dstYNum;
+    }
+
+    /**
+     * Get number of non zero weights
+     *
+     * @return Non zero number
+     */
+    public int getNonZeroNum() {
+        return rowPtr[rowPtr.length - 1];
+    }
+
+    /**
+     * Get estimated memory size in bytes
+     *
+     * @return Memory size
+     */
+    public long getMemorySize() {
+        return ((long) rowPtr.length + columns.length) * 4 + (long) values.length * 8;
+    }
+
+    /**
+     * Get row pointers
+     *
+     * @return Row pointers
+     */
+    public int[] getRowPointers() {
+        return rowPtr;
+    }
+
+    /**
+     * Get source cell indices of the entries
+     *
+     * @return Column indices
+     */
+    public int[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get weights of the entries
+     *
+     * @return Weights
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    /**
+     * Get if weights are computed and applied in parallel
+     *
+     * @return Boolean
+     */
+    public static synchronized boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Set if weights are computed and applied in parallel
+     *
+     * @param value Boolean
+     */
+    public static synchronized void setParallel(boolean value) {
+        parallel = value;
+    }
+
+    /**
+     * Get directory of persisted weight files, null if weights are not
+     * persisted
+     *
+     * @return Cache directory
+     */
+    public static synchronized String getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Set directory of persisted weight files, null if weights are not
+     * persisted
+     *
+     * @param value Cache directory
+     */
+    public static synchronized void setCacheDirectory(String value) {
+        cacheDirectory = value;
+    }
+
+    /**
+     * Get maximum number of weights cached in memory
+     *
+     * @return Maximum cache size
+     */
+    public static synchronized int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * Set maximum number of weights cached in memory
+     *
+     * @param value Maximum cache size
+     */
+    public static synchronized void setMaxCacheSize(int value) {
+        maxCacheSize = Math.max(0, value);
+        trimCache();
+    }
+
+    /**
+     * Get maximum estimated memory size in bytes of weights cached in memory
+     *
+     * @return Maximum cache bytes
+     */
+    public static synchronized long getMaxCacheBytes() {
+        return maxCacheBytes;
+    }
+
+    /**
+     * Set maximum estimated memory size in bytes of weights cached in
+     * memory. Weights larger than it are not cached.
+     *
+     * @param value Maximum cache bytes
+     */
+    public static synchronized void setMaxCacheBytes(long value) {
+        maxCacheBytes = Math.max(0, value);
+        trimCache();
+    }
+
+    /**
+     * Get estimated memory size in bytes of weights cached in memory
+     *
+     * @return Cache bytes
+     */
+    public static synchronized long getCacheBytes() {
+        return cacheBytes;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Get remapping method of a resample method
+     *
+     * @param method Resample method
+     * @return Remapping method
+     */
+    public static RemapMethod getRemapMethod(ResampleMethods method) {
+        return method == ResampleMethods.NearestNeighbor ? RemapMethod.NEAREST : RemapMethod.BILINEAR;
+    }
+
+    /**
+     * Get remapping weights between two grids. The weights are taken from the
+     * memory cache, or loaded from the cache directory, or computed.
+     *
+     * @param src Source grid
+     * @param dst Target grid
+     * @param method Remapping method
+     * @return Remapping weights
+     */
+    public static RemapWeights getWeights(GridData src, GridData dst, RemapMethod method) {
+        return getWeights(src.projInfo, src.xArray, src.yArray, dst.projInfo, dst.xArray, dst.yArray, method);
+    }
+
+    /**
+     * Get remapping weights between two grids. The weights are taken from the
+     * memory cache, or loaded from the cache directory, or computed.
+     *
+     * @param srcProj Source projection
+     * @param srcX Source x coordinates, ascending
+     * @param srcY Source y coordinates, ascending
+     * @param dstProj Target projection
+     * @param dstX Target x coordinates, ascending
+     * @param dstY Target y coordinates, ascending
+     * @param method Remapping method
+     * @return Remapping weights
+     */
+    public static RemapWeights getWeights(ProjectionInfo srcProj, double[] srcX, double[] srcY,
+            ProjectionInfo dstProj, double[] dstX, double[] dstY, RemapMethod method) {
+        String key = getFingerprint(srcProj, srcX, srcY, dstProj, dstX, dstY, method);
+        RemapWeights weights;
+        String dir;
+        synchronized (RemapWeights.class) {
+            weights = CACHE.get(key);
+            dir = cacheDirectory;
+        }
+        if (weights != null) {
+            return weights;
+        }
+
+        File file = dir == null ? null : new File(dir, key + ".rmw");
+        if (file != null && file.exists()) {
+            try {
+                weights = read(file.getPath());
+                if (!key.equals(weights.fingerprint)) {
+                    weights = null;
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(RemapWeights.class.getName()).log(Level.SEVERE, null, ex);
+                weights = null;
+            }
+        }
+        if (weights == null) {
+            weights = compute(srcProj, srcX, srcY, dstProj, dstX, dstY, method, key);
+            if (file != null) {
+                try {
+                    file.getParentFile().mkdirs();
+                    weights.write(file.getPath());
+                } catch (IOException ex) {
+                    Logger.getLogger(RemapWeights.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        }
+
+        putCached(key, weights);
+        return weights;
+    }
+
+    /**
+     * Clear the memory cache
+     */
+    public static synchronized void clearCache() {
+        CACHE.clear();
+        cacheBytes = 0;
+    }
+
+    private static synchronized void putCached(String key, RemapWeights weights) {
+        long size = weights.getMemorySize();
+        if (size > maxCacheBytes) {
+            return;
+        }
+        RemapWeights old = CACHE.put(key, weights);
+        if (old != null) {
+            cacheBytes -= old.getMemorySize();
+        }
+        cacheBytes += size;
+        trimCache();
+    }
+
+    private static void trimCache() {
+        Iterator<RemapWeights> it = CACHE.values().iterator();
+        while ((CACHE.size() > maxCacheSize || cacheBytes > maxCacheBytes) && it.hasNext()) {
+            cacheBytes -= it.next().getMemorySize();
+            it.remove();
+        }
+    }
+
+    /**
+     * Get fingerprint of a grid pair and remapping method
+     */
+    private static String getFingerprint(ProjectionInfo srcProj, double[] srcX, double[] srcY,
+            ProjectionInfo dstProj, double[] dstX, double[] dstY, RemapMethod method) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            Charset cs = Charset.forName("UTF-8");
+            md.update(method.name().getBytes(cs));
+            md.update(getProj4String(srcProj).getBytes(cs));
+            md.update(getProj4String(dstProj).getBytes(cs));
+            for (double[] a : new double[][]{srcX, srcY, dstX, dstY}) {
+                byte[] bytes = new byte[a.length * 8 + 4];
+                int n = a.length;
+                bytes[0] = (byte) (n >>> 24);
+                bytes[1] = (byte) (n >>> 16);
+                bytes[2] = (byte) (n >>> 8);
+                bytes[3] = (byte) n;
+                for (int i = 0; i < n; i++) {
+                    long v = Double.doubleToLongBits(a[i]);
+                    for (int k = 0; k < 8; k++) {
+                        bytes[4 + i * 8 + k] = (byte) (v >>> (56 - k * 8));
+                    }
+                }
+                md.update(bytes);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String getProj4String(ProjectionInfo proj) {
+        return proj == null ? "" : proj.toProj4String();
+    }
+
+    private static boolean isSameProjection(ProjectionInfo srcProj, ProjectionInfo dstProj) {
+        return srcProj == null || dstProj == null || srcProj.equals(dstProj);
+    }
+
+    /**
+     * Compute remapping weights
+     *
+     * @param srcProj Source projection
+     * @param srcX Source x coordinates, ascending
+     * @param srcY Source y coordinates, ascending
+     * @param dstProj Target projection
+     * @param dstX Target x coordinates, ascending
+     * @param dstY Target y coordinates, ascending
+     * @param method Remapping method
+     * @return Remapping weights
+     */
+    public static RemapWeights compute(ProjectionInfo srcProj, double[] srcX, double[] srcY,
+            ProjectionInfo dstProj, double[] dstX, double[] dstY, RemapMethod method) {
+        return compute(srcProj, srcX, srcY, dstProj, dstX, dstY, method,
+                getFingerprint(srcProj, srcX, srcY, dstProj, dstX, dstY, method));
+    }
+
+    private static RemapWeights compute(ProjectionInfo srcProj, double[] srcX, double[] srcY,
+            ProjectionInfo dstProj, double[] dstX, double[] dstY, RemapMethod method, String key) {
+        switch (method) {
+            case NEAREST:
+            case BILINEAR:
+                return computeInterpolation(srcProj, srcX, srcY, dstProj, dstX, dstY, method, key);
+            case CONSERVATIVE:
+                if (isSameProjection(srcProj, dstProj)) {
+                    return computeConservative(srcX, srcY, dstX, dstY, key);
+                } else {
+                    return computeScatter(srcProj, srcX, srcY, dstProj, dstX, dstY, method, SUBSAMPLE, key);
+                }
+            default:
+                return computeScatter(srcProj, srcX, srcY, dstProj, dstX, dstY, method, 1, key);
+        }
+    }
+
+    /**
+     * Nearest neighbor or bilinear weights from a regridding plan of the
+     * target cell centres
+     */
+    private static RemapWeights computeInterpolation(ProjectionInfo srcProj, double[] srcX, double[] srcY,
+            ProjectionInfo dstProj, double[] dstX, double[] dstY, RemapMethod method, String key) {
+        ResampleMethods rm = method == RemapMethod.NEAREST ? ResampleMethods.NearestNeighbor
+                : ResampleMethods.Bilinear;
+        ProjectionInfo fromProj = srcProj, toProj = dstProj;
+        if (isSameProjection(srcProj, dstProj)) {
+            fromProj = KnownCoordinateSystems.geographic.world.WGS1984;
+            toProj = fromProj;
+        }
+        RegridPlan plan = new RegridPlan(fromProj, srcX, srcY, toProj, dstX, dstY, rm);
+
+        int n = plan.getPointNum();
+        int stride = plan.getStride();
+        int[] pidx = plan.getIndices();
+        double[] pw = plan.getWeights();
+        int[] rowPtr = new int[n + 1];
+        int nnz = 0;
+        for (int k = 0; k < n; k++) {
+            rowPtr[k] = nnz;
+            if (pidx[k * stride] >= 0) {
+                nnz += stride;
+            }
+        }
+        rowPtr[n] = nnz;
+        int[] columns = new int[nnz];
+        double[] values = new double[nnz];
+        int p = 0;
+        for (int k = 0; k < n; k++) {
+            if (pidx[k * stride] >= 0) {
+                //Zero weight corners are kept for the missing value rule
+                System.arraycopy(pidx, k * stride, columns, p, stride);
+                System.arraycopy(pw, k * stride, values, p, stride);
+                p += stride;
+            }
+        }
+
+        return new RemapWeights(method, key, srcX.length, srcY.length, dstX.length, dstY.length,
+                rowPtr, columns, values);
+    }
+
+    /**
+     * Area conservative weights of two grids in the same projection. The
+     * overlap area of a source and a target cell is the product of the
+     * overlaps along x and y. Along a single cell axis without width the
+     * overlap is 1 for the cell containing the coordinate.
+     */
+    private static RemapWeights computeConservative(double[] srcX, double[] srcY, double[] dstX,
+            double[] dstY, String key) {
+        final int[][] xCols = new int[dstX.length][];
+        final double[][] xLens = new double[dstX.length][];
+        final int[][] yRows = new int[dstY.length][];
+        final double[][] yLens = new double[dstY.length][];
+        getOverlaps(getEdges(srcX), getEdges(dstX), xCols, xLens);
+        getOverlaps(getEdges(srcY), getEdges(dstY), yRows, yLens);
+
+        final int nx = dstX.length;
+        final int srcXNum = srcX.length;
+        int n = dstX.length * dstY.length;
+        final int[] rowPtr = new int[n + 1];
+        for (int k = 0; k < n; k++) {
+            rowPtr[k + 1] = rowPtr[k] + yRows[k / nx].length * xCols[k % nx].length;
+        }
+        final int[] columns = new int[rowPtr[n]];
+        final double[] values = new double[rowPtr[n]];
+        run(dstY.length, Math.max(1, MIN_CHUNK_ROWS / nx), new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    for (int j = 0; j < nx; j++) {
+                        int p = rowPtr[i * nx + j];
+                        for (int a = 0; a < yRows[i].length; a++) {
+                            for (int b = 0; b < xCols[j].length; b++) {
+                                columns[p] = yRows[i][a] * srcXNum + xCols[j][b];
+                                values[p] = yLens[i][a] * xLens[j][b];
+                                p += 1;
+                            }
+                        }
+                    }
+                }
+            }
+        });
+
+        return new RemapWeights(RemapMethod.CONSERVATIVE, key, srcX.length, srcY.length, dstX.length,
+                dstY.length, rowPtr, columns, values);
+    }
+
+    /**
+     * Get cell edges from cell centres
+     */
+    private static double[] getEdges(double[] centres) {
+        int n = centres.length;
+        double[] edges = new double[n + 1];
+        if (n == 1) {
+            edges[0] = centres[0];
+            edges[1] = centres[0];
+            return edges;
+        }
+        for (int i = 1; i < n; i++) {
+            edges[i] = (centres[i - 1] + centres[i]) * 0.5;
+        }
+        edges[0] = centres[0] - (centres[1] - centres[0]) * 0.5;
+        edges[n] = centres[n - 1] + (centres[n - 1] - centres[n - 2]) * 0.5;
+        return edges;
+    }
+
+    /**
+     * Get overlapped source cells and overlap lengths of each target cell
+     * along one dimension
+     */
+    private static void getOverlaps(double[] srcEdges, double[] dstEdges, int[][] cells, double[][] lens) {
+        int sn = srcEdges.length - 1;
+        int tn = dstEdges.length - 1;
+        if (sn == 1 && srcEdges[0] == srcEdges[1]) {
+            //Single source cell, located in a target cell
+            int t = findCell(dstEdges, srcEdges[0]);
+            for (int k = 0; k < tn; k++) {
+                boolean in = k == t;
+                cells[k] = in ? new int[]{0} : new int[0];
+                lens[k] = in ? new double[]{1} : new double[0];
+            }
+            return;
+        }
+        if (tn == 1 && dstEdges[0] == dstEdges[1]) {
+            //Single target cell, located in a source cell
+            int s = findCell(srcEdges, dstEdges[0]);
+            cells[0] = s < 0 ? new int[0] : new int[]{s};
+            lens[0] = s < 0 ? new double[0] : new double[]{1};
+            return;
+        }
+
+        int s = 0;
+        for (int t = 0; t < tn; t++) {
+            double t0 = dstEdges[t], t1 = dstEdges[t + 1];
+            while (s > 0 && srcEdges[s] > t0) {
+                s -= 1;
+            }
+            while (s < sn && srcEdges[s + 1] <= t0) {
+                s += 1;
+            }
+            int count = 0;
+            for (int k = s; k < sn && srcEdges[k] < t1; k++) {
+                if (Math.min(t1, srcEdges[k + 1]) - Math.max(t0, srcEdges[k]) > 0) {
+                    count += 1;
+                }
+            }
+            cells[t] = new int[count];
+            lens[t] = new double[count];
+            count = 0;
+            for (int k = s; k < sn && srcEdges[k] < t1; k++) {
+                double len = Math.min(t1, srcEdges[k + 1]) - Math.max(t0, srcEdges[k]);
+                if (len > 0) {
+                    cells[t][count] = k;
+                    lens[t][count] = len;
+                    count += 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Weights by locating source points in target cells. Each source cell
+     * is sampled by subsample * subsample points which are projected to the
+     * target projection, and each point adds its share of the source cell
+     * area to the weight of the target cell containing it. Aggregation uses
+     * the source cell centres with weight 1. A single source cell axis
+     * without width adds a factor 1 to the area.
+     */
+    private static RemapWeights computeScatter(final ProjectionInfo srcProj, final double[] srcX,
+            final double[] srcY, final ProjectionInfo dstProj, double[] dstX, double[] dstY,
+            RemapMethod method, final int subsample, String key) {
+        final int srcXNum = srcX.length;
+        final int srcNum = srcX.length * srcY.length;
+        final int ss = subsample * subsample;
+        final int pointNum = srcNum * ss;
+        final double[] srcXEdges = getEdges(srcX);
+        final double[] srcYEdges = getEdges(srcY);
+        final double[] dstXEdges = getEdges(dstX);
+        final double[] dstYEdges = getEdges(dstY);
+        final int dstXNum = dstX.length;
+        final boolean isProject = !isSameProjection(srcProj, dstProj);
+        final boolean isLonLat = isProject && srcProj.getProjectionName() == ProjectionNames.LongLat;
+        final int[] targets = new int[pointNum];
+        final double[] weights = new double[pointNum];
+
+        run(srcY.length, Math.max(1, MIN_CHUNK_ROWS / (srcXNum * ss)), new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                CoordinateTransform trans = isProject ? Reproject.createTransform(srcProj, dstProj) : null;
+                int rowPoints = srcXNum * ss;
+                double[] xs = new double[rowPoints];
+                double[] ys = new double[rowPoints];
+                for (int i = start; i < end; i++) {
+                    double y0 = srcYEdges[i], dy = (srcYEdges[i + 1] - y0) / subsample;
+                    for (int j = 0; j < srcXNum; j++) {
+                        double x0 = srcXEdges[j], dx = (srcXEdges[j + 1] - x0) / subsample;
+                        for (int a = 0; a < subsample; a++) {
+                            for (int b = 0; b < subsample; b++) {
+                                int m = j * ss + a * subsample + b;
+                                if (subsample == 1) {
+                                    xs[m] = srcX[j];
+                                    ys[m] = srcY[i];
+                                } else {
+                                    xs[m] = x0 + (b + 0.5) * dx;
+                                    ys[m] = y0 + (a + 0.5) * dy;
+                                }
+                            }
+                        }
+                    }
+                    if (isProject) {
+                        Reproject.reproject(xs, ys, 0, rowPoints, trans, isLonLat);
+                    }
+                    int base = i * rowPoints;
+                    for (int m = 0; m < rowPoints; m++) {
+                        int tj = findCell(dstXEdges, xs[m]);
+                        int ti = findCell(dstYEdges, ys[m]);
+                        if (tj < 0 || ti < 0) {
+                            targets[base + m] = -1;
+                        } else {
+                            targets[base + m] = ti * dstXNum + tj;
+                            if (subsample == 1) {
+                                weights[base + m] = 1;
+                            } else {
+                                int j = m / ss;
+                                weights[base + m] = getWidth(srcXEdges, j) * getWidth(srcYEdges, i) / ss;
+                            }
+                        }
+                    }
+                }
+            }
+        });
+
+        //Counting sort of the points by target cell, the points of a source
+        //cell are adjacent so duplicated entries are merged on the fly
+        int n = dstX.length * dstY.length;
+        int[] counts = new int[n + 1];
+        for (int m = 0; m < pointNum; m++) {
+            if (targets[m] >= 0) {
+                counts[targets[m] + 1] += 1;
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            counts[k + 1] += counts[k];
+        }
+        int[] pos = new int[n];
+        System.arraycopy(counts, 0, pos, 0, n);
+        int[] cols = new int[counts[n]];
+        double[] vals = new double[counts[n]];
+        for (int m = 0; m < pointNum; m++) {
+            int t = targets[m];
+            if (t >= 0) {
+                int s = m / ss;
+                int p = pos[t];
+                if (p > counts[t] && cols[p - 1] == s) {
+                    vals[p - 1] += weights[m];
+                } else {
+                    cols[p] = s;
+                    vals[p] = weights[m];
+                    pos[t] = p + 1;
+                }
+            }
+        }
+
+        int[] rowPtr = new int[n + 1];
+        for (int k = 0; k < n; k++) {
+            rowPtr[k + 1] = rowPtr[k] + pos[k] - counts[k];
+        }
+        int[] columns = new int[rowPtr[n]];
+        double[] values = new double[rowPtr[n]];
+        for (int k = 0; k < n; k++) {
+            int len = pos[k] - counts[k];
+            System.arraycopy(cols, counts[k], columns, rowPtr[k], len);
+            System.arraycopy(vals, counts[k], values, rowPtr[k], len);
+        }
+
+        return new RemapWeights(method, key, srcX.length, srcY.length, dstX.length, dstY.length,
+                rowPtr, columns, values);
+    }
+
+    /**
+     * Get cell width from cell edges, 1 for a cell without width
+     */
+    private static double getWidth(double[] edges, int i) {
+        double w = edges[i + 1] - edges[i];
+        return w > 0 ? w : 1;
+    }
+
+    /**
+     * Find the cell containing a value from ascending cell edges
+     *
+     * @return Cell index, -1 if out of the edges
+     */
+    private static int findCell(double[] edges, double v) {
+        int n = edges.length - 1;
+        if (Double.isNaN(v) || v < edges[0] || v > edges[n]) {
+            return -1;
+        }
+        int lo = 0, hi = n - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (edges[mid] <= v) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private static void run(int n, int minChunk, ParallelUtil.RangeTask task) {
+        if (isParallel()) {
+            ParallelUtil.parallelFor(n, minChunk, task);
+        } else {
+            task.run(0, n);
+        }
+    }
+
+    private void checkSource(int xNum, int yNum) {
+        if (xNum != srcXNum || yNum != srcYNum) {
+            throw new IllegalArgumentException("Source grid dimensions are not same as the remapping weights: "
+                    + yNum + "x" + xNum + " != " + srcYNum + "x" + srcXNum);
+        }
+    }
+
+    /**
+     * Apply the weights to a stack of fields stored one after another in a
+     * packed array
+     *
+     * @param src Source values of the fields, y by x for each field
+     * @param dst Target values of the fields
+     * @param fieldNum Field number
+     * @param srcMissing Source missing value, NaN values are also missing
+     * @param dstMissing Target missing value
+     */
+    public void apply(final double[] src, final double[] dst, int fieldNum, final double srcMissing,
+            final double dstMissing) {
+        final int srcSize = srcXNum * srcYNum;
+        final int dstSize = dstXNum * dstYNum;
+        run(fieldNum * dstSize, MIN_CHUNK_ROWS * 4, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                int f = start / dstSize;
+                int k = start % dstSize;
+                int srcOffset = f * srcSize;
+                for (int t = start; t < end; t++) {
+                    dst[t] = getValue(src, srcOffset, k, srcMissing, dstMissing);
+                    k += 1;
+                    if (k == dstSize) {
+                        k = 0;
+                        srcOffset += srcSize;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Apply the weights to a field
+     *
+     * @param src Source values, y by x
+     * @param dst Target values, y by x
+     * @param srcMissing Source missing value, NaN values are also missing
+     * @param dstMissing Target missing value
+     */
+    public void apply(final double[][] src, final double[][] dst, final double srcMissing,
+            final double dstMissing) {
+        checkSource(src[0].length, src.length);
+        run(dstYNum, Math.max(1, MIN_CHUNK_ROWS * 4 / dstXNum), new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    double[] r = dst[i];
+                    int k = i * dstXNum;
+                    for (int j = 0; j < dstXNum; j++) {
+                        r[j] = getValue(src, k, srcMissing, dstMissing);
+                        k += 1;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Apply the weights to grid data
+     *
+     * @param src Source grid data
+     * @param dst Target grid data, its data is set
+     */
+    public void apply(GridData src, GridData dst) {
+        apply(src.data, dst.data, src.missingValue, dst.missingValue);
+    }
+
+    /**
+     * Apply the weights to an array. The last two dimensions of the array are
+     * y and x of the source grid, the other dimensions are kept.
+     *
+     * @param data Data array
+     * @param fillValue Fill value of the data array, NaN values are also
+     * missing
+     * @return Result array, missing values are NaN
+     */
+    public Array apply(Array data, double fillValue) {
+        int[] dshape = data.getShape();
+        int rank = dshape.length;
+        checkSource(dshape[rank - 1], dshape[rank - 2]);
+        int[] rshape = dshape.clone();
+        rshape[rank - 2] = dstYNum;
+        rshape[rank - 1] = dstXNum;
+        int fieldNum = 1;
+        for (int i = 0; i < rank - 2; i++) {
+            fieldNum *= dshape[i];
+        }
+
+        double[] src = ArrayKernel.getDoubleStorage(data);
+        double[] dst = new double[fieldNum * dstXNum * dstYNum];
+        apply(src, dst, fieldNum, fillValue, Double.NaN);
+        return Array.factory(DataType.DOUBLE, rshape, dst);
+    }
+
+    /**
+     * Apply the weights to an array. The last two dimensions of the array are
+     * y and x of the source grid, the other dimensions are kept.
+     *
+     * @param data Data array
+     * @return Result array, missing values are NaN
+     */
+    public Array apply(Array data) {
+        return apply(data, Double.NaN);
+    }
+
+    private double getValue(double[] src, int srcOffset, int k, double srcMissing, double dstMissing) {
+        double sum = 0, wsum = 0, asum = 0;
+        int n = 0;
+        int start = rowPtr[k], end = rowPtr[k + 1];
+        for (int p = start; p < end; p++) {
+            double v = src[srcOffset + columns[p]];
+            if (!isMissing(v, srcMissing)) {
+                sum += values[p] * v;
+                wsum += values[p];
+                asum += v;
+                n += 1;
+            }
+        }
+        return getResult(sum, wsum, asum, n, end - start, dstMissing);
+    }
+
+    private double getValue(double[][] src, int k, double srcMissing, double dstMissing) {
+        double sum = 0, wsum = 0, asum = 0;
+        int n = 0;
+        int start = rowPtr[k], end = rowPtr[k + 1];
+        for (int p = start; p < end; p++) {
+            int c = columns[p];
+            double v = src[c / srcXNum][c % srcXNum];
+            if (!isMissing(v, srcMissing)) {
+                sum += values[p] * v;
+                wsum += values[p];
+                asum += v;
+                n += 1;
+            }
+        }
+        return getResult(sum, wsum, asum, n, end - start, dstMissing);
+    }
+
+    private double getResult(double sum, double wsum, double asum, int n, int len, double dstMissing) {
+        switch (method) {
+            case AGGREGATE_SUM:
+                return len == 0 ? 0 : sum;
+            case BILINEAR:
+                if (n == 0) {
+                    return dstMissing;
+                }
+                return n == len ? sum : asum / n;
+            default:
+                return wsum == 0 ? dstMissing : sum / wsum;
+        }
+    }
+
+    private static boolean isMissing(double v, double missingValue) {
+        return Double.isNaN(v) || MIMath.doubleEquals(v, missingValue);
+    }
+
+    /**
+     * Write the weights to a binary file
+     *
+     * @param fileName File name
+     * @throws IOException
+     */
+    public void write(String fileName) throws IOException {
+        File file = new File(fileName);
+        File tmp = new File(fileName + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeUTF(method.name());
+            out.writeUTF(fingerprint);
+            out.writeInt(srcXNum);
+            out.writeInt(srcYNum);
+            out.writeInt(dstXNum);
+            out.writeInt(dstYNum);
+            out.writeInt(columns.length);
+            for (int v : rowPtr) {
+                out.writeInt(v);
+            }
+            for (int v : columns) {
+                out.writeInt(v);
+            }
+            for (double v : values) {
+                out.writeDouble(v);
+            }
+        }
+        if (file.exists()) {
+            file.delete();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Can not write remapping weights file: " + fileName);
+        }
+    }
+
+    /**
+     * Read weights from a binary file
+     *
+     * @param fileName File name
+     * @return Remapping weights
+     * @throws IOException
+     */
+    public static RemapWeights read(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Not a remapping weights file: " + fileName);
+            }
+            RemapMethod method = RemapMethod.valueOf(in.readUTF());
+            String fingerprint = in.readUTF();
+            int srcXNum = in.readInt();
+            int srcYNum = in.readInt();
+            int dstXNum = in.readInt();
+            int dstYNum = in.readInt();
+            int nnz = in.readInt();
+            int[] rowPtr = new int[dstXNum * dstYNum + 1];
+            int[] columns = new int[nnz];
+            double[] values = new double[nnz];
+            for (int i = 0; i < rowPtr.length; i++) {
+                rowPtr[i] = in.readInt();
+            }
+            for (int i = 0; i < nnz; i++) {
+                columns[i] = in.readInt();
+            }
+            for (int i = 0; i < nnz; i++) {
+                values[i] = in.readDouble();
+            }
+            return new RemapWeights(method, fingerprint, srcXNum, srcYNum, dstXNum, dstYNum, rowPtr,
+                    columns, values);
+        }
+    }
+    // </editor-fold>
+}
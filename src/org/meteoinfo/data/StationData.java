@@ -22,12 +22,15 @@ import org.meteoinfo.geoprocess.analysis.InterpolationSetting;
 import org.meteoinfo.global.Extent;
 import org.meteoinfo.global.MIMath;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.meteoinfo.geoprocess.GeoComputation;
+import org.meteoinfo.geoprocess.PolygonMask;
 import org.meteoinfo.global.DataConvert;
-import org.meteoinfo.global.PointD;
 import org.meteoinfo.layer.VectorLayer;
 import org.meteoinfo.projection.ProjectionInfo;
 import org.meteoinfo.projection.Reproject;
@@ -213,6 +216,7 @@ public class StationData {
         cStData.projInfo = bStData.projInfo;
         String aStid;
         int stIdx;
+        Map<String, Integer> bIndex = bStData.getStationIndexMap();
         double x, y;
         for (int i = 0; i < stations.size(); i++) {
             aStid = stations.get(i);
@@ -225,7 +229,7 @@ public class StationData {
                 continue;
             }
 
-            stIdx = bStData.stations.indexOf(aStid);
+            stIdx = bIndex.containsKey(aStid) ? bIndex.get(aStid) : -1;
             if (stIdx >= 0) {
                 double bValue = bStData.getValue(stIdx);
                 if (bValue == bStData.missingValue) {
@@ -282,6 +286,7 @@ public class StationData {
         StationData cStData = new StationData();
         String aStid;
         int stIdx;
+        Map<String, Integer> bIndex = bStData.getStationIndexMap();
         double x, y;
         for (int i = 0; i < stations.size(); i++) {
             aStid = stations.get(i);
@@ -294,7 +299,7 @@ public class StationData {
                 continue;
             }
 
-            stIdx = bStData.stations.indexOf(aStid);
+            stIdx = bIndex.containsKey(aStid) ? bIndex.get(aStid) : -1;
             if (stIdx >= 0) {
                 double bValue = bStData.getValue(stIdx);
                 if (bValue == bStData.missingValue) {
@@ -350,6 +355,7 @@ public class StationData {
         StationData cStData = new StationData();
         String aStid;
         int stIdx;
+        Map<String, Integer> bIndex = bStData.getStationIndexMap();
         double x, y;
         for (int i = 0; i < stations.size(); i++) {
             aStid = stations.get(i);
@@ -362,7 +368,7 @@ public class StationData {
                 continue;
             }
 
-            stIdx = bStData.stations.indexOf(aStid);
+            stIdx = bIndex.containsKey(aStid) ? bIndex.get(aStid) : -1;
             if (stIdx >= 0) {
                 double bValue = bStData.getValue(stIdx);
                 if (bValue == bStData.missingValue) {
@@ -418,6 +424,7 @@ public class StationData {
         StationData cStData = new StationData();
         String aStid;
         int stIdx;
+        Map<String, Integer> bIndex = bStData.getStationIndexMap();
         double x, y;
         for (int i = 0; i < stations.size(); i++) {
             aStid = stations.get(i);
@@ -430,7 +437,7 @@ public class StationData {
                 continue;
             }
 
-            stIdx = bStData.stations.indexOf(aStid);
+            stIdx = bIndex.containsKey(aStid) ? bIndex.get(aStid) : -1;
             if (stIdx >= 0) {
                 double bValue = bStData.getValue(stIdx);
                 if (bValue == bStData.missingValue) {
@@ -840,6 +847,22 @@ public class StationData {
         return this.stations.indexOf(stid);
     }
 
+    /**
+     * Get station identifer to data index map - the first index is used for
+     * duplicate station identifers
+     *
+     * @return Station index map
+     */
+    private Map<String, Integer> getStationIndexMap() {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < stations.size(); i++) {
+            if (!index.containsKey(stations.get(i))) {
+                index.put(stations.get(i), i);
+            }
+        }
+        return index;
+    }
+
     /**
      * Save station data to a CVS file
      *
@@ -889,16 +912,9 @@ public class StationData {
      * @return Result station data
      */
     public StationData maskout(PolygonShape polygonShape) {
-        StationData stData = new StationData();
-        stData.projInfo = this.projInfo;
-        stData.missingValue = this.missingValue;
-        for (int i = 0; i < this.getStNum(); i++) {
-            if (GeoComputation.pointInPolygon(polygonShape, new PointD(this.getX(i), this.getY(i)))) {
-                stData.addData(this.getStid(i), this.getX(i), this.getY(i), this.getValue(i));
-            }
-        }
-
-        return stData;
+        List<PolygonShape> polygonShapes = new ArrayList<>();
+        polygonShapes.add(polygonShape);
+        return this.mask(polygonShapes, true);
     }
 
     /**
@@ -908,16 +924,7 @@ public class StationData {
      * @return Result station data
      */
     public StationData maskout(List<PolygonShape> polygonShapes) {
-        StationData stData = new StationData();
-        stData.projInfo = this.projInfo;
-        stData.missingValue = this.missingValue;
-        for (int i = 0; i < this.getStNum(); i++) {
-            if (GeoComputation.pointInPolygons(polygonShapes, new PointD(this.getX(i), this.getY(i)))) {
-                stData.addData(this.getStid(i), this.getX(i), this.getY(i), this.getValue(i));
-            }
-        }
-
-        return stData;
+        return this.mask(polygonShapes, true);
     }
 
     /**
@@ -942,16 +949,9 @@ public class StationData {
      * @return Result station data
      */
     public StationData maskin(PolygonShape polygonShape) {
-        StationData stData = new StationData();
-        stData.projInfo = this.projInfo;
-        stData.missingValue = this.missingValue;
-        for (int i = 0; i < this.getStNum(); i++) {
-            if (!GeoComputation.pointInPolygon(polygonShape, new PointD(this.getX(i), this.getY(i)))) {
-                stData.addData(this.getStid(i), this.getX(i), this.getY(i), this.getValue(i));
-            }
-        }
-
-        return stData;
+        List<PolygonShape> polygonShapes = new ArrayList<>();
+        polygonShapes.add(polygonShape);
+        return this.mask(polygonShapes, false);
     }
 
     /**
@@ -961,16 +961,7 @@ public class StationData {
      * @return Result station data
      */
     public StationData maskin(List<PolygonShape> polygonShapes) {
-        StationData stData = new StationData();
-        stData.projInfo = this.projInfo;
-        stData.missingValue = this.missingValue;
-        for (int i = 0; i < this.getStNum(); i++) {
-            if (!GeoComputation.pointInPolygons(polygonShapes, new PointD(this.getX(i), this.getY(i)))) {
-                stData.addData(this.getStid(i), this.getX(i), this.getY(i), this.getValue(i));
-            }
-        }
-
-        return stData;
+        return this.mask(polygonShapes, false);
     }
 
     /**
@@ -988,6 +979,35 @@ public class StationData {
         return this.maskin(polygons);
     }
 
+    /**
+     * Mask station data by polygons with indexed point in polygon test
+     *
+     * @param polygonShapes Mask polygon shapes
+     * @param isInside Keep the stations inside or outside the polygons
+     * @return Result station data
+     */
+    private StationData mask(List<PolygonShape> polygonShapes, boolean isInside) {
+        int n = this.getStNum();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = this.getX(i);
+            ys[i] = this.getY(i);
+        }
+        boolean[] in = new PolygonMask(polygonShapes).contains(xs, ys);
+
+        StationData stData = new StationData();
+        stData.projInfo = this.projInfo;
+        stData.missingValue = this.missingValue;
+        for (int i = 0; i < n; i++) {
+            if (in[i] == isInside) {
+                stData.addData(this.getStid(i), xs[i], ys[i], this.getValue(i));
+            }
+        }
+
+        return stData;
+    }
+
     /**
      * Filter station data
      *
@@ -1015,11 +1035,13 @@ public class StationData {
      */
     public StationData join(StationData indata) {
         StationData stData = new StationData(this);
+        Set<String> stids = new HashSet<>();
         for (int i = 0; i < this.getStNum(); i++) {
             stData.addData(this.getStid(i), this.getX(i), this.getY(i), this.getValue(i));
+            stids.add(this.getStid(i));
         }
         for (int i = 0; i < indata.getStNum(); i++) {
-            if (!stData.stations.contains(indata.getStid(i))) {
+            if (stids.add(indata.getStid(i))) {
                 stData.addData(indata.getStid(i), indata.getX(i), indata.getY(i), indata.getValue(i));
             }
         }
@@ -1167,8 +1189,9 @@ public class StationData {
      */
     public GridData interpolate_Radius(double[][] S, double[] X, double[] Y,
             int minPNum, double radius, double missingValue) {
-        double[][] dataArray;
-        dataArray = wContour.Interpolate.interpolation_IDW_Radius(S, X, Y, minPNum, radius, missingValue);
+        double[][] xyv = splitXYV(S);
+        double[][] dataArray = ArrayUtil.interpolation_IDW_Radius(xyv[0], xyv[1], xyv[2], X, Y,
+                minPNum, radius, missingValue);
 
         GridData gridData = new GridData();
         gridData.data = dataArray;
@@ -1214,7 +1237,9 @@ public class StationData {
      * @return Grid data
      */
     public GridData interpolate_Neighbor(double[][] S, double[] X, double[] Y, int pNum, double missingValue) {
-        double[][] dataArray = wContour.Interpolate.interpolation_IDW_Neighbor(S, X, Y, pNum, missingValue);
+        double[][] xyv = splitXYV(S);
+        double[][] dataArray = ArrayUtil.interpolation_IDW_Neighbor(xyv[0], xyv[1], xyv[2], X, Y,
+                pNum, missingValue);
 
         GridData gridData = new GridData();
         gridData.data = dataArray;
@@ -1247,6 +1272,24 @@ public class StationData {
         return this.interpolate_Neighbor(data, nX, nY, pNum, missingValue);
     }
 
+    /**
+     * Split station data array to x, y and value arrays
+     *
+     * @param S Station data array
+     * @return X, Y and value arrays
+     */
+    private static double[][] splitXYV(double[][] S) {
+        int n = S.length;
+        double[][] r = new double[3][n];
+        for (int i = 0; i < n; i++) {
+            r[0][i] = S[i][0];
+            r[1][i] = S[i][1];
+            r[2][i] = S[i][2];
+        }
+
+        return r;
+    }
+
     /**
      * Interpolation by Cressman method
      *
@@ -258,6 +258,50 @@ public class TableData extends DataTable {
         return values;
     }
 
+    /**
+     * Get column values as double array
+     *
+     * @param col The data column
+     * @return Column values, NaN for missing and invalid values
+     */
+    public double[] getDoubleColumnValues(DataColumn col) {
+        List<DataRow> rows = this.getRows();
+        double[] values = new double[rows.size()];
+        String colName = col.getColumnName();
+        DataTypes dt = col.getDataType();
+        Object v;
+        double value;
+        int i = 0;
+        for (DataRow row : rows) {
+            v = row.getValue(colName);
+            value = Double.NaN;
+            if (v != null) {
+                switch (dt) {
+                    case Integer:
+                        value = (Integer) v;
+                        break;
+                    case Float:
+                        value = (Float) v;
+                        break;
+                    case Double:
+                        value = (Double) v;
+                        break;
+                    case String:
+                        if (!((String) v).isEmpty()) {
+                            value = Double.parseDouble((String) v);
+                        }
+                        break;
+                }
+            }
+            if (!Double.isNaN(value) && MIMath.doubleEquals(value, this.missingValue)) {
+                value = Double.NaN;
+            }
+            values[i++] = value;
+        }
+
+        return values;
+    }
+
     /**
      * Set column data
      *
@@ -1054,34 +1098,142 @@ public class TableData extends DataTable {
     }
 
     /**
-     * Average year by year
+     * Get time aggregator of a time column
+     *
+     * @param tColName Time column name
+     * @return Time aggregator
+     */
+    public TimeAggregator getTimeAggregator(String tColName) {
+        List<DataRow> rows = this.getRows();
+        long[] times = new long[rows.size()];
+        int i = 0;
+        for (DataRow row : rows) {
+            Date t = (Date) row.getValue(tColName);
+            times[i++] = t == null ? Long.MIN_VALUE : t.getTime();
+        }
+        return new TimeAggregator(times);
+    }
+
+    /**
+     * Aggregate data columns by time period
      *
      * @param cols The data columns
-     * @param tColName The time column name
+     * @param tColName Time column name
+     * @param period Time period
+     * @param stat Statistic
      * @return Result data table
      * @throws Exception
      */
-    public DataTable ave_Year(List<DataColumn> cols, String tColName) throws Exception {
+    public DataTable aggregate(List<DataColumn> cols, String tColName, TimeAggregator.TimePeriod period,
+            TimeAggregator.Statistic stat) throws Exception {
+        TimeAggregator ta = this.getTimeAggregator(tColName);
+        return this.aggregate(cols, tColName, period, ta.group(period), stat);
+    }
+
+    /**
+     * Aggregate data columns by a grouping of time period
+     *
+     * @param cols The data columns
+     * @param tColName Time column name
+     * @param period Time period of the group keys
+     * @param grouping Grouping
+     * @param stat Statistic
+     * @return Result data table
+     * @throws Exception
+     */
+    protected DataTable aggregate(final List<DataColumn> cols, String tColName, TimeAggregator.TimePeriod period,
+            TimeAggregator.Grouping grouping, TimeAggregator.Statistic stat) throws Exception {
         DataTable rTable = new DataTable();
-        rTable.addColumn("Year", DataTypes.Integer);
+        switch (period) {
+            case YEAR:
+                rTable.addColumn("Year", DataTypes.Integer);
+                break;
+            case YEAR_MONTH:
+                rTable.addColumn("YearMonth", DataTypes.String);
+                break;
+            case DAY:
+                rTable.addColumn(new DataColumn("Date", DataTypes.Date, "yyyyMMdd"));
+                break;
+            case HOUR:
+                rTable.addColumn(new DataColumn("Date", DataTypes.Date, "yyyyMMddHH"));
+                break;
+            case MONTH_OF_YEAR:
+                rTable.addColumn("Month", DataTypes.String);
+                break;
+            case SEASON_OF_YEAR:
+                rTable.addColumn("Season", DataTypes.String);
+                break;
+            case DAY_OF_WEEK:
+                rTable.addColumn("Day", DataTypes.String);
+                break;
+            case HOUR_OF_DAY:
+                rTable.addColumn("Hour", DataTypes.Integer);
+                break;
+        }
         for (DataColumn col : cols) {
             rTable.addColumn(col.getColumnName(), DataTypes.Double);
         }
 
-        List<Integer> years = this.getYears(tColName);
-        for (int year : years) {
+        TimeAggregator.GroupStatistics gs = TimeAggregator.aggregate(grouping, cols.size(),
+                new TimeAggregator.ColumnSource() {
+                    @Override
+                    public double[] getValues(int col) {
+                        return getDoubleColumnValues(cols.get(col));
+                    }
+                });
+
+        String[] monthNames = new String[]{"Jan", "Feb", "Mar", "Apr", "May",
+            "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+        String[] seasonNames = new String[]{"Spring", "Summer", "Autumn", "Winter"};
+        String[] dowNames = new String[]{"Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday",
+            "Saturday"};
+        int[] keys = grouping.getGroupKeys();
+        int[] firstRows = grouping.getFirstRows();
+        for (int g = 0; g < grouping.getGroupNum(); g++) {
             DataRow nRow = rTable.addRow();
-            nRow.setValue(0, year);
-            List<DataRow> rows = this.getDataByYear(year, tColName);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
+            int key = keys[g];
+            switch (period) {
+                case YEAR:
+                case HOUR_OF_DAY:
+                    nRow.setValue(0, key);
+                    break;
+                case YEAR_MONTH:
+                    nRow.setValue(0, String.format("%04d%02d", key / 12, key % 12 + 1));
+                    break;
+                case DAY:
+                case HOUR:
+                    nRow.setValue(0, this.getRows().get(firstRows[g]).getValue(tColName));
+                    break;
+                case MONTH_OF_YEAR:
+                    nRow.setValue(0, monthNames[key]);
+                    break;
+                case SEASON_OF_YEAR:
+                    nRow.setValue(0, seasonNames[key]);
+                    break;
+                case DAY_OF_WEEK:
+                    nRow.setValue(0, dowNames[key]);
+                    break;
+            }
+            for (int c = 0; c < cols.size(); c++) {
+                nRow.setValue(cols.get(c).getColumnName(), gs.get(stat, c, g));
             }
         }
 
         return rTable;
     }
 
+    /**
+     * Average year by year
+     *
+     * @param cols The data columns
+     * @param tColName The time column name
+     * @return Result data table
+     * @throws Exception
+     */
+    public DataTable ave_Year(List<DataColumn> cols, String tColName) throws Exception {
+        return this.aggregate(cols, tColName, TimeAggregator.TimePeriod.YEAR, TimeAggregator.Statistic.MEAN);
+    }
+
     /**
      * Average month by month
      *
@@ -1091,24 +1243,7 @@ public class TableData extends DataTable {
      * @throws Exception
      */
     public DataTable ave_Month(List<DataColumn> cols, String tColName) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("YearMonth", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> yms = this.getYearMonths(tColName);
-        for (String ym : yms) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, ym);
-            List<DataRow> rows = this.getDataByYearMonth(ym, tColName);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, tColName, TimeAggregator.TimePeriod.YEAR_MONTH, TimeAggregator.Statistic.MEAN);
     }
 
     /**
@@ -1120,33 +1255,7 @@ public class TableData extends DataTable {
      * @throws Exception
      */
     public DataTable ave_MonthOfYear(List<DataColumn> cols, String tColName) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Month", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> monthNames = Arrays.asList(new String[]{"Jan", "Feb", "Mar", "Apr", "May",
-            "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"});
-        List<Integer> months = new ArrayList<>();
-        int i;
-        for (i = 1; i < 13; i++) {
-            months.add(i);
-        }
-
-        i = 0;
-        for (int month : months) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, monthNames.get(i));
-            List<DataRow> rows = this.getDataByMonth(month, tColName);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-            i++;
-        }
-
-        return rTable;
+        return this.aggregate(cols, tColName, TimeAggregator.TimePeriod.MONTH_OF_YEAR, TimeAggregator.Statistic.MEAN);
     }
 
     /**
@@ -1158,24 +1267,7 @@ public class TableData extends DataTable {
      * @throws Exception
      */
     public DataTable ave_SeasonOfYear(List<DataColumn> cols, String tColName) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Season", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> seasons = Arrays.asList(new String[]{"Spring", "Summer", "Autumn", "Winter"});
-        for (String season : seasons) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, season);
-            List<DataRow> rows = this.getDataBySeason(season, tColName);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, tColName, TimeAggregator.TimePeriod.SEASON_OF_YEAR, TimeAggregator.Statistic.MEAN);
     }
 
     /**
@@ -1187,34 +1279,7 @@ public class TableData extends DataTable {
      * @throws Exception
      */
     public DataTable ave_DayOfWeek(List<DataColumn> cols, String tColName) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Day", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> dowNames = Arrays.asList(new String[]{"Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday",
-            "Saturday"});
-        List<Integer> dows = new ArrayList<>();
-        dows.add(7);
-        int i;
-        for (i = 1; i < 7; i++) {
-            dows.add(i);
-        }
-
-        i = 0;
-        for (int dow : dows) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, dowNames.get(i));
-            List<DataRow> rows = this.getDataByDayOfWeek(dow, tColName);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-            i++;
-        }
-
-        return rTable;
+        return this.aggregate(cols, tColName, TimeAggregator.TimePeriod.DAY_OF_WEEK, TimeAggregator.Statistic.MEAN);
     }
 
     /**
@@ -1226,28 +1291,7 @@ public class TableData extends DataTable {
      * @throws Exception
      */
     public DataTable ave_HourOfDay(List<DataColumn> cols, String tColName) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Hour", DataTypes.Integer);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<Integer> hours = new ArrayList<>();
-        for (int i = 0; i < 24; i++) {
-            hours.add(i);
-        }
-
-        for (int hour : hours) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, hour);
-            List<DataRow> rows = this.getDataByHour(hour, tColName);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, tColName, TimeAggregator.TimePeriod.HOUR_OF_DAY, TimeAggregator.Statistic.MEAN);
     }
     
     /**
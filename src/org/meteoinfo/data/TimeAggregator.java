@@ -0,0 +1,556 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.data;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import org.meteoinfo.global.util.ParallelUtil;
+
+/**
+ * Temporal aggregation of data columns.
+ *
+ * Times are held as epoch milliseconds and the calendar fields of each row
+ * are computed once by epoch arithmetic in the local time zone instead of
+ * Calendar. Rows are bucketed by period key in one pass (a primitive sort is
+ * used only if the keys are not in order), and the count, sum, minimum and
+ * maximum of each group are accumulated in one pass over each column. The
+ * columns are processed in parallel.
+ *
+ * @author Yaqiang Wang
+ */
+public class TimeAggregator {
+
+    /**
+     * Time period of grouping
+     */
+    public enum TimePeriod {
+        YEAR,
+        YEAR_MONTH,
+        DAY,
+        HOUR,
+        MONTH_OF_YEAR,
+        SEASON_OF_YEAR,
+        DAY_OF_WEEK,
+        HOUR_OF_DAY
+    }
+
+    /**
+     * Statistic of a group
+     */
+    public enum Statistic {
+        COUNT,
+        SUM,
+        MEAN,
+        MIN,
+        MAX
+    }
+
+    // <editor-fold desc="Variables">
+    /**
+     * Key of rows with missing time
+     */
+    public static final int MISSING_KEY = Integer.MIN_VALUE;
+    private static final long MILLIS_PER_HOUR = 3600000L;
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final int MIN_CHUNK_ROWS = 65536;
+    private final int rowNum;
+    private final int[] days;
+    private final int[] hours;
+    private final int[] years;
+    private final int[] months;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor
+     *
+     * @param times Epoch milliseconds, Long.MIN_VALUE for missing time
+     */
+    public TimeAggregator(long[] times) {
+        this(times, TimeZone.getDefault());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param times Epoch milliseconds, Long.MIN_VALUE for missing time
+     * @param timeZone Time zone of the calendar fields
+     */
+    public TimeAggregator(final long[] times, final TimeZone timeZone) {
+        rowNum = times.length;
+        days = new int[rowNum];
+        hours = new int[rowNum];
+        years = new int[rowNum];
+        months = new int[rowNum];
+        ParallelUtil.parallelFor(rowNum, MIN_CHUNK_ROWS, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                int lastDay = MISSING_KEY, year = 0, month = 0;
+                for (int i = start; i < end; i++) {
+                    long t = times[i];
+                    if (t == Long.MIN_VALUE) {
+                        days[i] = MISSING_KEY;
+                        continue;
+                    }
+                    long local = t + timeZone.getOffset(t);
+                    int day = (int) floorDiv(local, MILLIS_PER_DAY);
+                    if (day != lastDay) {
+                        int ym = civilYearMonth(day);
+                        year = ym / 12;
+                        month = ym % 12;
+                        lastDay = day;
+                    }
+                    days[i] = day;
+                    hours[i] = (int) ((local - day * MILLIS_PER_DAY) / MILLIS_PER_HOUR);
+                    years[i] = year;
+                    months[i] = month;
+                }
+            }
+        });
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get row number
+     *
+     * @return Row number
+     */
+    public int getRowNum() {
+        return rowNum;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Convert dates to epoch milliseconds
+     *
+     * @param dates Dates, null for missing
+     * @return Epoch milliseconds, Long.MIN_VALUE for missing
+     */
+    public static long[] toTimes(List<Date> dates) {
+        long[] r = new long[dates.size()];
+        int i = 0;
+        for (Date d : dates) {
+            r[i++] = d == null ? Long.MIN_VALUE : d.getTime();
+        }
+        return r;
+    }
+
+    private static long floorDiv(long a, long b) {
+        long q = a / b;
+        if ((a % b != 0) && ((a ^ b) < 0)) {
+            q -= 1;
+        }
+        return q;
+    }
+
+    /**
+     * Get year * 12 + month - 1 of a day since epoch in proleptic Gregorian
+     * calendar
+     */
+    private static int civilYearMonth(long day) {
+        long z = day + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long m = mp < 10 ? mp + 3 : mp - 9;
+        long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+        return (int) (y * 12 + m - 1);
+    }
+
+    /**
+     * Get key number of cyclic time periods, the keys are 0 to key number - 1
+     *
+     * @param period Time period
+     * @return Key number, -1 if the time period is not cyclic
+     */
+    public static int getCycleLength(TimePeriod period) {
+        switch (period) {
+            case MONTH_OF_YEAR:
+                return 12;
+            case SEASON_OF_YEAR:
+                return 4;
+            case DAY_OF_WEEK:
+                return 7;
+            case HOUR_OF_DAY:
+                return 24;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Get period key of each row.
+     *
+     * YEAR - year; YEAR_MONTH - year * 12 + month - 1; DAY - days since epoch;
+     * HOUR - hours since epoch; MONTH_OF_YEAR - month - 1; SEASON_OF_YEAR - 0
+     * to 3 for spring (MAM), summer, autumn and winter (DJF); DAY_OF_WEEK - 0
+     * to 6 from Sunday; HOUR_OF_DAY - hour.
+     *
+     * @param period Time period
+     * @return Keys, MISSING_KEY for rows with missing time
+     */
+    public int[] getKeys(TimePeriod period) {
+        int[] keys = new int[rowNum];
+        for (int i = 0; i < rowNum; i++) {
+            if (days[i] == MISSING_KEY) {
+                keys[i] = MISSING_KEY;
+                continue;
+            }
+            switch (period) {
+                case YEAR:
+                    keys[i] = years[i];
+                    break;
+                case YEAR_MONTH:
+                    keys[i] = years[i] * 12 + months[i];
+                    break;
+                case DAY:
+                    keys[i] = days[i];
+                    break;
+                case HOUR:
+                    keys[i] = days[i] * 24 + hours[i];
+                    break;
+                case MONTH_OF_YEAR:
+                    keys[i] = months[i];
+                    break;
+                case SEASON_OF_YEAR:
+                    keys[i] = ((months[i] + 10) % 12) / 3;
+                    break;
+                case DAY_OF_WEEK:
+                    //1970-01-01 is Thursday
+                    keys[i] = (int) (((days[i] + 4) % 7 + 7) % 7);
+                    break;
+                case HOUR_OF_DAY:
+                    keys[i] = hours[i];
+                    break;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Group rows by time period. Cyclic periods have all their keys as groups
+     * in key order, other periods have the keys of the rows as groups in
+     * order of first appearance.
+     *
+     * @param period Time period
+     * @return Grouping
+     */
+    public Grouping group(TimePeriod period) {
+        int[] keys = getKeys(period);
+        int n = getCycleLength(period);
+        return n > 0 ? group(keys, n) : group(keys);
+    }
+
+    /**
+     * Group rows by keys 0 to key number - 1, the groups are in key order
+     *
+     * @param keys Row keys, rows with other keys are not in any group
+     * @param keyNum Key number
+     * @return Grouping
+     */
+    public static Grouping group(int[] keys, int keyNum) {
+        int n = keys.length;
+        int[] rowGroups = new int[n];
+        int[] groupKeys = new int[keyNum];
+        int[] firstRows = new int[keyNum];
+        Arrays.fill(firstRows, -1);
+        for (int g = 0; g < keyNum; g++) {
+            groupKeys[g] = g;
+        }
+        for (int i = 0; i < n; i++) {
+            int k = keys[i];
+            if (k >= 0 && k < keyNum) {
+                rowGroups[i] = k;
+                if (firstRows[k] < 0) {
+                    firstRows[k] = i;
+                }
+            } else {
+                rowGroups[i] = -1;
+            }
+        }
+        return new Grouping(rowGroups, groupKeys, firstRows);
+    }
+
+    /**
+     * Group rows by keys, the groups are in order of first appearance
+     *
+     * @param keys Row keys, rows with MISSING_KEY are not in any group
+     * @return Grouping
+     */
+    public static Grouping group(int[] keys) {
+        int n = keys.length;
+        int[] rowGroups = new int[n];
+        boolean ordered = true;
+        int last = MISSING_KEY;
+        for (int i = 0; i < n; i++) {
+            int k = keys[i];
+            if (k != MISSING_KEY) {
+                if (last != MISSING_KEY && k < last) {
+                    ordered = false;
+                    break;
+                }
+                last = k;
+            }
+        }
+
+        int groupNum = 0;
+        int[] groupKeys;
+        int[] firstRows;
+        if (ordered) {
+            //Groups are runs of same keys
+            groupKeys = new int[16];
+            firstRows = new int[16];
+            last = MISSING_KEY;
+            for (int i = 0; i < n; i++) {
+                int k = keys[i];
+                if (k == MISSING_KEY) {
+                    rowGroups[i] = -1;
+                    continue;
+                }
+                if (groupNum == 0 || k != last) {
+                    if (groupNum == groupKeys.length) {
+                        groupKeys = Arrays.copyOf(groupKeys, groupNum * 2);
+                        firstRows = Arrays.copyOf(firstRows, groupNum * 2);
+                    }
+                    groupKeys[groupNum] = k;
+                    firstRows[groupNum] = i;
+                    groupNum += 1;
+                    last = k;
+                }
+                rowGroups[i] = groupNum - 1;
+            }
+        } else {
+            //Sort packed key and row index, then order groups by first row
+            long[] packed = new long[n];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (keys[i] == MISSING_KEY) {
+                    rowGroups[i] = -1;
+                } else {
+                    packed[m++] = ((long) keys[i] << 32) | i;
+                }
+            }
+            Arrays.sort(packed, 0, m);
+            int[] sortedGroups = new int[m];
+            long[] firsts = new long[m];
+            for (int p = 0; p < m; p++) {
+                int k = (int) (packed[p] >> 32);
+                if (p == 0 || k != (int) (packed[p - 1] >> 32)) {
+                    firsts[groupNum] = ((packed[p] & 0xffffffffL) << 32) | groupNum;
+                    groupNum += 1;
+                }
+                sortedGroups[p] = groupNum - 1;
+            }
+            Arrays.sort(firsts, 0, groupNum);
+            int[] order = new int[groupNum];
+            groupKeys = new int[groupNum];
+            firstRows = new int[groupNum];
+            for (int g = 0; g < groupNum; g++) {
+                int row = (int) (firsts[g] >>> 32);
+                order[(int) (firsts[g] & 0xffffffffL)] = g;
+                groupKeys[g] = keys[row];
+                firstRows[g] = row;
+            }
+            for (int p = 0; p < m; p++) {
+                rowGroups[(int) (packed[p] & 0xffffffffL)] = order[sortedGroups[p]];
+            }
+        }
+
+        return new Grouping(rowGroups, Arrays.copyOf(groupKeys, groupNum), Arrays.copyOf(firstRows, groupNum));
+    }
+
+    /**
+     * Aggregate columns by groups, the columns are processed in parallel
+     *
+     * @param grouping Grouping
+     * @param columns Column values, NaN values are not included
+     * @return Group statistics
+     */
+    public static GroupStatistics aggregate(Grouping grouping, List<double[]> columns) {
+        final List<double[]> cols = columns;
+        return aggregate(grouping, cols.size(), new ColumnSource() {
+            @Override
+            public double[] getValues(int col) {
+                return cols.get(col);
+            }
+        });
+    }
+
+    /**
+     * Aggregate columns by groups, the columns are read and processed in
+     * parallel
+     *
+     * @param grouping Grouping
+     * @param colNum Column number
+     * @param source Column values source
+     * @return Group statistics
+     */
+    public static GroupStatistics aggregate(Grouping grouping, int colNum, final ColumnSource source) {
+        final int[] rowGroups = grouping.rowGroups;
+        final int groupNum = grouping.getGroupNum();
+        final GroupStatistics r = new GroupStatistics(colNum, groupNum);
+        ParallelUtil.parallelFor(colNum, 1, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int c = start; c < end; c++) {
+                    double[] values = source.getValues(c);
+                    int[] count = new int[groupNum];
+                    double[] sum = new double[groupNum];
+                    double[] min = new double[groupNum];
+                    double[] max = new double[groupNum];
+                    Arrays.fill(min, Double.NaN);
+                    Arrays.fill(max, Double.NaN);
+                    for (int i = 0; i < rowGroups.length; i++) {
+                        int g = rowGroups[i];
+                        double v = values[i];
+                        if (g < 0 || Double.isNaN(v)) {
+                            continue;
+                        }
+                        if (count[g] == 0) {
+                            min[g] = v;
+                            max[g] = v;
+                        } else if (v < min[g]) {
+                            min[g] = v;
+                        } else if (v > max[g]) {
+                            max[g] = v;
+                        }
+                        count[g] += 1;
+                        sum[g] += v;
+                    }
+                    r.counts[c] = count;
+                    r.sums[c] = sum;
+                    r.mins[c] = min;
+                    r.maxs[c] = max;
+                }
+            }
+        });
+
+        return r;
+    }
+
+    /**
+     * Source of column values
+     */
+    public interface ColumnSource {
+
+        /**
+         * Get values of a column
+         *
+         * @param col Column index
+         * @return Values in row order, NaN for missing values
+         */
+        double[] getValues(int col);
+    }
+
+    /**
+     * Row grouping
+     */
+    public static class Grouping {
+
+        private final int[] rowGroups;
+        private final int[] groupKeys;
+        private final int[] firstRows;
+
+        Grouping(int[] rowGroups, int[] groupKeys, int[] firstRows) {
+            this.rowGroups = rowGroups;
+            this.groupKeys = groupKeys;
+            this.firstRows = firstRows;
+        }
+
+        /**
+         * Get group number
+         *
+         * @return Group number
+         */
+        public int getGroupNum() {
+            return groupKeys.length;
+        }
+
+        /**
+         * Get group index of each row
+         *
+         * @return Group indices, -1 for rows not in any group
+         */
+        public int[] getRowGroups() {
+            return rowGroups;
+        }
+
+        /**
+         * Get key of each group
+         *
+         * @return Group keys
+         */
+        public int[] getGroupKeys() {
+            return groupKeys;
+        }
+
+        /**
+         * Get first row index of each group
+         *
+         * @return First row indices, -1 for empty groups
+         */
+        public int[] getFirstRows() {
+            return firstRows;
+        }
+    }
+
+    /**
+     * Statistics of groups by columns
+     */
+    public static class GroupStatistics {
+
+        private final int[][] counts;
+        private final double[][] sums;
+        private final double[][] mins;
+        private final double[][] maxs;
+
+        GroupStatistics(int colNum, int groupNum) {
+            counts = new int[colNum][];
+            sums = new double[colNum][];
+            mins = new double[colNum][];
+            maxs = new double[colNum][];
+        }
+
+        /**
+         * Get a statistic value
+         *
+         * @param stat Statistic
+         * @param col Column index
+         * @param group Group index
+         * @return Statistic value. Mean, minimum and maximum are NaN for
+         * empty groups, sum is 0.
+         */
+        public double get(Statistic stat, int col, int group) {
+            switch (stat) {
+                case COUNT:
+                    return counts[col][group];
+                case SUM:
+                    return sums[col][group];
+                case MEAN:
+                    return sums[col][group] / counts[col][group];
+                case MIN:
+                    return mins[col][group];
+                default:
+                    return maxs[col][group];
+            }
+        }
+    }
+    // </editor-fold>
+}
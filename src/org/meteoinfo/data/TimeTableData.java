@@ -13,12 +13,10 @@ import java.io.InputStreamReader;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import javax.swing.JOptionPane;
-import org.meteoinfo.data.analysis.Statistics;
 import org.meteoinfo.table.DataColumn;
 import org.meteoinfo.table.DataRow;
 import org.meteoinfo.table.DataTable;
@@ -635,31 +633,50 @@ public class TimeTableData extends TableData {
     }
 
     /**
-     * Average year by year
+     * Aggregate data columns by time period
      *
      * @param cols The data columns
+     * @param period Time period
+     * @param stat Statistic
      * @return Result data table
      * @throws Exception
      */
-    public DataTable ave_Year(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Year", DataTypes.Integer);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
+    public DataTable aggregate(List<DataColumn> cols, TimeAggregator.TimePeriod period,
+            TimeAggregator.Statistic stat) throws Exception {
+        return this.aggregate(cols, this.timeColName, period, stat);
+    }
 
-        List<Integer> years = this.getYears();
-        for (int year : years) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, year);
-            List<DataRow> rows = this.getDataByYear(year);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
+    /**
+     * Aggregate a month by year
+     *
+     * @param cols The data columns
+     * @param month The month
+     * @param stat Statistic
+     * @return Result data table
+     * @throws Exception
+     */
+    public DataTable aggregate_YearMonth(List<DataColumn> cols, int month, TimeAggregator.Statistic stat) throws Exception {
+        TimeAggregator ta = this.getTimeAggregator(this.timeColName);
+        TimeAggregator.Grouping grouping = ta.group(TimeAggregator.TimePeriod.YEAR);
+        int[] months = ta.getKeys(TimeAggregator.TimePeriod.MONTH_OF_YEAR);
+        int[] rowGroups = grouping.getRowGroups();
+        for (int i = 0; i < rowGroups.length; i++) {
+            if (months[i] != month - 1) {
+                rowGroups[i] = -1;
             }
         }
+        return this.aggregate(cols, this.timeColName, TimeAggregator.TimePeriod.YEAR, grouping, stat);
+    }
 
-        return rTable;
+    /**
+     * Average year by year
+     *
+     * @param cols The data columns
+     * @return Result data table
+     * @throws Exception
+     */
+    public DataTable ave_Year(List<DataColumn> cols) throws Exception {
+        return this.aggregate(cols, TimeAggregator.TimePeriod.YEAR, TimeAggregator.Statistic.MEAN);
     }
 
     /**
@@ -671,21 +688,24 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable ave_Year(List<DataColumn> cols, int year) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Year", DataTypes.Integer);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        DataRow nRow = rTable.addRow();
-        nRow.setValue(0, year);
-        List<DataRow> rows = this.getDataByYear(year);
-        for (DataColumn col : cols) {
-            List<Double> values = this.getValidColumnValues(rows, col);
-            nRow.setValue(col.getColumnName(), Statistics.mean(values));
+        TimeAggregator ta = this.getTimeAggregator(this.timeColName);
+        int[] keys = ta.getKeys(TimeAggregator.TimePeriod.YEAR);
+        int[] rowGroups = new int[keys.length];
+        int firstRow = -1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == year) {
+                rowGroups[i] = 0;
+                if (firstRow < 0) {
+                    firstRow = i;
+                }
+            } else {
+                rowGroups[i] = -1;
+            }
         }
-
-        return rTable;
+        TimeAggregator.Grouping grouping = new TimeAggregator.Grouping(rowGroups, new int[]{year},
+                new int[]{firstRow});
+        return this.aggregate(cols, this.timeColName, TimeAggregator.TimePeriod.YEAR, grouping,
+                TimeAggregator.Statistic.MEAN);
     }
 
     /**
@@ -696,24 +716,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable sum_Year(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Year", DataTypes.Integer);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<Integer> years = this.getYears();
-        for (int year : years) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, year);
-            List<DataRow> rows = this.getDataByYear(year);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.sum(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.YEAR, TimeAggregator.Statistic.SUM);
     }
 
     /**
@@ -725,24 +728,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable ave_YearMonth(List<DataColumn> cols, int month) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Year", DataTypes.Integer);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<Integer> years = this.getYears();
-        for (int year : years) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, year);
-            List<DataRow> rows = this.getDataByYearMonth(year, month);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate_YearMonth(cols, month, TimeAggregator.Statistic.MEAN);
     }
 
     /**
@@ -754,24 +740,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable sum_YearMonth(List<DataColumn> cols, int month) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Year", DataTypes.Integer);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<Integer> years = this.getYears();
-        for (int year : years) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, year);
-            List<DataRow> rows = this.getDataByYearMonth(year, month);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.sum(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate_YearMonth(cols, month, TimeAggregator.Statistic.SUM);
     }
 
     /**
@@ -782,24 +751,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable ave_Month(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("YearMonth", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> yms = this.getYearMonths();
-        for (String ym : yms) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, ym);
-            List<DataRow> rows = this.getDataByYearMonth(ym);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.YEAR_MONTH, TimeAggregator.Statistic.MEAN);
     }
     
     /**
@@ -810,24 +762,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable sum_Month(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("YearMonth", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> yms = this.getYearMonths();
-        for (String ym : yms) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, ym);
-            List<DataRow> rows = this.getDataByYearMonth(ym);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.sum(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.YEAR_MONTH, TimeAggregator.Statistic.SUM);
     }
 
     /**
@@ -838,26 +773,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable ave_Day(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn(new DataColumn("Date", DataTypes.Date, "yyyyMMdd"));
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<Date> days = this.getDates_Day();
-        List<DataRow> drs = new ArrayList<>(this.getRows());
-        for (Date day : days) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, day);
-            List<DataRow> rows = this.getDataByDate(day, drs);
-            drs.removeAll(rows);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.DAY, TimeAggregator.Statistic.MEAN);
     }
     
     /**
@@ -868,26 +784,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable sum_Day(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn(new DataColumn("Date", DataTypes.Date, "yyyyMMdd"));
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<Date> days = this.getDates_Day();
-        List<DataRow> drs = new ArrayList<>(this.getRows());
-        for (Date day : days) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, day);
-            List<DataRow> rows = this.getDataByDate(day, drs);
-            drs.removeAll(rows);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.sum(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.DAY, TimeAggregator.Statistic.SUM);
     }
     
     /**
@@ -898,26 +795,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable ave_Hour(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn(new DataColumn("Date", DataTypes.Date, "yyyyMMddHH"));
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<Date> hours = this.getDates_Hour();
-        List<DataRow> drs = new ArrayList<>(this.getRows());
-        for (Date hour : hours) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, hour);
-            List<DataRow> rows = this.getDataByDate_Hour(hour, drs);
-            drs.removeAll(rows);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.HOUR, TimeAggregator.Statistic.MEAN);
     }
     
     /**
@@ -928,26 +806,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable sum_Hour(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn(new DataColumn("Date", DataTypes.Date, "yyyyMMddHH"));
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<Date> hours = this.getDates_Hour();
-        List<DataRow> drs = new ArrayList<>(this.getRows());
-        for (Date hour : hours) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, hour);
-            List<DataRow> rows = this.getDataByDate_Hour(hour, drs);
-            drs.removeAll(rows);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.sum(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.HOUR, TimeAggregator.Statistic.SUM);
     }
 
     /**
@@ -958,33 +817,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable ave_MonthOfYear(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Month", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> monthNames = Arrays.asList(new String[]{"Jan", "Feb", "Mar", "Apr", "May",
-            "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"});
-        List<Integer> months = new ArrayList<>();
-        int i;
-        for (i = 1; i < 13; i++) {
-            months.add(i);
-        }
-
-        i = 0;
-        for (int month : months) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, monthNames.get(i));
-            List<DataRow> rows = this.getDataByMonth(month);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-            i++;
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.MONTH_OF_YEAR, TimeAggregator.Statistic.MEAN);
     }
     
     /**
@@ -995,33 +828,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable sum_MonthOfYear(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Month", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> monthNames = Arrays.asList(new String[]{"Jan", "Feb", "Mar", "Apr", "May",
-            "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"});
-        List<Integer> months = new ArrayList<>();
-        int i;
-        for (i = 1; i < 13; i++) {
-            months.add(i);
-        }
-
-        i = 0;
-        for (int month : months) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, monthNames.get(i));
-            List<DataRow> rows = this.getDataByMonth(month);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.sum(values));
-            }
-            i++;
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.MONTH_OF_YEAR, TimeAggregator.Statistic.SUM);
     }
 
     /**
@@ -1032,24 +839,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable ave_SeasonOfYear(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Season", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> seasons = Arrays.asList(new String[]{"Spring", "Summer", "Autumn", "Winter"});
-        for (String season : seasons) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, season);
-            List<DataRow> rows = this.getDataBySeason(season);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.SEASON_OF_YEAR, TimeAggregator.Statistic.MEAN);
     }
     
     /**
@@ -1060,24 +850,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable sum_SeasonOfYear(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Season", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> seasons = Arrays.asList(new String[]{"Spring", "Summer", "Autumn", "Winter"});
-        for (String season : seasons) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, season);
-            List<DataRow> rows = this.getDataBySeason(season);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.SEASON_OF_YEAR, TimeAggregator.Statistic.SUM);
     }
 
     /**
@@ -1088,34 +861,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable ave_DayOfWeek(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Day", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> dowNames = Arrays.asList(new String[]{"Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday",
-            "Saturday"});
-        List<Integer> dows = new ArrayList<>();
-        dows.add(7);
-        int i;
-        for (i = 1; i < 7; i++) {
-            dows.add(i);
-        }
-
-        i = 0;
-        for (int dow : dows) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, dowNames.get(i));
-            List<DataRow> rows = this.getDataByDayOfWeek(dow);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-            i++;
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.DAY_OF_WEEK, TimeAggregator.Statistic.MEAN);
     }
     
     /**
@@ -1126,34 +872,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable sum_DayOfWeek(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Day", DataTypes.String);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<String> dowNames = Arrays.asList(new String[]{"Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday",
-            "Saturday"});
-        List<Integer> dows = new ArrayList<>();
-        dows.add(7);
-        int i;
-        for (i = 1; i < 7; i++) {
-            dows.add(i);
-        }
-
-        i = 0;
-        for (int dow : dows) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, dowNames.get(i));
-            List<DataRow> rows = this.getDataByDayOfWeek(dow);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.sum(values));
-            }
-            i++;
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.DAY_OF_WEEK, TimeAggregator.Statistic.SUM);
     }
 
     /**
@@ -1164,28 +883,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable ave_HourOfDay(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Hour", DataTypes.Integer);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<Integer> hours = new ArrayList<>();
-        for (int i = 0; i < 24; i++) {
-            hours.add(i);
-        }
-
-        for (int hour : hours) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, hour);
-            List<DataRow> rows = this.getDataByHour(hour);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.mean(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.HOUR_OF_DAY, TimeAggregator.Statistic.MEAN);
     }
     
     /**
@@ -1196,28 +894,7 @@ public class TimeTableData extends TableData {
      * @throws Exception
      */
     public DataTable sum_HourOfDay(List<DataColumn> cols) throws Exception {
-        DataTable rTable = new DataTable();
-        rTable.addColumn("Hour", DataTypes.Integer);
-        for (DataColumn col : cols) {
-            rTable.addColumn(col.getColumnName(), DataTypes.Double);
-        }
-
-        List<Integer> hours = new ArrayList<>();
-        for (int i = 0; i < 24; i++) {
-            hours.add(i);
-        }
-
-        for (int hour : hours) {
-            DataRow nRow = rTable.addRow();
-            nRow.setValue(0, hour);
-            List<DataRow> rows = this.getDataByHour(hour);
-            for (DataColumn col : cols) {
-                List<Double> values = this.getValidColumnValues(rows, col);
-                nRow.setValue(col.getColumnName(), Statistics.sum(values));
-            }
-        }
-
-        return rTable;
+        return this.aggregate(cols, TimeAggregator.TimePeriod.HOUR_OF_DAY, TimeAggregator.Statistic.SUM);
     }
     
     /**
@@ -5,14 +5,11 @@
  */
 package org.meteoinfo.data.dataframe;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import org.joda.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -43,6 +40,7 @@ import org.meteoinfo.global.DataConvert;
 import org.meteoinfo.global.util.DateUtil;
 import org.meteoinfo.global.util.GlobalUtil;
 import org.meteoinfo.global.util.TypeUtils;
+import org.meteoinfo.io.TextTableReader;
 import ucar.ma2.Array;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Range;
@@ -1759,13 +1757,16 @@ public class DataFrame implements Iterable {
      */
     public static DataFrame readTable(String fileName, String delimiter, int skipRows, String formatSpec, String encoding,
             int indexCol, String indexFormat, List<String> names, Integer header, int skipFooter) throws FileNotFoundException, IOException, Exception {
-        BufferedReader sr = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), encoding));
+        TextTableReader sr = new TextTableReader(fileName, delimiter, encoding);
         if (skipRows > 0) {
             for (int i = 0; i < skipRows; i++) {
                 sr.readLine();
             }
         }
 
+        if (header == null) {
+            sr.mark();
+        }
         String title = sr.readLine().trim();
         if (encoding.equals("UTF8")) {
             if (title.startsWith("\uFEFF")) {
@@ -1794,12 +1795,34 @@ public class DataFrame implements Iterable {
         //Get fields
         ColumnIndex cols = new ColumnIndex();
         Column col;
-        List<List> values = new ArrayList<>();
         String[] colFormats;
         if (formatSpec == null) {
+            //Infer column data types from sample lines
+            if (header == null) {
+                sr.reset();
+            }
+            List<String[]> sample = sr.sample(100);
             colFormats = new String[colNum];
             for (int i = 0; i < colNum; i++) {
-                colFormats[i] = "C";
+                int ti = indexCol >= 0 && i >= indexCol ? i + 1 : i;
+                List<String> sv = new ArrayList<>();
+                for (String[] tokens : sample) {
+                    sv.add(ti < tokens.length ? tokens[ti] : "");
+                }
+                switch (TextTableReader.inferDataType(sv)) {
+                    case INT:
+                        colFormats[i] = "i";
+                        break;
+                    case DOUBLE:
+                        colFormats[i] = "d";
+                        break;
+                    case BOOLEAN:
+                        colFormats[i] = "B";
+                        break;
+                    default:
+                        colFormats[i] = "C";
+                        break;
+                }
             }
         } else {
             colFormats = formatSpec.split("%");
@@ -1847,7 +1870,6 @@ public class DataFrame implements Iterable {
                     col = new Column(colName, DataType.STRING);
                 }
                 cols.add(col);
-                values.add(new ArrayList<>());
                 idx += 1;
                 if (idx == colNum) {
                     isBreak = true;
@@ -1862,58 +1884,46 @@ public class DataFrame implements Iterable {
         if (idx < colNum) {
             for (int i = idx; i < colNum; i++) {
                 cols.add(new Column(titleArray.get(i), DataType.STRING));
-                values.add(new ArrayList<>());
             }
         }
 
-        String[] dataArray;
-        List<String> indexValues = new ArrayList<>();
-        String line;
-        if (header == null) {
-            line = title;
-        } else {
-            line = sr.readLine();
-        }
-        while (line != null) {
-            line = line.trim();
-            if (line.isEmpty()) {
-                line = sr.readLine();
-                continue;
-            }
-            dataArray = GlobalUtil.split(line, delimiter);
-            int cn = 0;
-            for (int i = 0; i < dataArray.length; i++) {
-                if (cn < colNum) {
-                    if (i == indexCol) {
-                        indexValues.add(dataArray[i]);
-                    } else {
-                        values.get(cn).add(dataArray[i]);
-                        cn++;
-                    }
-                } else {
-                    break;
-                }
-            }
-            if (cn < colNum) {
-                for (int i = cn; i < colNum; i++) {
-                    values.get(i).add("");
-                }
+        //Target column of each token, the index column is the last one
+        int[] targets = new int[indexCol >= 0 ? Math.max(colNum, indexCol) + 1 : colNum];
+        int cn = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (i == indexCol) {
+                targets[i] = colNum;
+            } else if (cn < colNum) {
+                targets[i] = cn++;
+            } else {
+                targets[i] = -1;
             }
+        }
+        DataType[] types = new DataType[colNum + 1];
+        String[] formats = new String[colNum + 1];
+        boolean[] inferred = new boolean[colNum + 1];
+        for (int i = 0; i < colNum; i++) {
+            types[i] = cols.get(i).getDataType();
+            formats[i] = types[i] == DataType.OBJECT ? cols.get(i).getFormat() : null;
+            inferred[i] = formatSpec == null;
+        }
+        types[colNum] = DataType.STRING;
 
-            line = sr.readLine();
+        if (header == null) {
+            sr.reset();
         }
+        Object[] values = sr.readColumns(types, formats, targets, inferred);
         sr.close();
+        //Inferred column types widened by the values after the sample lines
+        for (int i = 0; i < colNum; i++) {
+            cols.get(i).setDataType(types[i]);
+        }
 
-        int rn = values.get(0).size();
+        int rn = java.lang.reflect.Array.getLength(values[0]);
         if (skipFooter > 0) {
-            if (indexCol >= 0) {
-                indexValues = indexValues.subList(0, rn - skipFooter);
-            }
-            for (int i = 0; i < colNum; i++) {
-                values.set(i, values.get(i).subList(0, rn - skipFooter));
-            }
+            rn = Math.max(0, rn - skipFooter);
         }
-        rn = values.get(0).size();
+        List<String> indexValues = Arrays.asList((String[]) values[colNum]).subList(0, rn);
         Index index;
         if (indexCol >= 0) {
             DataType idxDT;
@@ -1960,33 +1970,19 @@ public class DataFrame implements Iterable {
 
         DataFrame df;
         if (cols.isSameDataType()) {
-            Array data = Array.factory(cols.get(0).dataType, new int[]{rn, colNum});
-            List vv;
-            col = cols.get(0);
+            DataType dt = cols.get(0).getDataType();
+            Array data = Array.factory(dt, new int[]{rn, colNum});
             for (int i = 0; i < colNum; i++) {
-                vv = values.get(i);
-                String v;
-                for (int j = 0; j < vv.size(); j++) {
-                    v = (String) vv.get(j);
-                    data.setObject(j * colNum + i, col.convertStringTo(v));
+                Array a = columnArray(dt, values[i], rn);
+                for (int j = 0; j < rn; j++) {
+                    data.setObject(j * colNum + i, a.getObject(j));
                 }
             }
             df = new DataFrame(data, index, cols);
         } else {
             List<Array> data = new ArrayList<>();
-            Array a;
-            List vv;
             for (int i = 0; i < colNum; i++) {
-                vv = values.get(i);
-                col = cols.get(i);
-                DataType dt = col.getDataType();
-                a = Array.factory(dt, new int[]{rn});
-                String v;
-                for (int j = 0; j < vv.size(); j++) {
-                    v = (String) vv.get(j);
-                    a.setObject(j, col.convertStringTo(v));
-                }
-                data.add(a);
+                data.add(columnArray(cols.get(i).getDataType(), values[i], rn));
             }
 
             df = new DataFrame(data, index, cols);
@@ -1998,6 +1994,39 @@ public class DataFrame implements Iterable {
         return df;
     }
 
+    /**
+     * Create column array from the parsed column storage
+     *
+     * @param dt Data type
+     * @param storage Column storage
+     * @param rn Row number
+     * @return Column array
+     */
+    private static Array columnArray(DataType dt, Object storage, int rn) {
+        switch (dt) {
+            case INT:
+                return Array.factory(dt, new int[]{rn}, Arrays.copyOf((int[]) storage, rn));
+            case FLOAT:
+                return Array.factory(dt, new int[]{rn}, Arrays.copyOf((float[]) storage, rn));
+            case DOUBLE:
+                return Array.factory(dt, new int[]{rn}, Arrays.copyOf((double[]) storage, rn));
+            case BOOLEAN:
+                boolean[] bs = (boolean[]) storage;
+                Array ba = Array.factory(dt, new int[]{rn});
+                for (int i = 0; i < rn; i++) {
+                    ba.setBoolean(i, bs[i]);
+                }
+                return ba;
+            default:
+                Object[] os = (Object[]) storage;
+                Array a = Array.factory(dt, new int[]{rn});
+                for (int i = 0; i < rn; i++) {
+                    a.setObject(i, os[i]);
+                }
+                return a;
+        }
+    }
+
     /**
      * Save as CSV file
      *
@@ -2175,6 +2204,16 @@ public class DataFrame implements Iterable {
         return groupByIndex(function);
     }
 
+    /**
+     * Resample the data frame rows by time windows of the date time index.
+     *
+     * @param pStr Period string - e.g. "1H", "1D", "1M"
+     * @return the grouping
+     */
+    public DataFrameGroupBy resample(final String pStr) {
+        return groupByIndex(pStr);
+    }
+
     /**
      * Apply a function
      *
@@ -7,6 +7,7 @@ package org.meteoinfo.data.dataframe;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import org.joda.time.DateTime;
 import org.joda.time.ReadablePeriod;
@@ -24,6 +25,8 @@ public class DateTimeIndex extends Index<DateTime> {
     // <editor-fold desc="Variables">
     ReadablePeriod period;
     ReadablePeriod resamplePeriod;
+    private long[] times;
+    private boolean monotonic;
     //DateTimeFormatter dtFormatter;
     // </editor-fold>
     // <editor-fold desc="Constructor">
@@ -143,6 +146,78 @@ public class DateTimeIndex extends Index<DateTime> {
         this.resamplePeriod = value;
     }
     
+    /**
+     * Get times as epoch milliseconds. The array is cached and must not be
+     * modified. The cache is dropped when the data list is handed out, since
+     * the list can be modified by the caller.
+     * @return Times
+     */
+    public long[] getTimes() {
+        if (this.times == null || this.times.length != this.data.size()) {
+            int n = this.data.size();
+            long[] ts = new long[n];
+            boolean mono = true;
+            for (int i = 0; i < n; i++) {
+                ts[i] = ((DateTime) this.data.get(i)).getMillis();
+                if (i > 0 && ts[i] < ts[i - 1]) {
+                    mono = false;
+                }
+            }
+            this.monotonic = mono;
+            this.times = ts;
+        }
+        return this.times;
+    }
+    
+    /**
+     * Get if the times are in ascending order
+     * @return Boolean
+     */
+    public boolean isMonotonic() {
+        this.getTimes();
+        return this.monotonic;
+    }
+    
+    /**
+     * Set data
+     * @param value Data
+     */
+    @Override
+    public void setData(List<DateTime> value) {
+        this.times = null;
+        super.setData(value);
+    }
+    
+    /**
+     * Get data
+     * @return Data
+     */
+    @Override
+    public List<DateTime> getData() {
+        this.times = null;
+        return super.getData();
+    }
+    
+    /**
+     * Get values
+     * @return Values
+     */
+    @Override
+    public List<DateTime> getValues() {
+        this.times = null;
+        return super.getValues();
+    }
+    
+    /**
+     * Get iterator
+     * @return Iterator
+     */
+    @Override
+    public Iterator iterator() {
+        this.times = null;
+        return super.iterator();
+    }
+    
     /**
      * Set string format
      * @param value String format
@@ -186,7 +261,79 @@ public class DateTimeIndex extends Index<DateTime> {
      * @return Index
      */
     public int indexOf(DateTime d){
-        return this.data.indexOf(d);
+        return d == null ? -1 : this.indexOf(d.getMillis());
+    }
+    
+    /**
+     * Index of
+     * @param millis Epoch milliseconds
+     * @return Index, -1 if not found
+     */
+    public int indexOf(long millis) {
+        long[] ts = this.getTimes();
+        if (this.monotonic) {
+            int i = lowerBound(ts, millis);
+            return i < ts.length && ts[i] == millis ? i : -1;
+        } else {
+            for (int i = 0; i < ts.length; i++) {
+                if (ts[i] == millis) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    /**
+     * Index of
+     * @param v Value - DateTime, Date or date string
+     * @return Index
+     */
+    @Override
+    public int indexOf(Object v) {
+        return indexOf(toDateTime(v));
+    }
+    
+    /**
+     * Get first index with time not less than a value in ascending times
+     */
+    private static int lowerBound(long[] ts, long v) {
+        int lo = 0, hi = ts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ts[mid] < v) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+    
+    /**
+     * Get indices of the times in a range
+     * @param start Start time - DateTime, Date or date string, inclusive
+     * @param end End time - DateTime, Date or date string, inclusive
+     * @return Indices in index order
+     */
+    public List<Integer> getRangeIndices(Object start, Object end) {
+        long[] ts = this.getTimes();
+        long st = toDateTime(start).getMillis();
+        long et = toDateTime(end).getMillis();
+        List<Integer> r = new ArrayList<>();
+        if (this.monotonic) {
+            int i1 = lowerBound(ts, et == Long.MAX_VALUE ? et : et + 1);
+            for (int i = lowerBound(ts, st); i < i1; i++) {
+                r.add(i);
+            }
+        } else {
+            for (int i = 0; i < ts.length; i++) {
+                if (ts[i] >= st && ts[i] <= et) {
+                    r.add(i);
+                }
+            }
+        }
+        return r;
     }
     
     private DateTime toDateTime(Object d){
@@ -210,8 +357,7 @@ public class DateTimeIndex extends Index<DateTime> {
      * @return Index
      */
     public int indexOf(Date d){
-        DateTime dt = new DateTime(d);
-        return this.data.indexOf(dt);
+        return d == null ? -1 : this.indexOf(d.getTime());
     }
     
     /**
@@ -221,7 +367,7 @@ public class DateTimeIndex extends Index<DateTime> {
      */
     public int indexOf(String d){
         DateTime dt = DateUtil.getDateTime(d);
-        return this.data.indexOf(dt);
+        return this.indexOf(dt);
     }
     
     /**
@@ -274,12 +420,45 @@ public class DateTimeIndex extends Index<DateTime> {
      */
     @Override
     public Object[] getIndices(Object label) {
-        if (label instanceof DateTime){
-            return super.getIndices(label);
-        } else {
-            DateTime dt = toDateTime(label);
-            return super.getIndices(dt);
-        }        
+        DateTime dt = label instanceof DateTime ? (DateTime) label : toDateTime(label);
+        List<Integer> r = new ArrayList<>();
+        List<Object> rIndex = new ArrayList<>();
+        r.add(this.indexOf(dt));
+        rIndex.add(dt);
+        
+        return new Object[]{r, rIndex};
+    }
+    
+    /**
+     * Add a value
+     * @param v Value
+     */
+    @Override
+    public void add(DateTime v) {
+        this.times = null;
+        super.add(v);
+    }
+    
+    /**
+     * Add a value
+     * @param i Index
+     * @param v Value
+     */
+    @Override
+    public void add(int i, DateTime v) {
+        this.times = null;
+        super.add(i, v);
+    }
+    
+    /**
+     * Set a value
+     * @param i Index
+     * @param value Value
+     */
+    @Override
+    public void set(int i, DateTime value) {
+        this.times = null;
+        super.set(i, value);
     }
     
     /**
@@ -18,26 +18,34 @@
 package org.meteoinfo.data.dataframe.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.joda.time.DateTime;
 import org.meteoinfo.data.ArrayUtil;
 
 import org.meteoinfo.data.dataframe.DataFrame;
+import org.meteoinfo.data.dataframe.DateTimeIndex;
 import org.meteoinfo.data.dataframe.Series;
 import org.meteoinfo.data.dataframe.impl.Transforms.CumulativeFunction;
+import org.meteoinfo.global.util.ParallelUtil;
 import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
 
 public class Grouping
         implements Iterable<Map.Entry<Object, SparseBitSet>> {
 
     private final Map<Object, SparseBitSet> groups = new LinkedHashMap<>();
     private final Set<Integer> columns = new LinkedHashSet<>();
+    private int[] rowGroups;
 
     public Grouping() {
     }
@@ -70,26 +78,69 @@ public class Grouping
         }
     }
 
+    /**
+     * Group the rows of a series by its values. The values are encoded to
+     * group ids on the primitive data array.
+     *
+     * @param series The series
+     */
     public <V> Grouping(final Series series) {
-        this(series, new KeyFunction<V>() {
-            @Override
-            public Object apply(final List<V> value) {
-                return value.get(0);
+        rowGroups = new int[series.size()];
+        final int groupNum = PrimitiveColumns.encode(series.getData(), rowGroups);
+        final SparseBitSet[] sets = new SparseBitSet[groupNum];
+        for (int r = 0; r < rowGroups.length; r++) {
+            final int g = rowGroups[r];
+            if (sets[g] == null) {
+                sets[g] = new SparseBitSet();
+                groups.put(series.getValue(r), sets[g]);
             }
-        });
+            sets[g].set(r);
+        }
     }
 
     public <V> Grouping(final Series series, final WindowFunction function) {
-        final Iterator iter = series.getIndex().iterator();
-        for (int r = 0; iter.hasNext(); r++) {
-            final DateTime row = (DateTime) iter.next();
-            final Object key = function.apply(row);
-            SparseBitSet group = groups.get(key);
-            if (group == null) {
-                group = new SparseBitSet();
-                groups.put(key, group);
+        if (series.getIndex() instanceof DateTimeIndex) {
+            groupTimes((DateTimeIndex) series.getIndex(), function);
+        } else {
+            groupRows(series.getIndex().iterator(), function);
+        }
+    }
+
+    /**
+     * Group the rows of a date time index by time windows. Window starts are
+     * computed from the primitive times and a DateTime key is created only
+     * for each window.
+     *
+     * @param index Date time index
+     * @param function Window function
+     */
+    public Grouping(final DateTimeIndex index, final WindowFunction function) {
+        groupTimes(index, function);
+    }
+
+    private void groupTimes(final DateTimeIndex index, final WindowFunction function) {
+        final long[] times = index.getTimes();
+        final HashMap<Long, Integer> windows = new HashMap<>();
+        final List<SparseBitSet> sets = new ArrayList<>();
+        rowGroups = new int[times.length];
+        long last = 0;
+        int g = -1;
+        for (int r = 0; r < times.length; r++) {
+            final long w = function.floor(times[r]);
+            if (g < 0 || w != last) {
+                Integer id = windows.get(w);
+                if (id == null) {
+                    id = sets.size();
+                    final SparseBitSet group = new SparseBitSet();
+                    sets.add(group);
+                    windows.put(w, id);
+                    groups.put(new DateTime(w), group);
+                }
+                g = id;
+                last = w;
             }
-            group.set(r);
+            sets.get(g).set(r);
+            rowGroups[r] = g;
         }
     }
 
@@ -111,33 +162,61 @@ public class Grouping
         }
     }
 
+    /**
+     * Group the rows of a data frame by key columns. The key values are
+     * encoded to int group ids column by column on the primitive arrays and
+     * a key object is created only for each group.
+     *
+     * @param df The data frame
+     * @param columns Key column indices
+     */
     public <V> Grouping(final DataFrame df, final Integer... columns) {
-        this(
-                df,
-                columns.length == 1
-                        ? new KeyFunction<V>() {
-                    @Override
-                    public Object apply(final List<V> value) {
-                        return value.get(columns[0]);
-                    }
+        final List<Array> keys = new ArrayList<>(columns.length);
+        try {
+            for (final int column : columns) {
+                keys.add(df.getColumnData(column));
+                this.columns.add(column);
+            }
+        } catch (InvalidRangeException ex) {
+            Logger.getLogger(Grouping.class.getName()).log(Level.SEVERE, null, ex);
+            return;
+        }
 
-                }
-                        : new KeyFunction<V>() {
-                    @Override
-                    public Object apply(final List<V> value) {
-                        final List<Object> key = new ArrayList<>(columns.length);
-                        for (final int column : columns) {
-                            key.add(value.get(column));
-                        }
-                        return Collections.unmodifiableList(key);
+        rowGroups = new int[df.length()];
+        final int groupNum = PrimitiveColumns.encode(keys, rowGroups);
+        final SparseBitSet[] sets = new SparseBitSet[groupNum];
+        for (int r = 0; r < rowGroups.length; r++) {
+            final int g = rowGroups[r];
+            if (sets[g] == null) {
+                sets[g] = new SparseBitSet();
+                final Object key;
+                if (columns.length == 1) {
+                    key = df.getValue(r, columns[0]);
+                } else {
+                    final List<Object> values = new ArrayList<>(columns.length);
+                    for (final int column : columns) {
+                        values.add(df.getValue(r, column));
                     }
-                },
-                columns
-        );
+                    key = Collections.unmodifiableList(values);
+                }
+                groups.put(key, sets[g]);
+            }
+            sets[g].set(r);
+        }
     }
 
     public <V> Grouping(final DataFrame df, final WindowFunction function) {
-        final Iterator iter = df.getIndex().iterator();
+        if (df.getIndex() instanceof DateTimeIndex) {
+            groupTimes((DateTimeIndex) df.getIndex(), function);
+        } else {
+            groupRows(df.getIndex().iterator(), function);
+        }
+    }
+
+    /**
+     * Group rows of DateTime values in a plain index by time windows
+     */
+    private void groupRows(final Iterator iter, final WindowFunction function) {
         for (int r = 0; iter.hasNext(); r++) {
             final DateTime row = (DateTime) iter.next();
             final Object key = function.apply(row);
@@ -168,7 +247,10 @@ public class Grouping
 
         // add aggregated data column
         final List<V> column = new ArrayList<>();
-        if (groups.isEmpty()) {
+        final Object[] values = aggregate(series.getData(), function);
+        if (values != null) {
+            column.addAll((List<V>) Arrays.asList(values));
+        } else if (groups.isEmpty()) {
             try {
                 if (function instanceof Aggregate) {
                     column.add((V) Aggregate.class.cast(function).apply(series.getData()));
@@ -255,10 +337,13 @@ public class Grouping
 //        }
         
         // add aggregated data columns
+        final Object[][] values = aggregate(df, function);
         for (int c = 0; c < df.size(); c++) {
             if (!columns.contains(c)) {
                 final List<V> column = new ArrayList<>();
-                if (groups.isEmpty()) {
+                if (values[c] != null) {
+                    column.addAll((List<V>) Arrays.asList(values[c]));
+                } else if (groups.isEmpty()) {
                     try {
                         if (function instanceof Aggregate) {
                             column.add((V) Aggregate.class.cast(function).apply(df.col(c)));
@@ -318,6 +403,57 @@ public class Grouping
         return new DataFrame(grouped, index, newcols);
     }
 
+    /**
+     * Aggregate a numeric array by the group ids in one pass
+     *
+     * @param a The array
+     * @param function Aggregate function
+     * @return Aggregated values of the groups, null if the primitive
+     * accumulators can not be used
+     */
+    private Object[] aggregate(final Array a, final Function<?, ?> function) {
+        final PrimitiveColumns.Statistic stat = PrimitiveColumns.getStatistic(function);
+        if (stat == null || !PrimitiveColumns.isNumeric(a)) {
+            return null;
+        }
+        if (groups.isEmpty()) {
+            return PrimitiveColumns.aggregate(a, new int[(int) a.getSize()], 1, stat);
+        } else if (rowGroups != null && rowGroups.length == a.getSize()) {
+            return PrimitiveColumns.aggregate(a, rowGroups, groups.size(), stat);
+        }
+        return null;
+    }
+
+    /**
+     * Aggregate the numeric columns of a data frame in parallel
+     *
+     * @param df The data frame
+     * @param function Aggregate function
+     * @return Aggregated values of the groups for each column, null for the
+     * columns can not use the primitive accumulators
+     */
+    private Object[][] aggregate(final DataFrame df, final Function<?, ?> function) {
+        final Object[][] r = new Object[df.size()][];
+        if (PrimitiveColumns.getStatistic(function) == null) {
+            return r;
+        }
+        ParallelUtil.parallelFor(df.size(), 1, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int c = start; c < end; c++) {
+                    if (!columns.contains(c)) {
+                        try {
+                            r[c] = aggregate(df.getColumnData(c), function);
+                        } catch (InvalidRangeException ex) {
+                            Logger.getLogger(Grouping.class.getName()).log(Level.SEVERE, null, ex);
+                        }
+                    }
+                }
+            }
+        });
+        return r;
+    }
+
     public Set<Object> keys() {
         return groups.keySet();
     }
@@ -0,0 +1,490 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.meteoinfo.data.dataframe.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.joda.time.DateTime;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+
+/**
+ * Columnar operations on primitive arrays for data frame grouping, sorting
+ * and aggregation. Numeric and date time columns are processed as long or
+ * double arrays without boxing each value.
+ *
+ * @author Yaqiang Wang
+ */
+public class PrimitiveColumns {
+
+    private static final int RADIX_BITS = 16;
+    private static final int RADIX_SIZE = 1 << RADIX_BITS;
+
+    /**
+     * Aggregate statistics supported by the primitive accumulators
+     */
+    public static enum Statistic {
+        COUNT, SUM, MEAN, MIN, MAX, VARIANCE, STDDEV
+    }
+
+    // <editor-fold desc="Column values">
+    /**
+     * Check if an array is numeric and can be read as primitive values
+     *
+     * @param a The array
+     * @return Boolean
+     */
+    public static boolean isNumeric(Array a) {
+        switch (a.getDataType()) {
+            case DOUBLE:
+            case FLOAT:
+            case LONG:
+            case INT:
+            case SHORT:
+            case BYTE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check if an array contains date time objects only
+     *
+     * @param a The array
+     * @return Boolean
+     */
+    public static boolean isDateTime(Array a) {
+        if (a.getDataType() != DataType.OBJECT || a.getSize() == 0) {
+            return false;
+        }
+        IndexIterator ii = a.getIndexIterator();
+        while (ii.hasNext()) {
+            if (!(ii.getObjectNext() instanceof DateTime)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get double values of a numeric array
+     *
+     * @param a The array
+     * @return Double values
+     */
+    public static double[] getDoubles(Array a) {
+        double[] r = new double[(int) a.getSize()];
+        IndexIterator ii = a.getIndexIterator();
+        for (int i = 0; i < r.length; i++) {
+            r[i] = ii.getDoubleNext();
+        }
+        return r;
+    }
+
+    /**
+     * Get millisecond values of a date time array
+     *
+     * @param a The array
+     * @return Millisecond values
+     */
+    public static long[] getMillis(Array a) {
+        long[] r = new long[(int) a.getSize()];
+        IndexIterator ii = a.getIndexIterator();
+        for (int i = 0; i < r.length; i++) {
+            r[i] = ((DateTime) ii.getObjectNext()).getMillis();
+        }
+        return r;
+    }
+
+    /**
+     * Get key bits of an array. Two values have same key bits if and only if
+     * they are equal as boxed objects.
+     *
+     * @param a The array
+     * @return Key bits, null if the array is not numeric or date time
+     */
+    public static long[] getKeyBits(Array a) {
+        if (a.getDataType() == DataType.LONG) {
+            long[] r = new long[(int) a.getSize()];
+            IndexIterator ii = a.getIndexIterator();
+            for (int i = 0; i < r.length; i++) {
+                r[i] = ii.getLongNext();
+            }
+            return r;
+        } else if (isNumeric(a)) {
+            //Integer and float values are exactly represented as double
+            double[] v = getDoubles(a);
+            long[] r = new long[v.length];
+            for (int i = 0; i < r.length; i++) {
+                r[i] = Double.doubleToLongBits(v[i]);
+            }
+            return r;
+        } else if (isDateTime(a)) {
+            return getMillis(a);
+        }
+        return null;
+    }
+
+    /**
+     * Get sort keys of an array. The signed order of the keys is the
+     * natural order of the values with NaN greater than all other values.
+     *
+     * @param a The array
+     * @return Sort keys, null if the array is not numeric or date time
+     */
+    public static long[] getSortKeys(Array a) {
+        if (a.getDataType() == DataType.LONG || isDateTime(a)) {
+            return getKeyBits(a);
+        } else if (isNumeric(a)) {
+            double[] v = getDoubles(a);
+            long[] r = new long[v.length];
+            for (int i = 0; i < r.length; i++) {
+                long bits = Double.doubleToLongBits(v[i]);
+                r[i] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+            }
+            return r;
+        }
+        return null;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Key encoding">
+
+    /**
+     * Encode long keys to group ids numbered by first appearance
+     *
+     * @param keys The keys
+     * @param ids Output group ids
+     * @return Group number
+     */
+    public static int encode(long[] keys, int[] ids) {
+        int cap = 16;
+        long[] table = new long[cap];
+        int[] values = new int[cap];
+        Arrays.fill(values, -1);
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            long k = keys[i];
+            int mask = cap - 1;
+            int h = hash(k) & mask;
+            while (values[h] >= 0 && table[h] != k) {
+                h = (h + 1) & mask;
+            }
+            if (values[h] < 0) {
+                table[h] = k;
+                values[h] = n;
+                n += 1;
+                if (n * 2 > cap) {
+                    //Rehash into a table of double size
+                    int ncap = cap * 2;
+                    long[] ntable = new long[ncap];
+                    int[] nvalues = new int[ncap];
+                    Arrays.fill(nvalues, -1);
+                    for (int j = 0; j < cap; j++) {
+                        if (values[j] >= 0) {
+                            int nh = hash(table[j]) & (ncap - 1);
+                            while (nvalues[nh] >= 0) {
+                                nh = (nh + 1) & (ncap - 1);
+                            }
+                            ntable[nh] = table[j];
+                            nvalues[nh] = values[j];
+                        }
+                    }
+                    table = ntable;
+                    values = nvalues;
+                    cap = ncap;
+                }
+                ids[i] = n - 1;
+            } else {
+                ids[i] = values[h];
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Encode object keys to group ids numbered by first appearance
+     *
+     * @param a The array
+     * @param ids Output group ids
+     * @return Group number
+     */
+    public static int encode(Array a, int[] ids) {
+        long[] bits = getKeyBits(a);
+        if (bits != null) {
+            return encode(bits, ids);
+        }
+
+        Map<Object, Integer> map = new HashMap<>();
+        IndexIterator ii = a.getIndexIterator();
+        for (int i = 0; i < ids.length; i++) {
+            Object o = ii.getObjectNext();
+            Integer id = map.get(o);
+            if (id == null) {
+                id = map.size();
+                map.put(o, id);
+            }
+            ids[i] = id;
+        }
+        return map.size();
+    }
+
+    /**
+     * Encode the rows of key columns to group ids numbered by first
+     * appearance
+     *
+     * @param cols Key column arrays
+     * @param ids Output group ids
+     * @return Group number
+     */
+    public static int encode(List<Array> cols, int[] ids) {
+        int n = encode(cols.get(0), ids);
+        if (cols.size() > 1) {
+            int[] cids = new int[ids.length];
+            long[] keys = new long[ids.length];
+            for (int c = 1; c < cols.size(); c++) {
+                encode(cols.get(c), cids);
+                for (int i = 0; i < ids.length; i++) {
+                    keys[i] = ((long) ids[i] << 32) | (cids[i] & 0xffffffffL);
+                }
+                n = encode(keys, ids);
+            }
+        }
+        return n;
+    }
+
+    private static int hash(long k) {
+        long h = k * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+    // </editor-fold>
+    // <editor-fold desc="Sort">
+
+    /**
+     * Get row order sorted by multiple key columns
+     *
+     * @param keys Sort keys of the columns in priority order
+     * @param descending Descending order of the columns
+     * @param n Row number
+     * @return Sorted row indices
+     */
+    public static int[] order(List<long[]> keys, boolean[] descending, int n) {
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+        }
+        //Stable passes from the last key column to the first
+        for (int c = keys.size() - 1; c >= 0; c--) {
+            sort(rows, keys.get(c), descending[c]);
+        }
+        return rows;
+    }
+
+    /**
+     * Stable radix sort of row indices by sort keys
+     *
+     * @param rows Row indices, sorted in place
+     * @param keys Sort keys of each row
+     * @param descending Descending order or not
+     */
+    public static void sort(int[] rows, long[] keys, boolean descending) {
+        int n = rows.length;
+        int[] src = Arrays.copyOf(rows, n);
+        long[] k = new long[n];
+        long xor = descending ? Long.MAX_VALUE : Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            //Unsigned order of the flipped keys is the wanted order
+            k[i] = keys[src[i]] ^ xor;
+        }
+
+        int[] dst = new int[n];
+        long[] kd = new long[n];
+        int[] count = new int[RADIX_SIZE + 1];
+        for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < n; i++) {
+                count[(int) ((k[i] >>> shift) & (RADIX_SIZE - 1)) + 1] += 1;
+            }
+            //Skip the pass if all keys have same digit
+            boolean same = false;
+            for (int d = 1; d <= RADIX_SIZE; d++) {
+                if (count[d] > 0) {
+                    same = count[d] == n;
+                    break;
+                }
+            }
+            if (same) {
+                continue;
+            }
+            for (int d = 0; d < RADIX_SIZE; d++) {
+                count[d + 1] += count[d];
+            }
+            for (int i = 0; i < n; i++) {
+                int p = count[(int) ((k[i] >>> shift) & (RADIX_SIZE - 1))]++;
+                dst[p] = src[i];
+                kd[p] = k[i];
+            }
+            int[] tr = src;
+            src = dst;
+            dst = tr;
+            long[] tk = k;
+            k = kd;
+            kd = tk;
+        }
+        System.arraycopy(src, 0, rows, 0, n);
+    }
+
+    /**
+     * Take values of an array by row indices
+     *
+     * @param a The array
+     * @param rows Row indices
+     * @return Result array
+     */
+    public static Array take(Array a, int[] rows) {
+        int n = rows.length;
+        Array r = Array.factory(a.getDataType(), new int[]{n});
+        switch (a.getDataType()) {
+            case DOUBLE:
+                for (int i = 0; i < n; i++) {
+                    r.setDouble(i, a.getDouble(rows[i]));
+                }
+                break;
+            case FLOAT:
+                for (int i = 0; i < n; i++) {
+                    r.setFloat(i, a.getFloat(rows[i]));
+                }
+                break;
+            case LONG:
+                for (int i = 0; i < n; i++) {
+                    r.setLong(i, a.getLong(rows[i]));
+                }
+                break;
+            case INT:
+                for (int i = 0; i < n; i++) {
+                    r.setInt(i, a.getInt(rows[i]));
+                }
+                break;
+            case SHORT:
+                for (int i = 0; i < n; i++) {
+                    r.setShort(i, a.getShort(rows[i]));
+                }
+                break;
+            case BYTE:
+                for (int i = 0; i < n; i++) {
+                    r.setByte(i, a.getByte(rows[i]));
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    r.setObject(i, a.getObject(rows[i]));
+                }
+                break;
+        }
+        return r;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Aggregate">
+
+    /**
+     * Get primitive statistic of an aggregate function
+     *
+     * @param function The function
+     * @return Statistic, null if the function has no primitive accumulator
+     */
+    public static Statistic getStatistic(Function<?, ?> function) {
+        if (function instanceof Aggregation.Count) {
+            return Statistic.COUNT;
+        } else if (function instanceof Aggregation.Sum) {
+            return Statistic.SUM;
+        } else if (function instanceof Aggregation.Mean) {
+            return Statistic.MEAN;
+        } else if (function instanceof Aggregation.Min) {
+            return Statistic.MIN;
+        } else if (function instanceof Aggregation.Max) {
+            return Statistic.MAX;
+        } else if (function instanceof Aggregation.Variance) {
+            return Statistic.VARIANCE;
+        } else if (function instanceof Aggregation.StdDev) {
+            return Statistic.STDDEV;
+        }
+        return null;
+    }
+
+    /**
+     * Aggregate a numeric array by groups in one pass. NaN values are
+     * skipped and the statistic of a group without valid value is NaN, the
+     * count is an Integer and other statistics are Double as the boxed
+     * aggregate functions.
+     *
+     * @param a The numeric array
+     * @param ids Group id of each row
+     * @param groupNum Group number
+     * @param stat The statistic
+     * @return Statistic value of each group
+     */
+    public static Object[] aggregate(Array a, int[] ids, int groupNum, Statistic stat) {
+        int[] n = new int[groupNum];
+        double[] v = new double[groupNum];
+        double[] m2 = stat == Statistic.VARIANCE || stat == Statistic.STDDEV
+                ? new double[groupNum] : null;
+        IndexIterator ii = a.getIndexIterator();
+        for (int i = 0; i < ids.length; i++) {
+            double d = ii.getDoubleNext();
+            if (Double.isNaN(d)) {
+                continue;
+            }
+            int g = ids[i];
+            int gn = n[g] + 1;
+            n[g] = gn;
+            switch (stat) {
+                case SUM:
+                    v[g] += d;
+                    break;
+                case MIN:
+                    if (gn == 1 || d < v[g]) {
+                        v[g] = d;
+                    }
+                    break;
+                case MAX:
+                    if (gn == 1 || d > v[g]) {
+                        v[g] = d;
+                    }
+                    break;
+                case MEAN:
+                case VARIANCE:
+                case STDDEV:
+                    //Same updating formula as the first and second moments
+                    double dev = d - v[g];
+                    double nDev = dev / gn;
+                    v[g] += nDev;
+                    if (m2 != null) {
+                        m2[g] += ((double) gn - 1) * dev * nDev;
+                    }
+                    break;
+            }
+        }
+
+        Object[] r = new Object[groupNum];
+        for (int g = 0; g < groupNum; g++) {
+            if (stat == Statistic.COUNT) {
+                r[g] = n[g];
+            } else if (n[g] == 0) {
+                r[g] = Double.NaN;
+            } else if (m2 != null) {
+                double var = n[g] == 1 ? 0.0 : m2[g] / (n[g] - 1.0);
+                r[g] = stat == Statistic.STDDEV ? Math.sqrt(var) : var;
+            } else {
+                r[g] = v[g];
+            }
+        }
+        return r;
+    }
+    // </editor-fold>
+}
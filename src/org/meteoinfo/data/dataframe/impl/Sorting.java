@@ -22,13 +22,25 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import org.meteoinfo.data.dataframe.ColumnIndex;
 import org.meteoinfo.data.dataframe.DataFrame;
+import org.meteoinfo.data.dataframe.DateTimeIndex;
+import org.meteoinfo.data.dataframe.Index;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
 
 public class Sorting {
 
     public static <V> DataFrame sort(
             final DataFrame df, final Map<Integer, SortDirection> cols) {
+        final int[] order = order(df, cols);
+        if (order != null) {
+            return reorder(df, order);
+        }
+
         final Comparator<List<V>> comparator = new Comparator<List<V>>() {
             @Override
             @SuppressWarnings("unchecked")
@@ -66,7 +78,6 @@ public class Sorting {
 
     public static <V> DataFrame sort(
             final DataFrame df, final Comparator<List<V>> comparator) {
-        final DataFrame sorted = (DataFrame) df.clone();
         final Comparator<Integer> cmp = new Comparator<Integer>() {
             @Override
             public int compare(final Integer r1, final Integer r2) {
@@ -80,18 +91,11 @@ public class Sorting {
         }
         Arrays.sort(rows, cmp);
 
-        final List<Object> labels = new ArrayList<>(df.getIndex().getData());
-        int i = 0;
-        for (final Integer r : rows) {
-            final Object label = r < labels.size() ? labels.get(r) : r;
-            sorted.getIndex().set(i, label);
-            for (int c = 0; c < df.size(); c++) {
-                sorted.setValue(i, c, df.getValue(r, c));
-            }
-            i += 1;
+        final int[] order = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            order[i] = rows[i];
         }
-
-        return sorted;
+        return reorder(df, order);
     }
 
     public static <V> DataFrame sortIndex(
@@ -112,8 +116,14 @@ public class Sorting {
                 return result;
             }
         };
-        
-        final DataFrame sorted = (DataFrame) df.clone();
+
+        if (df.getIndex() instanceof DateTimeIndex) {
+            final List<long[]> keys = new ArrayList<>();
+            keys.add(((DateTimeIndex) df.getIndex()).getTimes());
+            return reorder(df, PrimitiveColumns.order(keys,
+                    new boolean[]{dir == SortDirection.DESCENDING}, df.length()));
+        }
+
         final Comparator<Integer> cmp = new Comparator<Integer>() {
             @Override
             public int compare(final Integer r1, final Integer r2) {
@@ -127,17 +137,70 @@ public class Sorting {
         }
         Arrays.sort(rows, cmp);
 
+        final int[] order = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            order[i] = rows[i];
+        }
+        return reorder(df, order);
+    }
+
+    /**
+     * Get sorted row order by radix sort of primitive keys
+     *
+     * @param df The data frame
+     * @param cols Sort columns and directions
+     * @return Sorted row indices, null if any sort column is not numeric or
+     * date time
+     */
+    private static int[] order(final DataFrame df, final Map<Integer, SortDirection> cols) {
+        final List<long[]> keys = new ArrayList<>(cols.size());
+        final boolean[] descending = new boolean[cols.size()];
+        try {
+            for (final Map.Entry<Integer, SortDirection> col : cols.entrySet()) {
+                final long[] k = PrimitiveColumns.getSortKeys(df.getColumnData(col.getKey()));
+                if (k == null) {
+                    return null;
+                }
+                descending[keys.size()] = col.getValue() == SortDirection.DESCENDING;
+                keys.add(k);
+            }
+        } catch (InvalidRangeException ex) {
+            Logger.getLogger(Sorting.class.getName()).log(Level.SEVERE, null, ex);
+            return null;
+        }
+        return PrimitiveColumns.order(keys, descending, df.length());
+    }
+
+    /**
+     * Create a data frame with rows in a new order
+     *
+     * @param df The data frame
+     * @param rows Row indices in new order
+     * @return Result data frame
+     */
+    private static DataFrame reorder(final DataFrame df, final int[] rows) {
         final List<Object> labels = new ArrayList<>(df.getIndex().getData());
-        int i = 0;
-        for (final Integer r : rows) {
-            final Object label = r < labels.size() ? labels.get(r) : r;
-            sorted.getIndex().set(i, label);
-            for (int c = 0; c < df.size(); c++) {
-                sorted.setValue(i, c, df.getValue(r, c));
+        final Index index = (Index) df.getIndex().clone();
+        for (int i = 0; i < rows.length; i++) {
+            final int r = rows[i];
+            index.set(i, r < labels.size() ? labels.get(r) : r);
+        }
+
+        if (df.isArray2D()) {
+            final DataFrame sorted = (DataFrame) df.clone();
+            sorted.setIndex(index);
+            for (int i = 0; i < rows.length; i++) {
+                for (int c = 0; c < df.size(); c++) {
+                    sorted.setValue(i, c, df.getValue(rows[i], c));
+                }
             }
-            i += 1;
+            return sorted;
         }
 
-        return sorted;
+        final List<Array> data = new ArrayList<>(df.size());
+        for (final Array a : (List<Array>) df.getData()) {
+            data.add(PrimitiveColumns.take(a, rows));
+        }
+        return new DataFrame(data, index, (ColumnIndex) df.getColumns().clone());
     }
 }
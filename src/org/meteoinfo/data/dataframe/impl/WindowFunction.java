@@ -5,6 +5,7 @@
  */
 package org.meteoinfo.data.dataframe.impl;
 
+import org.joda.time.Chronology;
 import org.joda.time.DateTime;
 import org.joda.time.Days;
 import org.joda.time.Hours;
@@ -13,6 +14,7 @@ import org.joda.time.Months;
 import org.joda.time.ReadablePeriod;
 import org.joda.time.Seconds;
 import org.joda.time.Years;
+import org.joda.time.chrono.ISOChronology;
 
 /**
  *
@@ -40,28 +42,54 @@ public class WindowFunction implements Function<DateTime, Object>{
 
     @Override
     public Object apply(DateTime value) {
-        DateTime ndt = new DateTime();
+        return new DateTime(floor(value.getMillis()));
+    }
+    
+    /**
+     * Get start time of the window containing a time. The window start is
+     * computed by calendar field arithmetic without creating DateTime objects
+     * except for unsupported period types.
+     * @param millis Time in epoch milliseconds
+     * @return Window start time in epoch milliseconds
+     */
+    public long floor(long millis) {
+        Chronology chrono = ISOChronology.getInstance();
+        long anchor;
+        int n, k;
         if (period instanceof Seconds) {
-            ndt = new DateTime(value.getYear(), value.getMonthOfYear(), value.getDayOfMonth(),
-                value.getHourOfDay(), value.getMinuteOfHour(), 0);            
+            anchor = chrono.minuteOfHour().roundFloor(millis);
+            long len = Math.max(1, ((Seconds) period).getSeconds()) * 1000L;
+            return anchor + (millis - anchor) / len * len;
         } else if (period instanceof Minutes) {
-            ndt = new DateTime(value.getYear(), value.getMonthOfYear(), value.getDayOfMonth(),
-                value.getHourOfDay(), 0, 0); 
+            anchor = chrono.hourOfDay().roundFloor(millis);
+            long len = Math.max(1, ((Minutes) period).getMinutes()) * 60000L;
+            return anchor + (millis - anchor) / len * len;
         } else if (period instanceof Hours) {
-            ndt = new DateTime(value.getYear(), value.getMonthOfYear(), value.getDayOfMonth(),
-                0, 0, 0);            
+            anchor = chrono.dayOfMonth().roundFloor(millis);
+            long len = Math.max(1, ((Hours) period).getHours()) * 3600000L;
+            return anchor + (millis - anchor) / len * len;
         } else if (period instanceof Days) {
-            ndt = new DateTime(value.getYear(), value.getMonthOfYear(), 1,
-                0, 0, 0);            
+            anchor = chrono.monthOfYear().roundFloor(millis);
+            n = Math.max(1, ((Days) period).getDays());
+            k = (chrono.dayOfMonth().get(millis) - 1) / n * n;
+            return chrono.days().add(anchor, k);
         } else if (period instanceof Months) {
-            ndt = new DateTime(value.getYear(), 1, 1,
-                0, 0, 0);            
+            anchor = chrono.year().roundFloor(millis);
+            n = Math.max(1, ((Months) period).getMonths());
+            k = (chrono.monthOfYear().get(millis) - 1) / n * n;
+            return chrono.months().add(anchor, k);
         } else if (period instanceof Years) {
-            int n = ((Years)period).getYears();
-            ndt = new DateTime(value.getYear() - n, 1, 1,
-                0, 0, 0);            
+            return chrono.year().roundFloor(millis);
+        } else {
+            return step(new DateTime(millis)).getMillis();
         }
-        
+    }
+    
+    /**
+     * Get window start by stepping the period
+     */
+    private DateTime step(DateTime value) {
+        DateTime ndt = new DateTime();
         while (ndt.isBefore(value)){
             ndt = ndt.plus(period);
         }
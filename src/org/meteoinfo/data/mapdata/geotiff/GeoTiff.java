@@ -24,7 +24,9 @@ import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,6 +36,8 @@ import org.meteoinfo.data.mapdata.geotiff.compression.CompressionDecoder;
 import org.meteoinfo.data.mapdata.geotiff.compression.DeflateCompression;
 import org.meteoinfo.data.mapdata.geotiff.compression.LZWCompression;
 import org.meteoinfo.global.DataConvert;
+import org.meteoinfo.global.Extent;
+import org.meteoinfo.global.util.ParallelUtil;
 import org.meteoinfo.global.util.BigDecimalUtil;
 import org.meteoinfo.projection.KnownCoordinateSystems;
 import org.meteoinfo.projection.ProjectionInfo;
@@ -64,6 +68,7 @@ public class GeoTiff {
     private int startOverflowData = 0;
     private int nextOverflowData = 0;
     private List<GeoKey> geokeys = new ArrayList();
+    private final List<List<IFDEntry>> ifdTags = new ArrayList<>();
     // </editor-fold>
     // <editor-fold desc="Constructor">
 
@@ -1191,6 +1196,397 @@ public class GeoTiff {
         return r;
     }
 
+    /**
+     * Find tag of an image level. Tags missing in an overview image are taken
+     * from the full resolution image.
+     *
+     * @param tag Tag
+     * @param level Image level, 0 is the full resolution image
+     * @return IFDEntry
+     */
+    IFDEntry findTag(Tag tag, int level) {
+        if (level > 0) {
+            for (IFDEntry ifd : this.ifdTags.get(this.getLevelIFDs().get(level))) {
+                if (ifd.tag == tag) {
+                    return ifd;
+                }
+            }
+        }
+        return findTag(tag);
+    }
+
+    /**
+     * Get IFD indices of the full resolution image and the reduced
+     * resolution overview images ordered from fine to coarse
+     *
+     * @return IFD indices
+     */
+    private List<Integer> getLevelIFDs() {
+        List<Integer> idxs = new ArrayList<>();
+        if (this.ifdTags.isEmpty()) {
+            return idxs;
+        }
+        idxs.add(0);
+        for (int i = 1; i < this.ifdTags.size(); i++) {
+            IFDEntry subfileTag = null;
+            IFDEntry widthTag = null;
+            for (IFDEntry ifd : this.ifdTags.get(i)) {
+                if (ifd.tag == Tag.NewSubfileType) {
+                    subfileTag = ifd;
+                } else if (ifd.tag == Tag.ImageWidth) {
+                    widthTag = ifd;
+                }
+            }
+            if (subfileTag != null && (subfileTag.value[0] & 1) != 0 && widthTag != null) {
+                idxs.add(i);
+            }
+        }
+        final List<List<IFDEntry>> ifds = this.ifdTags;
+        Collections.sort(idxs.subList(1, idxs.size()), new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Integer.compare(getWidth(ifds.get(b)), getWidth(ifds.get(a)));
+            }
+        });
+
+        return idxs;
+    }
+
+    private static int getWidth(List<IFDEntry> ifds) {
+        for (IFDEntry ifd : ifds) {
+            if (ifd.tag == Tag.ImageWidth) {
+                return ifd.value[0];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get image level number, including the full resolution image and the
+     * reduced resolution overview images
+     *
+     * @return Image level number
+     */
+    public int getLevelNum() {
+        return Math.max(1, this.getLevelIFDs().size());
+    }
+
+    /**
+     * Get image size of a level
+     *
+     * @param level Image level, 0 is the full resolution image
+     * @return Image height and width
+     */
+    public int[] getImageSize(int level) {
+        return new int[]{this.findTag(Tag.ImageLength, level).value[0],
+            this.findTag(Tag.ImageWidth, level).value[0]};
+    }
+
+    /**
+     * Read a window of the array data. The origin, size and stride are in the
+     * dimension order and orientation of readArray().
+     *
+     * @param origin The origin array
+     * @param size The size array
+     * @param stride The stride array, null means 1
+     * @return Array data
+     * @throws IOException
+     */
+    public Array readArray(int[] origin, int[] size, int[] stride) throws IOException {
+        return readArray(origin, size, stride, false);
+    }
+
+    /**
+     * Read a window of the array data. The origin, size and stride are in the
+     * dimension order and orientation of readArray(). If overview is used, the
+     * coarsest overview image whose resolution is not coarser than the stride
+     * is read, so the values may be resampled by the file writer.
+     *
+     * @param origin The origin array
+     * @param size The size array
+     * @param stride The stride array, null means 1
+     * @param useOverview If use the overview images
+     * @return Array data
+     * @throws IOException
+     */
+    public Array readArray(int[] origin, int[] size, int[] stride, boolean useOverview) throws IOException {
+        if (stride == null) {
+            stride = new int[origin.length];
+            Arrays.fill(stride, 1);
+        }
+        int[] fullSize = this.getImageSize(0);
+        int height = fullSize[0];
+        int width = fullSize[1];
+        int level = 0;
+        if (useOverview) {
+            for (int l = this.getLevelNum() - 1; l > 0; l--) {
+                int[] lSize = this.getImageSize(l);
+                if ((double) height / lSize[0] <= stride[0] && (double) width / lSize[1] <= stride[1]) {
+                    level = l;
+                    break;
+                }
+            }
+        }
+
+        int[] lSize = this.getImageSize(level);
+        double fy = (double) height / lSize[0];
+        double fx = (double) width / lSize[1];
+        int[] rows = new int[size[0]];
+        for (int i = 0; i < rows.length; i++) {
+            int row = height - 1 - (origin[0] + i * stride[0]);
+            rows[i] = Math.min(lSize[0] - 1, (int) (row / fy));
+        }
+        int[] cols = new int[size[1]];
+        for (int j = 0; j < cols.length; j++) {
+            cols[j] = Math.min(lSize[1] - 1, (int) ((origin[1] + j * stride[1]) / fx));
+        }
+        int[] bands = null;
+        if (origin.length > 2) {
+            bands = new int[size[2]];
+            for (int k = 0; k < bands.length; k++) {
+                bands[k] = origin[2] + k * stride[2];
+            }
+        }
+
+        return readSamples(level, rows, cols, bands);
+    }
+
+    /**
+     * Read the array data in a geographic extent
+     *
+     * @param extent The extent
+     * @param xStride X stride
+     * @param yStride Y stride
+     * @return Array data, null if the extent is out of the image
+     * @throws IOException
+     */
+    public Array readArray(Extent extent, int xStride, int yStride) throws IOException {
+        List<double[]> xy = this.readXY();
+        int[] xr = indexRange(xy.get(0), extent.minX, extent.maxX);
+        int[] yr = indexRange(xy.get(1), extent.minY, extent.maxY);
+        if (xr == null || yr == null) {
+            return null;
+        }
+
+        int[] origin, size, stride;
+        if (this.getBandNum() > 1) {
+            origin = new int[]{yr[0], xr[0], 0};
+            size = new int[]{(yr[1] - yr[0]) / yStride + 1, (xr[1] - xr[0]) / xStride + 1, this.getBandNum()};
+            stride = new int[]{yStride, xStride, 1};
+        } else {
+            origin = new int[]{yr[0], xr[0]};
+            size = new int[]{(yr[1] - yr[0]) / yStride + 1, (xr[1] - xr[0]) / xStride + 1};
+            stride = new int[]{yStride, xStride};
+        }
+
+        return readArray(origin, size, stride, true);
+    }
+
+    private static int[] indexRange(double[] values, double min, double max) {
+        int first = -1, last = -1;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] >= min && values[i] <= max) {
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        if (first < 0) {
+            return null;
+        }
+        return new int[]{first, last};
+    }
+
+    /**
+     * Read samples of an image level. Only the tiles or strips containing the
+     * samples are read, and they are decoded in parallel.
+     *
+     * @param level Image level
+     * @param rows File row index (from top) of each result row
+     * @param cols Column index of each result column
+     * @param bands Band indices, null for all bands
+     * @return Array data
+     * @throws IOException
+     */
+    private Array readSamples(final int level, final int[] rows, final int[] cols, int[] bands) throws IOException {
+        int width = this.findTag(Tag.ImageWidth, level).value[0];
+        int height = this.findTag(Tag.ImageLength, level).value[0];
+        final int samplesPerPixel = this.findTag(Tag.SamplesPerPixel, level).value[0];
+        final int bitsPerSample = this.findTag(Tag.BitsPerSample, level).value[0];
+        IFDEntry sampleFormatTag = this.findTag(Tag.SampleFormat, level);
+        int sampleFormat = sampleFormatTag == null ? 0 : sampleFormatTag.value[0];
+        final DataType dataType;
+        if (sampleFormat == 3) {
+            dataType = bitsPerSample == 64 ? DataType.DOUBLE : DataType.FLOAT;
+        } else {
+            dataType = DataType.INT;
+        }
+        if (bands == null) {
+            bands = new int[samplesPerPixel];
+            for (int k = 0; k < samplesPerPixel; k++) {
+                bands[k] = k;
+            }
+        }
+        final int[] bandIdxs = bands;
+        int[] shape;
+        if (samplesPerPixel == 1) {
+            shape = new int[]{rows.length, cols.length};
+        } else {
+            shape = new int[]{rows.length, cols.length, bandIdxs.length};
+        }
+        final Array r = Array.factory(dataType, shape);
+        IFDEntry compressionTag = this.findTag(Tag.Compression, level);
+        final int compression = compressionTag == null ? 1 : compressionTag.value[0];
+
+        //Tiles or strips
+        final int chunkWidth, chunkHeight, hChunkNum, vChunkNum;
+        final IFDEntry offsetTag, sizeTag;
+        IFDEntry tileOffsetTag = this.findTag(Tag.TileOffsets, level);
+        if (tileOffsetTag != null) {
+            offsetTag = tileOffsetTag;
+            sizeTag = this.findTag(Tag.TileByteCounts, level);
+            chunkWidth = this.findTag(Tag.TileWidth, level).value[0];
+            chunkHeight = this.findTag(Tag.TileLength, level).value[0];
+        } else {
+            offsetTag = this.findTag(Tag.StripOffsets, level);
+            sizeTag = this.findTag(Tag.StripByteCounts, level);
+            IFDEntry rowsPerStripTag = this.findTag(Tag.RowsPerStrip, level);
+            chunkWidth = width;
+            //The default 2**32-1 (one strip) is read as -1
+            int rowsPerStrip = rowsPerStripTag == null ? height : rowsPerStripTag.value[0];
+            chunkHeight = rowsPerStrip <= 0 || rowsPerStrip > height ? height : rowsPerStrip;
+        }
+        hChunkNum = (width + chunkWidth - 1) / chunkWidth;
+        vChunkNum = (height + chunkHeight - 1) / chunkHeight;
+
+        //Result rows and columns in each chunk row and column
+        final List<List<Integer>> chunkRows = new ArrayList<>();
+        for (int i = 0; i < vChunkNum; i++) {
+            chunkRows.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < rows.length; i++) {
+            chunkRows.get(rows[i] / chunkHeight).add(i);
+        }
+        final List<List<Integer>> chunkCols = new ArrayList<>();
+        for (int j = 0; j < hChunkNum; j++) {
+            chunkCols.add(new ArrayList<Integer>());
+        }
+        for (int j = 0; j < cols.length; j++) {
+            chunkCols.get(cols[j] / chunkWidth).add(j);
+        }
+        final List<int[]> chunks = new ArrayList<>();
+        for (int i = 0; i < vChunkNum; i++) {
+            if (chunkRows.get(i).isEmpty()) {
+                continue;
+            }
+            for (int j = 0; j < hChunkNum; j++) {
+                if (!chunkCols.get(j).isEmpty()) {
+                    chunks.add(new int[]{i, j});
+                }
+            }
+        }
+
+        final int bytesPerSample = bitsPerSample / 8;
+        final int colNum = cols.length;
+        final int bandNum = bandIdxs.length;
+        final IOException[] error = new IOException[1];
+        ParallelUtil.parallelFor(chunks.size(), 1, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                try {
+                    for (int c = start; c < end; c++) {
+                        int ci = chunks.get(c)[0];
+                        int cj = chunks.get(c)[1];
+                        int chunkIdx = ci * hChunkNum + cj;
+                        long offset = offsetTag.value[chunkIdx] & 0xFFFFFFFFL;
+                        int byteCount = sizeTag.value[chunkIdx];
+                        if (byteCount == 0) {
+                            continue;
+                        }
+                        ByteBuffer buffer = readBytes(offset, byteCount);
+                        CompressionDecoder cDecoder = null;
+                        switch (compression) {
+                            case 5:
+                                cDecoder = new LZWCompression();
+                                break;
+                            case 8:
+                                cDecoder = new DeflateCompression();
+                                break;
+                        }
+                        if (cDecoder != null) {
+                            buffer = ByteBuffer.wrap(cDecoder.decode(buffer.array(), byteOrder));
+                            buffer.order(byteOrder);
+                        }
+                        for (int i : chunkRows.get(ci)) {
+                            int h = rows[i] - ci * chunkHeight;
+                            for (int j : chunkCols.get(cj)) {
+                                int w = cols[j] - cj * chunkWidth;
+                                int pixel = (h * chunkWidth + w) * samplesPerPixel;
+                                int idx = (i * colNum + j) * bandNum;
+                                for (int k = 0; k < bandNum; k++) {
+                                    int pos = (pixel + bandIdxs[k]) * bytesPerSample;
+                                    if (pos + bytesPerSample > buffer.limit()) {
+                                        continue;
+                                    }
+                                    switch (bitsPerSample) {
+                                        case 8:
+                                            r.setInt(idx + k, DataConvert.byte2Int(buffer.get(pos)));
+                                            break;
+                                        case 16:
+                                            r.setInt(idx + k, buffer.getShort(pos));
+                                            break;
+                                        case 32:
+                                            if (dataType == DataType.FLOAT) {
+                                                r.setFloat(idx + k, buffer.getFloat(pos));
+                                            } else {
+                                                r.setInt(idx + k, buffer.getInt(pos));
+                                            }
+                                            break;
+                                        case 64:
+                                            r.setDouble(idx + k, buffer.getDouble(pos));
+                                            break;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                } catch (IOException ex) {
+                    synchronized (error) {
+                        error[0] = ex;
+                    }
+                }
+            }
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+
+        return r;
+    }
+
+    /**
+     * Read bytes at a file position without moving the channel position, so
+     * it can be called by multiple threads
+     *
+     * @param offset Offset
+     * @param size Size
+     * @return Byte buffer
+     * @throws IOException
+     */
+    private ByteBuffer readBytes(long offset, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.order(this.byteOrder);
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, offset + buffer.position()) < 0) {
+                break;
+            }
+        }
+        ((Buffer) buffer).flip();
+
+        return buffer;
+    }
+
     /**
      * Test read data
      *
@@ -1270,6 +1666,7 @@ public class GeoTiff {
         }
 
         start += 2;
+        List<IFDEntry> ifdEntries = new ArrayList<>();
         for (int i = 0; i < nentries; i++) {
             IFDEntry ifd = readIFDEntry(channel, start);
             if (this.debugRead) {
@@ -1277,8 +1674,10 @@ public class GeoTiff {
             }
 
             this.tags.add(ifd);
+            ifdEntries.add(ifd);
             start += 12;
         }
+        this.ifdTags.add(ifdEntries);
 
         if (this.debugRead) {
             System.out.println(" looking for nextIFD at pos == " + channel.position() + " start = " + start);
@@ -252,15 +252,8 @@ public abstract class AbstractTileFactory extends TileFactory {
         int trys = 3;
         while (!tile.isLoaded() && trys > 0) {
             try {
-                BufferedImage img = null;
                 URI uri = getURI(tile);
-                img = cache.get(uri);
-                if (img == null) {
-                    byte[] bimg = cacheInputStream(uri.toURL());
-                    img = GraphicsUtilities.loadCompatibleImage(new ByteArrayInputStream(bimg));//ImageIO.read(new URL(tile.url));
-                    cache.put(uri, bimg, img);
-                    img = cache.get(uri);
-                }
+                BufferedImage img = loadImage(tile, uri);
                 if (img == null) {
                     System.out.println("error loading: " + uri);
                     LOG.log(Level.INFO, "Failed to load: " + uri);
@@ -306,6 +299,31 @@ public abstract class AbstractTileFactory extends TileFactory {
         return new URI(tile.getURL());
     }
 
+    /**
+     * Load tile image from the memory cache, the disk cache or the tile url.
+     * In offline mode of the disk cache only local file urls are read.
+     *
+     * @param tile The tile
+     * @param uri Tile URI
+     * @return Tile image, null if not available
+     * @throws IOException
+     */
+    private BufferedImage loadImage(Tile tile, URI uri) throws IOException {
+        String provider = getInfo().getName();
+        BufferedImage img = cache.get(uri, provider, tile.getZoom(), tile.getX(), tile.getY());
+        if (img == null) {
+            DiskTileCache diskCache = cache.getDiskCache();
+            if (diskCache != null && diskCache.isOffline() && !"file".equalsIgnoreCase(uri.getScheme())) {
+                return null;
+            }
+            byte[] bimg = cacheInputStream(uri.toURL());
+            img = GraphicsUtilities.loadCompatibleImage(new ByteArrayInputStream(bimg));//ImageIO.read(new URL(tile.url));
+            cache.put(uri, provider, tile.getZoom(), tile.getX(), tile.getY(), bimg, img);
+            img = cache.get(uri);
+        }
+        return img;
+    }
+
     private byte[] cacheInputStream(URL url) throws IOException {
         InputStream ins = url.openStream();
         ByteArrayOutputStream bout = new ByteArrayOutputStream();
@@ -390,15 +408,8 @@ public abstract class AbstractTileFactory extends TileFactory {
             int trys = 3;
             while (!tile.isLoaded() && trys > 0) {
                 try {
-                    BufferedImage img = null;
                     URI uri = getURI(tile);
-                    img = cache.get(uri);
-                    if (img == null) {
-                        byte[] bimg = cacheInputStream(uri.toURL());
-                        img = GraphicsUtilities.loadCompatibleImage(new ByteArrayInputStream(bimg));//ImageIO.read(new URL(tile.url));
-                        cache.put(uri, bimg, img);
-                        img = cache.get(uri);
-                    }
+                    BufferedImage img = loadImage(tile, uri);
                     if (img == null) {
                         System.out.println("error loading: " + uri);
                         LOG.log(Level.INFO, "Failed to load: " + uri);
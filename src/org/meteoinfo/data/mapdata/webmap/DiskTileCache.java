@@ -0,0 +1,370 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.data.mapdata.webmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Disk tile cache. Tiles are stored as provider/zoom/x/y files under the
+ * cache directory, so the cache is shared by all tile factories and
+ * processes using the same directory, and pre-seeded tile directories with
+ * the same layout can be used directly.
+ *
+ * Files are written to a temporary file and moved in place, so readers never
+ * see partial tiles. The cache size is bounded by least recently used
+ * eviction, or by maximum tile age if it is set. Only files matching the tile
+ * layout and extension are counted, evicted or cleared, so other files in the
+ * directory are left alone.
+ *
+ * @author Yaqiang Wang
+ */
+public class DiskTileCache {
+    // <editor-fold desc="Variables">
+
+    private static DiskTileCache defaultCache = null;
+    private final File directory;
+    private long maxSize = 500L * 1024 * 1024;
+    private long maxAge = 0;
+    private boolean offline = false;
+    private String extension = ".png";
+    private long size = -1;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor
+     *
+     * @param directory Cache directory
+     */
+    public DiskTileCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param directory Cache directory
+     */
+    public DiskTileCache(String directory) {
+        this(new File(directory));
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get default disk tile cache used by new tile caches
+     *
+     * @return Default disk tile cache, null if disk cache is not used
+     */
+    public static synchronized DiskTileCache getDefault() {
+        return defaultCache;
+    }
+
+    /**
+     * Set default disk tile cache used by new tile caches
+     *
+     * @param value Default disk tile cache, null to disable disk cache
+     */
+    public static synchronized void setDefault(DiskTileCache value) {
+        defaultCache = value;
+    }
+
+    /**
+     * Get cache directory
+     *
+     * @return Cache directory
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Get maximum cache size in bytes
+     *
+     * @return Maximum cache size
+     */
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Set maximum cache size in bytes
+     *
+     * @param value Maximum cache size
+     */
+    public void setMaxSize(long value) {
+        this.maxSize = value;
+    }
+
+    /**
+     * Get maximum tile age in milliseconds. 0 means tiles never expire and
+     * least recently used tiles are evicted.
+     *
+     * @return Maximum tile age
+     */
+    public long getMaxAge() {
+        return this.maxAge;
+    }
+
+    /**
+     * Set maximum tile age in milliseconds. 0 means tiles never expire and
+     * least recently used tiles are evicted.
+     *
+     * @param value Maximum tile age
+     */
+    public void setMaxAge(long value) {
+        this.maxAge = value;
+    }
+
+    /**
+     * Get if is offline - tiles are only read from the cache or local files
+     *
+     * @return Boolean
+     */
+    public boolean isOffline() {
+        return this.offline;
+    }
+
+    /**
+     * Set if is offline - tiles are only read from the cache or local files
+     *
+     * @param value Boolean
+     */
+    public void setOffline(boolean value) {
+        this.offline = value;
+    }
+
+    /**
+     * Get tile file extension
+     *
+     * @return Tile file extension
+     */
+    public String getExtension() {
+        return this.extension;
+    }
+
+    /**
+     * Set tile file extension
+     *
+     * @param value Tile file extension
+     */
+    public void setExtension(String value) {
+        this.extension = value;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Get tile file
+     *
+     * @param provider Tile provider name
+     * @param zoom Zoom level
+     * @param x Tile x
+     * @param y Tile y
+     * @return Tile file
+     */
+    public File getTileFile(String provider, int zoom, int x, int y) {
+        String name = provider == null ? "default" : provider.replaceAll("[^A-Za-z0-9_\\-]", "_");
+        return new File(directory, name + File.separator + String.valueOf(zoom) + File.separator
+                + String.valueOf(x) + File.separator + String.valueOf(y) + extension);
+    }
+
+    /**
+     * Get tile bytes from the cache
+     *
+     * @param provider Tile provider name
+     * @param zoom Zoom level
+     * @param x Tile x
+     * @param y Tile y
+     * @return Tile bytes, null if the tile is not cached or expired
+     */
+    public byte[] get(String provider, int zoom, int x, int y) {
+        File file = getTileFile(provider, zoom, x, y);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (maxAge > 0 && !offline && now - file.lastModified() > maxAge) {
+            synchronized (this) {
+                long len = file.length();
+                if (file.delete() && size >= 0) {
+                    size -= len;
+                }
+            }
+            return null;
+        }
+
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (maxAge <= 0) {
+                file.setLastModified(now);
+            }
+            return bytes;
+        } catch (IOException ex) {
+            Logger.getLogger(DiskTileCache.class.getName()).log(Level.WARNING, null, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Put tile bytes into the cache
+     *
+     * @param provider Tile provider name
+     * @param zoom Zoom level
+     * @param x Tile x
+     * @param y Tile y
+     * @param bytes Tile bytes
+     */
+    public void put(String provider, int zoom, int x, int y, byte[] bytes) {
+        File file = getTileFile(provider, zoom, x, y);
+        try {
+            File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+                return;
+            }
+            Path tmp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+            Files.write(tmp, bytes);
+            long oldLen = file.isFile() ? file.length() : 0;
+            try {
+                Files.move(tmp, file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            synchronized (this) {
+                if (size < 0) {
+                    size = computeSize();
+                } else {
+                    size += bytes.length - oldLen;
+                }
+                if (maxSize > 0 && size > maxSize) {
+                    evict();
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(DiskTileCache.class.getName()).log(Level.WARNING, null, ex);
+        }
+    }
+
+    /**
+     * Remove all cached tiles
+     */
+    public synchronized void clear() {
+        for (File file : listTileFiles()) {
+            file.delete();
+        }
+        size = 0;
+    }
+
+    private long computeSize() {
+        long r = 0;
+        for (File file : listTileFiles()) {
+            r += file.length();
+        }
+        return r;
+    }
+
+    private void evict() {
+        List<File> files = listTileFiles();
+        final long now = System.currentTimeMillis();
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        Collections.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+
+        long target = maxSize * 9 / 10;
+        for (File file : files) {
+            boolean expired = maxAge > 0 && now - file.lastModified() > maxAge;
+            if (total <= target && !expired) {
+                break;
+            }
+            long len = file.length();
+            if (file.delete()) {
+                total -= len;
+            }
+        }
+        size = total;
+    }
+
+    /**
+     * Get if a file is a tile of the cache, its path relative to the cache
+     * directory must be provider/zoom/x/y with the tile extension
+     */
+    private boolean isTileFile(Path root, Path file) {
+        Path rel = root.relativize(file);
+        if (rel.getNameCount() != 4) {
+            return false;
+        }
+        String name = rel.getName(3).toString();
+        if (!name.endsWith(extension)) {
+            return false;
+        }
+        return rel.getName(0).toString().matches("[A-Za-z0-9_\\-]+")
+                && rel.getName(1).toString().matches("\\d+")
+                && rel.getName(2).toString().matches("-?\\d+")
+                && name.substring(0, name.length() - extension.length()).matches("-?\\d+");
+    }
+
+    private List<File> listTileFiles() {
+        final List<File> files = new ArrayList<>();
+        if (!directory.isDirectory()) {
+            return files;
+        }
+        final Path root = directory.toPath();
+        try {
+            Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), 4, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && isTileFile(root, file)) {
+                        files.add(file.toFile());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ex) {
+            Logger.getLogger(DiskTileCache.class.getName()).log(Level.WARNING, null, ex);
+        }
+        return files;
+    }
+    // </editor-fold>
+}
@@ -30,10 +30,73 @@ public class TileCache {
   private final Map<URI, byte[]> bytemap = new HashMap<>();
   private final LinkedList<URI> bytemapAccessQueue = new LinkedList<>();
   private int bytesize = 0;
+  private DiskTileCache diskCache = DiskTileCache.getDefault();
 
     
   public TileCache() { }
 
+  /**
+   * Get disk tile cache
+   *
+   * @return Disk tile cache, null if not used
+   */
+  public DiskTileCache getDiskCache() {
+      return diskCache;
+  }
+
+  /**
+   * Set disk tile cache
+   *
+   * @param value Disk tile cache, null to disable disk cache
+   */
+  public void setDiskCache(DiskTileCache value) {
+      diskCache = value;
+  }
+
+  /**
+   * Put a tile image into the cache and the disk cache.
+   *
+   * @param uri URI of the image
+   * @param provider Tile provider name
+   * @param zoom Zoom level
+   * @param x Tile x
+   * @param y Tile y
+   * @param bimg Bytes of the compressed image
+   * @param img Image to store in the cache
+   */
+  public void put(URI uri, String provider, int zoom, int x, int y, byte[] bimg, BufferedImage img) {
+      put(uri, bimg, img);
+      if (diskCache != null && !"file".equalsIgnoreCase(uri.getScheme())) {
+          diskCache.put(provider, zoom, x, y, bimg);
+      }
+  }
+
+  /**
+   * Returns a buffered image for the requested tile from the memory cache, or
+   * from the disk cache if it is not in memory.
+   *
+   * @param uri URI of the image
+   * @param provider Tile provider name
+   * @param zoom Zoom level
+   * @param x Tile x
+   * @param y Tile y
+   * @return The image or null if not available
+   * @throws java.io.IOException
+   */
+  public BufferedImage get(URI uri, String provider, int zoom, int x, int y) throws IOException {
+      BufferedImage img = get(uri);
+      if (img == null && diskCache != null) {
+          byte[] bimg = diskCache.get(provider, zoom, x, y);
+          if (bimg != null) {
+              img = ImageIO.read(new ByteArrayInputStream(bimg));
+              if (img != null) {
+                  put(uri, bimg, img);
+              }
+          }
+      }
+      return img;
+  }
+
   /**
    * Put a tile image into the cache. This puts both a buffered image and array of bytes that make up the compressed image.
    *
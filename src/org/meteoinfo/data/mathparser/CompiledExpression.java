@@ -0,0 +1,435 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.meteoinfo.data.mathparser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import org.meteoinfo.data.GridData;
+import org.meteoinfo.global.MIMath;
+import org.meteoinfo.global.util.ParallelUtil;
+
+/**
+ * Compiled math expression. The parsed expression queue is built into an
+ * expression tree once and can be evaluated many times with different
+ * variable values, e.g. for each time step of a data set.
+ *
+ * If all variables are grid data with same dimensions, the whole expression
+ * is evaluated row by row in one pass without intermediate grids. Otherwise
+ * each operation is evaluated by DataMath.
+ *
+ * @author yaqiang
+ */
+public class CompiledExpression {
+
+    // <editor-fold desc="Variables">
+    private static final int MIN_CHUNK_ELEMENTS = 65536;
+    private final String _expression;
+    private final List<Node> _nodes = new ArrayList<Node>();
+    private final Map<String, Node> _variables = new LinkedHashMap<String, Node>();
+    private final Node _root;
+    private boolean _parallel = true;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor
+     *
+     * @param expression The expression string
+     * @param queue Parsed expression queue in postfix order
+     * @throws ParseException
+     */
+    public CompiledExpression(String expression, Iterable<IExpression> queue) throws ParseException {
+        _expression = expression;
+        Stack<Node> stack = new Stack<Node>();
+        for (IExpression e : queue) {
+            if (stack.size() < e.getArgumentCount()) {
+                throw new ParseException("Not enough numbers" + e);
+            }
+
+            Node node;
+            if (e instanceof VariableExpression) {
+                String name = ((VariableExpression) e).getName();
+                node = _variables.get(name);
+                if (node == null) {
+                    node = add(new Node(e, name));
+                    _variables.put(name, node);
+                }
+            } else if (e.getArgumentCount() == 0) {
+                node = add(new Node(e.evaluate(new Object[0])));
+            } else if (e.getArgumentCount() == 1) {
+                Node a = stack.pop();
+                if (a.isConstant()) {
+                    node = add(new Node(e.evaluate(new Object[]{a.value})));
+                } else {
+                    node = add(new Node(e, a, null));
+                }
+            } else if (e.getArgumentCount() == 2) {
+                Node b = stack.pop();
+                Node a = stack.pop();
+                if (a.isConstant() && b.isConstant()) {
+                    node = add(new Node(e.evaluate(new Object[]{a.value, b.value})));
+                } else {
+                    node = add(new Node(e, a, b));
+                }
+            } else {
+                throw new ParseException("Invalid expression: " + e);
+            }
+            stack.push(node);
+        }
+
+        if (stack.size() != 1) {
+            throw new ParseException("Invalid expression: " + expression);
+        }
+        _root = stack.pop();
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get expression string
+     *
+     * @return Expression string
+     */
+    public String getExpression() {
+        return _expression;
+    }
+
+    /**
+     * Get variable names used in the expression
+     *
+     * @return Variable names
+     */
+    public List<String> getVariableNames() {
+        return new ArrayList<String>(_variables.keySet());
+    }
+
+    /**
+     * Get if grid rows are evaluated in parallel
+     *
+     * @return Boolean
+     */
+    public boolean isParallel() {
+        return _parallel;
+    }
+
+    /**
+     * Set if grid rows are evaluated in parallel
+     *
+     * @param value Boolean
+     */
+    public void setParallel(boolean value) {
+        _parallel = value;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    private Node add(Node node) {
+        node.slot = _nodes.size();
+        _nodes.add(node);
+        return node;
+    }
+
+    /**
+     * Evaluate the expression
+     *
+     * @param values Variable values by variable name
+     * @return Result - GridData, StationData or Double
+     * @throws ParseException
+     */
+    public Object evaluate(Map<String, Object> values) throws ParseException {
+        for (String name : _variables.keySet()) {
+            if (values.get(name) == null) {
+                throw new ParseException("Invalid variable: " + name);
+            }
+        }
+
+        GridData template = getGridTemplate(values);
+        if (template != null) {
+            return evaluateGrid(values, template);
+        }
+
+        Object[] results = new Object[_nodes.size()];
+        for (Node node : _nodes) {
+            if (node.isConstant()) {
+                results[node.slot] = node.value;
+            } else if (node.name != null) {
+                results[node.slot] = node.expression.evaluate(new Object[]{values.get(node.name)});
+            } else if (node.right == null) {
+                results[node.slot] = node.expression.evaluate(new Object[]{results[node.left.slot]});
+            } else {
+                results[node.slot] = node.expression.evaluate(new Object[]{results[node.left.slot],
+                    results[node.right.slot]});
+            }
+        }
+
+        return results[_root.slot];
+    }
+
+    /**
+     * Get the first variable grid if all variables are grid data with same
+     * dimensions
+     */
+    private GridData getGridTemplate(Map<String, Object> values) {
+        GridData template = null;
+        for (String name : _variables.keySet()) {
+            Object value = values.get(name);
+            if (value.getClass() != GridData.class) {
+                return null;
+            }
+            GridData grid = (GridData) value;
+            if (template == null) {
+                template = grid;
+            } else if (grid.getXNum() != template.getXNum() || grid.getYNum() != template.getYNum()) {
+                return null;
+            }
+        }
+        return template;
+    }
+
+    private GridData evaluateGrid(Map<String, Object> values, GridData template) {
+        final int xNum = template.getXNum();
+        final int yNum = template.getYNum();
+        final double missingValue = template.missingValue;
+        final GridData[] grids = new GridData[_nodes.size()];
+        for (Map.Entry<String, Node> entry : _variables.entrySet()) {
+            grids[entry.getValue().slot] = (GridData) values.get(entry.getKey());
+        }
+        final GridData result = new GridData(template);
+
+        ParallelUtil.RangeTask task = new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                int n = _nodes.size();
+                double[][] buffers = new double[n][];
+                for (Node node : _nodes) {
+                    if (node.isConstant()) {
+                        buffers[node.slot] = new double[xNum];
+                        Arrays.fill(buffers[node.slot], node.getConstant());
+                    } else if (node != _root) {
+                        buffers[node.slot] = new double[xNum];
+                    }
+                }
+                for (int i = start; i < end; i++) {
+                    double[] r = result.data[i];
+                    if (_root.isConstant()) {
+                        System.arraycopy(buffers[_root.slot], 0, r, 0, xNum);
+                    } else {
+                        buffers[_root.slot] = r;
+                    }
+                    for (Node node : _nodes) {
+                        if (!node.isConstant()) {
+                            node.evaluateRow(buffers, grids, i, xNum);
+                        }
+                    }
+                    for (int j = 0; j < xNum; j++) {
+                        if (Double.isNaN(r[j])) {
+                            r[j] = missingValue;
+                        }
+                    }
+                }
+            }
+        };
+
+        if (_parallel) {
+            ParallelUtil.parallelFor(yNum, Math.max(1, MIN_CHUNK_ELEMENTS / Math.max(1, xNum)), task);
+        } else {
+            task.run(0, yNum);
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return _expression;
+    }
+
+    /**
+     * Expression tree node. Nodes are stored in postfix order, so the
+     * children of a node are always evaluated before the node.
+     */
+    private static class Node {
+
+        private final IExpression expression;
+        private final String name;
+        private final Object value;
+        private final Node left;
+        private final Node right;
+        private final boolean isGrid;
+        private final MathOperators operator;
+        private final String function;
+        private int slot;
+
+        /**
+         * Constant node
+         */
+        Node(Object value) {
+            this.expression = null;
+            this.name = null;
+            this.value = value;
+            this.left = null;
+            this.right = null;
+            this.isGrid = false;
+            this.operator = null;
+            this.function = null;
+        }
+
+        /**
+         * Variable node
+         */
+        Node(IExpression expression, String name) {
+            this.expression = expression;
+            this.name = name;
+            this.value = null;
+            this.left = null;
+            this.right = null;
+            this.isGrid = true;
+            this.operator = null;
+            this.function = null;
+        }
+
+        /**
+         * Operator or function node
+         */
+        Node(IExpression expression, Node left, Node right) {
+            this.expression = expression;
+            this.name = null;
+            this.value = null;
+            this.left = left;
+            this.right = right;
+            this.isGrid = left.isGrid || (right != null && right.isGrid);
+            if (expression instanceof OperatorExpression) {
+                this.operator = ((OperatorExpression) expression).getMathOperator();
+                this.function = null;
+            } else {
+                this.operator = null;
+                this.function = ((FunctionExpression) expression).getFunction();
+            }
+        }
+
+        boolean isConstant() {
+            return expression == null;
+        }
+
+        double getConstant() {
+            return Double.parseDouble(value.toString());
+        }
+
+        /**
+         * Evaluate a grid row, missing values are NaN
+         */
+        void evaluateRow(double[][] buffers, GridData[] grids, int row, int n) {
+            double[] r = buffers[slot];
+            if (name != null) {
+                GridData grid = grids[slot];
+                double[] d = grid.data[row];
+                double missingValue = grid.missingValue;
+                for (int j = 0; j < n; j++) {
+                    r[j] = MIMath.doubleEquals(d[j], missingValue) ? Double.NaN : d[j];
+                }
+            } else if (operator != null) {
+                double[] a = buffers[left.slot];
+                double[] b = buffers[right.slot];
+                switch (operator) {
+                    case Add:
+                        for (int j = 0; j < n; j++) {
+                            r[j] = a[j] + b[j];
+                        }
+                        break;
+                    case Subtract:
+                        for (int j = 0; j < n; j++) {
+                            r[j] = a[j] - b[j];
+                        }
+                        break;
+                    case Multiple:
+                        for (int j = 0; j < n; j++) {
+                            r[j] = a[j] * b[j];
+                        }
+                        break;
+                    case Divide:
+                        if (right.isGrid) {
+                            for (int j = 0; j < n; j++) {
+                                r[j] = b[j] == 0 ? Double.NaN : a[j] / b[j];
+                            }
+                        } else {
+                            for (int j = 0; j < n; j++) {
+                                r[j] = a[j] / b[j];
+                            }
+                        }
+                        break;
+                    case Power:
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Double.isNaN(a[j]) ? Double.NaN : Math.pow(a[j], b[j]);
+                        }
+                        break;
+                }
+            } else {
+                double[] a = buffers[left.slot];
+                switch (function) {
+                    case "abs":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.abs(a[j]);
+                        }
+                        break;
+                    case "acos":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.acos(a[j]);
+                        }
+                        break;
+                    case "asin":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.asin(a[j]);
+                        }
+                        break;
+                    case "atan":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.atan(a[j]);
+                        }
+                        break;
+                    case "cos":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.cos(a[j]);
+                        }
+                        break;
+                    case "exp":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.exp(a[j]);
+                        }
+                        break;
+                    case "log":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.log(a[j]);
+                        }
+                        break;
+                    case "log10":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.log10(a[j]);
+                        }
+                        break;
+                    case "sin":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.sin(a[j]);
+                        }
+                        break;
+                    case "sqrt":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.sqrt(a[j]);
+                        }
+                        break;
+                    case "tan":
+                        for (int j = 0; j < n; j++) {
+                            r[j] = Math.tan(a[j]);
+                        }
+                        break;
+                }
+            }
+        }
+    }
+    // </editor-fold>
+}
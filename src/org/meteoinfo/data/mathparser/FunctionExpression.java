@@ -33,6 +33,15 @@ public class FunctionExpression extends ExpressionBase {
         return 1;
     }
 
+    /**
+     * Get function name
+     *
+     * @return Function name
+     */
+    public String getFunction() {
+        return _function;
+    }
+
     /**
      * Constructor
      * @param function The function
@@ -35,6 +35,9 @@ public class MathParser {
     private List<String> _variables = new ArrayList<String>();
     private StringReader _expressionReader;
     private MeteoDataInfo _meteoDataInfo = null;
+    private boolean _compiling = false;
+    private boolean _fused = true;
+    private Map<String, CompiledExpression> _compiledCache = new HashMap<String, CompiledExpression>();
     // </editor-fold>
     // <editor-fold desc="Constructor">
 
@@ -56,6 +59,26 @@ public class MathParser {
     }
     // </editor-fold>
     // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get if expressions are compiled and grid data are evaluated in one
+     * fused pass
+     *
+     * @return Boolean
+     */
+    public boolean isFused() {
+        return _fused;
+    }
+
+    /**
+     * Set if expressions are compiled and grid data are evaluated in one
+     * fused pass
+     *
+     * @param value Boolean
+     */
+    public void setFused(boolean value) {
+        _fused = value;
+    }
     // </editor-fold>
     // <editor-fold desc="Methods">
 
@@ -70,6 +93,15 @@ public class MathParser {
             throw new java.lang.IllegalArgumentException("expression");
         }
 
+        if (_fused) {
+            CompiledExpression compiled = compile(expression);
+            Map<String, Object> values = new HashMap<String, Object>();
+            for (String varName : compiled.getVariableNames()) {
+                values.put(varName, getVariableValue(varName));
+            }
+            return compiled.evaluate(values);
+        }
+
         _expressionReader = new StringReader(expression);
         _symbolStack.clear();
         _expressionQueue.clear();
@@ -82,6 +114,39 @@ public class MathParser {
         return result;
     }
 
+    /**
+     * Compile the specified expression. Variables are not read, so the
+     * compiled expression can be evaluated repeatedly with variable values
+     * of different times or levels. Compiled expressions are cached.
+     *
+     * @param expression The expression to compile
+     * @return Compiled expression
+     */
+    public CompiledExpression compile(String expression) throws ParseException, IOException {
+        if (expression == null || expression.isEmpty()) {
+            throw new java.lang.IllegalArgumentException("expression");
+        }
+
+        CompiledExpression compiled = _compiledCache.get(expression);
+        if (compiled != null) {
+            return compiled;
+        }
+
+        _expressionReader = new StringReader(expression);
+        _symbolStack.clear();
+        _expressionQueue.clear();
+        _compiling = true;
+        try {
+            parseExpressionToQueue();
+        } finally {
+            _compiling = false;
+        }
+
+        compiled = new CompiledExpression(expression, _expressionQueue);
+        _compiledCache.put(expression, compiled);
+        return compiled;
+    }
+
     private void parseExpressionToQueue() throws ParseException, IOException {
         int ic;
         char c;
@@ -173,6 +238,11 @@ public class MathParser {
         _expressionReader.reset();
 
         if (_variables.contains(_buffer.toString())) {
+            if (_compiling) {
+                _expressionQueue.offer(new VariableExpression(_buffer.toString()));
+                return true;
+            }
+
             Object value = getVariableValue(_buffer.toString());
             NumberExpression expression = new NumberExpression(value);
             _expressionQueue.offer(expression);
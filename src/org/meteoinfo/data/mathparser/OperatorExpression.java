@@ -41,6 +41,15 @@ public class OperatorExpression extends ExpressionBase {
 
     // </editor-fold>
     // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get math operator
+     *
+     * @return Math operator
+     */
+    public MathOperators getMathOperator() {
+        return this._mathOperator;
+    }
     // </editor-fold>
     // <editor-fold desc="Methods">
     @Override
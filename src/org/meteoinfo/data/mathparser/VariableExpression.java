@@ -0,0 +1,63 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.meteoinfo.data.mathparser;
+
+/**
+ * Variable expression - a named operand of a compiled expression, its value
+ * is bound by CompiledExpression at evaluation time
+ *
+ * @author yaqiang
+ */
+class VariableExpression extends ExpressionBase {
+
+    // <editor-fold desc="Variables">
+    private final String _name;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor
+     *
+     * @param name Variable name
+     */
+    VariableExpression(String name) {
+        _name = name;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get variable name
+     *
+     * @return Variable name
+     */
+    public String getName() {
+        return _name;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Evaluate the variable
+     *
+     * @param numbers The bound variable value
+     * @return The bound variable value
+     */
+    @Override
+    public Object evaluate(Object[] numbers) {
+        return numbers[0];
+    }
+
+    @Override
+    public int getArgumentCount() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return _name;
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,122 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.data.meteodata;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.meteoinfo.data.GridData;
+
+/**
+ * Bounded least recently used cache of decoded 2D grid slabs keyed by
+ * variable, time index and level index
+ *
+ * @author Yaqiang Wang
+ */
+public class GridDataCache {
+    // <editor-fold desc="Variables">
+
+    private int maxSize;
+    private final LinkedHashMap<String, GridData> slabs;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor
+     *
+     * @param maxSize Maximum number of cached slabs
+     */
+    public GridDataCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.slabs = new LinkedHashMap<String, GridData>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GridData> eldest) {
+                return size() > GridDataCache.this.maxSize;
+            }
+        };
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get maximum cached slab number
+     *
+     * @return Maximum cached slab number
+     */
+    public synchronized int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Set maximum cached slab number
+     *
+     * @param value Maximum cached slab number
+     */
+    public synchronized void setMaxSize(int value) {
+        this.maxSize = value;
+        while (this.slabs.size() > value) {
+            String key = this.slabs.keySet().iterator().next();
+            this.slabs.remove(key);
+        }
+    }
+
+    /**
+     * Get cached slab number
+     *
+     * @return Cached slab number
+     */
+    public synchronized int size() {
+        return this.slabs.size();
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Get a cached slab
+     *
+     * @param varName Variable name
+     * @param tIdx Time index
+     * @param lIdx Level index
+     * @return Cached grid data or null if not cached
+     */
+    public synchronized GridData get(String varName, int tIdx, int lIdx) {
+        return this.slabs.get(key(varName, tIdx, lIdx));
+    }
+
+    /**
+     * Put a slab into the cache
+     *
+     * @param varName Variable name
+     * @param tIdx Time index
+     * @param lIdx Level index
+     * @param gridData Grid data
+     */
+    public synchronized void put(String varName, int tIdx, int lIdx, GridData gridData) {
+        if (this.maxSize <= 0 || gridData == null) {
+            return;
+        }
+        this.slabs.put(key(varName, tIdx, lIdx), gridData);
+    }
+
+    /**
+     * Remove all cached slabs
+     */
+    public synchronized void clear() {
+        this.slabs.clear();
+    }
+
+    private static String key(String varName, int tIdx, int lIdx) {
+        return varName + "|" + String.valueOf(tIdx) + "|" + String.valueOf(lIdx);
+    }
+    // </editor-fold>
+}
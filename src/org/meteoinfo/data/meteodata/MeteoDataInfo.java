@@ -31,6 +31,7 @@ import org.meteoinfo.data.meteodata.micaps.MICAPSDataInfo;
 import org.meteoinfo.data.meteodata.netcdf.NetCDFDataInfo;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import org.meteoinfo.projection.ProjectionInfo;
 import java.util.List;
@@ -97,6 +98,10 @@ public class MeteoDataInfo {
     /// If Y reserved
     /// </summary>
     public boolean yReserve;
+    /// <summary>
+    /// Decoded grid slab cache used by batch station interpolation
+    /// </summary>
+    private final GridDataCache _gridCache = new GridDataCache(16);
     // </editor-fold>
     // <editor-fold desc="Constructor">
 
@@ -132,6 +137,25 @@ public class MeteoDataInfo {
     public void setDataInfo(DataInfo value) {
         _dataInfo = value;
         _infoText = _dataInfo.generateInfoText();
+        _gridCache.clear();
+    }
+
+    /**
+     * Get decoded grid slab cache
+     *
+     * @return Grid slab cache
+     */
+    public GridDataCache getGridCache() {
+        return _gridCache;
+    }
+
+    /**
+     * Set maximum number of decoded grid slabs kept in the cache
+     *
+     * @param value Maximum cached slab number, 0 disables the cache
+     */
+    public void setGridCacheSize(int value) {
+        _gridCache.setMaxSize(value);
     }
 
     /**
@@ -471,6 +495,7 @@ public class MeteoDataInfo {
      * Close opened file
      */
     public void close() {
+        _gridCache.clear();
         if (this._dataInfo.getDataType() == MeteoDataType.NetCDF) {
             NetCDFDataInfo dinfo = (NetCDFDataInfo) this._dataInfo;
             if (dinfo.getFile() != null) {
@@ -1434,6 +1459,201 @@ public class MeteoDataInfo {
 
         return ivalues;
     }
+
+    /**
+     * Get lon/lat grid data of a variable at a time index and a level index.
+     * The decoded grid is kept in the slab cache so later requests of the same
+     * slab do not read the file again.
+     *
+     * @param varName Variable name
+     * @param timeIdx Time index
+     * @param levelIdx Level index
+     * @return Grid data
+     */
+    public GridData getGridData(String varName, int timeIdx, int levelIdx) {
+        GridData gdata = _gridCache.get(varName, timeIdx, levelIdx);
+        if (gdata == null) {
+            PlotDimension dimSet = _dimensionSet;
+            int tIdx = _timeIdx;
+            int lIdx = _levelIdx;
+            _dimensionSet = PlotDimension.Lat_Lon;
+            _timeIdx = timeIdx;
+            _levelIdx = levelIdx;
+            try {
+                gdata = this.getGridData(varName);
+            } finally {
+                _dimensionSet = dimSet;
+                _timeIdx = tIdx;
+                _levelIdx = lIdx;
+            }
+            _gridCache.put(varName, timeIdx, levelIdx, gdata);
+        }
+
+        return gdata;
+    }
+
+    /**
+     * Interpolate data to many station points. Each needed time/level slab is
+     * read only once and all points using it are interpolated in one pass.
+     *
+     * @param varName Variable name
+     * @param x X coordinates of the stations
+     * @param y Y coordinates of the stations
+     * @param z Z coordinates of the stations, null for the first level
+     * @param t Time coordinates of the stations
+     * @return Interpolated values
+     */
+    public double[] toStation(String varName, double[] x, double[] y, double[] z, Date[] t) {
+        int n = x.length;
+        double missingValue = this.getDataInfo().getMissingValue();
+        double[] r = new double[n];
+        boolean[] missing = new boolean[n];
+
+        //Time coordinates
+        List<Date> times = this.getDataInfo().getTimes();
+        int tnum = times.size();
+        long[] tms = new long[tnum];
+        for (int i = 0; i < tnum; i++) {
+            tms[i] = times.get(i).getTime();
+        }
+
+        //Level coordinates
+        double[] levels = null;
+        Variable var = this.getDataInfo().getVariable(varName);
+        Dimension zDim = var == null ? this.getDataInfo().getZDimension() : var.getZDimension();
+        if (z != null && zDim != null && zDim.getLength() > 1) {
+            List<Double> lvs = zDim.getDimValue();
+            levels = new double[lvs.size()];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = lvs.get(i);
+            }
+        }
+        int lnum = levels == null ? 1 : levels.length;
+
+        //Slab/weight pairs of each point, at most 2 times x 2 levels
+        long[] slabs = new long[n * 4];
+        double[] weights = new double[n * 4];
+        int[] points = new int[n * 4];
+        int np = 0;
+        int[] tidx = new int[2];
+        double[] tw = new double[2];
+        int[] lidx = new int[2];
+        double[] lw = new double[2];
+        for (int i = 0; i < n; i++) {
+            int nt = bracketTime(tms, t[i].getTime(), tidx, tw);
+            int nl = levels == null ? bracketFirst(lidx, lw) : bracketLevel(levels, z[i], lidx, lw);
+            if (nt == 0 || nl == 0) {
+                missing[i] = true;
+                continue;
+            }
+            for (int ti = 0; ti < nt; ti++) {
+                for (int li = 0; li < nl; li++) {
+                    slabs[np] = (long) tidx[ti] * lnum + lidx[li];
+                    weights[np] = tw[ti] * lw[li];
+                    points[np] = i;
+                    np += 1;
+                }
+            }
+        }
+
+        //Sort the pairs by slab so each slab is visited once
+        long[] order = new long[np];
+        for (int k = 0; k < np; k++) {
+            order[k] = (slabs[k] << 32) | k;
+        }
+        Arrays.sort(order);
+        int k = 0;
+        while (k < np) {
+            long slab = order[k] >>> 32;
+            int ti = (int) (slab / lnum);
+            int li = (int) (slab % lnum);
+            GridData gdata = this.getGridData(varName, ti, li);
+            while (k < np && (order[k] >>> 32) == slab) {
+                int p = (int) (order[k] & 0xFFFFFFFFL);
+                int i = points[p];
+                k += 1;
+                if (missing[i]) {
+                    continue;
+                }
+                double v = gdata == null ? missingValue : gdata.toStation(x[i], y[i]);
+                if (MIMath.doubleEquals(v, gdata == null ? missingValue : gdata.missingValue)) {
+                    missing[i] = true;
+                } else {
+                    r[i] += v * weights[p];
+                }
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (missing[i]) {
+                r[i] = missingValue;
+            }
+        }
+
+        return r;
+    }
+
+    /**
+     * Interpolate data to many station points on the first level
+     *
+     * @param varName Variable name
+     * @param x X coordinates of the stations
+     * @param y Y coordinates of the stations
+     * @param t Time coordinates of the stations
+     * @return Interpolated values
+     */
+    public double[] toStation(String varName, double[] x, double[] y, Date[] t) {
+        return this.toStation(varName, x, y, null, t);
+    }
+
+    private static int bracketTime(long[] tms, long t, int[] idx, double[] w) {
+        int tnum = tms.length;
+        if (tnum == 0 || t < tms[0] || t > tms[tnum - 1]) {
+            return 0;
+        }
+        int i = Arrays.binarySearch(tms, t);
+        if (i >= 0) {
+            idx[0] = i;
+            w[0] = 1;
+            return 1;
+        }
+        i = -i - 1;
+        idx[0] = i - 1;
+        idx[1] = i;
+        w[1] = (double) (t - tms[i - 1]) / (tms[i] - tms[i - 1]);
+        w[0] = 1 - w[1];
+        return 2;
+    }
+
+    private static int bracketFirst(int[] idx, double[] w) {
+        idx[0] = 0;
+        w[0] = 1;
+        return 1;
+    }
+
+    private static int bracketLevel(double[] levels, double z, int[] idx, double[] w) {
+        int znum = levels.length;
+        boolean ascending = levels[1] - levels[0] > 0;
+        for (int j = 0; j < znum; j++) {
+            if (MIMath.doubleEquals(z, levels[j])) {
+                idx[0] = j;
+                w[0] = 1;
+                return 1;
+            }
+            if (ascending ? z < levels[j] : z > levels[j]) {
+                if (j == 0) {
+                    j = 1;
+                }
+                idx[0] = j - 1;
+                idx[1] = j;
+                w[1] = (z - levels[j - 1]) / (levels[j] - levels[j - 1]);
+                w[0] = 1 - w[1];
+                return 2;
+            }
+        }
+
+        return 0;
+    }
     // </editor-fold>
     // <editor-fold desc="Others">
     @Override
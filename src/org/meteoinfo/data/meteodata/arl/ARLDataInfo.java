@@ -27,6 +27,7 @@ import java.io.RandomAccessFile;
 import java.math.BigDecimal;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -42,6 +43,8 @@ import org.meteoinfo.data.meteodata.MeteoDataType;
 import org.meteoinfo.global.MIMath;
 import org.meteoinfo.global.util.BigDecimalUtil;
 import org.meteoinfo.global.util.DateUtil;
+import org.meteoinfo.global.util.ParallelUtil;
+import org.meteoinfo.io.MappedFileCache;
 import org.meteoinfo.projection.proj4j.proj.Projection;
 import org.meteoinfo.projection.KnownCoordinateSystems;
 import org.meteoinfo.projection.ProjectionInfo;
@@ -129,6 +132,7 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
     //private DataOutputStream _bw = null;
     private RandomAccessFile _bw = null;
     private long indexRecPos = 0;
+    private long[][] recordPositions;
     // </editor-fold>
     // <editor-fold desc="Constructor">
 
@@ -458,7 +462,6 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
             this.addDimension(yDim);
 
             //Reopen            
-            byte[] dataBytes = new byte[NXY];
             Date aTime, oldTime;
             int recNum, timeNum;
             br.seek(0);
@@ -483,8 +486,8 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
                 //Read label
                 aDL = readDataLabel(br);
 
-                //Read Data
-                br.read(dataBytes);
+                //Skip data
+                br.seek(br.getFilePointer() + NXY);
 
                 if (!aDL.getVarName().equalsIgnoreCase("INDX")) {
                     cal = new GregorianCalendar(year, aDL.getMonth() - 1, aDL.getDay(), aDL.getHour(), 0, 0);
@@ -496,11 +499,26 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
                     }
                     if (timeNum == 0) {
                         recNum += 1;
+                    } else {
+                        break;
                     }
                 }
 
             } while (true);
 
+            //The records of each time have same layout, so only the first 
+            //data record label of the following times need to be read
+            if (timeNum > 0) {
+                long timeLen = (long) (recNum + indexRecNum) * recLen;
+                long fileLen = br.length();
+                for (long pos = 2 * timeLen + indexLen; pos - indexLen + timeLen <= fileLen; pos += timeLen) {
+                    br.seek(pos);
+                    aDL = readDataLabel(br);
+                    cal = new GregorianCalendar(year, aDL.getMonth() - 1, aDL.getDay(), aDL.getHour(), 0, 0);
+                    times.add(cal.getTime());
+                }
+            }
+
             br.close();
 
             List<Double> values = new ArrayList<>();
@@ -569,6 +587,7 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
             }
             this.setTimes(times);
             this.setVariables(variables);
+            buildRecordPositions();
         } catch (IOException ex) {
             Logger.getLogger(ARLDataInfo.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -576,45 +595,45 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
 
     private static DataLabel readDataLabel(RandomAccessFile br) {
         try {
-            DataLabel aDL = new DataLabel();
-            byte[] bytes = new byte[2];
-            br.read(bytes);
-            aDL.setYear(Short.parseShort(new String(bytes).trim()));
-            br.read(bytes);
-            aDL.setMonth(Short.parseShort(new String(bytes).trim()));
-            br.read(bytes);
-            aDL.setDay(Short.parseShort(new String(bytes).trim()));
-            br.read(bytes);
-            aDL.setHour(Short.parseShort(new String(bytes).trim()));
+            byte[] bytes = new byte[50];
             br.read(bytes);
-            aDL.setForecast(Short.parseShort(new String(bytes).trim()));
-            br.read(bytes);
-            aDL.setLevel(Short.parseShort(new String(bytes).trim()));
-            br.read(bytes);
-            String gridStr = new String(bytes).trim();
-            if (MIMath.isNumeric(gridStr)) {
-                aDL.setGrid(Short.parseShort(gridStr));
-            } else {
-                aDL.XGPT = true;
-                aDL.IGC = gridStr;
-            }
-            bytes = new byte[4];
-            br.read(bytes);
-            aDL.setVarName(new String(bytes).trim());
-            br.read(bytes);
-            aDL.setExponent(Integer.parseInt(new String(bytes).trim()));
-            bytes = new byte[14];
-            br.read(bytes);
-            aDL.setPrecision(Double.parseDouble(new String(bytes).trim()));
-            br.read(bytes);
-            aDL.setValue(Double.parseDouble(new String(bytes).trim()));
-            return aDL;
+            return parseDataLabel(bytes);
         } catch (IOException ex) {
             Logger.getLogger(ARLDataInfo.class.getName()).log(Level.SEVERE, null, ex);
             return null;
         }
     }
 
+    private static DataLabel readDataLabel(ByteBuffer buffer) {
+        byte[] bytes = new byte[50];
+        for (int i = 0; i < 50; i++) {
+            bytes[i] = buffer.get(i);
+        }
+        return parseDataLabel(bytes);
+    }
+
+    private static DataLabel parseDataLabel(byte[] bytes) {
+        DataLabel aDL = new DataLabel();
+        aDL.setYear(Short.parseShort(new String(bytes, 0, 2).trim()));
+        aDL.setMonth(Short.parseShort(new String(bytes, 2, 2).trim()));
+        aDL.setDay(Short.parseShort(new String(bytes, 4, 2).trim()));
+        aDL.setHour(Short.parseShort(new String(bytes, 6, 2).trim()));
+        aDL.setForecast(Short.parseShort(new String(bytes, 8, 2).trim()));
+        aDL.setLevel(Short.parseShort(new String(bytes, 10, 2).trim()));
+        String gridStr = new String(bytes, 12, 2).trim();
+        if (MIMath.isNumeric(gridStr)) {
+            aDL.setGrid(Short.parseShort(gridStr));
+        } else {
+            aDL.XGPT = true;
+            aDL.IGC = gridStr;
+        }
+        aDL.setVarName(new String(bytes, 14, 4).trim());
+        aDL.setExponent(Integer.parseInt(new String(bytes, 18, 4).trim()));
+        aDL.setPrecision(Double.parseDouble(new String(bytes, 22, 14).trim()));
+        aDL.setValue(Double.parseDouble(new String(bytes, 36, 14).trim()));
+        return aDL;
+    }
+
     private void getProjectedXY(ProjectionInfo projInfo, float size,
             float sync_XP, float sync_YP, float sync_Lon, float sync_Lat,
             double[] X, double[] Y) {
@@ -710,41 +729,151 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
         return dataInfo;
     }
 
-    private double[][] unpackARLGridData(byte[] dataBytes, int xNum, int yNum, DataLabel aDL) {
-        double[][] gridData = new double[yNum][xNum];
+    /**
+     * Build the position table of the records in a time, relative to the
+     * start of the time
+     */
+    private void buildRecordPositions() {
+        recordPositions = new long[LevelVarList.size()][];
+        long pos = indexLen;
+        for (int i = 0; i < LevelVarList.size(); i++) {
+            int n = LevelVarList.get(i).size();
+            recordPositions[i] = new long[n];
+            for (int j = 0; j < n; j++) {
+                recordPositions[i][j] = pos;
+                pos += recLen;
+            }
+        }
+    }
+
+    /**
+     * Get memory mapped buffer of a record including its label
+     *
+     * @param timeIdx Time index
+     * @param levelIdx Level index in the level variable list
+     * @param varIdx Variable index in the level
+     * @return Record buffer
+     * @throws IOException
+     */
+    private ByteBuffer getRecordBuffer(int timeIdx, int levelIdx, int varIdx) throws IOException {
+        long pos = (long) timeIdx * recsPerTime * recLen + recordPositions[levelIdx][varIdx];
+        return MappedFileCache.getBuffer(this.getFileName(), pos, (int) recLen, ByteOrder.BIG_ENDIAN);
+    }
+
+    private ByteBuffer[] getTimeRecordBuffers(int levelIdx, int varIdx) throws IOException {
+        int tNum = this.getTimeNum();
+        ByteBuffer[] buffers = new ByteBuffer[tNum];
+        for (int t = 0; t < tNum; t++) {
+            buffers[t] = getRecordBuffer(t, levelIdx, varIdx);
+        }
+        return buffers;
+    }
+
+    private ByteBuffer[] getLevelRecordBuffers(int timeIdx, Variable aVar) throws IOException {
+        int lNum = aVar.getLevelNum();
+        ByteBuffer[] buffers = new ByteBuffer[lNum];
+        for (int i = 0; i < lNum; i++) {
+            buffers[i] = getRecordBuffer(timeIdx, aVar.getLevelIdxs().get(i), aVar.getVarInLevelIdxs().get(i));
+        }
+        return buffers;
+    }
+
+    /**
+     * Unpack a sub grid of an ARL record. Packed values are differences to the
+     * previous value in the row, and the first value of a row is the
+     * difference to the first value of the previous row. So rows before the
+     * start row only need their first byte, and columns after the end column
+     * are not decoded.
+     *
+     * @param buffer Record buffer
+     * @param aDL Data label
+     * @param yStart Start row
+     * @param yEnd End row (exclusive)
+     * @param xEnd End column (exclusive)
+     * @return Sub grid data
+     */
+    private double[][] unpackARLGridData(ByteBuffer buffer, DataLabel aDL, int yStart, int yEnd, int xEnd) {
+        int xNum = dataHead.NX;
+        double[][] gridData = new double[yEnd - yStart][xEnd];
         double SCALE = Math.pow(2.0, (7 - aDL.getExponent()));
         double VOLD = aDL.getValue();
-        int INDX = 0;
+        int INDX;
         int i, j;
-        for (j = 0; j < yNum; j++) {
-            for (i = 0; i < xNum; i++) {
-                gridData[j][i] = ((int) (DataConvert.byte2Int(dataBytes[INDX])) - 127) / SCALE + VOLD;
+        for (j = 0; j < yStart; j++) {
+            VOLD = ((int) (DataConvert.byte2Int(buffer.get(50 + j * xNum))) - 127) / SCALE + VOLD;
+        }
+        for (j = yStart; j < yEnd; j++) {
+            double[] row = gridData[j - yStart];
+            INDX = 50 + j * xNum;
+            for (i = 0; i < xEnd; i++) {
+                row[i] = ((int) (DataConvert.byte2Int(buffer.get(INDX))) - 127) / SCALE + VOLD;
                 INDX += 1;
-                VOLD = gridData[j][i];
+                VOLD = row[i];
             }
-            VOLD = gridData[j][0];
+            VOLD = row[0];
         }
 
         return gridData;
     }
 
-    private float[] unpackARLData(byte[] dataBytes, int xNum, int yNum, DataLabel aDL) {
-        int n = dataBytes.length;
-        float[] data = new float[n];
+    /**
+     * Unpack the same sub grid of several ARL records in parallel
+     *
+     * @param buffers Record buffers
+     * @param yStart Start row
+     * @param yEnd End row (exclusive)
+     * @param xEnd End column (exclusive)
+     * @return Sub grid data of each record
+     */
+    private double[][][] unpackARLGridData(final ByteBuffer[] buffers, final int yStart, final int yEnd,
+            final int xEnd) {
+        final double[][][] r = new double[buffers.length][][];
+        ParallelUtil.parallelFor(buffers.length, 1, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    DataLabel aDL = ARLDataInfo.readDataLabel(buffers[i]);
+                    r[i] = unpackARLGridData(buffers[i], aDL, yStart, yEnd, xEnd);
+                }
+            }
+        });
+
+        return r;
+    }
+
+    /**
+     * Unpack a sub grid of an ARL record to float values
+     *
+     * @param buffer Record buffer
+     * @param aDL Data label
+     * @param yStart Start row
+     * @param yEnd End row (exclusive)
+     * @param xEnd End column (exclusive)
+     * @return Sub grid data with row length xEnd
+     */
+    private float[] unpackARLData(ByteBuffer buffer, DataLabel aDL, int yStart, int yEnd, int xEnd) {
+        int xNum = dataHead.NX;
+        float[] data = new float[(yEnd - yStart) * xEnd];
         float SCALE = (float) Math.pow(2.0, (7 - aDL.getExponent()));
         float VOLD = (float) aDL.getValue();
         float init = VOLD;
         float v;
-        int INDX = 0;
+        int INDX;
+        int idx = 0;
         int i, j;
-        for (j = 0; j < yNum; j++) {
-            for (i = 0; i < xNum; i++) {
-                v = ((int) (DataConvert.byte2Int(dataBytes[INDX])) - 127) / SCALE + VOLD;
-                data[INDX] = v;
+        for (j = 0; j < yStart; j++) {
+            VOLD = ((int) (DataConvert.byte2Int(buffer.get(50 + j * xNum))) - 127) / SCALE + VOLD;
+        }
+        for (j = yStart; j < yEnd; j++) {
+            INDX = 50 + j * xNum;
+            for (i = 0; i < xEnd; i++) {
+                v = ((int) (DataConvert.byte2Int(buffer.get(INDX))) - 127) / SCALE + VOLD;
+                data[idx] = v;
                 if (i == 0) {
                     init = v;
                 }
                 INDX += 1;
+                idx += 1;
                 VOLD = v;
             }
             VOLD = init;
@@ -787,34 +916,37 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
      * @return Array data
      */
     @Override
-    public Array read(String varName, int[] origin, int[] size, int[] stride) {
+    public Array read(final String varName, int[] origin, int[] size, int[] stride) {
         try {
             Variable var = this.getVariable(varName);
             Section section = new Section(origin, size, stride);
             Array dataArray = Array.factory(DataType.FLOAT, section.getShape());
             int rangeIdx = 0;
-            Range timeRange = section.getRank() > 2 ? section
+            final Range timeRange = section.getRank() > 2 ? section
                     .getRange(rangeIdx++)
                     : new Range(0, 0);
 
-            Range levRange = var.getLevelNum() > 0 ? section
+            final Range levRange = var.getLevelNum() > 0 ? section
                     .getRange(rangeIdx++)
                     : new Range(0, 0);
 
-            Range yRange = section.getRange(rangeIdx++);
-            Range xRange = section.getRange(rangeIdx);
-
-            IndexIterator ii = dataArray.getIndexIterator();
-
-            for (int timeIdx = timeRange.first(); timeIdx <= timeRange.last();
-                    timeIdx += timeRange.stride()) {
-                int levelIdx = levRange.first();
-
-                for (; levelIdx <= levRange.last();
-                        levelIdx += levRange.stride()) {
-                    readXY(varName, timeIdx, levelIdx, yRange, xRange, ii);
+            final Range yRange = section.getRange(rangeIdx++);
+            final Range xRange = section.getRange(rangeIdx);
+
+            //Each time and level slab is unpacked in parallel into the array storage
+            final float[] storage = (float[]) dataArray.getStorage();
+            final int slabSize = yRange.length() * xRange.length();
+            final int levNum = levRange.length();
+            ParallelUtil.parallelFor(timeRange.length() * levNum, 1, new ParallelUtil.RangeTask() {
+                @Override
+                public void run(int start, int end) {
+                    for (int k = start; k < end; k++) {
+                        int timeIdx = timeRange.first() + (k / levNum) * timeRange.stride();
+                        int levelIdx = levRange.first() + (k % levNum) * levRange.stride();
+                        readXY(varName, timeIdx, levelIdx, yRange, xRange, storage, k * slabSize);
+                    }
                 }
-            }
+            });
 
             return dataArray;
         } catch (InvalidRangeException ex) {
@@ -823,44 +955,31 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
         }
     }
 
-    private void readXY(String varName, int timeIdx, int levelIdx, Range yRange, Range xRange, IndexIterator ii) {
+    private void readXY(String varName, int timeIdx, int levelIdx, Range yRange, Range xRange,
+            float[] storage, int offset) {
         try {
             int varIdx = this.getVariableNames().indexOf(varName);
-            int xNum, yNum;
-            xNum = dataHead.NX;
-            yNum = dataHead.NY;
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
             //Update level and variable index
             Variable aVar = this.getVariables().get(varIdx);
             if (aVar.getLevelNum() > 1) {
                 levelIdx += 1;
             }
             varIdx = LevelVarList.get(levelIdx).indexOf(aVar.getName());
-            br.seek(timeIdx * recsPerTime * recLen);
-            br.seek(br.getFilePointer() + indexLen);
-            for (int i = 0; i < levelIdx; i++) {
-                br.seek(br.getFilePointer() + LevelVarList.get(i).size() * recLen);
-            }
-            br.seek(br.getFilePointer() + varIdx * recLen);
+            ByteBuffer buffer = getRecordBuffer(timeIdx, levelIdx, varIdx);
             //Read label
-            aDL = ARLDataInfo.readDataLabel(br);
-            //Read Data
-            dataBytes = new byte[(int)recLen - 50];
-            br.read(dataBytes);
-            br.close();
-            float[] data = unpackARLData(dataBytes, xNum, yNum, aDL);
+            DataLabel aDL = ARLDataInfo.readDataLabel(buffer);
+            //Unpack the needed rows and columns
+            int yStart = yRange.first();
+            int xEnd = xRange.last() + 1;
+            float[] data = unpackARLData(buffer, aDL, yStart, yRange.last() + 1, xEnd);
             for (int y = yRange.first(); y <= yRange.last();
                     y += yRange.stride()) {
                 for (int x = xRange.first(); x <= xRange.last();
                         x += xRange.stride()) {
-                    int index = y * xNum + x;
-                    ii.setFloatNext(data[index]);
+                    int index = (y - yStart) * xEnd + x;
+                    storage[offset++] = data[index];
                 }
             }
-        } catch (FileNotFoundException ex) {
-            Logger.getLogger(ARLDataInfo.class.getName()).log(Level.SEVERE, null, ex);
         } catch (IOException ex) {
             Logger.getLogger(ARLDataInfo.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -883,10 +1002,6 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
             int xNum, yNum;
             xNum = dataHead.NX;
             yNum = dataHead.NY;
-            double[][] theData;
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
 
             //Update level and variable index
             Variable aVar = this.getVariables().get(varIdx);
@@ -896,23 +1011,9 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
 
             varIdx = LevelVarList.get(levelIdx).indexOf(aVar.getName());
 
-            br.seek(timeIdx * recsPerTime * recLen);
-            br.seek(br.getFilePointer() + indexLen);
-            for (int i = 0; i < levelIdx; i++) {
-                br.seek(br.getFilePointer() + LevelVarList.get(i).size() * recLen);
-            }
-            br.seek(br.getFilePointer() + varIdx * recLen);
-
-            //Read label
-            aDL = ARLDataInfo.readDataLabel(br);
-
-            //Read Data
-            dataBytes = new byte[(int)recLen - 50];
-            br.read(dataBytes);
-
-            br.close();
-
-            theData = unpackARLGridData(dataBytes, xNum, yNum, aDL);
+            ByteBuffer buffer = getRecordBuffer(timeIdx, levelIdx, varIdx);
+            DataLabel aDL = ARLDataInfo.readDataLabel(buffer);
+            double[][] theData = unpackARLGridData(buffer, aDL, 0, yNum, xNum);
 
             GridData gridData = new GridData();
             gridData.data = theData;
@@ -930,14 +1031,9 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
     @Override
     public GridData getGridData_TimeLat(int lonIdx, int varIdx, int levelIdx) {
         try {
-            int xNum, yNum, tNum, t;
-            xNum = dataHead.NX;
+            int yNum, tNum, t;
             yNum = dataHead.NY;
             tNum = this.getTimeNum();
-            double[][] theData;
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
             double[][] newGridData = new double[tNum][yNum];
 
             //Update level and variable index
@@ -948,28 +1044,14 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
 
             varIdx = LevelVarList.get(levelIdx).indexOf(aVar.getName());
 
+            ByteBuffer[] buffers = getTimeRecordBuffers(levelIdx, varIdx);
+            double[][][] theData = unpackARLGridData(buffers, 0, yNum, lonIdx + 1);
             for (t = 0; t < tNum; t++) {
-                br.seek(t * recsPerTime * recLen);
-                br.seek(br.getFilePointer() + indexLen);
-                for (int i = 0; i < levelIdx; i++) {
-                    br.seek(br.getFilePointer() + LevelVarList.get(i).size() * recLen);
-                }
-                br.seek(br.getFilePointer() + varIdx * recLen);
-
-                //Read label
-                aDL = ARLDataInfo.readDataLabel(br);
-
-                //Read Data
-                dataBytes = new byte[(int)recLen - 50];
-                br.read(dataBytes);
-                theData = unpackARLGridData(dataBytes, xNum, yNum, aDL);
                 for (int i = 0; i < yNum; i++) {
-                    newGridData[t][i] = theData[i][lonIdx];
+                    newGridData[t][i] = theData[t][i][lonIdx];
                 }
             }
 
-            br.close();
-
             GridData gridData = new GridData();
             gridData.data = newGridData;
             gridData.missingValue = missingValue;
@@ -989,15 +1071,10 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
     @Override
     public GridData getGridData_TimeLon(int latIdx, int varIdx, int levelIdx) {
         try {
-            int xNum, yNum, tNum, t;
+            int xNum, tNum, t;
             xNum = dataHead.NX;
-            yNum = dataHead.NY;
             tNum = this.getTimeNum();
-            double[][] theData;
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
-            double[][] newGridData = new double[tNum][xNum];
+            double[][] newGridData = new double[tNum][];
 
             //Update level and variable index
             Variable aVar = this.getVariables().get(varIdx);
@@ -1007,28 +1084,12 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
 
             varIdx = LevelVarList.get(levelIdx).indexOf(aVar.getName());
 
+            ByteBuffer[] buffers = getTimeRecordBuffers(levelIdx, varIdx);
+            double[][][] theData = unpackARLGridData(buffers, latIdx, latIdx + 1, xNum);
             for (t = 0; t < tNum; t++) {
-                br.seek(t * recsPerTime * recLen);
-                br.seek(br.getFilePointer() + indexLen);
-                for (int i = 0; i < levelIdx; i++) {
-                    br.seek(br.getFilePointer() + LevelVarList.get(i).size() * recLen);
-                }
-                br.seek(br.getFilePointer() + varIdx * recLen);
-
-                //Read label
-                aDL = ARLDataInfo.readDataLabel(br);
-
-                //Read Data
-                dataBytes = new byte[(int)recLen - 50];
-                br.read(dataBytes);
-                theData = unpackARLGridData(dataBytes, xNum, yNum, aDL);
-                for (int j = 0; j < xNum; j++) {
-                    newGridData[t][j] = theData[latIdx][j];
-                }
+                newGridData[t] = theData[t][0];
             }
 
-            br.close();
-
             GridData gridData = new GridData();
             gridData.data = newGridData;
             gridData.missingValue = missingValue;
@@ -1048,51 +1109,27 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
     @Override
     public GridData getGridData_LevelLat(int lonIdx, int varIdx, int timeIdx) {
         try {
-            int xNum, yNum, lNum, nvarIdx, levIdx;
-            xNum = dataHead.NX;
+            int yNum, lNum;
             yNum = dataHead.NY;
-            lNum = this.getVariables().get(varIdx).getLevelNum();
-            double[][] theData;
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
+            Variable aVar = this.getVariables().get(varIdx);
+            lNum = aVar.getLevelNum();
             double[][] newGridData = new double[lNum][yNum];
-            long aLevPosition;
 
-            br.seek(timeIdx * recsPerTime * recLen);
-            br.seek(br.getFilePointer() + indexLen);
-            aLevPosition = br.getFilePointer();
-            //levIdx = this.getVariables().get(varIdx).getLevelIdxs().get(0);
+            ByteBuffer[] buffers = getLevelRecordBuffers(timeIdx, aVar);
+            double[][][] theData = unpackARLGridData(buffers, 0, yNum, lonIdx + 1);
             for (int i = 0; i < lNum; i++) {
-                nvarIdx = this.getVariables().get(varIdx).getVarInLevelIdxs().get(i);
-                levIdx = this.getVariables().get(varIdx).getLevelIdxs().get(i);
-                br.seek(aLevPosition);
-                for (int j = 0; j < levIdx; j++) {
-                    br.seek(br.getFilePointer() + LevelVarList.get(j).size() * recLen);
-                }
-                br.seek(br.getFilePointer() + nvarIdx * recLen);
-
-                //Read label
-                aDL = ARLDataInfo.readDataLabel(br);
-
-                //Read Data
-                dataBytes = new byte[(int)recLen - 50];
-                br.read(dataBytes);
-                theData = unpackARLGridData(dataBytes, xNum, yNum, aDL);
                 for (int j = 0; j < yNum; j++) {
-                    newGridData[i][j] = theData[j][lonIdx];
+                    newGridData[i][j] = theData[i][j][lonIdx];
                 }
             }
 
-            br.close();
-
             GridData gridData = new GridData();
             gridData.data = newGridData;
             gridData.missingValue = missingValue;
             gridData.xArray = Y;
             gridData.yArray = new double[lNum];
             for (int i = 0; i < lNum; i++) {
-                gridData.yArray[i] = this.getVariables().get(varIdx).getLevels().get(i);
+                gridData.yArray[i] = aVar.getLevels().get(i);
             }
 
             return gridData;
@@ -1105,51 +1142,25 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
     @Override
     public GridData getGridData_LevelLon(int latIdx, int varIdx, int timeIdx) {
         try {
-            int xNum, yNum, lNum, nvarIdx, levIdx;
+            int xNum, lNum;
             xNum = dataHead.NX;
-            yNum = dataHead.NY;
-            lNum = this.getVariables().get(varIdx).getLevelNum();
-            double[][] theData;
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
-            double[][] newGridData = new double[lNum][xNum];
-            long aLevPosition;
+            Variable aVar = this.getVariables().get(varIdx);
+            lNum = aVar.getLevelNum();
+            double[][] newGridData = new double[lNum][];
 
-            br.seek(timeIdx * recsPerTime * recLen);
-            br.seek(br.getFilePointer() + indexLen);
-            aLevPosition = br.getFilePointer();
-            //levIdx = Variables[cvarIdx].LevelIdxs[0];
+            ByteBuffer[] buffers = getLevelRecordBuffers(timeIdx, aVar);
+            double[][][] theData = unpackARLGridData(buffers, latIdx, latIdx + 1, xNum);
             for (int i = 0; i < lNum; i++) {
-                nvarIdx = this.getVariables().get(varIdx).getVarInLevelIdxs().get(i);
-                levIdx = this.getVariables().get(varIdx).getLevelIdxs().get(i);
-                br.seek(aLevPosition);
-                for (int j = 0; j < levIdx; j++) {
-                    br.seek(br.getFilePointer() + LevelVarList.get(j).size() * recLen);
-                }
-                br.seek(br.getFilePointer() + nvarIdx * recLen);
-
-                //Read label
-                aDL = ARLDataInfo.readDataLabel(br);
-
-                //Read Data
-                dataBytes = new byte[(int)recLen - 50];
-                br.read(dataBytes);
-                theData = unpackARLGridData(dataBytes, xNum, yNum, aDL);
-                for (int j = 0; j < xNum; j++) {
-                    newGridData[i][j] = theData[latIdx][j];
-                }
+                newGridData[i] = theData[i][0];
             }
 
-            br.close();
-
             GridData gridData = new GridData();
             gridData.data = newGridData;
             gridData.missingValue = missingValue;
             gridData.xArray = X;
             gridData.yArray = new double[lNum];
             for (int i = 0; i < lNum; i++) {
-                gridData.yArray[i] = this.getVariables().get(varIdx).getLevels().get(i);
+                gridData.yArray[i] = aVar.getLevels().get(i);
             }
 
             return gridData;
@@ -1163,47 +1174,23 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
     @Override
     public GridData getGridData_LevelTime(int latIdx, int varIdx, int lonIdx) {
         try {
-            int xNum, yNum, lNum, nvarIdx, levIdx, t, tNum;
-            xNum = dataHead.NX;
-            yNum = dataHead.NY;
-            lNum = this.getVariables().get(varIdx).getLevelNum();
+            int lNum, t, tNum;
+            Variable aVar = this.getVariables().get(varIdx);
+            lNum = aVar.getLevelNum();
             tNum = this.getTimeNum();
-            double[][] theData;
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
             double[][] newGridData = new double[lNum][tNum];
-            long aLevPosition;
 
+            ByteBuffer[] buffers = new ByteBuffer[tNum * lNum];
+            for (t = 0; t < tNum; t++) {
+                System.arraycopy(getLevelRecordBuffers(t, aVar), 0, buffers, t * lNum, lNum);
+            }
+            double[][][] theData = unpackARLGridData(buffers, latIdx, latIdx + 1, lonIdx + 1);
             for (t = 0; t < tNum; t++) {
-                br.seek(t * recsPerTime * recLen);
-                br.seek(br.getFilePointer() + indexLen);
-                aLevPosition = br.getFilePointer();
-                //levIdx = this.getVariables().get(varIdx).getLevelIdxs().get(0);
                 for (int i = 0; i < lNum; i++) {
-                    nvarIdx = this.getVariables().get(varIdx).getVarInLevelIdxs().get(i);
-                    levIdx = this.getVariables().get(varIdx).getLevelIdxs().get(i);
-                    br.seek(aLevPosition);
-                    for (int j = 0; j < levIdx; j++) {
-                        br.seek(br.getFilePointer() + LevelVarList.get(j).size() * recLen);
-                    }
-                    br.seek(br.getFilePointer() + nvarIdx * recLen);
-
-                    //Read label
-                    aDL = ARLDataInfo.readDataLabel(br);
-
-                    //Read Data
-                    dataBytes = new byte[(int)recLen - 50];
-                    br.read(dataBytes);
-                    theData = unpackARLGridData(dataBytes, xNum, yNum, aDL);
-
-                    newGridData[i][t] = theData[latIdx][lonIdx];
-
+                    newGridData[i][t] = theData[t * lNum + i][0][lonIdx];
                 }
             }
 
-            br.close();
-
             GridData gridData = new GridData();
             gridData.data = newGridData;
             gridData.missingValue = missingValue;
@@ -1213,7 +1200,7 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
             }
             gridData.yArray = new double[lNum];
             for (int i = 0; i < lNum; i++) {
-                gridData.yArray[i] = this.getVariables().get(varIdx).getLevels().get(i);
+                gridData.yArray[i] = aVar.getLevels().get(i);
             }
 
             return gridData;
@@ -1227,21 +1214,15 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
     @Override
     public GridData getGridData_Time(int lonIdx, int latIdx, int varIdx, int levelIdx) {
         try {
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
-            int xNum, yNum, t;
-            xNum = dataHead.NX;
-            yNum = dataHead.NY;
-            double[][] gridData;
-            double aValue;
+            int t, tNum;
+            tNum = this.getTimeNum();
 
             GridData aGridData = new GridData();
             aGridData.missingValue = missingValue;
-            aGridData.xArray = new double[this.getTimeNum()];
+            aGridData.xArray = new double[tNum];
             aGridData.yArray = new double[1];
             aGridData.yArray[0] = 0;
-            aGridData.data = new double[1][this.getTimeNum()];
+            aGridData.data = new double[1][tNum];
 
             //Update level and variable index
             Variable aVar = this.getVariables().get(varIdx);
@@ -1251,29 +1232,13 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
 
             varIdx = LevelVarList.get(levelIdx).indexOf(aVar.getName());
 
-            for (t = 0; t < this.getTimeNum(); t++) {
-                br.seek(t * recsPerTime * recLen);
-                br.seek(br.getFilePointer() + indexLen);
-                for (int i = 0; i < levelIdx; i++) {
-                    br.seek(br.getFilePointer() + LevelVarList.get(i).size() * recLen);
-                }
-                br.seek(br.getFilePointer() + varIdx * recLen);
-
-                //Read label
-                aDL = ARLDataInfo.readDataLabel(br);
-
-                //Read Data
-                dataBytes = new byte[(int)recLen - 50];
-                br.read(dataBytes);
-                gridData = unpackARLGridData(dataBytes, xNum, yNum, aDL);
-
-                aValue = gridData[latIdx][lonIdx];
+            ByteBuffer[] buffers = getTimeRecordBuffers(levelIdx, varIdx);
+            double[][][] theData = unpackARLGridData(buffers, latIdx, latIdx + 1, lonIdx + 1);
+            for (t = 0; t < tNum; t++) {
                 aGridData.xArray[t] = DateUtil.toOADate(this.getTimes().get(t));
-                aGridData.data[0][t] = aValue;
+                aGridData.data[0][t] = theData[t][0][lonIdx];
             }
 
-            br.close();
-
             return aGridData;
         } catch (IOException ex) {
             Logger.getLogger(ARLDataInfo.class.getName()).log(Level.SEVERE, null, ex);
@@ -1284,15 +1249,8 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
     @Override
     public GridData getGridData_Level(int lonIdx, int latIdx, int varIdx, int timeIdx) {
         try {
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
-            int xNum, yNum, nvarIdx, levIdx, lNum;
-            xNum = dataHead.NX;
-            yNum = dataHead.NY;
-            lNum = this.getVariables().get(varIdx).getLevelNum();
-            double[][] gridData;
-            double aValue;
+            Variable aVar = this.getVariables().get(varIdx);
+            int lNum = aVar.getLevelNum();
 
             GridData aGridData = new GridData();
             aGridData.missingValue = missingValue;
@@ -1301,33 +1259,13 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
             aGridData.yArray[0] = 0;
             aGridData.data = new double[1][lNum];
 
-            br.seek(timeIdx * recsPerTime * recLen);
-            br.seek(br.getFilePointer() + indexLen);
-            long aLevPosition = br.getFilePointer();
-            //levIdx = this.getVariables().get(varIdx).getLevelIdxs().get(0);
+            ByteBuffer[] buffers = getLevelRecordBuffers(timeIdx, aVar);
+            double[][][] theData = unpackARLGridData(buffers, latIdx, latIdx + 1, lonIdx + 1);
             for (int i = 0; i < lNum; i++) {
-                nvarIdx = this.getVariables().get(varIdx).getVarInLevelIdxs().get(i);
-                levIdx = this.getVariables().get(varIdx).getLevelIdxs().get(i);
-                br.seek(aLevPosition);
-                for (int j = 0; j < levIdx; j++) {
-                    br.seek(br.getFilePointer() + LevelVarList.get(j).size() * recLen);
-                }
-                br.seek(br.getFilePointer() + nvarIdx * recLen);
-
-                //Read label
-                aDL = ARLDataInfo.readDataLabel(br);
-
-                //Read Data
-                dataBytes = new byte[(int)recLen - 50];
-                br.read(dataBytes);
-                gridData = unpackARLGridData(dataBytes, xNum, yNum, aDL);
-                aValue = gridData[latIdx][lonIdx];
-                aGridData.xArray[i] = levels.get(levIdx);
-                aGridData.data[0][i] = aValue;
+                aGridData.xArray[i] = levels.get(aVar.getLevelIdxs().get(i));
+                aGridData.data[0][i] = theData[i][0][lonIdx];
             }
 
-            br.close();
-
             return aGridData;
         } catch (IOException ex) {
             Logger.getLogger(ARLDataInfo.class.getName()).log(Level.SEVERE, null, ex);
@@ -1338,21 +1276,11 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
     @Override
     public GridData getGridData_Lon(int timeIdx, int latIdx, int varIdx, int levelIdx) {
         try {
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
-            int xNum, yNum, i;
-            xNum = dataHead.NX;
-            yNum = dataHead.NY;
-            double[][] gridData;
-            double aValue;
-
             GridData aGridData = new GridData();
             aGridData.missingValue = missingValue;
             aGridData.xArray = X;
             aGridData.yArray = new double[1];
             aGridData.yArray[0] = 0;
-            aGridData.data = new double[1][X.length];
 
             //Update level and variable index
             Variable aVar = this.getVariables().get(varIdx);
@@ -1362,27 +1290,9 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
 
             varIdx = LevelVarList.get(levelIdx).indexOf(aVar.getName());
 
-            br.seek(timeIdx * recsPerTime * recLen);
-            br.seek(br.getFilePointer() + indexLen);
-            for (i = 0; i < levelIdx; i++) {
-                br.seek(br.getFilePointer() + LevelVarList.get(i).size() * recLen);
-            }
-            br.seek(br.getFilePointer() + varIdx * recLen);
-
-            //Read label
-            aDL = ARLDataInfo.readDataLabel(br);
-
-            //Read Data
-            dataBytes = new byte[(int)recLen - 50];
-            br.read(dataBytes);
-            gridData = unpackARLGridData(dataBytes, xNum, yNum, aDL);
-
-            for (i = 0; i < xNum; i++) {
-                aValue = gridData[latIdx][i];
-                aGridData.data[0][i] = aValue;
-            }
-
-            br.close();
+            ByteBuffer buffer = getRecordBuffer(timeIdx, levelIdx, varIdx);
+            DataLabel aDL = ARLDataInfo.readDataLabel(buffer);
+            aGridData.data = unpackARLGridData(buffer, aDL, latIdx, latIdx + 1, dataHead.NX);
 
             return aGridData;
         } catch (IOException ex) {
@@ -1394,14 +1304,8 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
     @Override
     public GridData getGridData_Lat(int timeIdx, int lonIdx, int varIdx, int levelIdx) {
         try {
-            RandomAccessFile br = new RandomAccessFile(this.getFileName(), "r");
-            byte[] dataBytes;
-            DataLabel aDL;
-            int xNum, yNum, i;
-            xNum = dataHead.NX;
+            int yNum, i;
             yNum = dataHead.NY;
-            double[][] gridData;
-            double aValue;
 
             GridData aGridData = new GridData();
             aGridData.missingValue = missingValue;
@@ -1418,28 +1322,14 @@ public class ARLDataInfo extends DataInfo implements IGridDataInfo {
 
             varIdx = LevelVarList.get(levelIdx).indexOf(aVar.getName());
 
-            br.seek(timeIdx * recsPerTime * recLen);
-            br.seek(br.getFilePointer() + indexLen);
-            for (i = 0; i < levelIdx; i++) {
-                br.seek(br.getFilePointer() + LevelVarList.get(i).size() * recLen);
-            }
-            br.seek(br.getFilePointer() + varIdx * recLen);
-
-            //Read label
-            aDL = ARLDataInfo.readDataLabel(br);
-
-            //Read Data
-            dataBytes = new byte[(int)recLen - 50];
-            br.read(dataBytes);
-            gridData = unpackARLGridData(dataBytes, xNum, yNum, aDL);
+            ByteBuffer buffer = getRecordBuffer(timeIdx, levelIdx, varIdx);
+            DataLabel aDL = ARLDataInfo.readDataLabel(buffer);
+            double[][] gridData = unpackARLGridData(buffer, aDL, 0, yNum, lonIdx + 1);
 
             for (i = 0; i < yNum; i++) {
-                aValue = gridData[i][lonIdx];
-                aGridData.data[0][i] = aValue;
+                aGridData.data[0][i] = gridData[i][lonIdx];
             }
 
-            br.close();
-
             return aGridData;
         } catch (IOException ex) {
             Logger.getLogger(ARLDataInfo.class.getName()).log(Level.SEVERE, null, ex);
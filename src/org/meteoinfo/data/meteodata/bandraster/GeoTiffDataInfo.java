@@ -18,7 +18,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.meteoinfo.data.ArrayMath;
 import org.meteoinfo.data.GridArray;
 import org.meteoinfo.data.GridData;
 import org.meteoinfo.data.mapdata.geotiff.GeoTiff;
@@ -30,7 +29,6 @@ import org.meteoinfo.data.meteodata.MeteoDataType;
 import org.meteoinfo.data.meteodata.Variable;
 import ucar.ma2.Array;
 import ucar.ma2.IndexIterator;
-import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Range;
 import ucar.nc2.Attribute;
 
@@ -43,6 +41,7 @@ public class GeoTiffDataInfo extends DataInfo implements IGridDataInfo {
     // <editor-fold desc="Variables">
     private GeoTiff geoTiff;
     private int bandNum;
+    private boolean useOverview = true;
 
     // </editor-fold>
     // <editor-fold desc="Constructor">
@@ -54,6 +53,23 @@ public class GeoTiffDataInfo extends DataInfo implements IGridDataInfo {
     }
     // </editor-fold>
     // <editor-fold desc="Get Set Methods">
+    /**
+     * Get if use the overview images when reading with stride
+     *
+     * @return Boolean
+     */
+    public boolean isUseOverview() {
+        return this.useOverview;
+    }
+
+    /**
+     * Set if use the overview images when reading with stride
+     *
+     * @param value Boolean
+     */
+    public void setUseOverview(boolean value) {
+        this.useOverview = value;
+    }
     // </editor-fold>
     // <editor-fold desc="Methods">
 
@@ -148,13 +164,11 @@ public class GeoTiffDataInfo extends DataInfo implements IGridDataInfo {
     @Override
     public Array read(String varName, int[] origin, int[] size, int[] stride) {
         try {
-            Array array = read(varName);
-            array = ArrayMath.section(array, origin, size, stride);            
-            return array;
-        } catch (InvalidRangeException ex) {
+            return this.geoTiff.readArray(origin, size, stride, this.useOverview);
+        } catch (IOException ex) {
             Logger.getLogger(GeoTiffDataInfo.class.getName()).log(Level.SEVERE, null, ex);
             return null;
-        }        
+        }
     }
     
     private void readXY(Range yRange, Range xRange, IndexIterator ii) {
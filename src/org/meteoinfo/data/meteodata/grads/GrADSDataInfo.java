@@ -36,6 +36,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -55,6 +56,7 @@ import org.meteoinfo.data.meteodata.arl.ARLDataInfo;
 import org.meteoinfo.global.Extent;
 import org.meteoinfo.global.util.BigDecimalUtil;
 import org.meteoinfo.global.util.DateUtil;
+import org.meteoinfo.io.MappedFileCache;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.IndexIterator;
@@ -169,6 +171,7 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
     public int YNum;
     private DataOutputStream _bw = null;
     private ByteOrder _byteOrder = ByteOrder.LITTLE_ENDIAN;
+    private boolean _memoryMapped = false;
     // </editor-fold>
     // <editor-fold desc="Constructor">
 
@@ -270,6 +273,25 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
             _byteOrder = ByteOrder.LITTLE_ENDIAN;
         }
     }
+
+    /**
+     * Get if the data files are read by memory mapping
+     *
+     * @return Boolean
+     */
+    public boolean isMemoryMapped() {
+        return _memoryMapped;
+    }
+
+    /**
+     * Set if the data files are read by memory mapping. Mapped regions are
+     * shared by all data infos through MappedFileCache.
+     *
+     * @param value Boolean
+     */
+    public void setMemoryMapped(boolean value) {
+        _memoryMapped = value;
+    }
     // </editor-fold>
     // <editor-fold desc="Methods">
     // <editor-fold desc="Read and write data">
@@ -1377,6 +1399,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
     }
 
     private void readXY(String varName, int timeIdx, int levelIdx, Range yRange, Range xRange, IndexIterator ii) {
+        if (_memoryMapped) {
+            readXY_Mapped(varName, 0, timeIdx, levelIdx, yRange, xRange, ii);
+            return;
+        }
         try {
             int varIdx = this.getVariableNames().indexOf(varName);
             int xNum, yNum;
@@ -1438,6 +1464,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
     }
     
     private void readXY(String varName, int eIdx, int timeIdx, int levelIdx, Range yRange, Range xRange, IndexIterator ii) {
+        if (_memoryMapped) {
+            readXY_Mapped(varName, eIdx, timeIdx, levelIdx, yRange, xRange, ii);
+            return;
+        }
         try {
             int varIdx = this.getVariableNames().indexOf(varName);
             int xNum, yNum;
@@ -1548,6 +1578,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
      * @return Grid data array
      */
     private double[][] readGrADSData_Grid_LonLat(int timeIdx, int varIdx, int levelIdx) throws FileNotFoundException, IOException {
+        if (_memoryMapped) {
+            return readGrADSData_Grid_LonLat_Mapped(timeIdx, varIdx, levelIdx);
+        }
+
         int xNum, yNum;
         xNum = XNum;
         yNum = YNum;
@@ -1605,6 +1639,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
 
     @Override
     public GridData getGridData_TimeLat(int lonIdx, int varIdx, int levelIdx) {
+        if (_memoryMapped) {
+            return getGridData_TimeLat_Mapped(lonIdx, varIdx, levelIdx);
+        }
+
         try {
             int xNum, yNum;
             xNum = YNum;
@@ -1705,6 +1743,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
 
     @Override
     public GridData getGridData_TimeLon(int latIdx, int varIdx, int levelIdx) {
+        if (_memoryMapped) {
+            return getGridData_TimeLon_Mapped(latIdx, varIdx, levelIdx);
+        }
+
         try {
             int xNum, yNum;
             xNum = XNum;
@@ -1798,6 +1840,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
 
     @Override
     public GridData getGridData_LevelLat(int lonIdx, int varIdx, int timeIdx) {
+        if (_memoryMapped) {
+            return getGridData_LevelLat_Mapped(lonIdx, varIdx, timeIdx);
+        }
+
         try {
             int xNum, yNum;
             xNum = YNum;
@@ -1865,6 +1911,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
 
     @Override
     public GridData getGridData_LevelLon(int latIdx, int varIdx, int timeIdx) {
+        if (_memoryMapped) {
+            return getGridData_LevelLon_Mapped(latIdx, varIdx, timeIdx);
+        }
+
         try {
             int xNum, yNum;
             xNum = XNum;
@@ -1932,6 +1982,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
 
     @Override
     public GridData getGridData_LevelTime(int latIdx, int varIdx, int lonIdx) {
+        if (_memoryMapped) {
+            return getGridData_LevelTime_Mapped(latIdx, varIdx, lonIdx);
+        }
+
         try {
             int xNum, yNum;
             xNum = TDEF.getTimeNum();
@@ -2032,6 +2086,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
 
     @Override
     public GridData getGridData_Time(int lonIdx, int latIdx, int varIdx, int levelIdx) {
+        if (_memoryMapped) {
+            return getGridData_Time_Mapped(lonIdx, latIdx, varIdx, levelIdx);
+        }
+
         try {
             int i, lNum, t;
             byte[] aBytes = new byte[4];
@@ -2120,6 +2178,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
 
     @Override
     public GridData getGridData_Level(int lonIdx, int latIdx, int varIdx, int timeIdx) {
+        if (_memoryMapped) {
+            return getGridData_Level_Mapped(lonIdx, latIdx, varIdx, timeIdx);
+        }
+
         try {
             String filePath = DSET;
             int tIdx = timeIdx;
@@ -2178,6 +2240,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
 
     @Override
     public GridData getGridData_Lon(int timeIdx, int latIdx, int varIdx, int levelIdx) {
+        if (_memoryMapped) {
+            return getGridData_Lon_Mapped(timeIdx, latIdx, varIdx, levelIdx);
+        }
+
         try {
             String filePath = DSET;
             int tIdx = timeIdx;
@@ -2230,6 +2296,10 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
 
     @Override
     public GridData getGridData_Lat(int timeIdx, int lonIdx, int varIdx, int levelIdx) {
+        if (_memoryMapped) {
+            return getGridData_Lat_Mapped(timeIdx, lonIdx, varIdx, levelIdx);
+        }
+
         try {
             String filePath = DSET;
             int tIdx = timeIdx;
@@ -2281,6 +2351,342 @@ public class GrADSDataInfo extends DataInfo implements IGridDataInfo, IStationDa
         return null;
     }
 
+    // <editor-fold desc="Memory mapped read">
+    /**
+     * Get data file path and the time index in the file
+     *
+     * @param timeIdx Time index
+     * @return File path and time index in the file
+     */
+    private Object[] getTimeFile(int timeIdx) {
+        String filePath = DSET;
+        int tIdx = timeIdx;
+        if (OPTIONS.template) {
+            Object[] result = getFilePath_Template(timeIdx);
+            filePath = (String) result[0];
+            tIdx = (int) result[1];
+            if (tIdx < 0) {
+                tIdx = 0;
+            }
+        }
+
+        return new Object[]{filePath, tIdx};
+    }
+
+    /**
+     * Get start position of a X/Y record in the data file
+     *
+     * @param eIdx Ensemble index
+     * @param tIdx Time index in the file
+     * @param varIdx Variable index
+     * @param levelIdx Level index
+     * @return Record position
+     */
+    private long getRecordPosition(int eIdx, int tIdx, int varIdx, int levelIdx) {
+        long pos = FILEHEADER + (long) eIdx * this.getTimeNum() * RecLenPerTime + tIdx * RecLenPerTime;
+        int lNum;
+        for (int i = 0; i < varIdx; i++) {
+            lNum = VARDEF.getVars().get(i).getLevelNum();
+            if (lNum == 0) {
+                lNum = 1;
+            }
+            pos += (long) lNum * RecordLen;
+        }
+        pos += (long) levelIdx * RecordLen;
+        if (OPTIONS.sequential) {
+            pos += 4;
+        }
+
+        return pos;
+    }
+
+    /**
+     * Get memory mapped float buffer of a X/Y record
+     *
+     * @param eIdx Ensemble index
+     * @param timeIdx Time index
+     * @param varIdx Variable index
+     * @param levelIdx Level index
+     * @return Float buffer of the record, index is y * XNum + x
+     * @throws IOException
+     */
+    private FloatBuffer mapRecord(int eIdx, int timeIdx, int varIdx, int levelIdx) throws IOException {
+        Object[] result = getTimeFile(timeIdx);
+        String filePath = (String) result[0];
+        int tIdx = (int) result[1];
+        long pos = getRecordPosition(eIdx, tIdx, varIdx, levelIdx);
+
+        return MappedFileCache.getFloatBuffer(filePath, pos, XNum * YNum, _byteOrder);
+    }
+
+    private int getLevelNum(int varIdx) {
+        int lNum = VARDEF.getVars().get(varIdx).getLevelNum();
+        return lNum == 0 ? 1 : lNum;
+    }
+
+    private double[] getLevels(int varIdx) {
+        double[] levels = new double[VARDEF.getVars().get(varIdx).getLevelNum()];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = ZDEF.ZLevels[i];
+        }
+        return levels;
+    }
+
+    private double[] getTimeValues() {
+        double[] values = new double[this.getTimeNum()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = DateUtil.toOADate(this.getTimes().get(i));
+        }
+        return values;
+    }
+
+    private void readXY_Mapped(String varName, int eIdx, int timeIdx, int levelIdx, Range yRange, Range xRange, IndexIterator ii) {
+        try {
+            int varIdx = this.getVariableNames().indexOf(varName);
+            FloatBuffer fb = mapRecord(eIdx, timeIdx, varIdx, levelIdx);
+            for (int y = yRange.first(); y <= yRange.last(); y += yRange.stride()) {
+                int offset = y * XNum;
+                for (int x = xRange.first(); x <= xRange.last(); x += xRange.stride()) {
+                    ii.setFloatNext(fb.get(offset + x));
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(GrADSDataInfo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private double[][] readGrADSData_Grid_LonLat_Mapped(int timeIdx, int varIdx, int levelIdx) throws IOException {
+        double[][] gridData = new double[YNum][XNum];
+        FloatBuffer fb = mapRecord(0, timeIdx, varIdx, levelIdx);
+        float[] row = new float[XNum];
+        for (int i = 0; i < YNum; i++) {
+            fb.get(row);
+            for (int j = 0; j < XNum; j++) {
+                gridData[i][j] = row[j];
+            }
+        }
+
+        return gridData;
+    }
+
+    private GridData getGridData_TimeLat_Mapped(int lonIdx, int varIdx, int levelIdx) {
+        try {
+            int tNum = TDEF.getTimeNum();
+            double[][] gridData = new double[tNum][YNum];
+            for (int t = 0; t < tNum; t++) {
+                FloatBuffer fb = mapRecord(0, t, varIdx, levelIdx);
+                for (int i = 0; i < YNum; i++) {
+                    gridData[t][i] = fb.get(i * XNum + lonIdx);
+                }
+            }
+
+            GridData aGridData = new GridData();
+            aGridData.data = gridData;
+            aGridData.missingValue = this.getMissingValue();
+            aGridData.xArray = Y;
+            aGridData.yArray = getTimeValues();
+
+            return aGridData;
+        } catch (IOException ex) {
+            Logger.getLogger(GrADSDataInfo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return null;
+    }
+
+    private GridData getGridData_TimeLon_Mapped(int latIdx, int varIdx, int levelIdx) {
+        try {
+            int tNum = TDEF.getTimeNum();
+            double[][] gridData = new double[tNum][XNum];
+            float[] row = new float[XNum];
+            for (int t = 0; t < tNum; t++) {
+                FloatBuffer fb = mapRecord(0, t, varIdx, levelIdx);
+                fb.position(latIdx * XNum);
+                fb.get(row);
+                for (int j = 0; j < XNum; j++) {
+                    gridData[t][j] = row[j];
+                }
+            }
+
+            GridData aGridData = new GridData();
+            aGridData.data = gridData;
+            aGridData.missingValue = this.getMissingValue();
+            aGridData.xArray = X;
+            aGridData.yArray = getTimeValues();
+
+            return aGridData;
+        } catch (IOException ex) {
+            Logger.getLogger(GrADSDataInfo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return null;
+    }
+
+    private GridData getGridData_LevelLat_Mapped(int lonIdx, int varIdx, int timeIdx) {
+        try {
+            int lNum = VARDEF.getVars().get(varIdx).getLevelNum();
+            double[][] gridData = new double[lNum][YNum];
+            for (int l = 0; l < lNum; l++) {
+                FloatBuffer fb = mapRecord(0, timeIdx, varIdx, l);
+                for (int j = 0; j < YNum; j++) {
+                    gridData[l][j] = fb.get(j * XNum + lonIdx);
+                }
+            }
+
+            GridData aGridData = new GridData();
+            aGridData.data = gridData;
+            aGridData.missingValue = this.getMissingValue();
+            aGridData.xArray = Y;
+            aGridData.yArray = getLevels(varIdx);
+
+            return aGridData;
+        } catch (IOException ex) {
+            Logger.getLogger(GrADSDataInfo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return null;
+    }
+
+    private GridData getGridData_LevelLon_Mapped(int latIdx, int varIdx, int timeIdx) {
+        try {
+            int lNum = VARDEF.getVars().get(varIdx).getLevelNum();
+            double[][] gridData = new double[lNum][XNum];
+            float[] row = new float[XNum];
+            for (int l = 0; l < lNum; l++) {
+                FloatBuffer fb = mapRecord(0, timeIdx, varIdx, l);
+                fb.position(latIdx * XNum);
+                fb.get(row);
+                for (int j = 0; j < XNum; j++) {
+                    gridData[l][j] = row[j];
+                }
+            }
+
+            GridData aGridData = new GridData();
+            aGridData.data = gridData;
+            aGridData.missingValue = this.getMissingValue();
+            aGridData.xArray = X;
+            aGridData.yArray = getLevels(varIdx);
+
+            return aGridData;
+        } catch (IOException ex) {
+            Logger.getLogger(GrADSDataInfo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return null;
+    }
+
+    private GridData getGridData_LevelTime_Mapped(int latIdx, int varIdx, int lonIdx) {
+        try {
+            int tNum = TDEF.getTimeNum();
+            int lNum = VARDEF.getVars().get(varIdx).getLevelNum();
+            double[][] gridData = new double[lNum][tNum];
+            int idx = latIdx * XNum + lonIdx;
+            for (int t = 0; t < tNum; t++) {
+                for (int l = 0; l < lNum; l++) {
+                    gridData[l][t] = mapRecord(0, t, varIdx, l).get(idx);
+                }
+            }
+
+            GridData aGridData = new GridData();
+            aGridData.data = gridData;
+            aGridData.missingValue = this.getMissingValue();
+            aGridData.xArray = getTimeValues();
+            aGridData.yArray = getLevels(varIdx);
+
+            return aGridData;
+        } catch (IOException ex) {
+            Logger.getLogger(GrADSDataInfo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return null;
+    }
+
+    private GridData getGridData_Time_Mapped(int lonIdx, int latIdx, int varIdx, int levelIdx) {
+        try {
+            int tNum = TDEF.getTimeNum();
+            GridData aGridData = new GridData();
+            aGridData.missingValue = this.getMissingValue();
+            aGridData.xArray = new double[tNum];
+            aGridData.yArray = new double[]{0};
+            aGridData.data = new double[1][tNum];
+            int idx = latIdx * XNum + lonIdx;
+            for (int t = 0; t < tNum; t++) {
+                aGridData.xArray[t] = DateUtil.toOADate(TDEF.times.get(t));
+                aGridData.data[0][t] = mapRecord(0, t, varIdx, levelIdx).get(idx);
+            }
+
+            return aGridData;
+        } catch (IOException ex) {
+            Logger.getLogger(GrADSDataInfo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return null;
+    }
+
+    private GridData getGridData_Level_Mapped(int lonIdx, int latIdx, int varIdx, int timeIdx) {
+        try {
+            int lNum = Math.min(ZDEF.ZNum, getLevelNum(varIdx));
+            GridData aGridData = new GridData();
+            aGridData.missingValue = this.getMissingValue();
+            aGridData.xArray = new double[lNum];
+            aGridData.yArray = new double[]{0};
+            aGridData.data = new double[1][lNum];
+            int idx = latIdx * XNum + lonIdx;
+            for (int l = 0; l < lNum; l++) {
+                aGridData.xArray[l] = ZDEF.ZLevels[l];
+                aGridData.data[0][l] = mapRecord(0, timeIdx, varIdx, l).get(idx);
+            }
+
+            return aGridData;
+        } catch (IOException ex) {
+            Logger.getLogger(GrADSDataInfo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return null;
+    }
+
+    private GridData getGridData_Lon_Mapped(int timeIdx, int latIdx, int varIdx, int levelIdx) {
+        try {
+            GridData aGridData = new GridData();
+            aGridData.missingValue = this.getMissingValue();
+            aGridData.xArray = X;
+            aGridData.yArray = new double[]{0};
+            aGridData.data = new double[1][XNum];
+            FloatBuffer fb = mapRecord(0, timeIdx, varIdx, levelIdx);
+            int offset = latIdx * XNum;
+            for (int i = 0; i < XNum; i++) {
+                aGridData.data[0][i] = fb.get(offset + i);
+            }
+
+            return aGridData;
+        } catch (IOException ex) {
+            Logger.getLogger(GrADSDataInfo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return null;
+    }
+
+    private GridData getGridData_Lat_Mapped(int timeIdx, int lonIdx, int varIdx, int levelIdx) {
+        try {
+            GridData aGridData = new GridData();
+            aGridData.missingValue = this.getMissingValue();
+            aGridData.xArray = Y;
+            aGridData.yArray = new double[]{0};
+            aGridData.data = new double[1][YNum];
+            FloatBuffer fb = mapRecord(0, timeIdx, varIdx, levelIdx);
+            for (int i = 0; i < YNum; i++) {
+                aGridData.data[0][i] = fb.get(i * XNum + lonIdx);
+            }
+
+            return aGridData;
+        } catch (IOException ex) {
+            Logger.getLogger(GrADSDataInfo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return null;
+    }
+    // </editor-fold>
+
     /**
      * Get GrADS station data
      *
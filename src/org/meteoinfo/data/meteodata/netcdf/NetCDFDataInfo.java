@@ -56,7 +56,6 @@ import ucar.ma2.Section;
 import ucar.nc2.Attribute;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
-import ucar.nc2.dataset.NetcdfDataset;
 
 /**
  *
@@ -179,7 +178,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
         this.setFileName(fileName);
         try {
             //ncfile = NetcdfFile.open(fileName);
-            ncfile = NetcdfDataset.openFile(fileName, null);
+            ncfile = NetcdfFilePool.acquire(fileName);
             readDataInfo();
         } catch (IOException ex) {
             Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
@@ -201,9 +200,9 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
                 break;
         }
         try {
-            ncfile = NetcdfFile.open(fileName, iospClassName, 0, null, null);
+            ncfile = NetcdfFilePool.acquire(fileName, iospClassName);
             readDataInfo();
-        } catch (ClassNotFoundException | IllegalAccessException | InstantiationException | IOException ex) {
+        } catch (IOException ex) {
             Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
@@ -326,12 +325,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
         } finally {
             if (null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -341,7 +336,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
         this.setFileName(fileName);
         try {
             //ncfile = NetcdfFile.open(fileName);
-            ncfile = NetcdfDataset.openFile(fileName, null);
+            ncfile = NetcdfFilePool.acquire(fileName);
             _fileTypeStr = ncfile.getFileTypeDescription();
             _fileTypeId = ncfile.getFileTypeId();
 //            if (_fileTypeId.equals("GRIB2")){
@@ -460,16 +455,24 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             this.keepOpen = keepOpen;
             if (!keepOpen) {
                 if (null != ncfile) {
-                    try {
-                        ncfile.close();
-                        ncfile = null;
-                    } catch (IOException ex) {
-                        Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                    }
+                    NetcdfFilePool.release(ncfile);
+                    ncfile = null;
                 }
             }
         }
-        this.keepOpen = true;
+    }
+
+    /**
+     * Close the kept open netCDF file and the idle pooled handles of the file
+     */
+    public void close() {
+        if (null != ncfile) {
+            NetcdfFilePool.close(ncfile);
+            ncfile = null;
+        }
+        if (this.getFileName() != null) {
+            NetcdfFilePool.invalidate(this.getFileName());
+        }
     }
 
     private int getDimensionIndex(ucar.nc2.Dimension dim) {
@@ -1997,7 +2000,13 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
         return tVarIdx;
     }
 
-    private double[] getPackData(ucar.nc2.Variable var) {
+    /**
+     * Get pack data - add_offset, scale_factor and missing value
+     *
+     * @param var The netCDF variable
+     * @return Pack data
+     */
+    double[] getPackData(ucar.nc2.Variable var) {
         double add_offset, scale_factor, missingValue = this.getMissingValue();
         add_offset = 0;
         scale_factor = 1;
@@ -2046,7 +2055,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public GridData getGridData_LonLat(int timeIdx, int varIdx, int levelIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i, j;
@@ -2157,12 +2166,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -2171,7 +2176,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public GridData getGridData_TimeLat(int lonIdx, int varIdx, int levelIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i, j;
@@ -2251,12 +2256,9 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
             return null;
         } finally {
-            if (null != ncfile) {
-                try {
-                    ncfile.close();
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+            if (!this.keepOpen && null != ncfile) {
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -2265,7 +2267,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public GridData getGridData_TimeLon(int latIdx, int varIdx, int levelIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i, j;
@@ -2342,12 +2344,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -2356,7 +2354,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public GridData getGridData_LevelLat(int lonIdx, int varIdx, int timeIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i, j;
@@ -2438,12 +2436,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -2452,7 +2446,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public GridData getGridData_LevelLon(int latIdx, int varIdx, int timeIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i, j;
@@ -2529,12 +2523,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -2543,7 +2533,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public GridData getGridData_LevelTime(int latIdx, int varIdx, int lonIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i, j;
@@ -2625,12 +2615,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -2639,7 +2625,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public GridData getGridData_Time(int lonIdx, int latIdx, int varIdx, int levelIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i;
@@ -2712,12 +2698,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -2726,7 +2708,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public GridData getGridData_Level(int lonIdx, int latIdx, int varIdx, int timeIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i;
@@ -2799,12 +2781,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -2813,7 +2791,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public GridData getGridData_Lon(int timeIdx, int latIdx, int varIdx, int levelIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i;
@@ -2886,12 +2864,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -2900,7 +2874,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public GridData getGridData_Lat(int timeIdx, int lonIdx, int varIdx, int levelIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i;
@@ -2973,12 +2947,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -2987,7 +2957,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public StationData getStationData(int timeIdx, int varIdx, int levelIdx) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfFile.open(this.getFileName());
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
 
             int i;
@@ -3108,12 +3078,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -3138,7 +3104,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public Array read(String varName) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfFile.open(this.getFileName());
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
             ucar.nc2.Variable var = ncfile.findVariable(varName);
 
@@ -3150,12 +3116,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -3173,7 +3135,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public Array read(String varName, int[] origin, int[] size, int[] stride) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfDataset.openFile(this.getFileName(), null);
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
             ucar.nc2.Variable var = ncfile.findVariable(varName);
             if (var == null) {
@@ -3238,12 +3200,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -3259,7 +3217,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public Array read(String varName, int[] origin, int[] size) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfFile.open(this.getFileName());
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
             ucar.nc2.Variable var = ncfile.findVariable(varName);
 
@@ -3272,12 +3230,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -3293,7 +3247,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public Array read_pack(String varName, int[] origin, int[] size) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfFile.open(this.getFileName());
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
             ucar.nc2.Variable var = ncfile.findVariable(varName);
 
@@ -3317,12 +3271,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -3330,7 +3280,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
     public Array read(String varName, String key) {
         try {
             if (ncfile == null) {
-                ncfile = NetcdfFile.open(this.getFileName());
+                ncfile = NetcdfFilePool.acquire(this.getFileName());
             }
             ucar.nc2.Variable var = ncfile.findVariable(varName);
 
@@ -3342,12 +3292,8 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
             return null;
         } finally {
             if (!this.keepOpen && null != ncfile) {
-                try {
-                    ncfile.close();
-                    ncfile = null;
-                } catch (IOException ex) {
-                    Logger.getLogger(NetCDFDataInfo.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                NetcdfFilePool.release(ncfile);
+                ncfile = null;
             }
         }
     }
@@ -3439,6 +3385,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
      * @throws java.io.IOException
      */
     public NetcdfFileWriter createNCFile(String fileName) throws IOException {
+        NetcdfFilePool.invalidate(fileName);
         NetcdfFileWriter ncfilew = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileName);
 
         //Define dimensions
@@ -3568,6 +3515,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
         }
 
         //Create output nc file and write the data of the first file
+        NetcdfFilePool.invalidate(outFile);
         NetcdfFileWriter ncfilew = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, outFile);
 
         //Define dimensions
@@ -3761,6 +3709,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
         }
 
         //Create output nc file and write the data of the first file
+        NetcdfFilePool.invalidate(outFile);
         NetcdfFileWriter ncfilew = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, outFile);
 
         //Define dimensions
@@ -3943,6 +3892,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
         aDataInfo.readDataInfo(aFile);
 
         //Create nc file writer
+        NetcdfFilePool.invalidate(outFile);
         NetcdfFileWriter ncfile = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, outFile);
 
         //Define dimensions
@@ -4161,6 +4111,7 @@ public class NetCDFDataInfo extends DataInfo implements IGridDataInfo, IStationD
         Date sTime = format.parse("1800-1-1 00:00:00");
         int tvalue = DataInfo.getTimeValue(aTime, sTime, timeUnit.toLowerCase());
 
+        NetcdfFilePool.invalidate(outFile);
         NetcdfFileWriter ncfilew = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, outFile);
 
         //Define dimensions
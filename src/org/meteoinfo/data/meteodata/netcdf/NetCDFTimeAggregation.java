@@ -0,0 +1,480 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.data.meteodata.netcdf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.meteoinfo.data.GridData;
+import org.meteoinfo.data.meteodata.Dimension;
+import org.meteoinfo.data.meteodata.DimensionType;
+import org.meteoinfo.data.meteodata.Variable;
+import org.meteoinfo.global.util.DateUtil;
+import org.meteoinfo.global.util.ParallelUtil;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.Index;
+import ucar.ma2.IndexIterator;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
+import ucar.nc2.NetcdfFile;
+
+/**
+ * Virtual aggregation of netCDF files along the time dimension, like a NcML
+ * union of files with same variables and dimensions except time. Data are
+ * read from each file by hyperslab without creating a joined file. File
+ * handles are shared through NetcdfFilePool, which bounds the number of open
+ * files.
+ *
+ * @author Yaqiang Wang
+ */
+public class NetCDFTimeAggregation {
+    // <editor-fold desc="Variables">
+
+    private final List<String> fileNames;
+    private final NetCDFDataInfo dataInfo;
+    private final int[] fileStarts;
+    private final double[] times;
+    private boolean parallel = true;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor. The data info of each file is read to get its times, and
+     * the first file is used as template of variables and dimensions.
+     *
+     * @param fileNames Data file names in time order
+     * @throws IOException
+     */
+    public NetCDFTimeAggregation(List<String> fileNames) throws IOException {
+        if (fileNames.isEmpty()) {
+            throw new IOException("No data file");
+        }
+
+        this.fileNames = new ArrayList<>(fileNames);
+        int n = fileNames.size();
+        final double[][] fileTimes = new double[n][];
+        final NetCDFDataInfo[] infos = new NetCDFDataInfo[n];
+        ParallelUtil.parallelFor(n, 1, new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    NetCDFDataInfo info = new NetCDFDataInfo();
+                    info.readDataInfo(NetCDFTimeAggregation.this.fileNames.get(i), false);
+                    Dimension tDim = info.getTimeDimension();
+                    if (tDim != null) {
+                        fileTimes[i] = tDim.getValues();
+                    }
+                    if (i == 0) {
+                        infos[0] = info;
+                    }
+                }
+            }
+        });
+
+        this.dataInfo = infos[0];
+        this.fileStarts = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (fileTimes[i] == null) {
+                throw new IOException("No time dimension: " + this.fileNames.get(i));
+            }
+            fileStarts[i + 1] = fileStarts[i] + fileTimes[i].length;
+        }
+        this.times = new double[fileStarts[n]];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(fileTimes[i], 0, times, fileStarts[i], fileTimes[i].length);
+        }
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get data file names
+     *
+     * @return Data file names
+     */
+    public List<String> getFileNames() {
+        return this.fileNames;
+    }
+
+    /**
+     * Get data info of the first file as template of variables and dimensions
+     *
+     * @return Data info
+     */
+    public NetCDFDataInfo getDataInfo() {
+        return this.dataInfo;
+    }
+
+    /**
+     * Get aggregated time number
+     *
+     * @return Time number
+     */
+    public int getTimeNum() {
+        return this.times.length;
+    }
+
+    /**
+     * Get aggregated time values (OA date)
+     *
+     * @return Time values
+     */
+    public double[] getTimeValues() {
+        return this.times;
+    }
+
+    /**
+     * Get aggregated times
+     *
+     * @return Times
+     */
+    public List<Date> getTimes() {
+        List<Date> r = new ArrayList<>();
+        for (double t : times) {
+            r.add(DateUtil.fromOADate(t));
+        }
+        return r;
+    }
+
+    /**
+     * Get if the files are read in parallel
+     *
+     * @return Boolean
+     */
+    public boolean isParallel() {
+        return this.parallel;
+    }
+
+    /**
+     * Set if the files are read in parallel
+     *
+     * @param value Boolean
+     */
+    public void setParallel(boolean value) {
+        this.parallel = value;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Get the index of the file containing an aggregated time index
+     *
+     * @param timeIdx Aggregated time index
+     * @return File index
+     */
+    public int getFileIndex(int timeIdx) {
+        int lo = 0, hi = fileNames.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (fileStarts[mid] <= timeIdx) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Close the idle pooled file handles of the aggregated files
+     */
+    public void close() {
+        for (String fileName : fileNames) {
+            NetcdfFilePool.invalidate(fileName);
+        }
+    }
+
+    /**
+     * Read array data of a variable. The origin and size of the time
+     * dimension are in the aggregated time. The result is double if the
+     * files give different data types, for example packed and unpacked.
+     *
+     * @param varName Variable name
+     * @param origin The origin array
+     * @param size The size array
+     * @return Array data
+     * @throws IOException
+     * @throws InvalidRangeException
+     */
+    public Array read(String varName, int[] origin, final int[] size) throws IOException, InvalidRangeException {
+        final int tDimIdx = getTimeDimIndex(varName);
+        final Array[] result = new Array[1];
+        read(varName, origin, size, new SliceHandler() {
+            @Override
+            public void slice(int timeOffset, Array data) throws InvalidRangeException {
+                if (result[0] == null) {
+                    result[0] = Array.factory(data.getDataType(), size);
+                } else if (result[0].getDataType() != data.getDataType()
+                        && result[0].getDataType() != DataType.DOUBLE) {
+                    //Widen the slices read before
+                    Array r = Array.factory(DataType.DOUBLE, size);
+                    MAMath.copyDouble(r, result[0]);
+                    result[0] = r;
+                }
+                int[] sOrigin = new int[size.length];
+                sOrigin[tDimIdx] = timeOffset;
+                MAMath.copy(result[0].section(sOrigin, data.getShape()), data);
+            }
+        });
+
+        return result[0];
+    }
+
+    /**
+     * Read array data of a variable and pass it to a handler file by file in
+     * time order, so the whole time series is not held in memory. The origin
+     * and size of the time dimension are in the aggregated time.
+     *
+     * @param varName Variable name
+     * @param origin The origin array
+     * @param size The size array
+     * @param handler Slice handler
+     * @throws IOException
+     * @throws InvalidRangeException
+     */
+    public void read(final String varName, final int[] origin, final int[] size, SliceHandler handler)
+            throws IOException, InvalidRangeException {
+        final int tDimIdx = getTimeDimIndex(varName);
+        final int tStart = origin[tDimIdx];
+        final int tEnd = tStart + size[tDimIdx];
+        if (tStart < 0 || tEnd > times.length || tEnd <= tStart) {
+            throw new InvalidRangeException("Invalid time range: " + tStart + " - " + tEnd);
+        }
+
+        int f0 = getFileIndex(tStart);
+        int f1 = getFileIndex(tEnd - 1);
+        int batch = parallel ? Math.max(1, Math.min(NetcdfFilePool.getMaxOpenFiles(), ParallelUtil.getParallelism())) : 1;
+        for (int b = f0; b <= f1; b += batch) {
+            final int bStart = b;
+            int n = Math.min(batch, f1 - b + 1);
+            final Array[] slabs = new Array[n];
+            final Exception[] error = new Exception[1];
+            ParallelUtil.parallelFor(n, 1, new ParallelUtil.RangeTask() {
+                @Override
+                public void run(int start, int end) {
+                    for (int i = start; i < end; i++) {
+                        try {
+                            slabs[i] = readFile(bStart + i, varName, origin, size, tDimIdx, tStart, tEnd);
+                        } catch (IOException | InvalidRangeException ex) {
+                            error[0] = ex;
+                        }
+                    }
+                }
+            });
+            if (error[0] instanceof IOException) {
+                throw (IOException) error[0];
+            } else if (error[0] instanceof InvalidRangeException) {
+                throw (InvalidRangeException) error[0];
+            }
+
+            for (int i = 0; i < n; i++) {
+                if (slabs[i] == null) {
+                    continue;
+                }
+                handler.slice(Math.max(tStart, fileStarts[bStart + i]) - tStart, slabs[i]);
+            }
+        }
+    }
+
+    /**
+     * Get time series grid data of a point
+     *
+     * @param lonIdx Longitude index
+     * @param latIdx Latitude index
+     * @param varIdx Variable index
+     * @param levelIdx Level index
+     * @return Grid data
+     */
+    public GridData getGridData_Time(int lonIdx, int latIdx, int varIdx, int levelIdx) {
+        try {
+            Variable nvar = dataInfo.getVariables().get(varIdx);
+            int tNum = times.length;
+            int[][] section = getSection(nvar, lonIdx, latIdx, levelIdx, 1);
+            Array data = read(nvar.getName(), section[0], section[1]);
+
+            GridData aGridData = new GridData();
+            aGridData.data = new double[1][tNum];
+            for (int i = 0; i < tNum; i++) {
+                aGridData.data[0][i] = data.getDouble(i);
+            }
+            aGridData.xArray = times.clone();
+            aGridData.yArray = new double[1];
+            aGridData.missingValue = nvar.getFillValue();
+
+            return aGridData;
+        } catch (IOException | InvalidRangeException ex) {
+            Logger.getLogger(NetCDFTimeAggregation.class.getName()).log(Level.SEVERE, null, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Get level - time grid data of a point
+     *
+     * @param latIdx Latitude index
+     * @param varIdx Variable index
+     * @param lonIdx Longitude index
+     * @return Grid data
+     */
+    public GridData getGridData_LevelTime(int latIdx, int varIdx, int lonIdx) {
+        try {
+            Variable nvar = dataInfo.getVariables().get(varIdx);
+            int tNum = times.length;
+            int lNum = nvar.getZDimension().getLength();
+            int[][] section = getSection(nvar, lonIdx, latIdx, 0, lNum);
+            Array data = read(nvar.getName(), section[0], section[1]);
+            int tDimIdx = getTimeDimIndex(nvar.getName());
+            int zDimIdx = nvar.getDimIndex(nvar.getZDimension());
+
+            GridData aGridData = new GridData();
+            aGridData.data = new double[lNum][tNum];
+            Index index = data.getIndex();
+            for (int i = 0; i < lNum; i++) {
+                index.setDim(zDimIdx, i);
+                for (int j = 0; j < tNum; j++) {
+                    index.setDim(tDimIdx, j);
+                    aGridData.data[i][j] = data.getDouble(index);
+                }
+            }
+            aGridData.xArray = times.clone();
+            aGridData.yArray = nvar.getZDimension().getValues();
+            aGridData.missingValue = nvar.getFillValue();
+
+            return aGridData;
+        } catch (IOException | InvalidRangeException ex) {
+            Logger.getLogger(NetCDFTimeAggregation.class.getName()).log(Level.SEVERE, null, ex);
+            return null;
+        }
+    }
+
+    private int[][] getSection(Variable nvar, int lonIdx, int latIdx, int levelIdx, int levelNum) {
+        int rank = nvar.getDimNumber();
+        int[] origin = new int[rank];
+        int[] size = new int[rank];
+        for (int i = 0; i < rank; i++) {
+            Dimension ndim = nvar.getDimension(i);
+            switch (ndim.getDimType()) {
+                case T:
+                    origin[i] = 0;
+                    size[i] = times.length;
+                    break;
+                case Z:
+                    origin[i] = levelIdx;
+                    size[i] = levelNum;
+                    break;
+                case Y:
+                    origin[i] = latIdx;
+                    size[i] = 1;
+                    break;
+                case X:
+                    origin[i] = lonIdx;
+                    size[i] = 1;
+                    break;
+                default:
+                    origin[i] = 0;
+                    size[i] = 1;
+                    break;
+            }
+        }
+        return new int[][]{origin, size};
+    }
+
+    private int getTimeDimIndex(String varName) throws IOException {
+        Variable nvar = dataInfo.getVariable(varName);
+        if (nvar != null) {
+            for (int i = 0; i < nvar.getDimNumber(); i++) {
+                if (nvar.getDimension(i).getDimType() == DimensionType.T) {
+                    return i;
+                }
+            }
+        }
+        throw new IOException("Variable has no time dimension: " + varName);
+    }
+
+    /**
+     * Read the part of a file in an aggregated time range
+     */
+    private Array readFile(int fileIdx, String varName, int[] origin, int[] size, int tDimIdx,
+            int tStart, int tEnd) throws IOException, InvalidRangeException {
+        int lo = Math.max(tStart, fileStarts[fileIdx]);
+        int hi = Math.min(tEnd, fileStarts[fileIdx + 1]);
+        if (hi <= lo) {
+            return null;
+        }
+        int[] fOrigin = origin.clone();
+        int[] fSize = size.clone();
+        fOrigin[tDimIdx] = lo - fileStarts[fileIdx];
+        fSize[tDimIdx] = hi - lo;
+
+        String fileName = fileNames.get(fileIdx);
+        NetcdfFile ncfile = NetcdfFilePool.acquire(fileName);
+        try {
+            ucar.nc2.Variable var = ncfile.findVariable(varName);
+            if (var == null) {
+                throw new IOException("Variable not exist: " + varName + " in " + fileName);
+            }
+            Array data = var.read(fOrigin, fSize);
+
+            //Unpack data, missing values of the file are set to the missing
+            //value of the template
+            double[] packData = dataInfo.getPackData(var);
+            boolean isPacked = packData[0] != 0 || packData[1] != 1;
+            double fileMissing = packData[2];
+            double missingValue = dataInfo.getVariable(varName).getFillValue();
+            if (!isPacked && isMissing(fileMissing, missingValue)) {
+                return data;
+            }
+            Array r = Array.factory(DataType.DOUBLE, data.getShape());
+            IndexIterator ii = data.getIndexIterator();
+            IndexIterator ri = r.getIndexIterator();
+            while (ii.hasNext()) {
+                double v = ii.getDoubleNext();
+                if (isMissing(v, fileMissing)) {
+                    ri.setDoubleNext(missingValue);
+                } else {
+                    ri.setDoubleNext(isPacked ? v * packData[1] + packData[0] : v);
+                }
+            }
+            return r;
+        } finally {
+            NetcdfFilePool.release(ncfile);
+        }
+    }
+
+    private static boolean isMissing(double v, double missingValue) {
+        return v == missingValue || (Double.isNaN(v) && Double.isNaN(missingValue));
+    }
+
+    /**
+     * Handler of the data slices read from each file
+     */
+    public interface SliceHandler {
+
+        /**
+         * Handle a data slice
+         *
+         * @param timeOffset Time offset of the slice in the requested time
+         * range
+         * @param data Slice data
+         * @throws IOException
+         * @throws InvalidRangeException
+         */
+        void slice(int timeOffset, Array data) throws IOException, InvalidRangeException;
+    }
+    // </editor-fold>
+}
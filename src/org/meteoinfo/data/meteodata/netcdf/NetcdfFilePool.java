@@ -0,0 +1,336 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.data.meteodata.netcdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.dataset.NetcdfDataset;
+
+/**
+ * Shared pool of open netCDF file handles.
+ *
+ * A handle is acquired by one user at a time, since netCDF file reading is
+ * not thread safe, and is returned to the pool by release. Released handles
+ * stay open and are reused by the next acquire of the same file. The number of
+ * idle open handles is bounded by least recently used eviction. Handles in use
+ * are counted per file and are never closed by the pool. An idle handle is
+ * only reused while the modified time and length of its file are unchanged,
+ * and writers call invalidate after rewriting a file.
+ *
+ * @author Yaqiang Wang
+ */
+public class NetcdfFilePool {
+    // <editor-fold desc="Variables">
+
+    private static int maxOpenFiles = 64;
+    private static final LinkedHashMap<NetcdfFile, String> idleFiles = new LinkedHashMap<>(16, 0.75f, true);
+    private static final IdentityHashMap<NetcdfFile, String> usedFiles = new IdentityHashMap<>();
+    private static final Map<String, Integer> useCounts = new HashMap<>();
+    private static final IdentityHashMap<NetcdfFile, long[]> fileStamps = new IdentityHashMap<>();
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long opens = 0;
+    private static long evictions = 0;
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get maximum number of open files. Files in use are never closed, so
+     * the number can be exceeded while they are in use.
+     *
+     * @return Maximum number of open files
+     */
+    public static synchronized int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    /**
+     * Set maximum number of open files
+     *
+     * @param value Maximum number of open files
+     */
+    public static synchronized void setMaxOpenFiles(int value) {
+        maxOpenFiles = Math.max(1, value);
+        evict();
+    }
+
+    /**
+     * Get number of acquires served by an idle open file
+     *
+     * @return Hit number
+     */
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get number of acquires which needed to open a file
+     *
+     * @return Miss number
+     */
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get number of successfully opened files
+     *
+     * @return Open number
+     */
+    public static synchronized long getOpens() {
+        return opens;
+    }
+
+    /**
+     * Get number of idle files closed by eviction
+     *
+     * @return Eviction number
+     */
+    public static synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get number of open files, idle and in use
+     *
+     * @return Open file number
+     */
+    public static synchronized int getOpenFileNumber() {
+        return idleFiles.size() + usedFiles.size();
+    }
+
+    /**
+     * Get number of handles in use of a file
+     *
+     * @param fileName File name
+     * @return Reference count
+     */
+    public static synchronized int getUseCount(String fileName) {
+        Integer n = useCounts.get(getKey(fileName, null));
+        return n == null ? 0 : n;
+    }
+
+    /**
+     * Reset hit, miss, open and eviction numbers
+     */
+    public static synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        opens = 0;
+        evictions = 0;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Acquire a netCDF file handle
+     *
+     * @param fileName File name
+     * @return NetCDF file
+     * @throws IOException
+     */
+    public static NetcdfFile acquire(String fileName) throws IOException {
+        return acquire(fileName, null);
+    }
+
+    /**
+     * Acquire a netCDF file handle opened by an IOSP class
+     *
+     * @param fileName File name
+     * @param iospClassName IOSP class name, null for default
+     * @return NetCDF file
+     * @throws IOException
+     */
+    public static NetcdfFile acquire(String fileName, String iospClassName) throws IOException {
+        String key = getKey(fileName, iospClassName);
+        synchronized (NetcdfFilePool.class) {
+            Iterator<Map.Entry<NetcdfFile, String>> it = idleFiles.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<NetcdfFile, String> entry = it.next();
+                if (entry.getValue().equals(key)) {
+                    it.remove();
+                    if (!isCurrent(entry.getKey(), fileName)) {
+                        //The file was changed since the handle was opened
+                        closeFile(entry.getKey());
+                        continue;
+                    }
+                    hits += 1;
+                    use(entry.getKey(), key);
+                    return entry.getKey();
+                }
+            }
+            misses += 1;
+        }
+
+        long[] stamp = getStamp(fileName);
+        NetcdfFile ncfile;
+        if (iospClassName == null) {
+            ncfile = NetcdfDataset.openFile(fileName, null);
+        } else {
+            try {
+                ncfile = NetcdfFile.open(fileName, iospClassName, 0, null, null);
+            } catch (ClassNotFoundException | IllegalAccessException | InstantiationException ex) {
+                throw new IOException(ex);
+            }
+        }
+
+        synchronized (NetcdfFilePool.class) {
+            opens += 1;
+            fileStamps.put(ncfile, stamp);
+            use(ncfile, key);
+            evict();
+        }
+        return ncfile;
+    }
+
+    /**
+     * Release a netCDF file handle to the pool
+     *
+     * @param ncfile NetCDF file
+     */
+    public static void release(NetcdfFile ncfile) {
+        if (ncfile == null) {
+            return;
+        }
+
+        synchronized (NetcdfFilePool.class) {
+            String key = unuse(ncfile);
+            if (key == null) {
+                //Not acquired from the pool
+                closeFile(ncfile);
+                return;
+            }
+            idleFiles.put(ncfile, key);
+            evict();
+        }
+    }
+
+    /**
+     * Close an acquired netCDF file handle instead of returning it to the pool
+     *
+     * @param ncfile NetCDF file
+     */
+    public static void close(NetcdfFile ncfile) {
+        if (ncfile == null) {
+            return;
+        }
+
+        synchronized (NetcdfFilePool.class) {
+            unuse(ncfile);
+            idleFiles.remove(ncfile);
+            closeFile(ncfile);
+        }
+    }
+
+    /**
+     * Close the idle handles of a file, for example after the file was
+     * rewritten
+     *
+     * @param fileName File name
+     */
+    public static synchronized void invalidate(String fileName) {
+        String prefix = getKey(fileName, null);
+        List<NetcdfFile> files = new ArrayList<>();
+        for (Map.Entry<NetcdfFile, String> entry : idleFiles.entrySet()) {
+            if (entry.getValue().equals(prefix) || entry.getValue().startsWith(prefix + "|")) {
+                files.add(entry.getKey());
+            }
+        }
+        for (NetcdfFile ncfile : files) {
+            idleFiles.remove(ncfile);
+            closeFile(ncfile);
+        }
+    }
+
+    /**
+     * Close all idle handles
+     */
+    public static synchronized void clear() {
+        for (NetcdfFile ncfile : idleFiles.keySet()) {
+            closeFile(ncfile);
+        }
+        idleFiles.clear();
+    }
+
+    private static String getKey(String fileName, String iospClassName) {
+        return iospClassName == null ? fileName : fileName + "|" + iospClassName;
+    }
+
+    private static void use(NetcdfFile ncfile, String key) {
+        usedFiles.put(ncfile, key);
+        Integer n = useCounts.get(key);
+        useCounts.put(key, n == null ? 1 : n + 1);
+    }
+
+    private static String unuse(NetcdfFile ncfile) {
+        String key = usedFiles.remove(ncfile);
+        if (key != null) {
+            int n = useCounts.get(key) - 1;
+            if (n == 0) {
+                useCounts.remove(key);
+            } else {
+                useCounts.put(key, n);
+            }
+        }
+        return key;
+    }
+
+    private static long[] getStamp(String fileName) {
+        File file = new File(fileName);
+        if (!file.isFile()) {
+            //Remote or virtual dataset
+            return null;
+        }
+        return new long[]{file.lastModified(), file.length()};
+    }
+
+    private static boolean isCurrent(NetcdfFile ncfile, String fileName) {
+        long[] stamp = fileStamps.get(ncfile);
+        long[] current = getStamp(fileName);
+        if (stamp == null || current == null) {
+            return stamp == current;
+        }
+        return stamp[0] == current[0] && stamp[1] == current[1];
+    }
+
+    private static void evict() {
+        Iterator<NetcdfFile> it = idleFiles.keySet().iterator();
+        while (idleFiles.size() + usedFiles.size() > maxOpenFiles && it.hasNext()) {
+            NetcdfFile ncfile = it.next();
+            it.remove();
+            evictions += 1;
+            closeFile(ncfile);
+        }
+    }
+
+    private static void closeFile(NetcdfFile ncfile) {
+        fileStamps.remove(ncfile);
+        try {
+            ncfile.close();
+        } catch (IOException ex) {
+            Logger.getLogger(NetcdfFilePool.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    // </editor-fold>
+}
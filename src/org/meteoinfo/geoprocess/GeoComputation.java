@@ -263,14 +263,8 @@ public class GeoComputation {
         }
 
         List<PolygonShape> polygons = new ArrayList<>();
-        if (onlySel) {
-            for (Shape aShape : aLayer.getShapes()) {
-                if (aShape.isSelected()) {
-                    polygons.add((PolygonShape) aShape);
-                }
-            }
-        } else {
-            for (Shape aShape : aLayer.getShapes()) {
+        for (Shape aShape : aLayer.queryShapes(new Extent(aPoint.X, aPoint.X, aPoint.Y, aPoint.Y))) {
+            if (!onlySel || aShape.isSelected()) {
                 polygons.add((PolygonShape) aShape);
             }
         }
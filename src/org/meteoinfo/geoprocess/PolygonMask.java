@@ -0,0 +1,596 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.geoprocess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import org.meteoinfo.global.Extent;
+import org.meteoinfo.global.PointD;
+import org.meteoinfo.global.util.ParallelUtil;
+import org.meteoinfo.layer.VectorLayer;
+import org.meteoinfo.shape.CircleShape;
+import org.meteoinfo.shape.Polygon;
+import org.meteoinfo.shape.PolygonShape;
+import org.meteoinfo.shape.Shape;
+import org.meteoinfo.shape.ShapeTypes;
+
+/**
+ * Polygon mask rasterisation.
+ *
+ * The edges of the polygons are flattened into primitive arrays. A grid mask
+ * is computed by scanning the grid columns: the crossings of each column
+ * with the edges of a polygon are sorted and the cells between pairs of
+ * crossings are set, so the cost is linear in cells plus edge crossings.
+ * Columns are scanned in parallel. The result is same as
+ * GeoComputation.pointInPolygon for every cell, i.e. a cell centre is inside
+ * a polygon if it is inside the outline and not inside a hole, and inside
+ * the polygons if it is inside any of them.
+ *
+ * Grid masks are cached by grid coordinates and polygon shapes, so masking
+ * many fields of the same grid only rasterises once. Shapes are compared by
+ * a fingerprint of their coordinates, so shapes reprojected or edited in
+ * place are rasterised again.
+ *
+ * @author Yaqiang Wang
+ */
+public class PolygonMask {
+    // <editor-fold desc="Variables">
+
+    private static final int MIN_CHUNK_COLUMNS = 16;
+    private static final int MIN_CHUNK_POINTS = 4096;
+    private static int maxCacheSize = 16;
+    private static final LinkedHashMap<Key, boolean[]> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+    private final int polygonNum;
+    private final int edgeNum;
+    private final double[] x1;
+    private final double[] y1;
+    private final double[] x2;
+    private final double[] y2;
+    private final int[] polygonIds;
+    private final List<CircleShape> circles = new ArrayList<>();
+    private double minX = Double.POSITIVE_INFINITY;
+    private double maxX = Double.NEGATIVE_INFINITY;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor
+     *
+     * @param polygons Polygon shapes
+     */
+    public PolygonMask(List<? extends PolygonShape> polygons) {
+        int n = 0, pn = 0;
+        for (PolygonShape ps : polygons) {
+            if (ps instanceof CircleShape) {
+                circles.add((CircleShape) ps);
+                continue;
+            }
+            for (Polygon polygon : ps.getPolygons()) {
+                for (List<? extends PointD> ring : polygon.getRings()) {
+                    n += ring.size();
+                }
+                pn += 1;
+            }
+        }
+
+        x1 = new double[n];
+        y1 = new double[n];
+        x2 = new double[n];
+        y2 = new double[n];
+        polygonIds = new int[n];
+        int k = 0, pid = 0;
+        for (PolygonShape ps : polygons) {
+            if (ps instanceof CircleShape) {
+                continue;
+            }
+            for (Polygon polygon : ps.getPolygons()) {
+                for (List<? extends PointD> ring : polygon.getRings()) {
+                    int rn = ring.size();
+                    if (rn < 3) {
+                        continue;
+                    }
+                    PointD old = ring.get(rn - 1);
+                    for (PointD p : ring) {
+                        //Edges without x extent never cross a column
+                        if (p.X != old.X) {
+                            if (p.X > old.X) {
+                                x1[k] = old.X;
+                                y1[k] = old.Y;
+                                x2[k] = p.X;
+                                y2[k] = p.Y;
+                            } else {
+                                x1[k] = p.X;
+                                y1[k] = p.Y;
+                                x2[k] = old.X;
+                                y2[k] = old.Y;
+                            }
+                            polygonIds[k] = pid;
+                            minX = Math.min(minX, x1[k]);
+                            maxX = Math.max(maxX, x2[k]);
+                            k += 1;
+                        }
+                        old = p;
+                    }
+                }
+                pid += 1;
+            }
+        }
+        edgeNum = k;
+        polygonNum = pn;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get polygon number
+     *
+     * @return Polygon number
+     */
+    public int getPolygonNum() {
+        return polygonNum;
+    }
+
+    /**
+     * Get edge number
+     *
+     * @return Edge number
+     */
+    public int getEdgeNum() {
+        return edgeNum;
+    }
+
+    /**
+     * Get maximum number of cached grid masks
+     *
+     * @return Maximum cache size
+     */
+    public static synchronized int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * Set maximum number of cached grid masks
+     *
+     * @param value Maximum cache size
+     */
+    public static synchronized void setMaxCacheSize(int value) {
+        maxCacheSize = Math.max(0, value);
+        trimCache();
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Get the cached mask of a grid by polygon shapes, the mask is computed
+     * if not cached. The mask must not be modified.
+     *
+     * @param polygons Polygon shapes
+     * @param xArray Grid x coordinates
+     * @param yArray Grid y coordinates
+     * @return Mask in y by x order, true inside the polygons
+     */
+    public static boolean[] getMask(List<? extends PolygonShape> polygons, double[] xArray, double[] yArray) {
+        Key key = new Key(polygons, xArray, yArray);
+        boolean[] mask;
+        synchronized (PolygonMask.class) {
+            mask = CACHE.get(key);
+        }
+        if (mask == null) {
+            mask = new PolygonMask(polygons).rasterize(xArray, yArray);
+            synchronized (PolygonMask.class) {
+                CACHE.put(key, mask);
+                trimCache();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Get the cached mask of a grid by a polygon layer, the mask is computed
+     * if not cached. The mask must not be modified.
+     *
+     * @param layer Polygon layer
+     * @param xArray Grid x coordinates
+     * @param yArray Grid y coordinates
+     * @return Mask in y by x order, true inside the polygons
+     */
+    public static boolean[] getMask(VectorLayer layer, double[] xArray, double[] yArray) {
+        return getMask(getPolygons(layer), xArray, yArray);
+    }
+
+    /**
+     * Get the polygon shapes of a layer
+     *
+     * @param layer Polygon layer
+     * @return Polygon shapes, empty if the layer is not a polygon layer
+     */
+    public static List<PolygonShape> getPolygons(VectorLayer layer) {
+        List<PolygonShape> polygons = new ArrayList<>();
+        if (layer.getShapeType() == ShapeTypes.Polygon) {
+            for (Shape shape : layer.getShapes()) {
+                polygons.add((PolygonShape) shape);
+            }
+        }
+        return polygons;
+    }
+
+    /**
+     * Clear the grid mask cache
+     */
+    public static synchronized void clearCache() {
+        CACHE.clear();
+    }
+
+    private static void trimCache() {
+        Iterator<Key> it = CACHE.keySet().iterator();
+        while (CACHE.size() > maxCacheSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Get sorting order of coordinates
+     */
+    private static int[] getOrder(double[] values, double[] sorted) {
+        int n = values.length;
+        System.arraycopy(values, 0, sorted, 0, n);
+        boolean ascending = true, descending = true;
+        for (int i = 1; i < n; i++) {
+            ascending &= values[i] >= values[i - 1];
+            descending &= values[i] <= values[i - 1];
+        }
+        int[] order = new int[n];
+        if (ascending) {
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+        } else if (descending) {
+            for (int i = 0; i < n; i++) {
+                order[i] = n - 1 - i;
+                sorted[i] = values[n - 1 - i];
+            }
+        } else {
+            Integer[] idx = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                idx[i] = i;
+            }
+            final double[] v = values;
+            Arrays.sort(idx, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(v[a], v[b]);
+                }
+            });
+            for (int i = 0; i < n; i++) {
+                order[i] = idx[i];
+                sorted[i] = values[idx[i]];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Get index of the first value greater than v in ascending values
+     */
+    private static int upperBound(double[] values, double v) {
+        int lo = 0, hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= v) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Get index of the first value not less than v in ascending values
+     */
+    private static int lowerBound(double[] values, double v) {
+        int lo = 0, hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < v) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Rasterise the polygons to a grid
+     *
+     * @param xArray Grid x coordinates
+     * @param yArray Grid y coordinates
+     * @return Mask in y by x order, true inside the polygons
+     */
+    public boolean[] rasterize(double[] xArray, double[] yArray) {
+        final int nx = xArray.length;
+        final int ny = yArray.length;
+        final double[] xs = new double[nx];
+        final double[] ys = new double[ny];
+        final int[] xOrder = getOrder(xArray, xs);
+        final int[] yOrder = getOrder(yArray, ys);
+        final boolean[] mask = new boolean[nx * ny];
+
+        if (edgeNum > 0) {
+            int j0 = upperBound(xs, minX);
+            int j1 = upperBound(xs, maxX);
+            final int jStart = j0;
+            ParallelUtil.parallelFor(j1 - j0, MIN_CHUNK_COLUMNS, new ParallelUtil.RangeTask() {
+                @Override
+                public void run(int start, int end) {
+                    scanColumns(xs, ys, xOrder, yOrder, jStart + start, jStart + end, mask);
+                }
+            });
+        }
+
+        if (!circles.isEmpty()) {
+            ParallelUtil.parallelFor(ny, Math.max(1, MIN_CHUNK_POINTS / Math.max(1, nx)), new ParallelUtil.RangeTask() {
+                @Override
+                public void run(int start, int end) {
+                    PointD p = new PointD();
+                    for (int i = start; i < end; i++) {
+                        for (int j = 0; j < nx; j++) {
+                            int idx = yOrder[i] * nx + xOrder[j];
+                            if (!mask[idx]) {
+                                p.X = xs[j];
+                                p.Y = ys[i];
+                                mask[idx] = inCircles(p);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+
+        return mask;
+    }
+
+    /**
+     * Scan sorted grid columns [jStart, jEnd)
+     */
+    private void scanColumns(double[] xs, double[] ys, int[] xOrder, int[] yOrder, int jStart, int jEnd,
+            boolean[] mask) {
+        int nx = xs.length;
+        int cn = jEnd - jStart;
+        //An edge crosses column j if x1 < x[j] <= x2
+        int[] counts = new int[cn + 1];
+        for (int k = 0; k < edgeNum; k++) {
+            int a = Math.max(upperBound(xs, x1[k]), jStart);
+            int b = Math.min(upperBound(xs, x2[k]), jEnd);
+            for (int j = a; j < b; j++) {
+                counts[j - jStart + 1] += 1;
+            }
+        }
+        for (int j = 0; j < cn; j++) {
+            counts[j + 1] += counts[j];
+        }
+        int[] pos = Arrays.copyOf(counts, cn);
+        double[] cys = new double[counts[cn]];
+        int[] pids = new int[counts[cn]];
+        for (int k = 0; k < edgeNum; k++) {
+            int a = Math.max(upperBound(xs, x1[k]), jStart);
+            int b = Math.min(upperBound(xs, x2[k]), jEnd);
+            double slope = (y2[k] - y1[k]) / (x2[k] - x1[k]);
+            for (int j = a; j < b; j++) {
+                int p = pos[j - jStart]++;
+                cys[p] = y1[k] + slope * (xs[j] - x1[k]);
+                pids[p] = polygonIds[k];
+            }
+        }
+
+        //Crossings of a column are grouped by polygon since edges are in
+        //polygon order. A cell is inside a polygon if the number of its
+        //crossings above the cell centre is odd.
+        for (int j = jStart; j < jEnd; j++) {
+            int col = xOrder[j];
+            int s = counts[j - jStart], e = counts[j - jStart + 1];
+            while (s < e) {
+                int g = s + 1;
+                while (g < e && pids[g] == pids[s]) {
+                    g += 1;
+                }
+                Arrays.sort(cys, s, g);
+                for (int p = s; p + 1 < g; p += 2) {
+                    int i0 = lowerBound(ys, cys[p]);
+                    int i1 = lowerBound(ys, cys[p + 1]);
+                    for (int i = i0; i < i1; i++) {
+                        mask[yOrder[i] * nx + col] = true;
+                    }
+                }
+                s = g;
+            }
+        }
+    }
+
+    private boolean inCircles(PointD p) {
+        for (CircleShape c : circles) {
+            if (GeoComputation.pointInPolygon(c, p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determine if points are inside the polygons. The edges are indexed by
+     * x bins so each point only checks the edges crossing its bin.
+     *
+     * @param xs Point x coordinates
+     * @param ys Point y coordinates
+     * @return Boolean array, true inside the polygons
+     */
+    public boolean[] contains(final double[] xs, final double[] ys) {
+        final int n = xs.length;
+        final boolean[] r = new boolean[n];
+        if (edgeNum > 0) {
+            final int binNum = Math.max(1, Math.min(edgeNum / 4, 65536));
+            final double binWidth = (maxX - minX) / binNum;
+            final int[] binPtr = new int[binNum + 1];
+            for (int k = 0; k < edgeNum; k++) {
+                int a = getBin(x1[k], binWidth, binNum), b = getBin(x2[k], binWidth, binNum);
+                for (int bin = a; bin <= b; bin++) {
+                    binPtr[bin + 1] += 1;
+                }
+            }
+            for (int bin = 0; bin < binNum; bin++) {
+                binPtr[bin + 1] += binPtr[bin];
+            }
+            final int[] binEdges = new int[binPtr[binNum]];
+            int[] pos = Arrays.copyOf(binPtr, binNum);
+            for (int k = 0; k < edgeNum; k++) {
+                int a = getBin(x1[k], binWidth, binNum), b = getBin(x2[k], binWidth, binNum);
+                for (int bin = a; bin <= b; bin++) {
+                    binEdges[pos[bin]++] = k;
+                }
+            }
+
+            ParallelUtil.parallelFor(n, MIN_CHUNK_POINTS, new ParallelUtil.RangeTask() {
+                @Override
+                public void run(int start, int end) {
+                    int[] crossings = new int[polygonNum];
+                    int[] touched = new int[polygonNum];
+                    for (int i = start; i < end; i++) {
+                        double x = xs[i], y = ys[i];
+                        if (!(x > minX && x <= maxX)) {
+                            continue;
+                        }
+                        int bin = getBin(x, binWidth, binNum);
+                        int tn = 0;
+                        for (int p = binPtr[bin]; p < binPtr[bin + 1]; p++) {
+                            int k = binEdges[p];
+                            if (x1[k] < x && x <= x2[k]
+                                    && (y - y1[k]) * (x2[k] - x1[k]) < (y2[k] - y1[k]) * (x - x1[k])) {
+                                int pid = polygonIds[k];
+                                if (crossings[pid] == 0) {
+                                    touched[tn++] = pid;
+                                }
+                                crossings[pid] += 1;
+                            }
+                        }
+                        for (int t = 0; t < tn; t++) {
+                            if (crossings[touched[t]] % 2 == 1) {
+                                r[i] = true;
+                            }
+                            crossings[touched[t]] = 0;
+                        }
+                    }
+                }
+            });
+        }
+
+        if (!circles.isEmpty()) {
+            PointD p = new PointD();
+            for (int i = 0; i < n; i++) {
+                if (!r[i]) {
+                    p.X = xs[i];
+                    p.Y = ys[i];
+                    r[i] = inCircles(p);
+                }
+            }
+        }
+
+        return r;
+    }
+
+    private int getBin(double x, double binWidth, int binNum) {
+        if (binWidth <= 0) {
+            return 0;
+        }
+        int bin = (int) ((x - minX) / binWidth);
+        return Math.max(0, Math.min(binNum - 1, bin));
+    }
+
+    /**
+     * Get content fingerprint of a polygon shape from its extent, point
+     * number and coordinates, so a shape changed in place, for example by
+     * projection, gets a new fingerprint
+     */
+    private static long[] getFingerprint(PolygonShape ps) {
+        int n = 0;
+        long h = 1;
+        if (ps instanceof CircleShape) {
+            for (PointD p : ps.getPoints()) {
+                h = 31 * h + Double.doubleToLongBits(p.X);
+                h = 31 * h + Double.doubleToLongBits(p.Y);
+                n += 1;
+            }
+        } else {
+            for (Polygon polygon : ps.getPolygons()) {
+                for (List<? extends PointD> ring : polygon.getRings()) {
+                    for (PointD p : ring) {
+                        h = 31 * h + Double.doubleToLongBits(p.X);
+                        h = 31 * h + Double.doubleToLongBits(p.Y);
+                    }
+                    n += ring.size();
+                    h = 31 * h + ring.size();
+                }
+            }
+        }
+        Extent extent = ps.getExtent();
+        return new long[]{n, h, Double.doubleToLongBits(extent.minX), Double.doubleToLongBits(extent.maxX),
+            Double.doubleToLongBits(extent.minY), Double.doubleToLongBits(extent.maxY)};
+    }
+
+    /**
+     * Grid mask cache key, polygon shapes are compared by content
+     * fingerprint
+     */
+    private static class Key {
+
+        private final long[][] shapes;
+        private final double[] xArray;
+        private final double[] yArray;
+        private final int hash;
+
+        Key(List<? extends PolygonShape> polygons, double[] xArray, double[] yArray) {
+            this.shapes = new long[polygons.size()][];
+            for (int i = 0; i < shapes.length; i++) {
+                shapes[i] = getFingerprint(polygons.get(i));
+            }
+            this.xArray = xArray.clone();
+            this.yArray = yArray.clone();
+            int h = Arrays.deepHashCode(shapes);
+            h = 31 * h + Arrays.hashCode(xArray);
+            h = 31 * h + Arrays.hashCode(yArray);
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && Arrays.deepEquals(shapes, other.shapes)
+                    && Arrays.equals(xArray, other.xArray) && Arrays.equals(yArray, other.yArray);
+        }
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,136 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.global.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel loop utilities based on a shared fork/join pool
+ *
+ * @author Yaqiang Wang
+ */
+public class ParallelUtil {
+    // <editor-fold desc="Variables">
+
+    private static ForkJoinPool pool;
+    private static boolean enabled = true;
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get the shared fork/join pool
+     *
+     * @return Fork/join pool
+     */
+    public static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool();
+        }
+        return pool;
+    }
+
+    /**
+     * Get if parallel execution is enabled
+     *
+     * @return Boolean
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set if parallel execution is enabled
+     *
+     * @param value Boolean
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * Get parallelism level
+     *
+     * @return Parallelism level
+     */
+    public static int getParallelism() {
+        return enabled ? getPool().getParallelism() : 1;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Run a task over the index range [0, n). The range is split into chunks
+     * not smaller than minChunk which are run on the shared pool. Small ranges
+     * run in the calling thread.
+     *
+     * @param n Index number
+     * @param minChunk Minimum chunk size
+     * @param task Range task
+     */
+    public static void parallelFor(int n, int minChunk, RangeTask task) {
+        if (n <= 0) {
+            return;
+        }
+        minChunk = Math.max(1, minChunk);
+        if (!enabled || n <= minChunk || getPool().getParallelism() <= 1) {
+            task.run(0, n);
+            return;
+        }
+
+        int grain = Math.max(minChunk, n / (getPool().getParallelism() * 4) + 1);
+        getPool().invoke(new RangeAction(0, n, grain, task));
+    }
+
+    /**
+     * Range task
+     */
+    public interface RangeTask {
+
+        /**
+         * Run the task over the index range [start, end)
+         *
+         * @param start Start index (inclusive)
+         * @param end End index (exclusive)
+         */
+        void run(int start, int end);
+    }
+
+    private static class RangeAction extends RecursiveAction {
+
+        private final int start;
+        private final int end;
+        private final int grain;
+        private final RangeTask task;
+
+        RangeAction(int start, int end, int grain, RangeTask task) {
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= grain) {
+                task.run(start, end);
+            } else {
+                int mid = (start + end) >>> 1;
+                invokeAll(new RangeAction(start, mid, grain, task),
+                        new RangeAction(mid, end, grain, task));
+            }
+        }
+    }
+    // </editor-fold>
+}
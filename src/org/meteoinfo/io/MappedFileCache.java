@@ -0,0 +1,175 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared least recently used cache of read only memory mapped file regions.
+ *
+ * Files are mapped in overlapping windows of 2 * HALF_WINDOW bytes starting at
+ * multiples of HALF_WINDOW, so any span not longer than HALF_WINDOW lies in
+ * one window. Longer spans are mapped on their own. The file channel is
+ * closed after mapping, the mapped regions stay valid until they are garbage
+ * collected.
+ *
+ * @author Yaqiang Wang
+ */
+public class MappedFileCache {
+    // <editor-fold desc="Variables">
+
+    private static final long HALF_WINDOW = 128L * 1024 * 1024;
+    private static int maxRegions = 32;
+    private static final LinkedHashMap<String, MappedByteBuffer> regions = new LinkedHashMap<String, MappedByteBuffer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MappedByteBuffer> eldest) {
+            return size() > maxRegions;
+        }
+    };
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get maximum number of cached mapped regions
+     *
+     * @return Maximum region number
+     */
+    public static synchronized int getMaxRegions() {
+        return maxRegions;
+    }
+
+    /**
+     * Set maximum number of cached mapped regions
+     *
+     * @param value Maximum region number
+     */
+    public static synchronized void setMaxRegions(int value) {
+        maxRegions = Math.max(1, value);
+        while (regions.size() > maxRegions) {
+            regions.remove(regions.keySet().iterator().next());
+        }
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Get a read only byte buffer of a file span. The returned buffer has its
+     * own position and limit and is safe to use by one thread.
+     *
+     * @param filePath File path
+     * @param offset Span start position in the file
+     * @param length Span length in bytes
+     * @param byteOrder Byte order
+     * @return Byte buffer of the span, position 0 is the span start
+     * @throws IOException
+     */
+    public static ByteBuffer getBuffer(String filePath, long offset, int length, ByteOrder byteOrder)
+            throws IOException {
+        File file = new File(filePath);
+        long fileLength = file.length();
+        if (offset < 0 || offset + length > fileLength) {
+            throw new IOException("Read beyond end of file: " + filePath);
+        }
+
+        long start;
+        ByteBuffer buffer;
+        if (length > HALF_WINDOW) {
+            start = offset;
+            buffer = map(file, start, length);
+        } else {
+            long idx = offset / HALF_WINDOW;
+            start = idx * HALF_WINDOW;
+            String key = file.getAbsolutePath() + "|" + file.lastModified() + "|" + idx;
+            MappedByteBuffer region;
+            synchronized (MappedFileCache.class) {
+                region = regions.get(key);
+            }
+            if (region == null) {
+                long size = Math.min(2 * HALF_WINDOW, fileLength - start);
+                region = map(file, start, size);
+                synchronized (MappedFileCache.class) {
+                    regions.put(key, region);
+                }
+            }
+            buffer = region;
+        }
+
+        ByteBuffer r = buffer.duplicate();
+        int pos = (int) (offset - start);
+        r.position(pos);
+        r.limit(pos + length);
+        r = r.slice();
+        r.order(byteOrder);
+
+        return r;
+    }
+
+    /**
+     * Get a read only float buffer view of a file span
+     *
+     * @param filePath File path
+     * @param offset Span start position in the file
+     * @param count Float value number
+     * @param byteOrder Byte order
+     * @return Float buffer
+     * @throws IOException
+     */
+    public static FloatBuffer getFloatBuffer(String filePath, long offset, int count, ByteOrder byteOrder)
+            throws IOException {
+        return getBuffer(filePath, offset, count * 4, byteOrder).asFloatBuffer();
+    }
+
+    /**
+     * Remove all cached regions of a file
+     *
+     * @param filePath File path
+     */
+    public static synchronized void remove(String filePath) {
+        String prefix = new File(filePath).getAbsolutePath() + "|";
+        Iterator<String> it = regions.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all cached regions
+     */
+    public static synchronized void clear() {
+        regions.clear();
+    }
+
+    private static MappedByteBuffer map(File file, long start, long size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        } finally {
+            raf.close();
+        }
+    }
+    // </editor-fold>
+}
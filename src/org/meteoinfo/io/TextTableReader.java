@@ -0,0 +1,1339 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.io;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.meteoinfo.global.util.GlobalUtil;
+import org.meteoinfo.global.util.ParallelUtil;
+import ucar.ma2.DataType;
+
+/**
+ * Parallel reader of delimited ASCII table files.
+ *
+ * The data lines are split into chunks on line boundaries and the chunks are
+ * tokenised in parallel on the bytes read by positional reads of a file
+ * channel, so no String is created for numeric and date values. Lines and tokens are split
+ * and trimmed same as GlobalUtil.split. Regular expression delimiters are
+ * split on the decoded lines, and files with a character encoding not
+ * compatible with ASCII are read line by line in one thread.
+ *
+ * @author Yaqiang Wang
+ */
+public class TextTableReader {
+    // <editor-fold desc="Variables">
+
+    private static final int CHUNK_BYTES = 4 * 1024 * 1024;
+    private static final int LINE_BYTES = 64 * 1024;
+    private static final int MARK_LIMIT = 64 * 1024 * 1024;
+    private static final int SPLIT_WHITESPACE = -1;
+    private static final int SPLIT_REGEX = -2;
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6,
+        1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18,
+        1e19, 1e20, 1e21, 1e22};
+    private static final float[] FLOAT_POW10 = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f,
+        1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+    private final String fileName;
+    private final String delimiter;
+    private final Charset charset;
+    private final int separator;
+    private final long length;
+    private long position = 0;
+    private long mark = 0;
+    private long line = 0;
+    private long markLine = 0;
+    private BufferedReader reader;
+    private FileChannel channel;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor
+     *
+     * @param fileName File name
+     * @param delimiter Delimiter, null or space for white spaces
+     * @param encoding Character encoding, null for default encoding
+     * @throws IOException
+     */
+    public TextTableReader(String fileName, String delimiter, String encoding) throws IOException {
+        File file = new File(fileName);
+        if (!file.isFile()) {
+            throw new FileNotFoundException(fileName);
+        }
+        this.fileName = fileName;
+        this.delimiter = delimiter;
+        this.charset = encoding == null ? Charset.defaultCharset() : Charset.forName(encoding);
+        this.length = file.length();
+        if (delimiter == null || delimiter.equals(" ")) {
+            this.separator = SPLIT_WHITESPACE;
+        } else if (delimiter.length() == 1 && delimiter.charAt(0) < 128
+                && ".$|()[]{}^?*+\\".indexOf(delimiter.charAt(0)) < 0) {
+            this.separator = delimiter.charAt(0);
+        } else {
+            this.separator = SPLIT_REGEX;
+        }
+        if (!isAsciiCompatible(this.charset)) {
+            this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), this.charset));
+        } else {
+            this.channel = new RandomAccessFile(file, "r").getChannel();
+            if (this.charset.name().equals("UTF-8") && length >= 3) {
+                //Skip byte order mark
+                byte[] bom = readBytes(0, 3);
+                if ((bom[0] & 0xff) == 0xEF && (bom[1] & 0xff) == 0xBB && (bom[2] & 0xff) == 0xBF) {
+                    this.position = 3;
+                    this.mark = 3;
+                }
+            }
+        }
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Check if a character encoding keeps ASCII characters as single bytes
+     */
+    private static boolean isAsciiCompatible(Charset cs) {
+        String s = "\t\n\r ,;:0123456789.+-eEnaNAtrufls";
+        return Arrays.equals(s.getBytes(cs), s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Read next line
+     *
+     * @return The line, null at the end of the file
+     * @throws IOException
+     */
+    public String readLine() throws IOException {
+        if (reader != null) {
+            String s = reader.readLine();
+            if (s != null) {
+                line += 1;
+            }
+            return s;
+        }
+        if (position >= length) {
+            return null;
+        }
+        long end = findLineEnd(position);
+        byte[] bytes = readBytes(position, (int) (end - position));
+        position = Math.min(length, end + 1);
+        int n = bytes.length;
+        if (n > 0 && bytes[n - 1] == '\r') {
+            n -= 1;
+        }
+        return new String(bytes, 0, n, charset);
+    }
+
+    /**
+     * Mark the current position
+     *
+     * @throws IOException
+     */
+    public void mark() throws IOException {
+        if (reader != null) {
+            reader.mark(MARK_LIMIT);
+            markLine = line;
+        } else {
+            mark = position;
+        }
+    }
+
+    /**
+     * Reset to the marked position
+     *
+     * @throws IOException
+     */
+    public void reset() throws IOException {
+        if (reader != null) {
+            reader.reset();
+            line = markLine;
+        } else {
+            position = mark;
+        }
+    }
+
+    /**
+     * Move to a byte position, or a line number if the file is read line by
+     * line
+     */
+    private void restart(long pos) throws IOException {
+        if (reader != null) {
+            reader.close();
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), charset));
+            line = 0;
+            while (line < pos && readLine() != null) {
+            }
+        } else {
+            position = pos;
+        }
+    }
+
+    /**
+     * Read tokens of the next non-empty lines without moving the position
+     *
+     * @param n Line number
+     * @return Tokens of the lines
+     * @throws IOException
+     */
+    public List<String[]> sample(int n) throws IOException {
+        List<String[]> r = new ArrayList<>();
+        mark();
+        String line = readLine();
+        while (line != null && r.size() < n) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                r.add(GlobalUtil.split(line, delimiter));
+            }
+            line = readLine();
+        }
+        reset();
+        return r;
+    }
+
+    /**
+     * Close the reader
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Parse the remaining lines by chunks. The chunks are parsed in parallel
+     * in batches until the task is finished.
+     *
+     * @param task Chunk task
+     * @return Chunk results in file order
+     * @throws IOException
+     */
+    public <T> List<T> read(final ChunkTask<T> task) throws IOException {
+        List<T> results = new ArrayList<>();
+        if (reader != null) {
+            T result = task.create();
+            Tokens tokens = new Tokens(charset);
+            String s = readLine();
+            while (s != null) {
+                s = s.trim();
+                if (!s.isEmpty()) {
+                    tokens.split(GlobalUtil.split(s, delimiter));
+                    task.parse(result, tokens);
+                }
+                s = readLine();
+            }
+            results.add(result);
+            return results;
+        }
+
+        int batch = ParallelUtil.getParallelism() * 2;
+        while (position < length && !task.isFinished(results)) {
+            final List<long[]> ranges = new ArrayList<>();
+            while (position < length && ranges.size() < batch) {
+                long end = position + CHUNK_BYTES;
+                end = end >= length ? length : Math.min(length, findLineEnd(end - 1) + 1);
+                ranges.add(new long[]{position, end});
+                position = end;
+            }
+            final List<T> chunks = new ArrayList<>(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                chunks.add(task.create());
+            }
+            try {
+                ParallelUtil.parallelFor(ranges.size(), 1, new ParallelUtil.RangeTask() {
+                    @Override
+                    public void run(int start, int end) {
+                        for (int i = start; i < end; i++) {
+                            long[] range = ranges.get(i);
+                            try {
+                                parseChunk(readBytes(range[0], (int) (range[1] - range[0])), chunks.get(i), task);
+                            } catch (IOException ex) {
+                                throw new RuntimeException(ex);
+                            }
+                        }
+                    }
+                });
+            } catch (RuntimeException ex) {
+                if (ex.getCause() instanceof IOException) {
+                    throw (IOException) ex.getCause();
+                }
+                throw ex;
+            }
+            results.addAll(chunks);
+        }
+
+        return results;
+    }
+
+    private <T> void parseChunk(byte[] b, T result, ChunkTask<T> task) {
+        Tokens tokens = new Tokens(charset);
+        int n = b.length;
+        int s = 0;
+        while (s < n) {
+            int e = s;
+            while (e < n && b[e] != '\n') {
+                e++;
+            }
+            int ls = s, le = e;
+            while (ls < le && (b[ls] & 0xff) <= ' ') {
+                ls++;
+            }
+            while (le > ls && (b[le - 1] & 0xff) <= ' ') {
+                le--;
+            }
+            if (ls < le) {
+                if (separator == SPLIT_REGEX) {
+                    tokens.split(GlobalUtil.split(new String(b, ls, le - ls, charset), delimiter));
+                } else {
+                    tokens.split(b, ls, le, separator);
+                }
+                task.parse(result, tokens);
+            }
+            s = e + 1;
+        }
+    }
+
+    /**
+     * Find the position of the first line feed from a position
+     */
+    private long findLineEnd(long from) throws IOException {
+        long pos = from;
+        while (pos < length) {
+            int n = (int) Math.min(LINE_BYTES, length - pos);
+            byte[] b = readBytes(pos, n);
+            for (int i = 0; i < n; i++) {
+                if (b[i] == '\n') {
+                    return pos + i;
+                }
+            }
+            pos += n;
+        }
+        return length;
+    }
+
+    /**
+     * Read bytes by positional reads, which are safe for the parallel chunks
+     */
+    private byte[] readBytes(long pos, int n) throws IOException {
+        byte[] b = new byte[n];
+        ByteBuffer buffer = ByteBuffer.wrap(b);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, pos + buffer.position()) < 0) {
+                throw new EOFException(fileName);
+            }
+        }
+        return b;
+    }
+
+    /**
+     * Read the remaining lines into typed columns. Token i of a line is
+     * stored in column targets[i], the tokens without target are skipped and
+     * the missing tokens are empty. Empty and invalid values are converted
+     * same as DataConvert.convertStringTo.
+     *
+     * @param types Column data types
+     * @param formats Date formats of OBJECT columns
+     * @param targets Target column of each token, -1 for skipped token
+     * @return Column data - int[], float[], double[], boolean[], String[] or
+     * Date[] arrays with length of the row number
+     * @throws IOException
+     */
+    public Object[] readColumns(DataType[] types, String[] formats, int[] targets) throws IOException {
+        return readColumns(types, formats, targets, null);
+    }
+
+    /**
+     * Read the remaining lines into typed columns. The INT, DOUBLE and
+     * BOOLEAN types of inferred columns are widened (INT to DOUBLE to STRING,
+     * BOOLEAN to STRING) when a value does not fit, so no non-empty value is
+     * lost. Blank values widen INT to DOUBLE, and integers with leading zeros
+     * are kept as strings. Lines are read again if a column is widened to
+     * STRING.
+     *
+     * @param types Column data types, the types of inferred columns are
+     * updated to the widened types
+     * @param formats Date formats of OBJECT columns
+     * @param targets Target column of each token, -1 for skipped token
+     * @param inferred Inferred or not of each column, null for none
+     * @return Column data - int[], float[], double[], boolean[], String[] or
+     * Date[] arrays with length of the row number
+     * @throws IOException
+     */
+    public Object[] readColumns(final DataType[] types, final String[] formats, final int[] targets,
+            boolean[] inferred) throws IOException {
+        final int colNum = types.length;
+        final boolean[] widen = inferred == null ? new boolean[colNum] : inferred.clone();
+        long start = reader != null ? line : position;
+        List<ColumnChunk> chunks = read(new ChunkTask<ColumnChunk>() {
+            @Override
+            public ColumnChunk create() {
+                return new ColumnChunk(types, formats, widen);
+            }
+
+            @Override
+            public void parse(ColumnChunk chunk, Tokens tokens) {
+                chunk.addRow(tokens, targets);
+            }
+        });
+
+        //Read again with the columns not fitting in numbers as strings
+        boolean again = false;
+        for (int c = 0; c < colNum; c++) {
+            for (ColumnChunk chunk : chunks) {
+                if (chunk.failed[c]) {
+                    types[c] = DataType.STRING;
+                    widen[c] = false;
+                    again = true;
+                    break;
+                }
+            }
+        }
+        if (again) {
+            restart(start);
+            return readColumns(types, formats, targets, widen);
+        }
+
+        int rn = 0;
+        for (ColumnChunk chunk : chunks) {
+            rn += chunk.rows;
+        }
+        Object[] r = new Object[colNum];
+        for (int c = 0; c < colNum; c++) {
+            for (ColumnChunk chunk : chunks) {
+                if (chunk.types[c] == DataType.DOUBLE) {
+                    types[c] = DataType.DOUBLE;
+                }
+            }
+            Object data = ColumnChunk.createStorage(types[c], formats[c], rn);
+            int pos = 0;
+            for (ColumnChunk chunk : chunks) {
+                if (chunk.types[c] == types[c]) {
+                    System.arraycopy(chunk.data[c], 0, data, pos, chunk.rows);
+                } else {
+                    //Integer chunk of a widened column
+                    int[] v = (int[]) chunk.data[c];
+                    for (int j = 0; j < chunk.rows; j++) {
+                        ((double[]) data)[pos + j] = v[j];
+                    }
+                }
+                pos += chunk.rows;
+            }
+            r[c] = data;
+        }
+        return r;
+    }
+
+    /**
+     * Read the remaining lines as double values in row major order. Tokens
+     * before the start token of each line are skipped and the reading stops
+     * after the maximum number of values.
+     *
+     * @param startToken Start token index of each line
+     * @param maxNumber Maximum value number
+     * @return Double values
+     * @throws IOException
+     * @throws NumberFormatException If a value before the maximum number is
+     * not a number
+     */
+    public double[] readDoubles(final int startToken, final int maxNumber) throws IOException {
+        List<DoubleChunk> chunks = read(new ChunkTask<DoubleChunk>() {
+            @Override
+            public DoubleChunk create() {
+                return new DoubleChunk();
+            }
+
+            @Override
+            public void parse(DoubleChunk chunk, Tokens tokens) {
+                if (chunk.error != null || chunk.n >= maxNumber) {
+                    return;
+                }
+                for (int i = startToken; i < tokens.size(); i++) {
+                    try {
+                        chunk.add(tokens.getDouble(i));
+                    } catch (NumberFormatException e) {
+                        chunk.error = e;
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public boolean isFinished(List<DoubleChunk> results) {
+                long n = 0;
+                for (DoubleChunk chunk : results) {
+                    n += chunk.n;
+                    if (chunk.error != null) {
+                        return true;
+                    }
+                }
+                return n >= maxNumber;
+            }
+        });
+
+        double[] r = new double[maxNumber];
+        int n = 0;
+        for (DoubleChunk chunk : chunks) {
+            int m = Math.min(chunk.n, maxNumber - n);
+            System.arraycopy(chunk.values, 0, r, n, m);
+            n += m;
+            if (n >= maxNumber) {
+                break;
+            }
+            if (chunk.error != null) {
+                throw chunk.error;
+            }
+        }
+        return n < maxNumber ? Arrays.copyOf(r, n) : r;
+    }
+
+    /**
+     * Infer the data type of a column from sample values. Blank values are
+     * ignored, integer columns with blank values are read as double so the
+     * blanks become NaN, and numbers with leading zeros (identifiers like
+     * 054511) are read as strings.
+     *
+     * @param values Sample values
+     * @return Data type - BOOLEAN, INT, DOUBLE or STRING
+     */
+    public static DataType inferDataType(List<String> values) {
+        boolean isBool = true, isInt = true, isDouble = true, hasBlank = false;
+        int n = 0;
+        for (String v : values) {
+            if (v == null || v.isEmpty()) {
+                hasBlank = true;
+                continue;
+            }
+            n += 1;
+            byte[] b = v.getBytes(StandardCharsets.ISO_8859_1);
+            if (isBool && !v.equalsIgnoreCase("true") && !v.equalsIgnoreCase("false")) {
+                isBool = false;
+            }
+            if (hasLeadingZero(b, 0, b.length)) {
+                isInt = false;
+                isDouble = false;
+            }
+            if (isInt) {
+                try {
+                    parseInt(b, 0, b.length);
+                } catch (NumberFormatException e) {
+                    isInt = false;
+                }
+            }
+            if (isDouble && !v.equalsIgnoreCase("nan")) {
+                try {
+                    parseDouble(b, 0, b.length);
+                } catch (NumberFormatException e) {
+                    isDouble = false;
+                }
+            }
+        }
+        if (n == 0) {
+            return DataType.STRING;
+        } else if (isBool) {
+            return DataType.BOOLEAN;
+        } else if (isInt && !hasBlank) {
+            return DataType.INT;
+        } else if (isDouble) {
+            return DataType.DOUBLE;
+        }
+        return DataType.STRING;
+    }
+    // </editor-fold>
+    // <editor-fold desc="Number parsers">
+
+    /**
+     * Parse an int value as Integer.parseInt
+     *
+     * @param b Bytes
+     * @param s Start position
+     * @param e End position
+     * @return Int value
+     */
+    public static int parseInt(byte[] b, int s, int e) {
+        int i = s;
+        boolean neg = false;
+        if (i < e && (b[i] == '-' || b[i] == '+')) {
+            neg = b[i] == '-';
+            i++;
+        }
+        if (i == e) {
+            throw numberFormatException(b, s, e);
+        }
+        long v = 0;
+        for (; i < e; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                throw numberFormatException(b, s, e);
+            }
+            v = v * 10 + d;
+            if (v > 2147483648L) {
+                throw numberFormatException(b, s, e);
+            }
+        }
+        if (!neg && v > Integer.MAX_VALUE) {
+            throw numberFormatException(b, s, e);
+        }
+        return (int) (neg ? -v : v);
+    }
+
+    /**
+     * Parse a double value as Double.parseDouble. Decimals with not more than
+     * 15 significant digits and small exponents are converted exactly by one
+     * floating point operation, others by Double.parseDouble.
+     *
+     * @param b Bytes
+     * @param s Start position
+     * @param e End position
+     * @return Double value
+     */
+    public static double parseDouble(byte[] b, int s, int e) {
+        long[] d = new long[4];
+        if (scanDecimal(b, s, e, d)) {
+            long mant = d[0];
+            int exp = (int) d[1];
+            boolean neg = d[3] != 0;
+            if (mant == 0) {
+                return neg ? -0.0 : 0.0;
+            }
+            if (d[2] <= 15 && exp >= -22 && exp <= 22) {
+                double v = exp < 0 ? mant / POW10[-exp] : mant * POW10[exp];
+                return neg ? -v : v;
+            }
+        }
+        return Double.parseDouble(new String(b, s, e - s, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Parse a float value as Float.parseFloat
+     *
+     * @param b Bytes
+     * @param s Start position
+     * @param e End position
+     * @return Float value
+     */
+    public static float parseFloat(byte[] b, int s, int e) {
+        long[] d = new long[4];
+        if (scanDecimal(b, s, e, d)) {
+            long mant = d[0];
+            int exp = (int) d[1];
+            boolean neg = d[3] != 0;
+            if (mant == 0) {
+                return neg ? -0.0f : 0.0f;
+            }
+            if (d[2] <= 7 && exp >= -10 && exp <= 10) {
+                float v = exp < 0 ? mant / FLOAT_POW10[-exp] : mant * FLOAT_POW10[exp];
+                return neg ? -v : v;
+            }
+        }
+        return Float.parseFloat(new String(b, s, e - s, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Scan a plain decimal number to mantissa, decimal exponent, significant
+     * digit number and sign. The digit number is set to a large value if the
+     * mantissa is not exact.
+     *
+     * @return Scanned or not
+     */
+    private static boolean scanDecimal(byte[] b, int s, int e, long[] r) {
+        int i = s;
+        boolean neg = false;
+        if (i < e && (b[i] == '-' || b[i] == '+')) {
+            neg = b[i] == '-';
+            i++;
+        }
+        long mant = 0;
+        int nd = 0, exp = 0;
+        boolean any = false, exact = true;
+        while (i < e) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            any = true;
+            if (nd < 18) {
+                mant = mant * 10 + d;
+                if (mant != 0) {
+                    nd++;
+                }
+            } else {
+                exp++;
+                exact = exact && d == 0;
+            }
+            i++;
+        }
+        if (i < e && b[i] == '.') {
+            i++;
+            while (i < e) {
+                int d = b[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                any = true;
+                if (nd < 18) {
+                    mant = mant * 10 + d;
+                    if (mant != 0) {
+                        nd++;
+                    }
+                    exp--;
+                } else {
+                    exact = exact && d == 0;
+                }
+                i++;
+            }
+        }
+        if (!any) {
+            return false;
+        }
+        if (i < e && (b[i] == 'e' || b[i] == 'E')) {
+            i++;
+            boolean eneg = false;
+            if (i < e && (b[i] == '-' || b[i] == '+')) {
+                eneg = b[i] == '-';
+                i++;
+            }
+            int ev = 0;
+            boolean ed = false;
+            while (i < e) {
+                int d = b[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                if (ev < 10000) {
+                    ev = ev * 10 + d;
+                }
+                ed = true;
+                i++;
+            }
+            if (!ed) {
+                return false;
+            }
+            exp += eneg ? -ev : ev;
+        }
+        if (i != e) {
+            return false;
+        }
+        r[0] = mant;
+        r[1] = exp;
+        r[2] = exact ? nd : Integer.MAX_VALUE;
+        r[3] = neg ? 1 : 0;
+        return true;
+    }
+
+    /**
+     * Check if a number has leading zeros, such as 054511 but not 0 or 0.5
+     *
+     * @param b Bytes
+     * @param s Start position
+     * @param e End position
+     * @return Boolean
+     */
+    public static boolean hasLeadingZero(byte[] b, int s, int e) {
+        int i = s;
+        if (i < e && (b[i] == '-' || b[i] == '+')) {
+            i++;
+        }
+        return e - i > 1 && b[i] == '0' && b[i + 1] >= '0' && b[i + 1] <= '9';
+    }
+
+    private static NumberFormatException numberFormatException(byte[] b, int s, int e) {
+        return new NumberFormatException("For input string: \""
+                + new String(b, s, e - s, StandardCharsets.ISO_8859_1) + "\"");
+    }
+    // </editor-fold>
+    // <editor-fold desc="Classes">
+
+    /**
+     * Chunk parsing task
+     *
+     * @param <T> Chunk result type
+     */
+    public static abstract class ChunkTask<T> {
+
+        /**
+         * Create the result of a chunk
+         *
+         * @return Chunk result
+         */
+        public abstract T create();
+
+        /**
+         * Parse the tokens of a line into the chunk result
+         *
+         * @param result Chunk result
+         * @param tokens Line tokens
+         */
+        public abstract void parse(T result, Tokens tokens);
+
+        /**
+         * Check if the parsed chunks are enough and the remaining lines can
+         * be skipped
+         *
+         * @param results Parsed chunk results
+         * @return Boolean
+         */
+        public boolean isFinished(List<T> results) {
+            return false;
+        }
+    }
+
+    /**
+     * Tokens of a line
+     */
+    public static class Tokens {
+
+        private final Charset charset;
+        private byte[] bytes;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int count;
+        private String[] strings;
+
+        Tokens(Charset charset) {
+            this.charset = charset;
+        }
+
+        void split(String[] values) {
+            strings = values;
+            count = values.length;
+        }
+
+        void split(byte[] b, int s, int e, int separator) {
+            bytes = b;
+            strings = null;
+            count = 0;
+            if (separator == SPLIT_WHITESPACE) {
+                int i = s;
+                while (i < e) {
+                    int ts = i;
+                    while (i < e && !isWhitespace(b[i])) {
+                        i++;
+                    }
+                    add(ts, i);
+                    while (i < e && isWhitespace(b[i])) {
+                        i++;
+                    }
+                }
+            } else {
+                int ts = s;
+                for (int i = s; i <= e; i++) {
+                    if (i == e || b[i] == separator) {
+                        add(ts, i);
+                        ts = i + 1;
+                    }
+                }
+                //Trailing empty tokens are removed as String.split
+                while (count > 0 && starts[count - 1] == ends[count - 1]) {
+                    count--;
+                }
+                for (int i = 0; i < count; i++) {
+                    int ts1 = starts[i], te = ends[i];
+                    while (ts1 < te && (b[ts1] & 0xff) <= ' ') {
+                        ts1++;
+                    }
+                    while (te > ts1 && (b[te - 1] & 0xff) <= ' ') {
+                        te--;
+                    }
+                    starts[i] = ts1;
+                    ends[i] = te;
+                }
+            }
+        }
+
+        private static boolean isWhitespace(byte c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+        }
+
+        private void add(int s, int e) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = s;
+            ends[count] = e;
+            count++;
+        }
+
+        /**
+         * Get token number
+         *
+         * @return Token number
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Check if a token is empty
+         *
+         * @param i Token index
+         * @return Boolean
+         */
+        public boolean isEmpty(int i) {
+            return strings != null ? strings[i].isEmpty() : starts[i] == ends[i];
+        }
+
+        /**
+         * Check if a token equals a string ignoring case
+         *
+         * @param i Token index
+         * @param s ASCII string
+         * @return Boolean
+         */
+        public boolean equalsIgnoreCase(int i, String s) {
+            if (strings != null) {
+                return strings[i].equalsIgnoreCase(s);
+            }
+            int n = ends[i] - starts[i];
+            if (n != s.length()) {
+                return false;
+            }
+            for (int j = 0; j < n; j++) {
+                if (Character.toLowerCase((char) bytes[starts[i] + j]) != Character.toLowerCase(s.charAt(j))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Check if a token is a number with leading zeros
+         *
+         * @param i Token index
+         * @return Boolean
+         */
+        public boolean hasLeadingZero(int i) {
+            if (strings != null) {
+                byte[] b = strings[i].getBytes(StandardCharsets.ISO_8859_1);
+                return TextTableReader.hasLeadingZero(b, 0, b.length);
+            }
+            return TextTableReader.hasLeadingZero(bytes, starts[i], ends[i]);
+        }
+
+        /**
+         * Get a token string
+         *
+         * @param i Token index
+         * @return String
+         */
+        public String getString(int i) {
+            return strings != null ? strings[i] : new String(bytes, starts[i], ends[i] - starts[i], charset);
+        }
+
+        /**
+         * Parse a token as int
+         *
+         * @param i Token index
+         * @return Int value
+         */
+        public int getInt(int i) {
+            return strings != null ? Integer.parseInt(strings[i]) : parseInt(bytes, starts[i], ends[i]);
+        }
+
+        /**
+         * Parse a token as float
+         *
+         * @param i Token index
+         * @return Float value
+         */
+        public float getFloat(int i) {
+            return strings != null ? Float.parseFloat(strings[i]) : parseFloat(bytes, starts[i], ends[i]);
+        }
+
+        /**
+         * Parse a token as double
+         *
+         * @param i Token index
+         * @return Double value
+         */
+        public double getDouble(int i) {
+            return strings != null ? Double.parseDouble(strings[i]) : parseDouble(bytes, starts[i], ends[i]);
+        }
+
+        /**
+         * Parse a token as date
+         *
+         * @param i Token index
+         * @param parser Date parser
+         * @return Date
+         */
+        public Date getDate(int i, DateParser parser) {
+            return strings != null ? parser.parse(strings[i]) : parser.parse(bytes, starts[i], ends[i]);
+        }
+    }
+
+    /**
+     * Date parser of a SimpleDateFormat pattern. Patterns of numeric year
+     * (yyyy), month, day, hour, minute, second (two digits) and millisecond
+     * (SSS) fields with literal separators are parsed directly from the
+     * bytes, other patterns and unmatched values by SimpleDateFormat. A parser
+     * is not thread safe.
+     */
+    public static class DateParser {
+
+        private final SimpleDateFormat format;
+        private final Calendar calendar;
+        private final char[] fields;
+        private final int[] widths;
+        private final boolean fast;
+        private final int width;
+
+        /**
+         * Constructor
+         *
+         * @param pattern SimpleDateFormat pattern
+         */
+        public DateParser(String pattern) {
+            format = new SimpleDateFormat(pattern);
+            calendar = (Calendar) format.getCalendar().clone();
+            List<Character> fs = new ArrayList<>();
+            List<Integer> ws = new ArrayList<>();
+            boolean ok = true;
+            int i = 0;
+            while (i < pattern.length()) {
+                char c = pattern.charAt(i);
+                int j = i;
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                    while (j < pattern.length() && pattern.charAt(j) == c) {
+                        j++;
+                    }
+                    int n = j - i;
+                    int w = "yMdHmsS".indexOf(c) < 0 ? -1 : (c == 'y' ? 4 : (c == 'S' ? 3 : 2));
+                    if (w != n) {
+                        ok = false;
+                    }
+                    fs.add(c);
+                    ws.add(n);
+                } else {
+                    if (c == '\'' || c > 127) {
+                        ok = false;
+                    }
+                    j = i + 1;
+                    fs.add(c);
+                    ws.add(0);
+                }
+                i = j;
+            }
+            fields = new char[fs.size()];
+            widths = new int[fs.size()];
+            int tw = 0;
+            for (i = 0; i < fields.length; i++) {
+                fields[i] = fs.get(i);
+                widths[i] = ws.get(i);
+                tw += Math.max(1, widths[i]);
+            }
+            fast = ok;
+            width = tw;
+        }
+
+        /**
+         * Parse a date string
+         *
+         * @param s Date string
+         * @return Date, null if the string can not be parsed
+         */
+        public Date parse(String s) {
+            try {
+                return format.parse(s);
+            } catch (ParseException ex) {
+                Logger.getLogger(TextTableReader.class.getName()).log(Level.SEVERE, null, ex);
+                return null;
+            }
+        }
+
+        /**
+         * Parse a date from bytes
+         *
+         * @param b Bytes
+         * @param s Start position
+         * @param e End position
+         * @return Date, null if the bytes can not be parsed
+         */
+        public Date parse(byte[] b, int s, int e) {
+            if (fast && e - s == width) {
+                int year = 1970, month = 1, day = 1, hour = 0, minute = 0, second = 0, milli = 0;
+                int p = s;
+                boolean ok = true;
+                for (int i = 0; i < fields.length && ok; i++) {
+                    if (widths[i] == 0) {
+                        ok = b[p] == fields[i];
+                        p += 1;
+                    } else {
+                        int v = 0;
+                        for (int j = 0; j < widths[i]; j++) {
+                            int d = b[p + j] - '0';
+                            if (d < 0 || d > 9) {
+                                ok = false;
+                                break;
+                            }
+                            v = v * 10 + d;
+                        }
+                        p += widths[i];
+                        switch (fields[i]) {
+                            case 'y':
+                                year = v;
+                                break;
+                            case 'M':
+                                month = v;
+                                break;
+                            case 'd':
+                                day = v;
+                                break;
+                            case 'H':
+                                hour = v;
+                                break;
+                            case 'm':
+                                minute = v;
+                                break;
+                            case 's':
+                                second = v;
+                                break;
+                            case 'S':
+                                milli = v;
+                                break;
+                        }
+                    }
+                }
+                if (ok) {
+                    calendar.clear();
+                    calendar.set(year, month - 1, day, hour, minute, second);
+                    calendar.set(Calendar.MILLISECOND, milli);
+                    return calendar.getTime();
+                }
+            }
+            return parse(new String(b, s, e - s, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /**
+     * Double values of a chunk
+     */
+    private static class DoubleChunk {
+
+        private double[] values = new double[1024];
+        private int n = 0;
+        private NumberFormatException error;
+
+        void add(double v) {
+            if (n == values.length) {
+                values = Arrays.copyOf(values, n * 2);
+            }
+            values[n++] = v;
+        }
+    }
+
+    /**
+     * Typed column buffers of a chunk. The inferred INT columns are widened to
+     * DOUBLE in the chunk, and the inferred columns not fitting in numbers or
+     * booleans are flagged as failed.
+     */
+    private static class ColumnChunk {
+
+        private final DataType[] types;
+        private final DateParser[] parsers;
+        private final Object[] data;
+        private final boolean[] inferred;
+        private final boolean[] failed;
+        private final int[] lastRows;
+        private int rows = 0;
+        private int capacity = 1024;
+
+        ColumnChunk(DataType[] types, String[] formats, boolean[] inferred) {
+            this.types = types.clone();
+            this.parsers = new DateParser[types.length];
+            this.data = new Object[types.length];
+            this.inferred = inferred;
+            this.failed = new boolean[types.length];
+            this.lastRows = new int[types.length];
+            Arrays.fill(lastRows, -1);
+            for (int c = 0; c < types.length; c++) {
+                if (types[c] == DataType.OBJECT && formats[c] != null) {
+                    parsers[c] = new DateParser(formats[c]);
+                }
+                data[c] = createStorage(types[c], formats[c], capacity);
+            }
+        }
+
+        static Object createStorage(DataType type, String format, int n) {
+            switch (type) {
+                case INT:
+                    return new int[n];
+                case FLOAT:
+                    return new float[n];
+                case DOUBLE:
+                    return new double[n];
+                case BOOLEAN:
+                    return new boolean[n];
+                case OBJECT:
+                    return format != null ? new Date[n] : new String[n];
+                default:
+                    return new String[n];
+            }
+        }
+
+        void addRow(Tokens tokens, int[] targets) {
+            if (rows == capacity) {
+                capacity *= 2;
+                for (int c = 0; c < data.length; c++) {
+                    Object nd = java.lang.reflect.Array.newInstance(data[c].getClass().getComponentType(), capacity);
+                    System.arraycopy(data[c], 0, nd, 0, rows);
+                    data[c] = nd;
+                }
+            }
+            //Missing values
+            for (int c = 0; c < types.length; c++) {
+                setEmpty(c);
+            }
+            int n = Math.min(tokens.size(), targets.length);
+            for (int i = 0; i < n; i++) {
+                int c = targets[i];
+                if (c >= 0 && !failed[c] && !tokens.isEmpty(i)) {
+                    setValue(c, tokens, i);
+                    lastRows[c] = rows;
+                }
+            }
+            //Blank values of inferred integer columns
+            for (int c = 0; c < types.length; c++) {
+                if (inferred[c] && types[c] == DataType.INT && lastRows[c] != rows) {
+                    widen(c);
+                    setEmpty(c);
+                }
+            }
+            rows += 1;
+        }
+
+        /**
+         * Widen an INT column to DOUBLE
+         */
+        private void widen(int c) {
+            int[] v = (int[]) data[c];
+            double[] d = new double[capacity];
+            for (int j = 0; j < rows; j++) {
+                d[j] = v[j];
+            }
+            data[c] = d;
+            types[c] = DataType.DOUBLE;
+        }
+
+        private void setEmpty(int c) {
+            switch (types[c]) {
+                case INT:
+                    ((int[]) data[c])[rows] = Integer.MIN_VALUE;
+                    break;
+                case FLOAT:
+                    ((float[]) data[c])[rows] = Float.NaN;
+                    break;
+                case DOUBLE:
+                    ((double[]) data[c])[rows] = Double.NaN;
+                    break;
+                case BOOLEAN:
+                    ((boolean[]) data[c])[rows] = false;
+                    break;
+                case OBJECT:
+                    if (parsers[c] != null) {
+                        ((Date[]) data[c])[rows] = null;
+                    } else {
+                        ((String[]) data[c])[rows] = "";
+                    }
+                    break;
+                default:
+                    ((String[]) data[c])[rows] = "";
+                    break;
+            }
+        }
+
+        private void setValue(int c, Tokens tokens, int i) {
+            switch (types[c]) {
+                case INT:
+                    if (inferred[c] && tokens.hasLeadingZero(i)) {
+                        failed[c] = true;
+                        break;
+                    }
+                    try {
+                        ((int[]) data[c])[rows] = tokens.getInt(i);
+                    } catch (NumberFormatException e) {
+                        if (inferred[c]) {
+                            widen(c);
+                            setEmpty(c);
+                            setValue(c, tokens, i);
+                        }
+                    }
+                    break;
+                case FLOAT:
+                    if (!tokens.equalsIgnoreCase(i, "nan")) {
+                        try {
+                            ((float[]) data[c])[rows] = tokens.getFloat(i);
+                        } catch (NumberFormatException e) {
+                        }
+                    }
+                    break;
+                case DOUBLE:
+                    if (inferred[c] && tokens.hasLeadingZero(i)) {
+                        failed[c] = true;
+                        break;
+                    }
+                    if (!tokens.equalsIgnoreCase(i, "nan")) {
+                        try {
+                            ((double[]) data[c])[rows] = tokens.getDouble(i);
+                        } catch (NumberFormatException e) {
+                            failed[c] = inferred[c];
+                        }
+                    }
+                    break;
+                case BOOLEAN:
+                    ((boolean[]) data[c])[rows] = tokens.equalsIgnoreCase(i, "true");
+                    if (inferred[c] && !tokens.equalsIgnoreCase(i, "true") && !tokens.equalsIgnoreCase(i, "false")) {
+                        failed[c] = true;
+                    }
+                    break;
+                case OBJECT:
+                    if (parsers[c] != null) {
+                        ((Date[]) data[c])[rows] = tokens.getDate(i, parsers[c]);
+                    } else {
+                        ((String[]) data[c])[rows] = tokens.getString(i);
+                    }
+                    break;
+                default:
+                    ((String[]) data[c])[rows] = tokens.getString(i);
+                    break;
+            }
+        }
+    }
+    // </editor-fold>
+}
@@ -16,7 +16,8 @@ package org.meteoinfo.layer;
 import com.l2fprod.common.beans.BaseBeanInfo;
 import com.l2fprod.common.beans.ExtendedPropertyDescriptor;
 import org.meteoinfo.global.Extent;
-import org.meteoinfo.global.MIMath;
+import org.meteoinfo.legend.ColorBreak;
+import org.meteoinfo.legend.ColorMapper;
 import org.meteoinfo.legend.LegendScheme;
 import org.meteoinfo.shape.ShapeTypes;
 import java.awt.Color;
@@ -33,7 +34,6 @@ import org.meteoinfo.data.GridArray;
 import org.meteoinfo.data.mapdata.MapDataManage;
 import org.meteoinfo.global.GenericFileFilter;
 import org.meteoinfo.global.util.GlobalUtil;
-import org.meteoinfo.legend.LegendType;
 import org.meteoinfo.projection.ProjectionInfo;
 import ucar.ma2.Index;
 
@@ -186,77 +186,19 @@ public class RasterLayer extends ImageLayer {
     }
 
     private BufferedImage getImageFromGridData(GridArray gdata, LegendScheme als) {
-        int width, height, breakNum;
-        width = gdata.getXNum();
-        height = gdata.getYNum();
-        breakNum = als.getBreakNum();
-        double[] breakValue = new double[breakNum];
-        Color[] breakColor = new Color[breakNum];
-        Color undefColor = Color.white;
-        Color defaultColor = als.getLegendBreaks().get(breakNum - 1).getColor();
-        Color color;
-        for (int i = 0; i < breakNum; i++) {
-            breakValue[i] = Double.parseDouble(als.getLegendBreaks().get(i).getEndValue().toString());
-            color = als.getLegendBreaks().get(i).getColor();
-            breakColor[i] = color;
-            if (als.getLegendBreaks().get(i).isNoData()) {
-                undefColor = color;
-            } else {
-                defaultColor = color;
-            }
-        }
-        BufferedImage aImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        double oneValue;
-        Color oneColor;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                //oneValue = gdata.data[i][j];
-                oneValue = gdata.getDoubleValue(i, j);
-                if (Double.isNaN(oneValue) || MIMath.doubleEquals(oneValue, gdata.missingValue)) {
-                    oneColor = undefColor;
-                } else {
-                    oneColor = defaultColor;
-                    if (als.getLegendType() == LegendType.GraduatedColor) {
-                        //循环只到breakNum-1 是因为最后一个LegendBreaks的EndValue和StartValue是一样的
-                        for (int k = 0; k < breakNum - 1; k++) {
-                            if (oneValue < breakValue[k]) {
-                                oneColor = breakColor[k];
-                                break;
-                            }
-                        }
-                    } else {
-                        for (int k = 0; k < breakNum - 1; k++) {
-                            if (oneValue == breakValue[k]) {
-                                oneColor = breakColor[k];
-                                break;
-                            }
-                        }
-                    }
-                }
-                aImage.setRGB(j, height - i - 1, oneColor.getRGB());
+        ColorMapper mapper = new ColorMapper(als);
+        //Default color is the color of the last legend break which is not no data
+        for (ColorBreak cb : als.getLegendBreaks()) {
+            if (!cb.isNoData()) {
+                mapper.setDefaultColor(cb.getColor());
             }
         }
 
-        return aImage;
+        return mapper.createImage(gdata);
     }
 
     private BufferedImage getImageFromGridData(GridArray gdata, List<Color> colors) {
-        int width, height;
-        width = gdata.getXNum();
-        height = gdata.getYNum();
-        BufferedImage aImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        int oneValue;
-        Color oneColor;
-        int n = colors.size();
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                oneValue = gdata.getValue(i, j).intValue();
-                oneColor = colors.get(oneValue);
-                aImage.setRGB(j, height - i - 1, oneColor.getRGB());
-            }
-        }
-
-        return aImage;
+        return ColorMapper.createImage(gdata.data, gdata.getXNum(), gdata.getYNum(), colors);
     }
 
     /**
@@ -45,8 +45,13 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFileChooser;
@@ -61,9 +66,12 @@ import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import org.meteoinfo.global.DataConvert;
 import org.meteoinfo.jts.geom.Coordinate;
+import org.meteoinfo.jts.geom.Envelope;
 import org.meteoinfo.jts.geom.Geometry;
 import org.meteoinfo.jts.geom.GeometryFactory;
+import org.meteoinfo.jts.index.strtree.STRtree;
 import org.meteoinfo.jts.operation.union.CascadedPolygonUnion;
+import org.meteoinfo.jts.simplify.DouglasPeuckerLineSimplifier;
 import org.meteoinfo.table.DataColumnCollection;
 import org.meteoinfo.table.DataTable;
 import org.meteoinfo.legend.LegendManage;
@@ -111,6 +119,18 @@ public class VectorLayer extends MapLayer {
     private boolean editing = false;
     private Shape editingShape;
     private final UndoManager undoManager = new UndoManager();
+    private STRtree _spatialIndex = null;
+    private List<Shape> _indexedShapes = null;
+    private int _indexedShapeNum = 0;
+    private static final int SPATIAL_INDEX_MIN_SHAPE_NUM = 64;
+    private boolean _simplify = true;
+    private final LinkedHashMap<Integer, Map<List<? extends PointD>, List<PointD>>> _simplifiedLines
+            = new LinkedHashMap<Integer, Map<List<? extends PointD>, List<PointD>>>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Map<List<? extends PointD>, List<PointD>>> eldest) {
+            return size() > 4;
+        }
+    };
     // </editor-fold>
 
     // <editor-fold desc="Constructor">
@@ -189,6 +209,7 @@ public class VectorLayer extends MapLayer {
      */
     public void setShapes(List<? extends Shape> shapes) {
         _shapeList = (List<Shape>) shapes;
+        this.updateSpatialIndex();
     }
 
     /**
@@ -419,6 +440,25 @@ public class VectorLayer extends MapLayer {
      */
     public void setEditing(boolean value) {
         editing = value;
+        this.updateSpatialIndex();
+    }
+
+    /**
+     * Get if the lines are simplified by map scale when drawing
+     *
+     * @return Boolean
+     */
+    public boolean isSimplify() {
+        return _simplify;
+    }
+
+    /**
+     * Set if the lines are simplified by map scale when drawing
+     *
+     * @param value Boolean
+     */
+    public void setSimplify(boolean value) {
+        _simplify = value;
     }
 
     /**
@@ -726,7 +766,30 @@ public class VectorLayer extends MapLayer {
      * @return Selected shapes
      */
     public List<Integer> selectShapes(Extent aExtent, boolean isSingleSel) {
-        return this.selectShapes(aExtent, _shapeList, isSingleSel);
+        return this.selectShapes(aExtent, false, isSingleSel);
+    }
+
+    /**
+     * Select shapes
+     *
+     * @param aExtent The extent
+     * @param onlyVisible If only select the shapes from visible shapes
+     * @param isSingleSel If just select one shape
+     * @return Selected shapes
+     */
+    public List<Integer> selectShapes(Extent aExtent, boolean onlyVisible, boolean isSingleSel) {
+        List<Integer> idxs = this.queryShapeIndexes(aExtent);
+        if (onlyVisible) {
+            List<Integer> visIdxs = new ArrayList<>();
+            for (int idx : idxs) {
+                if (_shapeList.get(idx).isVisible()) {
+                    visIdxs.add(idx);
+                }
+            }
+            idxs = visIdxs;
+        }
+
+        return this.selectShapesByIndex(aExtent, idxs, isSingleSel);
     }
 
     /**
@@ -738,6 +801,26 @@ public class VectorLayer extends MapLayer {
      * @return Selected shapes
      */
     public List<Integer> selectShapes(Extent aExtent, List<Shape> shapes, boolean isSingleSel) {
+        if (shapes == _shapeList) {
+            return this.selectShapes(aExtent, false, isSingleSel);
+        }
+
+        Map<Shape, Integer> shapeIdxs = new IdentityHashMap<>();
+        for (int i = 0; i < _shapeList.size(); i++) {
+            shapeIdxs.put(_shapeList.get(i), i);
+        }
+        List<Integer> idxs = new ArrayList<>();
+        for (Shape shape : shapes) {
+            Integer idx = shapeIdxs.get(shape);
+            if (idx != null && MIMath.isExtentCross(aExtent, shape.getExtent())) {
+                idxs.add(idx);
+            }
+        }
+
+        return this.selectShapesByIndex(aExtent, idxs, isSingleSel);
+    }
+
+    private List<Integer> selectShapesByIndex(Extent aExtent, List<Integer> idxs, boolean isSingleSel) {
         List<Integer> selectedShapes = new ArrayList<>();
         int i, j;
         PointD sp = aExtent.getCenterPoint();
@@ -750,10 +833,10 @@ public class VectorLayer extends MapLayer {
             case WindBarb:
             case WeatherSymbol:
             case StationModel:
-                for (i = 0; i < shapes.size(); i++) {
-                    PointShape aPS = (PointShape) shapes.get(i);
+                for (i = 0; i < idxs.size(); i++) {
+                    PointShape aPS = (PointShape) _shapeList.get(idxs.get(i));
                     if (MIMath.pointInExtent(aPS.getPoint(), aExtent)) {
-                        selectedShapes.add(_shapeList.indexOf(aPS));
+                        selectedShapes.add(idxs.get(i));
                         if (isSingleSel) {
                             break;
                         }
@@ -765,26 +848,24 @@ public class VectorLayer extends MapLayer {
             case PolylineZ:
                 Object sel;
                 List<Double> dislist = new ArrayList<>();
-                for (i = 0; i < shapes.size(); i++) {
-                    PolylineShape aPLS = (PolylineShape) shapes.get(i);
-                    if (MIMath.isExtentCross(aExtent, aPLS.getExtent())) {
-                        sel = GeoComputation.selectPolylineShape(sp, aPLS, aExtent.getWidth() / 2);
-                        if (sel != null) {
-                            if (dislist.size() > 0) {
-                                for (j = 0; j < dislist.size(); j++) {
-                                    if ((Double) sel < dislist.get(j)) {
-                                        selectedShapes.add(j, _shapeList.indexOf(aPLS));
-                                        dislist.add(j, (Double) sel);
-                                        break;
-                                    }
+                for (i = 0; i < idxs.size(); i++) {
+                    PolylineShape aPLS = (PolylineShape) _shapeList.get(idxs.get(i));
+                    sel = GeoComputation.selectPolylineShape(sp, aPLS, aExtent.getWidth() / 2);
+                    if (sel != null) {
+                        if (dislist.size() > 0) {
+                            for (j = 0; j < dislist.size(); j++) {
+                                if ((Double) sel < dislist.get(j)) {
+                                    selectedShapes.add(j, idxs.get(i));
+                                    dislist.add(j, (Double) sel);
+                                    break;
                                 }
-                            } else {
-                                selectedShapes.add(_shapeList.indexOf(aPLS));
-                                dislist.add((Double) sel);
-                            }
-                            if (isSingleSel) {
-                                break;
                             }
+                        } else {
+                            selectedShapes.add(idxs.get(i));
+                            dislist.add((Double) sel);
+                        }
+                        if (isSingleSel) {
+                            break;
                         }
                     }
                 }
@@ -792,19 +873,19 @@ public class VectorLayer extends MapLayer {
             case Polygon:
             case PolygonM:
             case PolygonZ:
-                for (i = shapes.size() - 1; i >= 0; i--) {
-                    PolygonShape aPGS = (PolygonShape) shapes.get(i);
+                for (i = idxs.size() - 1; i >= 0; i--) {
+                    PolygonShape aPGS = (PolygonShape) _shapeList.get(idxs.get(i));
                     if (isSingleSel) {
                         if (GeoComputation.pointInPolygon(aPGS, sp)) {
-                            selectedShapes.add(_shapeList.indexOf(aPGS));
+                            selectedShapes.add(idxs.get(i));
                             break;
                         }
                     } else if (GeoComputation.pointInPolygon(aPGS, sp)) {
-                        selectedShapes.add(_shapeList.indexOf(aPGS));
-                    } else if (MIMath.isExtentCross(aExtent, aPGS.getExtent())) {
+                        selectedShapes.add(idxs.get(i));
+                    } else {
                         for (j = 0; j < aPGS.getPolygons().get(0).getOutLine().size(); j++) {
                             if (MIMath.pointInExtent(aPGS.getPolygons().get(0).getOutLine().get(j), aExtent)) {
-                                selectedShapes.add(_shapeList.indexOf(aPGS));
+                                selectedShapes.add(idxs.get(i));
                                 break;
                             }
                         }
@@ -824,7 +905,7 @@ public class VectorLayer extends MapLayer {
      */
     public List<Integer> selectShapes(PolygonShape polygonShape) {
         List<Integer> selIdxs = new ArrayList<>();
-        for (int i = 0; i < _shapeList.size(); i++) {
+        for (int i : this.queryShapeIndexes(polygonShape.getExtent())) {
             boolean isIn = false;
             List<PointD> points = (List<PointD>) _shapeList.get(i).getPoints();
             for (PointD aPoint : points) {
@@ -870,17 +951,13 @@ public class VectorLayer extends MapLayer {
      * @param selType Selection type
      */
     public void sqlSelect(String expression, SelectType selType) {
-        List<DataRow> rows = this._attributeTable.getTable().select(expression);
-        List<Integer> rowIdxs = new ArrayList<>();
-        for (DataRow row : rows) {
-            rowIdxs.add(row.getRowIndex());
-        }
+        BitSet rowIdxs = this._attributeTable.getTable().selectRowIndex(expression);
 
         int i;
         switch (selType) {
             case NEW:    //Create a new selection
                 for (i = 0; i < this.getShapeNum(); i++) {
-                    if (rowIdxs.contains(i)) {
+                    if (rowIdxs.get(i)) {
                         this._shapeList.get(i).setSelected(true);
                     } else {
                         this._shapeList.get(i).setSelected(false);
@@ -889,14 +966,14 @@ public class VectorLayer extends MapLayer {
                 break;
             case ADD_TO_CURRENT:    //Add to current selection
                 for (i = 0; i < this.getShapeNum(); i++) {
-                    if (rowIdxs.contains(i)) {
+                    if (rowIdxs.get(i)) {
                         this._shapeList.get(i).setSelected(true);
                     }
                 }
                 break;
             case REMOVE_FROM_CURRENT:    //Remove from current selection
                 for (i = 0; i < this.getShapeNum(); i++) {
-                    if (rowIdxs.contains(i)) {
+                    if (rowIdxs.get(i)) {
                         this._shapeList.get(i).setSelected(false);
                     }
                 }
@@ -904,7 +981,7 @@ public class VectorLayer extends MapLayer {
             case SELECT_FROM_CURRENT:    //Select from current selection
                 for (i = 0; i < this.getShapeNum(); i++) {
                     if (this._shapeList.get(i).isSelected()) {
-                        if (!rowIdxs.contains(i)) {
+                        if (!rowIdxs.get(i)) {
                             this._shapeList.get(i).setSelected(false);
                         }
                     }
@@ -922,7 +999,7 @@ public class VectorLayer extends MapLayer {
     public Shape selectShape(PointD p) {
         Coordinate c = new Coordinate(p.X, p.Y);
         Geometry point = new GeometryFactory().createPoint(c);
-        for (Shape shape : _shapeList) {
+        for (Shape shape : this.queryShapes(new Extent(p.X, p.X, p.Y, p.Y))) {
             if (point.within(shape.toGeometry())) {
                 return shape;
             }
@@ -937,7 +1014,7 @@ public class VectorLayer extends MapLayer {
      * @return PolygonShape and polygon hole index
      */
     public Object[] selectPolygonHole(PointD p) {
-        for (Shape shape : _shapeList) {
+        for (Shape shape : this.queryShapes(new Extent(p.X, p.X, p.Y, p.Y))) {
             int i = 0;
             for (Polygon poly : ((PolygonShape) shape).getPolygons()) {
                 if (poly.hasHole()) {
@@ -1059,6 +1136,122 @@ public class VectorLayer extends MapLayer {
         }
     }
 
+    /**
+     * Update spatial index and simplified lines. The index will be rebuilt at
+     * next query, should be called after the shapes were changed in place.
+     */
+    public synchronized void updateSpatialIndex() {
+        _spatialIndex = null;
+        _indexedShapes = null;
+        _simplifiedLines.clear();
+    }
+
+    /**
+     * Get simplified points of a line or polygon ring by Douglas-Peucker
+     * algorithm. The tolerance is rounded down to a power of 2 so that the
+     * simplified lines are shared by close map scales.
+     *
+     * @param points The points
+     * @param tolerance Distance tolerance
+     * @return Simplified points
+     */
+    public List<? extends PointD> getSimplifiedPoints(List<? extends PointD> points, double tolerance) {
+        if (!_simplify || editing || points.size() < 8 || !(tolerance > 0)) {
+            return points;
+        }
+
+        int level = (int) Math.floor(Math.log(tolerance) / Math.log(2));
+        Map<List<? extends PointD>, List<PointD>> lines;
+        List<PointD> sPoints;
+        synchronized (this) {
+            lines = _simplifiedLines.get(level);
+            if (lines == null) {
+                lines = new IdentityHashMap<>();
+                _simplifiedLines.put(level, lines);
+            }
+            sPoints = lines.get(points);
+        }
+        if (sPoints == null) {
+            Coordinate[] cs = new Coordinate[points.size()];
+            for (int i = 0; i < cs.length; i++) {
+                PointD p = points.get(i);
+                cs[i] = new Coordinate(p.X, p.Y);
+            }
+            cs = DouglasPeuckerLineSimplifier.simplify(cs, Math.pow(2, level));
+            sPoints = new ArrayList<>(cs.length);
+            for (Coordinate c : cs) {
+                sPoints.add(new PointD(c.x, c.y));
+            }
+            synchronized (this) {
+                lines.put(points, sPoints);
+            }
+        }
+
+        return sPoints;
+    }
+
+    private synchronized STRtree getSpatialIndex() {
+        if (_spatialIndex == null || _indexedShapes != _shapeList
+                || _indexedShapeNum != _shapeList.size()) {
+            STRtree tree = new STRtree();
+            Extent aExtent;
+            for (int i = 0; i < _shapeList.size(); i++) {
+                aExtent = _shapeList.get(i).getExtent();
+                tree.insert(new Envelope(aExtent.minX, aExtent.maxX, aExtent.minY, aExtent.maxY), i);
+            }
+            tree.build();
+            _spatialIndex = tree;
+            _indexedShapes = _shapeList;
+            _indexedShapeNum = _shapeList.size();
+        }
+
+        return _spatialIndex;
+    }
+
+    /**
+     * Get indexes of the shapes whose extent crosses an extent. The spatial
+     * index is not used while the layer is editing.
+     *
+     * @param aExtent The extent
+     * @return Shape indexes in ascending order
+     */
+    public List<Integer> queryShapeIndexes(Extent aExtent) {
+        List<Integer> idxs = new ArrayList<>();
+        if (editing || _shapeList.size() < SPATIAL_INDEX_MIN_SHAPE_NUM) {
+            for (int i = 0; i < _shapeList.size(); i++) {
+                if (MIMath.isExtentCross(aExtent, _shapeList.get(i).getExtent())) {
+                    idxs.add(i);
+                }
+            }
+            return idxs;
+        }
+
+        List items = this.getSpatialIndex().query(new Envelope(aExtent.minX, aExtent.maxX,
+                aExtent.minY, aExtent.maxY));
+        for (Object item : items) {
+            idxs.add((Integer) item);
+        }
+        Collections.sort(idxs);
+
+        return idxs;
+    }
+
+    /**
+     * Get the shapes whose extent crosses an extent
+     *
+     * @param aExtent The extent
+     * @return Shapes in layer order
+     */
+    public List<Shape> queryShapes(Extent aExtent) {
+        List<Integer> idxs = this.queryShapeIndexes(aExtent);
+        List<Shape> shapes = new ArrayList<>(idxs.size());
+        for (int idx : idxs) {
+            shapes.add(_shapeList.get(idx));
+        }
+
+        return shapes;
+    }
+
     // </editor-fold>
     // <editor-fold desc="Attribute Table">
     /**
@@ -1318,6 +1511,20 @@ public class VectorLayer extends MapLayer {
         this._attributeTable.updateDataTable();
     }
 
+    /**
+     * Join data table by multiple key columns
+     *
+     * @param dataTable The input data table
+     * @param colNames_this The key column names of this data table
+     * @param colNames_in The key column names of the input data table
+     * @param isUpdate If update the existing values with same column name
+     */
+    public void joinTable(DataTable dataTable, List<String> colNames_this, List<String> colNames_in, boolean isUpdate) {
+        DataTable thisTable = this._attributeTable.getTable();
+        thisTable.join(dataTable, colNames_this, colNames_in, isUpdate);
+        this._attributeTable.updateDataTable();
+    }
+
     /**
      * Remove joined data columns
      */
@@ -1348,6 +1555,7 @@ public class VectorLayer extends MapLayer {
         }
 
         _shapeList.add(position, aShape);
+        this.updateSpatialIndex();
         insertRecord(position);
         updateLayerExtent(aShape);
 
@@ -1371,6 +1579,7 @@ public class VectorLayer extends MapLayer {
         }
 
         _shapeList.add(position, aShape);
+        this.updateSpatialIndex();
         insertRecord(position, record);
         updateLayerExtent(aShape);
 
@@ -1413,6 +1622,7 @@ public class VectorLayer extends MapLayer {
         int idx = this._shapeList.indexOf(shape);
         if (idx >= 0) {
             this._shapeList.remove(shape);
+            this.updateSpatialIndex();
             this._attributeTable.getTable().removeRow(idx);
         }
     }
@@ -2820,6 +3030,7 @@ public class VectorLayer extends MapLayer {
      * Update extent
      */
     public void updateExtent() {
+        this.updateSpatialIndex();
         for (int i = 0; i < _shapeList.size(); i++) {
             if (i == 0) {
                 this.setExtent((Extent) _shapeList.get(i).getExtent().clone());
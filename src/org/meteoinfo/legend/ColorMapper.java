@@ -0,0 +1,307 @@
+/* Copyright 2012 Yaqiang Wang,
+ * yaqiang.wang@gmail.com
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or (at
+ * your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser
+ * General Public License for more details.
+ */
+package org.meteoinfo.legend;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.meteoinfo.data.ArrayKernel;
+import org.meteoinfo.data.GridArray;
+import org.meteoinfo.global.util.ParallelUtil;
+import ucar.ma2.Array;
+
+/**
+ * Map data values to colors by a legend scheme.
+ *
+ * The break values are prepared once as a search table, so a value is mapped
+ * by binary search instead of scanning the legend breaks. Images are written
+ * directly into the pixel array of the image and the rows are processed in
+ * parallel. The mapping is same as the linear scan of the legend breaks: for
+ * graduated color legend the color of the first break (except the last one)
+ * with end value greater than the value, for unique value legend the color of
+ * the first break (except the last one) with end value equal to the value, and
+ * the default color otherwise.
+ *
+ * @author Yaqiang Wang
+ */
+public class ColorMapper {
+    // <editor-fold desc="Variables">
+
+    private static final int MIN_CHUNK_PIXELS = 16384;
+    private final boolean graduated;
+    private final double[] searchValues;
+    private final int[] searchColors;
+    private int undefColor = Color.white.getRGB();
+    private int defaultColor;
+    // </editor-fold>
+    // <editor-fold desc="Constructor">
+
+    /**
+     * Constructor. The default color is the color of the last legend break.
+     *
+     * @param ls Legend scheme
+     */
+    public ColorMapper(LegendScheme ls) {
+        List<ColorBreak> cbs = ls.getLegendBreaks();
+        int breakNum = cbs.size();
+        double[] breakValue = new double[breakNum];
+        int[] breakColor = new int[breakNum];
+        for (int i = 0; i < breakNum; i++) {
+            ColorBreak cb = cbs.get(i);
+            breakValue[i] = Double.parseDouble(cb.getEndValue().toString());
+            breakColor[i] = cb.getColor().getRGB();
+            if (cb.isNoData()) {
+                undefColor = breakColor[i];
+            }
+        }
+        defaultColor = breakNum > 0 ? breakColor[breakNum - 1] : undefColor;
+        graduated = ls.getLegendType() == LegendType.GraduatedColor;
+
+        //The last legend break is not searched since its start and end values
+        //are same
+        int n = Math.max(0, breakNum - 1);
+        if (graduated) {
+            //The first break with value < end value is the first break where
+            //the running maximum of end values exceeds the value, so only the
+            //breaks raising the running maximum are kept
+            double[] vs = new double[n];
+            int[] cs = new int[n];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                double v = breakValue[i];
+                if (!Double.isNaN(v) && (m == 0 || v > vs[m - 1])) {
+                    vs[m] = v;
+                    cs[m] = breakColor[i];
+                    m += 1;
+                }
+            }
+            searchValues = Arrays.copyOf(vs, m);
+            searchColors = Arrays.copyOf(cs, m);
+        } else {
+            //Sorted distinct values keeping the color of the first break
+            Integer[] idx = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                idx[i] = i;
+            }
+            final double[] bv = breakValue;
+            Arrays.sort(idx, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    int c = Double.compare(bv[a] == 0 ? 0 : bv[a], bv[b] == 0 ? 0 : bv[b]);
+                    return c != 0 ? c : a.compareTo(b);
+                }
+            });
+            double[] vs = new double[n];
+            int[] cs = new int[n];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                double v = breakValue[idx[i]];
+                if (!Double.isNaN(v) && (m == 0 || v != vs[m - 1])) {
+                    vs[m] = v;
+                    cs[m] = breakColor[idx[i]];
+                    m += 1;
+                }
+            }
+            searchValues = Arrays.copyOf(vs, m);
+            searchColors = Arrays.copyOf(cs, m);
+        }
+    }
+    // </editor-fold>
+    // <editor-fold desc="Get Set Methods">
+
+    /**
+     * Get undefine color
+     *
+     * @return Undefine color
+     */
+    public Color getUndefColor() {
+        return new Color(undefColor, true);
+    }
+
+    /**
+     * Set undefine color
+     *
+     * @param value Undefine color
+     */
+    public void setUndefColor(Color value) {
+        undefColor = value.getRGB();
+    }
+
+    /**
+     * Get default color
+     *
+     * @return Default color
+     */
+    public Color getDefaultColor() {
+        return new Color(defaultColor, true);
+    }
+
+    /**
+     * Set default color
+     *
+     * @param value Default color
+     */
+    public void setDefaultColor(Color value) {
+        defaultColor = value.getRGB();
+    }
+    // </editor-fold>
+    // <editor-fold desc="Methods">
+
+    /**
+     * Get ARGB color of a value
+     *
+     * @param v The value
+     * @return ARGB color
+     */
+    public int getRGB(double v) {
+        if (Double.isNaN(v)) {
+            return undefColor;
+        }
+        int n = searchValues.length;
+        if (graduated) {
+            //First search value greater than v
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (searchValues[mid] <= v) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo < n ? searchColors[lo] : defaultColor;
+        } else {
+            int lo = 0, hi = n - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                double sv = searchValues[mid];
+                if (sv < v) {
+                    lo = mid + 1;
+                } else if (sv > v) {
+                    hi = mid - 1;
+                } else {
+                    return searchColors[mid];
+                }
+            }
+            return defaultColor;
+        }
+    }
+
+    /**
+     * Get color of a value
+     *
+     * @param v The value
+     * @return Color
+     */
+    public Color getColor(double v) {
+        return new Color(getRGB(v), true);
+    }
+
+    /**
+     * Create image from a 2D array in y by x order. The first row is at the
+     * bottom of the image.
+     *
+     * @param data Data array
+     * @param width Image width - x number
+     * @param height Image height - y number
+     * @param missingValue Missing value, NaN values are always missing
+     * @return Image
+     */
+    public BufferedImage createImage(Array data, final int width, final int height, final double missingValue) {
+        final double[] values = ArrayKernel.getDoubleStorage(data);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        final boolean hasMissing = !Double.isNaN(missingValue);
+        ParallelUtil.parallelFor(height, Math.max(1, MIN_CHUNK_PIXELS / Math.max(1, width)), new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    int s = i * width;
+                    int p = (height - i - 1) * width;
+                    for (int j = 0; j < width; j++) {
+                        double v = values[s + j];
+                        //Same as MIMath.doubleEquals
+                        if (hasMissing && Math.abs(v - missingValue) <= Math.abs(v * 0.00001)) {
+                            pixels[p + j] = undefColor;
+                        } else {
+                            pixels[p + j] = getRGB(v);
+                        }
+                    }
+                }
+            }
+        });
+
+        return image;
+    }
+
+    /**
+     * Create image from a 2D array in y by x order. The first row is at the
+     * bottom of the image and NaN values are missing.
+     *
+     * @param data Data array
+     * @return Image
+     */
+    public BufferedImage createImage(Array data) {
+        int[] shape = data.getShape();
+        return createImage(data, shape[1], shape[0], Double.NaN);
+    }
+
+    /**
+     * Create image from grid array
+     *
+     * @param gdata Grid array
+     * @return Image
+     */
+    public BufferedImage createImage(GridArray gdata) {
+        return createImage(gdata.data, gdata.getXNum(), gdata.getYNum(), gdata.missingValue);
+    }
+
+    /**
+     * Create image from a 2D array of color indices in y by x order. The
+     * first row is at the bottom of the image.
+     *
+     * @param data Color index array
+     * @param width Image width - x number
+     * @param height Image height - y number
+     * @param colors Colors
+     * @return Image
+     */
+    public static BufferedImage createImage(Array data, final int width, final int height, List<Color> colors) {
+        final double[] values = ArrayKernel.getDoubleStorage(data);
+        final int[] rgbs = new int[colors.size()];
+        for (int i = 0; i < rgbs.length; i++) {
+            rgbs[i] = colors.get(i).getRGB();
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        ParallelUtil.parallelFor(height, Math.max(1, MIN_CHUNK_PIXELS / Math.max(1, width)), new ParallelUtil.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    int s = i * width;
+                    int p = (height - i - 1) * width;
+                    for (int j = 0; j < width; j++) {
+                        pixels[p + j] = rgbs[(int) values[s + j]];
+                    }
+                }
+            }
+        });
+
+        return image;
+    }
+    // </editor-fold>
+}
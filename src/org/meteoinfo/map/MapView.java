@@ -4697,17 +4697,10 @@ public class MapView extends JPanel implements IWebMapPanel {
         max = ((PointBreak) aLayer.getLegendScheme().getLegendBreaks().get(0)).getSize() * 3;
         List<WindArrow> windArraws = new ArrayList<>();
 
-        int shapeIdx = 0;
-        List<Integer> idxList = new ArrayList<>();
-        for (Shape aShape : aLayer.getShapes()) {
-            WindArrow aArraw = (WindArrow) aShape;
-            aPoint = aArraw.getPoint();
-            if (!(aPoint.X + LonShift < _drawExtent.minX || aPoint.X + LonShift > _drawExtent.maxX
-                    || aPoint.Y < _drawExtent.minY || aPoint.Y > _drawExtent.maxY)) {
-                windArraws.add(aArraw);
-                idxList.add(shapeIdx);
-            }
-            shapeIdx += 1;
+        int shapeIdx;
+        List<Integer> idxList = aLayer.queryShapeIndexes(MIMath.shiftExtentLon(_drawExtent, -LonShift));
+        for (int idx : idxList) {
+            windArraws.add((WindArrow) aLayer.getShapes().get(idx));
         }
         //Draw.GetMaxMinWindSpeed(windArraws, ref min, ref max);
         //zoom = 30.0 / (double)max;
@@ -4785,17 +4778,10 @@ public class MapView extends JPanel implements IWebMapPanel {
         LegendScheme aLS = aLayer.getLegendScheme();
         double value;
         List<WindBarb> windBarbs = new ArrayList<>();
-        int shapeIdx = 0;
-        //List<Integer> idxList = new ArrayList<>();
-        for (Shape aShape : aLayer.getShapes()) {
-            WindBarb wBarb = (WindBarb) aShape;
-            aPoint = wBarb.getPoint();
-            if (!(aPoint.X + LonShift < _drawExtent.minX || aPoint.X + LonShift > _drawExtent.maxX
-                    || aPoint.Y < _drawExtent.minY || aPoint.Y > _drawExtent.maxY)) {
-                windBarbs.add(wBarb);
-                //idxList.add(shapeIdx);
-            }
-            shapeIdx += 1;
+        int shapeIdx;
+        List<Integer> idxList = aLayer.queryShapeIndexes(MIMath.shiftExtentLon(_drawExtent, -LonShift));
+        for (int idx : idxList) {
+            windBarbs.add((WindBarb) aLayer.getShapes().get(idx));
         }
 
         List<Extent> extentList = new ArrayList<>();
@@ -4851,7 +4837,7 @@ public class MapView extends JPanel implements IWebMapPanel {
             shapeIdx = 0;
             for (WindBarb aWB : windBarbs) {
                 //value = aWB.Value;
-                String vStr = aLayer.getCellValue(aLS.getFieldName(), shapeIdx).toString().trim();
+                String vStr = aLayer.getCellValue(aLS.getFieldName(), idxList.get(shapeIdx)).toString().trim();
                 if (vStr == null || vStr.isEmpty()) {
                     value = 0;
                 } else {
@@ -5031,7 +5017,8 @@ public class MapView extends JPanel implements IWebMapPanel {
         LegendScheme aLS = aLayer.getLegendScheme();
         List<Extent> extentList = new ArrayList<>();
         Extent maxExtent = new Extent();
-        for (PointShape aPS : (List<PointShape>) aLayer.getShapes()) {
+        for (Shape aShape : aLayer.queryShapes(MIMath.shiftExtentLon(_drawExtent, -LonShift))) {
+            PointShape aPS = (PointShape) aShape;
             if (!aPS.isVisible()) {
                 continue;
             }
@@ -5122,7 +5109,8 @@ public class MapView extends JPanel implements IWebMapPanel {
         List<Extent> extentList = new ArrayList<>();
         Extent maxExtent = new Extent();
         Extent aExtent;
-        for (StationModelShape aPS : (List<StationModelShape>) aLayer.getShapes()) {
+        for (Shape aShape : aLayer.queryShapes(MIMath.shiftExtentLon(_drawExtent, -LonShift))) {
+            StationModelShape aPS = (StationModelShape) aShape;
             if (aPS.getPoint().X + LonShift < _drawExtent.minX || aPS.getPoint().X + LonShift > _drawExtent.maxX
                     || aPS.getPoint().Y < _drawExtent.minY || aPS.getPoint().Y > _drawExtent.maxY) {
                 continue;
@@ -5201,8 +5189,8 @@ public class MapView extends JPanel implements IWebMapPanel {
     private void drawPolygonLayer(VectorLayer aLayer, Graphics2D g, double LonShift) {
         LegendScheme aLS = aLayer.getLegendScheme();
 
-        for (int s = 0; s < aLayer.getShapeNum(); s++) {
-            PolygonShape aPGS = (PolygonShape) aLayer.getShapes().get(s);
+        for (Shape aShape : aLayer.queryShapes(MIMath.shiftExtentLon(_drawExtent, -LonShift))) {
+            PolygonShape aPGS = (PolygonShape) aShape;
             if (!aPGS.isVisible()) {
                 continue;
             }
@@ -5213,7 +5201,7 @@ public class MapView extends JPanel implements IWebMapPanel {
 
             PolygonBreak aPGB = (PolygonBreak) aLS.getLegendBreaks().get(aPGS.getLegendIndex());
             if (aPGB.isDrawShape()) {
-                drawPolygonShape(g, aPGS, aPGB, LonShift);
+                drawPolygonShape(g, aPGS, aPGB, LonShift, false, aLayer);
                 //System.out.println(aPGB.getColor().getAlpha());
             }
         }
@@ -5258,9 +5246,10 @@ public class MapView extends JPanel implements IWebMapPanel {
     private void drawPolylineLayer(VectorLayer aLayer, Graphics2D g, double LonShift) {
         LegendScheme aLS = aLayer.getLegendScheme();
 
+        List<Shape> shapes = aLayer.queryShapes(MIMath.shiftExtentLon(_drawExtent, -LonShift));
         if (aLS.isGeometry()) {
-            for (int s = 0; s < aLayer.getShapeNum(); s++) {
-                PolylineShape aPLS = (PolylineShape) aLayer.getShapes().get(s);
+            for (Shape aShape : shapes) {
+                PolylineShape aPLS = (PolylineShape) aShape;
                 if (!aPLS.isVisible()) {
                     continue;
                 }
@@ -5294,8 +5283,8 @@ public class MapView extends JPanel implements IWebMapPanel {
                     break;
             }
 
-            for (int s = 0; s < aLayer.getShapeNum(); s++) {
-                PolylineShape aPLS = (PolylineShape) aLayer.getShapes().get(s);
+            for (Shape aShape : shapes) {
+                PolylineShape aPLS = (PolylineShape) aShape;
                 if (!aPLS.isVisible()) {
                     continue;
                 }
@@ -5305,7 +5294,7 @@ public class MapView extends JPanel implements IWebMapPanel {
 
                 PolylineBreak aPLB = (PolylineBreak) aLS.getLegendBreaks().get(aPLS.getLegendIndex());
                 if (aPLB.getDrawPolyline() || aPLB.getDrawSymbol()) {
-                    drawPolylineShape(g, aPLS, aPLB, LonShift, isStreamline);
+                    drawPolylineShape(g, aPLS, aPLB, LonShift, isStreamline, false, false, aLayer);
                 }
             }
         }
@@ -5432,11 +5421,21 @@ public class MapView extends JPanel implements IWebMapPanel {
 
     private void drawPolylineShape(Graphics2D g, PolylineShape aPLS, PolylineBreak aPLB, double LonShift,
             boolean isStreamline, boolean isSelected, boolean isIdentifer) {
+        drawPolylineShape(g, aPLS, aPLB, LonShift, isStreamline, isSelected, isIdentifer, null);
+    }
+
+    private void drawPolylineShape(Graphics2D g, PolylineShape aPLS, PolylineBreak aPLB, double LonShift,
+            boolean isStreamline, boolean isSelected, boolean isIdentifer, VectorLayer lodLayer) {
         Extent shapeExtent = MIMath.shiftExtentLon(aPLS.getExtent(), LonShift);
         if (!MIMath.isExtentCross(shapeExtent, _drawExtent)) {
             return;
         }
 
+        //Simplify lines by map scale if vertices are not drawn
+        if (isStreamline || aPLB.getDrawSymbol() || aPLS.isEditing() || isSelected) {
+            lodLayer = null;
+        }
+        double tolerance = getSimplifyTolerance();
         int len1 = aPLS.getPoints().size();
         GeneralPath path = new GeneralPath(GeneralPath.WIND_EVEN_ODD, len1);
 
@@ -5457,9 +5456,13 @@ public class MapView extends JPanel implements IWebMapPanel {
         if (aPLB.getDrawPolyline()) {
             for (Polyline aline : aPLS.getPolylines()) {
                 double[] sXY;
-                PointF[] Points = new PointF[aline.getPointList().size()];
-                for (int i = 0; i < aline.getPointList().size(); i++) {
-                    PointD wPoint = aline.getPointList().get(i);
+                List<? extends PointD> linePoints = aline.getPointList();
+                if (lodLayer != null) {
+                    linePoints = lodLayer.getSimplifiedPoints(linePoints, tolerance);
+                }
+                PointF[] Points = new PointF[linePoints.size()];
+                for (int i = 0; i < linePoints.size(); i++) {
+                    PointD wPoint = linePoints.get(i);
                     sXY = projToScreen(wPoint.X, wPoint.Y, LonShift);
                     if (i == 0) {
                         path.moveTo(sXY[0], sXY[1]);
@@ -5610,6 +5613,11 @@ public class MapView extends JPanel implements IWebMapPanel {
 
     private void drawPolygonShape(Graphics2D g, PolygonShape aPGS, PolygonBreak aPGB, double LonShift,
             boolean isSelected) {
+        drawPolygonShape(g, aPGS, aPGB, LonShift, isSelected, null);
+    }
+
+    private void drawPolygonShape(Graphics2D g, PolygonShape aPGS, PolygonBreak aPGB, double LonShift,
+            boolean isSelected, VectorLayer lodLayer) {
         Extent shapeExtent = MIMath.shiftExtentLon(aPGS.getExtent(), LonShift);
         if (!MIMath.isExtentCross(shapeExtent, _drawExtent)) {
             return;
@@ -5617,7 +5625,7 @@ public class MapView extends JPanel implements IWebMapPanel {
 
         List<PointF> pointList = new ArrayList<>();
         for (Polygon aPolygon : aPGS.getPolygons()) {
-            pointList.addAll(drawPolygon(g, aPolygon, aPGB, LonShift, aPGS.isSelected()));
+            pointList.addAll(drawPolygon(g, aPolygon, aPGB, LonShift, aPGS.isSelected(), lodLayer));
         }
 
         //Draw selected rectangle
@@ -5631,15 +5639,20 @@ public class MapView extends JPanel implements IWebMapPanel {
     }
 
     private List<PointF> drawPolygon(Graphics2D g, Polygon aPG, PolygonBreak aPGB, double LonShift,
-            boolean isSelected) {
-        int len = aPG.getOutLine().size();
+            boolean isSelected, VectorLayer lodLayer) {
+        double tolerance = getSimplifyTolerance();
+        List<? extends PointD> outLine = aPG.getOutLine();
+        if (lodLayer != null) {
+            outLine = lodLayer.getSimplifiedPoints(outLine, tolerance);
+        }
+        int len = outLine.size();
         GeneralPath path = new GeneralPath(GeneralPath.WIND_EVEN_ODD, len);
         path.moveTo(0, 0);
         PointD wPoint;
         double[] sXY;
         List<PointF> rPoints = new ArrayList<>();
-        for (int i = 0; i < aPG.getOutLine().size(); i++) {
-            wPoint = aPG.getOutLine().get(i);
+        for (int i = 0; i < outLine.size(); i++) {
+            wPoint = outLine.get(i);
             sXY = projToScreen(wPoint.X, wPoint.Y, LonShift);
             if (i == 0) {
                 path.moveTo(sXY[0], sXY[1]);
@@ -5649,10 +5662,13 @@ public class MapView extends JPanel implements IWebMapPanel {
             rPoints.add(new PointF((float) sXY[0], (float) sXY[1]));
         }
 
-        List<PointD> newPList;
+        List<? extends PointD> newPList;
         if (aPG.hasHole()) {
             for (int h = 0; h < aPG.getHoleLines().size(); h++) {
-                newPList = (List<PointD>) aPG.getHoleLines().get(h);
+                newPList = aPG.getHoleLines().get(h);
+                if (lodLayer != null) {
+                    newPList = lodLayer.getSimplifiedPoints(newPList, tolerance);
+                }
                 for (int j = 0; j < newPList.size(); j++) {
                     wPoint = newPList.get(j);
                     sXY = projToScreen(wPoint.X, wPoint.Y, LonShift);
@@ -5698,6 +5714,15 @@ public class MapView extends JPanel implements IWebMapPanel {
         return rPoints;
     }
 
+    /**
+     * Get line simplify distance tolerance - half pixel in map units
+     *
+     * @return Distance tolerance
+     */
+    private double getSimplifyTolerance() {
+        return 0.5 / Math.max(_scaleX, _scaleY);
+    }
+
     private void drawWebMapLayer(WebMapLayer layer, Graphics2D g, int width, int height) {
         this.drawWebMapLayer(layer, g, width, height, tileLoadListener);
     }
@@ -5949,7 +5974,8 @@ public class MapView extends JPanel implements IWebMapPanel {
                 }
 
                 for (double lonShift : lonShiftList) {
-                    for (PolygonShape aPGS : (List<PolygonShape>) aLayer.getShapes()) {
+                    for (Shape aShape : aLayer.queryShapes(MIMath.shiftExtentLon(_drawExtent, -lonShift))) {
+                        PolygonShape aPGS = (PolygonShape) aShape;
                         for (Polygon aPolygon : aPGS.getPolygons()) {
                             GeneralPath aPath = new GeneralPath();
                             PointD wPoint;
@@ -8017,7 +8043,7 @@ public class MapView extends JPanel implements IWebMapPanel {
         points.add(new PointD(maxX, minY));
         points.add(new PointD(minX, minY));
         poly.setPoints(points);
-        for (Shape shape : layer.getShapes()) {
+        for (Shape shape : layer.queryShapes(poly.getExtent())) {
             if (!shape.isEditing()) {
                 if (poly.intersects(shape) && !poly.within(shape)) {
                     for (PointD p : shape.getPoints()) {
@@ -8172,8 +8198,8 @@ public class MapView extends JPanel implements IWebMapPanel {
         projX = projXY[0];
         projY = projXY[1];
 
-        for (int i = 0; i < layer.getShapeNum(); i++) {
-            PolygonShape shape = (PolygonShape) layer.getShapes().get(i);
+        for (Shape aShape : layer.queryShapes(new Extent(projX, projX, projY, projY))) {
+            PolygonShape shape = (PolygonShape) aShape;
             if (GeoComputation.pointInPolygon(shape, new PointD(projX, projY))) {
                 return shape;
             }
@@ -8267,7 +8293,7 @@ public class MapView extends JPanel implements IWebMapPanel {
 
         List<Integer> selectedShapes;
         if (onlyVisible) {
-            selectedShapes = aLayer.selectShapes(aExtent, aLayer.getVisibleShapes(), isSel);
+            selectedShapes = aLayer.selectShapes(aExtent, true, isSel);
         } else {
             selectedShapes = aLayer.selectShapes(aExtent, isSel);
         }
@@ -5,8 +5,6 @@
  */
 package org.meteoinfo.math.stats;
 
-import java.util.ArrayList;
-import java.util.List;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.stat.StatUtils;
@@ -16,13 +14,11 @@ import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
 import org.apache.commons.math3.stat.correlation.SpearmansCorrelation;
 import org.apache.commons.math3.stat.inference.TestUtils;
 import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
-import org.meteoinfo.data.ArrayMath;
+import org.meteoinfo.data.ArrayReduce;
 import org.meteoinfo.data.ArrayUtil;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
-import ucar.ma2.Index;
 import ucar.ma2.InvalidRangeException;
-import ucar.ma2.Range;
 
 /**
  *
@@ -281,43 +277,7 @@ public class StatsUtil {
      * @throws InvalidRangeException 
      */
     public static Array percentile(Array a, double p, int axis) throws InvalidRangeException{
-        int[] dataShape = a.getShape();
-        int[] shape = new int[dataShape.length - 1];
-        int idx;
-        for (int i = 0; i < dataShape.length; i++) {
-            idx = i;
-            if (idx == axis) {
-                continue;
-            } else if (idx > axis) {
-                idx -= 1;
-            }
-            shape[idx] = dataShape[i];
-        }
-        Array r = Array.factory(DataType.DOUBLE, shape);
-        Index indexr = r.getIndex();
-        int[] current;
-        for (int i = 0; i < r.getSize(); i++) {
-            current = indexr.getCurrentCounter();
-            List<Range> ranges = new ArrayList<>();
-            for (int j = 0; j < dataShape.length; j++) {
-                if (j == axis) {
-                    ranges.add(new Range(0, dataShape[j] - 1, 1));
-                } else {
-                    idx = j;
-                    if (idx > axis) {
-                        idx -= 1;
-                    }
-                    ranges.add(new Range(current[idx], current[idx], 1));
-                }
-            }
-            Array aa = ArrayMath.section(a, ranges);
-            double[] v = (double[])aa.get1DJavaArray(Double.class);
-            double q = StatUtils.percentile(v, p);
-            r.setDouble(i, q);
-            indexr.incr();
-        }
-
-        return r;
+        return ArrayReduce.percentile(a, p, axis);
     }
     
     /**
@@ -13,6 +13,8 @@
  */
 package org.meteoinfo.projection;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.meteoinfo.global.PointD;
 import org.meteoinfo.projection.proj4j.CoordinateTransform;
 import org.meteoinfo.projection.proj4j.CoordinateTransformFactory;
@@ -25,6 +27,13 @@ import org.meteoinfo.projection.proj4j.ProjCoordinate;
 public class Reproject {
 
     private static final CoordinateTransformFactory ctFactory = new CoordinateTransformFactory();
+    private static final int TRANSFORM_CACHE_SIZE = 64;
+    private static final Map<String, CoordinateTransform> TRANSFORM_CACHE = new LinkedHashMap<String, CoordinateTransform>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CoordinateTransform> eldest) {
+            return size() > TRANSFORM_CACHE_SIZE;
+        }
+    };
 
     /**
      * Reproject a point
@@ -62,26 +71,130 @@ public class Reproject {
      * @param numPoints Point number
      */
     public static void reprojectPoints(double[][] points, ProjectionInfo source, ProjectionInfo dest, int startIndex, int numPoints) {
-        CoordinateTransform trans = ctFactory.createTransform(source.getCoordinateReferenceSystem(), dest.getCoordinateReferenceSystem());
-        if (source.getProjectionName() == ProjectionNames.LongLat) {
-            for (int i = startIndex; i < startIndex + numPoints; i++) {
-                if (i >= points.length) {
-                    break;
-                }
-                if (points[i][0] > 180.0) {
+        CoordinateTransform trans = getTransform(source, dest);
+        boolean isLonLat = source.getProjectionName() == ProjectionNames.LongLat;
+        int endIndex = Math.min(startIndex + numPoints, points.length);
+        ProjCoordinate p1 = new ProjCoordinate();
+        ProjCoordinate p2 = new ProjCoordinate();
+        synchronized (trans) {
+            for (int i = startIndex; i < endIndex; i++) {
+                if (isLonLat && points[i][0] > 180.0) {
                     points[i][0] -= 360;
                 }
+                p1.x = points[i][0];
+                p1.y = points[i][1];
+                trans.transform(p1, p2);
+                points[i][0] = p2.x;
+                points[i][1] = p2.y;
+            }
+        }
+    }
+
+    /**
+     * Reproject packed coordinate arrays in place. Points failed to be
+     * transformed are set to NaN.
+     *
+     * @param xs X coordinates
+     * @param ys Y coordinates
+     * @param source Source projection info
+     * @param dest Destination projection info
+     */
+    public static void reproject(double[] xs, double[] ys, ProjectionInfo source, ProjectionInfo dest) {
+        reproject(xs, ys, 0, xs.length, source, dest);
+    }
+
+    /**
+     * Reproject packed coordinate arrays in place. Points failed to be
+     * transformed are set to NaN.
+     *
+     * @param xs X coordinates
+     * @param ys Y coordinates
+     * @param startIndex Start index
+     * @param numPoints Point number
+     * @param source Source projection info
+     * @param dest Destination projection info
+     */
+    public static void reproject(double[] xs, double[] ys, int startIndex, int numPoints,
+            ProjectionInfo source, ProjectionInfo dest) {
+        CoordinateTransform trans = getTransform(source, dest);
+        boolean isLonLat = source.getProjectionName() == ProjectionNames.LongLat;
+        synchronized (trans) {
+            reproject(xs, ys, startIndex, numPoints, trans, isLonLat);
+        }
+    }
+
+    /**
+     * Reproject packed coordinate arrays in place by a coordinate transform.
+     * Points failed to be transformed are set to NaN.
+     *
+     * @param xs X coordinates
+     * @param ys Y coordinates
+     * @param startIndex Start index
+     * @param numPoints Point number
+     * @param trans Coordinate transform, not used by other threads
+     * @param isLonLat If the source projection is longitude/latitude
+     */
+    public static void reproject(double[] xs, double[] ys, int startIndex, int numPoints,
+            CoordinateTransform trans, boolean isLonLat) {
+        int endIndex = Math.min(startIndex + numPoints, xs.length);
+        ProjCoordinate p1 = new ProjCoordinate();
+        ProjCoordinate p2 = new ProjCoordinate();
+        for (int i = startIndex; i < endIndex; i++) {
+            if (isLonLat && xs[i] > 180.0) {
+                xs[i] -= 360;
+            }
+            p1.x = xs[i];
+            p1.y = ys[i];
+            try {
+                trans.transform(p1, p2);
+                xs[i] = p2.x;
+                ys[i] = p2.y;
+            } catch (Exception e) {
+                xs[i] = Double.NaN;
+                ys[i] = Double.NaN;
             }
         }
-        for (int i = startIndex; i < startIndex + numPoints; i++) {
-            if (i >= points.length) {
-                break;
+    }
+
+    /**
+     * Create a new coordinate transform which is not shared by the transform
+     * cache, e.g. for use in one thread
+     *
+     * @param source Source projection info
+     * @param dest Destination projection info
+     * @return Coordinate transform
+     */
+    public static CoordinateTransform createTransform(ProjectionInfo source, ProjectionInfo dest) {
+        return ctFactory.createTransform(source.getCoordinateReferenceSystem(), dest.getCoordinateReferenceSystem());
+    }
+
+    /**
+     * Get a coordinate transform from the transform cache. The transform
+     * holds intermediate state, so callers should synchronize on it while
+     * transforming.
+     *
+     * @param source Source projection info
+     * @param dest Destination projection info
+     * @return Coordinate transform
+     */
+    public static CoordinateTransform getTransform(ProjectionInfo source, ProjectionInfo dest) {
+        String key = source.toProj4String() + " -> " + dest.toProj4String();
+        synchronized (TRANSFORM_CACHE) {
+            CoordinateTransform trans = TRANSFORM_CACHE.get(key);
+            if (trans == null) {
+                trans = ctFactory.createTransform(source.getCoordinateReferenceSystem(), dest.getCoordinateReferenceSystem());
+                TRANSFORM_CACHE.put(key, trans);
             }
-            ProjCoordinate p1 = new ProjCoordinate(points[i][0], points[i][1]);
-            ProjCoordinate p2 = new ProjCoordinate();
-            trans.transform(p1, p2);
-            points[i][0] = p2.x;
-            points[i][1] = p2.y;
+            return trans;
+        }
+    }
+
+    /**
+     * Clear the coordinate transform cache
+     */
+    public static void clearTransformCache() {
+        synchronized (TRANSFORM_CACHE) {
+            TRANSFORM_CACHE.clear();
         }
     }
 }
@@ -20,8 +20,11 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.meteoinfo.data.TableUtil;
@@ -708,19 +711,29 @@ public class DataTable {
      * @return Selected data rows
      */
     public List<DataRow> select(String expression) {
-        SQLExpression e = new SQLExpression(expression);
-        List<DataRow> dataRows = new ArrayList<>();
-        for (int i = 0; i < this.rows.size(); i++) {
-            DataRow row = this.rows.get(i);
-            row.setRowIndex(i);
-            if (e.eval(row.getItemMap())) {
-                dataRows.add(row);
-            }
+        BitSet rowIndex = this.selectRowIndex(expression);
+        List<DataRow> dataRows = new ArrayList<>(rowIndex.cardinality());
+        for (int i = rowIndex.nextSetBit(0); i >= 0; i = rowIndex.nextSetBit(i + 1)) {
+            dataRows.add(this.rows.get(i));
         }
 
         return dataRows;
     }
 
+    /**
+     * Select data row indexes
+     *
+     * @param expression SQL expression
+     * @return Bit set of selected row indexes
+     */
+    public BitSet selectRowIndex(String expression) {
+        for (int i = 0; i < this.rows.size(); i++) {
+            this.rows.get(i).setRowIndex(i);
+        }
+        SQLExpression e = new SQLExpression(expression);
+        return e.eval(this.rows);
+    }
+
     /**
      * Select and form a new data table
      *
@@ -1551,53 +1564,214 @@ public class DataTable {
      * @param isUpdate If update the existing values with same column name
      */
     public void join(DataTable dataTable, String colName_this, String colName_in, boolean isUpdate) {
-        DataColumn col_this = this.findColumn(colName_this);
-        if (col_this == null) {
-            System.out.println("There is no column of " + colName_this + " in this table");
-            return;
-        }
-        DataColumn col_in = dataTable.findColumn(colName_in);
-        if (col_in == null) {
-            System.out.println("There is no column of " + colName_in + " in this table");
+        List<String> colNames_this = new ArrayList<>();
+        colNames_this.add(colName_this);
+        List<String> colNames_in = new ArrayList<>();
+        colNames_in.add(colName_in);
+        this.join(dataTable, colNames_this, colNames_in, isUpdate);
+    }
+
+    /**
+     * Join data table by multiple key columns. Each row of this table gets
+     * the values of the first matched row of the input table.
+     *
+     * @param dataTable The input data table
+     * @param colNames_this The column names of this data table for join
+     * @param colNames_in The column names of the input data table for join
+     * @param isUpdate If update the existing values with same column name
+     */
+    public void join(DataTable dataTable, List<String> colNames_this, List<String> colNames_in, boolean isUpdate) {
+        List<DataColumn> keyCols_this = this.findJoinColumns(colNames_this);
+        List<DataColumn> keyCols_in = dataTable.findJoinColumns(colNames_in);
+        if (keyCols_this == null || keyCols_in == null) {
             return;
         }
 
-        List<String> values_this = this.getColumnData(colName_this).getDataStrings();
-        List<String> values_in = dataTable.getColumnData(colName_in).getDataStrings();
-
         List<String> colNames = this.getColumnNames();
-        List<String> newColNames = new ArrayList<>();
+        List<DataColumn> cols_in = new ArrayList<>();
+        List<DataColumn> cols_this = new ArrayList<>();
         for (DataColumn col : dataTable.columns) {
-            if (col.getColumnName().equals(colName_in)) {
+            if (keyCols_in.contains(col)) {
                 continue;
             }
             if (!colNames.contains(col.getColumnName())) {
                 Field newCol = new Field(col.getColumnName(), col.getDataType());
                 newCol.setJoined(true);
                 this.addColumn(newCol);
-                newColNames.add(col.getColumnName());
+                cols_in.add(col);
+                cols_this.add(newCol);
+            } else if (isUpdate) {
+                cols_in.add(col);
+                cols_this.add(this.findColumn(col.getColumnName()));
             }
         }
-        String value;
-        int idx;
-        for (int i = 0; i < this.getRowCount(); i++) {
-            value = values_this.get(i);
-            idx = values_in.indexOf(value);
-            if (idx >= 0) {
-                if (isUpdate) {
-                    for (String cn : dataTable.getColumnNames()) {
-                        if (cn.equals(colName_in)) {
-                            continue;
-                        }
-                        this.setValue(i, cn, dataTable.getValue(idx, cn));
+
+        boolean[] isString = getJoinKeyTypes(keyCols_this, keyCols_in);
+        Map<Object, List<Integer>> index = dataTable.createJoinIndex(keyCols_in, isString);
+        for (DataRow row : this.rows) {
+            List<Integer> idxs = index.get(getJoinKey(row, keyCols_this, isString));
+            if (idxs != null) {
+                DataRow row_in = dataTable.rows.get(idxs.get(0));
+                for (int j = 0; j < cols_in.size(); j++) {
+                    row.setValue(cols_this.get(j), row_in.getValue(cols_in.get(j).getColumnName()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Hash join with another data table to a new data table. Each row of this
+     * table is combined with all matched rows of the input table.
+     *
+     * @param dataTable The input data table
+     * @param colNames_this The column names of this data table for join
+     * @param colNames_in The column names of the input data table for join
+     * @param isInner Inner join if true (rows without match are dropped), left
+     * join if false (rows without match have missing input values)
+     * @return Joined data table
+     * @throws Exception
+     */
+    public DataTable hashJoin(DataTable dataTable, List<String> colNames_this, List<String> colNames_in,
+            boolean isInner) throws Exception {
+        List<DataColumn> keyCols_this = this.findJoinColumns(colNames_this);
+        List<DataColumn> keyCols_in = dataTable.findJoinColumns(colNames_in);
+        if (keyCols_this == null || keyCols_in == null) {
+            return null;
+        }
+
+        DataTable r = new DataTable();
+        List<DataColumn> newCols_this = new ArrayList<>();
+        for (DataColumn col : this.columns) {
+            newCols_this.add(r.addColumn(col.getColumnName(), col.getDataType()));
+        }
+        List<DataColumn> cols_in = new ArrayList<>();
+        List<DataColumn> newCols_in = new ArrayList<>();
+        List<String> colNames = this.getColumnNames();
+        for (DataColumn col : dataTable.columns) {
+            if (keyCols_in.contains(col)) {
+                continue;
+            }
+            String name = col.getColumnName();
+            if (colNames.contains(name)) {
+                name = name + "_in";
+            }
+            cols_in.add(col);
+            newCols_in.add(r.addColumn(name, col.getDataType()));
+        }
+
+        boolean[] isString = getJoinKeyTypes(keyCols_this, keyCols_in);
+        Map<Object, List<Integer>> index = dataTable.createJoinIndex(keyCols_in, isString);
+        for (DataRow row : this.rows) {
+            List<Integer> idxs = index.get(getJoinKey(row, keyCols_this, isString));
+            if (idxs == null) {
+                if (isInner) {
+                    continue;
+                }
+                DataRow nRow = r.newRow();
+                for (int j = 0; j < newCols_this.size(); j++) {
+                    nRow.setValue(newCols_this.get(j), row.getValue(this.columns.get(j).getColumnName()));
+                }
+                for (DataColumn col : newCols_in) {
+                    nRow.setValue(col, null);
+                }
+                r.addRow(nRow);
+            } else {
+                for (int idx : idxs) {
+                    DataRow row_in = dataTable.rows.get(idx);
+                    DataRow nRow = r.newRow();
+                    for (int j = 0; j < newCols_this.size(); j++) {
+                        nRow.setValue(newCols_this.get(j), row.getValue(this.columns.get(j).getColumnName()));
                     }
-                } else {
-                    for (String cn : newColNames) {
-                        this.setValue(i, cn, dataTable.getValue(idx, cn));
+                    for (int j = 0; j < cols_in.size(); j++) {
+                        nRow.setValue(newCols_in.get(j), row_in.getValue(cols_in.get(j).getColumnName()));
                     }
+                    r.addRow(nRow);
                 }
             }
         }
+
+        return r;
+    }
+
+    private List<DataColumn> findJoinColumns(List<String> colNames) {
+        List<DataColumn> cols = new ArrayList<>();
+        for (String colName : colNames) {
+            DataColumn col = this.findColumn(colName);
+            if (col == null) {
+                System.out.println("There is no column of " + colName + " in this table");
+                return null;
+            }
+            cols.add(col);
+        }
+        return cols;
+    }
+
+    /**
+     * Get if the join key columns are compared as strings - when the data
+     * types of the two columns are not both numeric and not the same
+     */
+    private static boolean[] getJoinKeyTypes(List<DataColumn> cols_a, List<DataColumn> cols_b) {
+        boolean[] isString = new boolean[cols_a.size()];
+        for (int i = 0; i < isString.length; i++) {
+            DataTypes ta = cols_a.get(i).getDataType();
+            DataTypes tb = cols_b.get(i).getDataType();
+            isString[i] = ta != tb && !(ta.isNumeric() && tb.isNumeric());
+        }
+        return isString;
+    }
+
+    private Map<Object, List<Integer>> createJoinIndex(List<DataColumn> keyCols, boolean[] isString) {
+        Map<Object, List<Integer>> index = new HashMap<>();
+        for (int i = 0; i < this.rows.size(); i++) {
+            Object key = getJoinKey(this.rows.get(i), keyCols, isString);
+            if (key == null) {
+                continue;
+            }
+            List<Integer> idxs = index.get(key);
+            if (idxs == null) {
+                idxs = new ArrayList<>(1);
+                index.put(key, idxs);
+            }
+            idxs.add(i);
+        }
+        return index;
+    }
+
+    private static Object getJoinKey(DataRow row, List<DataColumn> keyCols, boolean[] isString) {
+        if (keyCols.size() == 1) {
+            return getJoinKeyValue(row.getValue(keyCols.get(0).getColumnName()), isString[0]);
+        }
+
+        List<Object> key = new ArrayList<>(keyCols.size());
+        for (int i = 0; i < keyCols.size(); i++) {
+            Object v = getJoinKeyValue(row.getValue(keyCols.get(i).getColumnName()), isString[i]);
+            if (v == null) {
+                return null;
+            }
+            key.add(v);
+        }
+        return key;
+    }
+
+    /**
+     * Normalize a join key value - numbers with same value are equal keys
+     * regardless of their types
+     */
+    private static Object getJoinKeyValue(Object v, boolean isString) {
+        if (v == null) {
+            return null;
+        }
+        if (isString) {
+            return v.toString();
+        }
+        if (v instanceof Number) {
+            double d = v instanceof Float ? Double.parseDouble(v.toString()) : ((Number) v).doubleValue();
+            if (d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < Long.MAX_VALUE) {
+                return (long) d;
+            }
+            return d;
+        }
+        return v;
     }
 
     /**
@@ -15,7 +15,10 @@ package org.meteoinfo.table;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -34,6 +37,7 @@ public class SQLExpression {
     private StringBuffer sb;
     private int cur_token_index;
     private final int token_count;
+    private Node root;
     // </editor-fold>
     // <editor-fold desc="Constructor">
 
@@ -251,6 +255,82 @@ public class SQLExpression {
 
     }
 
+    /**
+     * Evaluate the expression over data rows. The expression is compiled once
+     * to an evaluator tree, and each comparison is evaluated over the values
+     * of its column for the rows still undecided by the preceding and/or
+     * operands.
+     *
+     * @param rows Data rows
+     * @return Bit set of the selected row indexes
+     */
+    public BitSet eval(List<DataRow> rows) {
+        if (this.root == null) {
+            this.nextToken();
+            this.root = this.compileAndOr();
+            this.cur_token_index = -1;
+        }
+
+        int n = rows.size();
+        BitSet candidates = new BitSet(n);
+        candidates.set(0, n);
+        return this.root.eval(new ColumnSource(rows), candidates);
+    }
+
+    private Node compileAndOr() {
+        Node result = this.compileNot();
+        String op;
+        while ((op = this.currentToken()).equalsIgnoreCase("and") || op.equalsIgnoreCase("or")) {
+            this.nextToken();
+            Node right = this.compileNot();
+            if (op.equalsIgnoreCase("and")) {
+                result = new AndNode(result, right);
+            } else {
+                result = new OrNode(result, right);
+            }
+        }
+
+        return result;
+    }
+
+    private Node compileNot() {
+        String op;
+        if ((op = this.currentToken()).equalsIgnoreCase("not")) {
+            this.nextToken();
+        }
+
+        Node result = this.compileBrackets();
+        if (op.equalsIgnoreCase("not")) {
+            return new NotNode(result);
+        }
+
+        return result;
+    }
+
+    private Node compileBrackets() {
+        Node result;
+        if (this.currentToken().equals("(")) {
+            this.nextToken();
+            result = this.compileAndOr();
+            this.nextToken();
+        } else {
+            result = this.compileCompare();
+        }
+
+        return result;
+    }
+
+    private Node compileCompare() {
+        String field = this.currentToken().toLowerCase();
+        this.nextToken();
+        String opt = this.currentToken();
+        this.nextToken();
+        String value = this.currentToken();
+        this.nextToken();
+
+        return new CompareNode(field, opt, value);
+    }
+
 //<editor-fold  defaultstate="collapsed" desc="tool method">
     private static boolean isLike(Object field, String value) {
         int len = value.length();
@@ -343,6 +423,269 @@ public class SQLExpression {
         return Convert.toString(field).compareTo(value.substring(1, value.length() - 1)) >= 0;
     }
     // </editor-fold>
+
+    // <editor-fold desc="Compiled evaluator">
+    /**
+     * Column values of data rows, extracted once per referenced column
+     */
+    private static class ColumnSource {
+
+        private final List<DataRow> rows;
+        private final Map<String, ColumnValues> columns = new HashMap<>();
+
+        ColumnSource(List<DataRow> rows) {
+            this.rows = rows;
+        }
+
+        ColumnValues get(String field) {
+            ColumnValues col = this.columns.get(field);
+            if (col == null) {
+                int n = this.rows.size();
+                col = new ColumnValues();
+                col.values = new Object[n];
+                col.floats = new float[n];
+                col.numeric = true;
+                for (int i = 0; i < n; i++) {
+                    Object v = this.rows.get(i).getItemMap().get(field);
+                    col.values[i] = v;
+                    if (v instanceof Number) {
+                        col.floats[i] = ((Number) v).floatValue();
+                    } else {
+                        col.numeric = false;
+                    }
+                }
+                this.columns.put(field, col);
+            }
+            return col;
+        }
+    }
+
+    private static class ColumnValues {
+
+        Object[] values;
+        float[] floats;
+        boolean numeric;
+    }
+
+    private static abstract class Node {
+
+        /**
+         * Evaluate the node for candidate rows
+         *
+         * @param source Column source
+         * @param candidates Candidate row indexes
+         * @return Selected row indexes, a subset of the candidates
+         */
+        abstract BitSet eval(ColumnSource source, BitSet candidates);
+    }
+
+    private static class AndNode extends Node {
+
+        private final Node left;
+        private final Node right;
+
+        AndNode(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        BitSet eval(ColumnSource source, BitSet candidates) {
+            BitSet r = this.left.eval(source, candidates);
+            if (r.isEmpty()) {
+                return r;
+            }
+            return this.right.eval(source, r);
+        }
+    }
+
+    private static class OrNode extends Node {
+
+        private final Node left;
+        private final Node right;
+
+        OrNode(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        BitSet eval(ColumnSource source, BitSet candidates) {
+            BitSet r = this.left.eval(source, candidates);
+            BitSet rest = (BitSet) candidates.clone();
+            rest.andNot(r);
+            if (!rest.isEmpty()) {
+                r.or(this.right.eval(source, rest));
+            }
+            return r;
+        }
+    }
+
+    private static class NotNode extends Node {
+
+        private final Node node;
+
+        NotNode(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        BitSet eval(ColumnSource source, BitSet candidates) {
+            BitSet r = (BitSet) candidates.clone();
+            r.andNot(this.node.eval(source, candidates));
+            return r;
+        }
+    }
+
+    private static class CompareNode extends Node {
+
+        private final String field;
+        private final String opt;
+        private final String value;
+        private final float floatValue;
+        private String stringValue;
+        private Date dateValue;
+        private boolean dateParsed = false;
+
+        CompareNode(String field, String opt, String value) {
+            this.field = field;
+            this.opt = opt;
+            this.value = value;
+            this.floatValue = Convert.toFloat(value);
+        }
+
+        @Override
+        BitSet eval(ColumnSource source, BitSet candidates) {
+            ColumnValues col = source.get(this.field);
+            BitSet r = new BitSet(col.values.length);
+            if (col.numeric && !this.opt.equals("like") && !this.value.equals("null")) {
+                float[] floats = col.floats;
+                float v = this.floatValue;
+                for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                    float f = floats[i];
+                    boolean b;
+                    switch (this.opt) {
+                        case ">":
+                            b = f > v;
+                            break;
+                        case "<":
+                            b = f < v;
+                            break;
+                        case "=":
+                            b = f == v;
+                            break;
+                        case ">=":
+                            b = f >= v;
+                            break;
+                        case "<=":
+                            b = f <= v;
+                            break;
+                        case "<>":
+                            b = f != v;
+                            break;
+                        default:
+                            b = false;
+                            break;
+                    }
+                    if (b) {
+                        r.set(i);
+                    }
+                }
+            } else {
+                Object[] values = col.values;
+                for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                    if (this.test(values[i], col.floats[i])) {
+                        r.set(i);
+                    }
+                }
+            }
+
+            return r;
+        }
+
+        private boolean test(Object field, float f) {
+            switch (this.opt) {
+                case "like":
+                    return isLike(field, this.value);
+                case ">":
+                    if (field instanceof Number) {
+                        return f > this.floatValue;
+                    }
+                    if (field instanceof Date) {
+                        return ((Date) field).after(this.getDateValue());
+                    }
+                    return Convert.toString(field).compareTo(this.getStringValue()) > 0;
+                case "<":
+                    if (field instanceof Number) {
+                        return f < this.floatValue;
+                    }
+                    if (field instanceof Date) {
+                        return ((Date) field).before(this.getDateValue());
+                    }
+                    return Convert.toString(field).compareTo(this.getStringValue()) < 0;
+                case ">=":
+                    if (field instanceof Number) {
+                        return f >= this.floatValue;
+                    }
+                    if (field instanceof Date) {
+                        return ((Date) field).after(this.getDateValue()) || field.equals(this.getDateValue());
+                    }
+                    return Convert.toString(field).compareTo(this.getStringValue()) >= 0;
+                case "<=":
+                    if (field instanceof Number) {
+                        return f <= this.floatValue;
+                    }
+                    if (field instanceof Date) {
+                        return ((Date) field).before(this.getDateValue()) || field.equals(this.getDateValue());
+                    }
+                    return Convert.toString(field).compareTo(this.getStringValue()) <= 0;
+                case "=":
+                    return this.testEquals(field, f);
+                case "<>":
+                    if (this.value.equals("null")) {
+                        return field != null;
+                    }
+                    if (field instanceof Number) {
+                        return f != this.floatValue;
+                    }
+                    return !this.testEquals(field, f);
+                default:
+                    return false;
+            }
+        }
+
+        private boolean testEquals(Object field, float f) {
+            if (this.value.equals("null")) {
+                return field == null;
+            }
+            if (field instanceof Number) {
+                return f == this.floatValue;
+            }
+            if (field instanceof Boolean) {
+                return (Boolean) field == Convert.toBool(this.value);
+            }
+            if (field instanceof Date) {
+                return field.equals(this.getDateValue());
+            }
+            return Convert.toString(field).equals(this.value);
+        }
+
+        private String getStringValue() {
+            if (this.stringValue == null) {
+                this.stringValue = this.value.substring(1, this.value.length() - 1);
+            }
+            return this.stringValue;
+        }
+
+        private Date getDateValue() {
+            if (!this.dateParsed) {
+                this.dateValue = Convert.toDate(this.value);
+                this.dateParsed = true;
+            }
+            return this.dateValue;
+        }
+    }
+    // </editor-fold>
 }
 
 class Convert {